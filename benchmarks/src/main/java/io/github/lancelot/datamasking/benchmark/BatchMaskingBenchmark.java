@@ -0,0 +1,68 @@
+package io.github.lancelot.datamasking.benchmark;
+
+import io.github.lancelot.datamasking.MaskingContext;
+import io.github.lancelot.datamasking.SensitiveReplacer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每批1000条日志事件：逐条调用、批量接口、以及直接写入复用缓冲区三种方式的耗时与分配
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchMaskingBenchmark {
+
+    private static final int EVENTS = 1000;
+
+    private final List<String> events = new ArrayList<>(EVENTS);
+
+    private final MaskingContext context = new MaskingContext();
+
+    private final StringBuilder out = new StringBuilder(1024);
+
+    @Setup
+    public void setup() {
+        Payloads.registerFields();
+        for (int i = 0; i < EVENTS; i++) {
+            events.add(Payloads.generate(Payloads.Shape.FLAT_JSON, 256, i % 10 == 0 ? 100 : 10));
+        }
+    }
+
+    @Benchmark
+    public void perEvent(Blackhole blackhole) {
+        for (String event : events) {
+            blackhole.consume(SensitiveReplacer.deSensitiveString(event));
+        }
+    }
+
+    @Benchmark
+    public List<String> batch() {
+        return context.deSensitiveAll(events);
+    }
+
+    @Benchmark
+    public void intoReusedBuilder(Blackhole blackhole) {
+        for (String event : events) {
+            out.setLength(0);
+            context.deSensitive(event, out);
+            blackhole.consume(out);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.lancelot.datamasking.benchmark;
+
+import io.github.lancelot.datamasking.SensitiveInfoRegistry;
+import io.github.lancelot.datamasking.SensitiveReplacer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 字符串值中嵌入转义 JSON 的报文：只跳过转义（embedded=false）与递归脱敏（embedded=true）的对照
+ *
+ * 无转义报文的耗时见 {@link SensitiveReplacerBenchmark}，转义判断不应让它变慢。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmbeddedJsonBenchmark {
+
+    @Param({"1024", "65536"})
+    public int size;
+
+    @Param({"10", "100"})
+    public int density;
+
+    @Param({"true", "false"})
+    public boolean embedded;
+
+    private String payload;
+
+    @Setup
+    public void setup() {
+        Payloads.registerFields();
+        SensitiveInfoRegistry.maskEmbeddedJson(embedded);
+        payload = Payloads.generateEmbedded(size, density);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SensitiveInfoRegistry.maskEmbeddedJson(false);
+    }
+
+    @Benchmark
+    public String deSensitiveString() {
+        return SensitiveReplacer.deSensitiveString(payload);
+    }
+}
@@ -0,0 +1,51 @@
+package io.github.lancelot.datamasking.benchmark;
+
+import io.github.lancelot.datamasking.SensitiveReplacer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 字段名预筛选的效果：单条日志长度的输入，density 为 0 时不含任何已注册字段名，直接原样返回；
+ * density 为 10 时含有敏感字段，预筛选的开销叠加在完整扫描之上
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FastPathBenchmark {
+
+    @Param({"PLAIN_TEXT", "FLAT_JSON"})
+    public Payloads.Shape shape;
+
+    @Param({"0", "10"})
+    public int density;
+
+    @Param({"512"})
+    public int size;
+
+    private String payload;
+
+    @Setup
+    public void setup() {
+        Payloads.registerFields();
+        payload = Payloads.generate(shape, size, density);
+    }
+
+    @Benchmark
+    public String deSensitiveString() {
+        return SensitiveReplacer.deSensitiveString(payload);
+    }
+}
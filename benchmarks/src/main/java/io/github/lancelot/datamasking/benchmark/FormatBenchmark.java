@@ -0,0 +1,57 @@
+package io.github.lancelot.datamasking.benchmark;
+
+import io.github.lancelot.datamasking.MaskingFormat;
+import io.github.lancelot.datamasking.SensitiveReplacer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各输入格式的脱敏耗时：字段相同的报文分别以 JSON、key=value、查询串和 XML 输出，
+ * auto 额外包含逐条判断格式的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatBenchmark {
+
+    @Param({"JSON", "KEY_VALUE", "QUERY_STRING", "XML"})
+    public MaskingFormat format;
+
+    @Param({"0", "10", "100"})
+    public int density;
+
+    @Param({"4096"})
+    public int size;
+
+    private String payload;
+
+    @Setup
+    public void setup() {
+        Payloads.registerFields();
+        payload = Payloads.generate(format, size, density);
+    }
+
+    @Benchmark
+    public String deSensitiveString() {
+        return SensitiveReplacer.deSensitiveString(payload, format);
+    }
+
+    @Benchmark
+    public String auto() {
+        return SensitiveReplacer.deSensitiveString(payload, MaskingFormat.AUTO);
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.lancelot.datamasking.benchmark;
+
+import io.github.lancelot.datamasking.SensitiveInfoRegistry;
+import io.github.lancelot.datamasking.SensitiveReplacer;
+import io.github.lancelot.datamasking.SensitiveType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 普通日志文本中的自由文本识别：开启识别、关闭识别（只做 JSON 扫描）与等价正则实现的对照
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FreeTextDetectionBenchmark {
+
+    @Param({"1024", "65536"})
+    public int size;
+
+    @Param({"0", "10", "100"})
+    public int density;
+
+    @Param({"true", "false"})
+    public boolean detect;
+
+    private String payload;
+
+    private RegexFreeTextMasker regexMasker;
+
+    @Setup
+    public void setup() {
+        Payloads.registerFields();
+        if (detect) {
+            SensitiveInfoRegistry.detectInFreeText(SensitiveType.MOBILE_PHONE, SensitiveType.ID_CARD,
+                    SensitiveType.BANK_CARD, SensitiveType.EMAIL);
+        }
+        payload = Payloads.generateFreeText(size, density);
+        regexMasker = new RegexFreeTextMasker();
+    }
+
+    @TearDown
+    public void tearDown() {
+        SensitiveInfoRegistry.detectInFreeText();
+    }
+
+    @Benchmark
+    public String deSensitiveString() {
+        return SensitiveReplacer.deSensitiveString(payload);
+    }
+
+    @Benchmark
+    public String regex() {
+        return regexMasker.mask(payload);
+    }
+}
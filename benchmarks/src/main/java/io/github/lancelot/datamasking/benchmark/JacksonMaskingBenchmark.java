@@ -0,0 +1,121 @@
+package io.github.lancelot.datamasking.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.lancelot.datamasking.SensitiveReplacer;
+import io.github.lancelot.datamasking.jackson.MaskingModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 序列化后再脱敏与序列化时脱敏（{@link MaskingModule}）的对比，对象图为订单列表，
+ * 每个订单含买家、收货地址和若干商品，敏感字段按 {@link Payloads#registerFields()} 注册
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonMaskingBenchmark {
+
+    public static class Customer {
+        public String name = "张三丰";
+        public String mobile = "13800138000";
+        public String idCard = "110101199003072345";
+        public String email = "zhangsan@example.com";
+        public String level = "GOLD";
+        public int points = 1288;
+    }
+
+    public static class Address {
+        public String address = "北京市海淀区中关村大街1号";
+        public String city = "北京";
+        public String zipCode = "100080";
+        public String phone = "01012345678";
+    }
+
+    public static class Item {
+        public String productName = "机械键盘";
+        public String sku = "KB-87-RED";
+        public int quantity = 2;
+        public double price = 644.0;
+    }
+
+    public static class Payment {
+        public String bankCard = "6225880123456789";
+        public String bankName = "中国工商银行";
+        public String channel = "APP";
+        public String expiryDate = "0126";
+    }
+
+    public static class Order {
+        public String orderId;
+        public String status = "PAID";
+        public String remark = "请尽快发货，谢谢";
+        public String createTime = "2024-01-01 12:00:00";
+        public Customer buyer = new Customer();
+        public Address shipping = new Address();
+        public Payment payment = new Payment();
+        public List<Item> items = new ArrayList<>();
+    }
+
+    /**
+     * 订单数
+     */
+    @Param({"10", "1000"})
+    public int orders;
+
+    private List<Order> graph;
+
+    private ObjectMapper plain;
+
+    private ObjectMapper masking;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        Payloads.registerFields();
+        graph = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            Order order = new Order();
+            order.orderId = "20240101" + i;
+            for (int j = 0; j < 3; j++) {
+                order.items.add(new Item());
+            }
+            graph.add(order);
+        }
+        plain = new ObjectMapper();
+        masking = new ObjectMapper().registerModule(new MaskingModule());
+        if (!serializeThenMask().equals(maskWhileSerializing())) {
+            throw new IllegalStateException("results differ");
+        }
+    }
+
+    @Benchmark
+    public String serializeThenMask() throws JsonProcessingException {
+        return SensitiveReplacer.deSensitiveString(plain.writeValueAsString(graph));
+    }
+
+    @Benchmark
+    public String maskWhileSerializing() throws JsonProcessingException {
+        return masking.writeValueAsString(graph);
+    }
+
+    @Benchmark
+    public String serializeOnly() throws JsonProcessingException {
+        return plain.writeValueAsString(graph);
+    }
+}
@@ -0,0 +1,72 @@
+package io.github.lancelot.datamasking.benchmark;
+
+import io.github.lancelot.datamasking.SensitiveInfoRegistry;
+import io.github.lancelot.datamasking.SensitiveReplacer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 字段名宽松匹配（忽略大小写和分隔符）相对精确匹配的开销：同一份报文分别在两种模式下脱敏，
+ * 字段名都是注册时的写法，两种模式的结果相同
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyMatchingBenchmark {
+
+    @Param({"false", "true"})
+    public boolean relaxed;
+
+    @Param({"FLAT_JSON", "NESTED_JSON"})
+    public Payloads.Shape shape;
+
+    @Param({"0", "10", "100"})
+    public int density;
+
+    @Param({"4096"})
+    public int size;
+
+    private String payload;
+
+    private byte[] utf8;
+
+    @Setup
+    public void setup() {
+        Payloads.registerFields();
+        SensitiveInfoRegistry.relaxedKeyMatching(relaxed);
+        payload = Payloads.generate(shape, size, density);
+        utf8 = payload.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SensitiveInfoRegistry.relaxedKeyMatching(false);
+    }
+
+    @Benchmark
+    public String deSensitiveString() {
+        return SensitiveReplacer.deSensitiveString(payload);
+    }
+
+    @Benchmark
+    public ByteBuffer deSensitiveUtf8() {
+        return SensitiveReplacer.deSensitive(utf8);
+    }
+}
@@ -0,0 +1,140 @@
+package io.github.lancelot.datamasking.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import io.github.lancelot.datamasking.logback.MaskingPatternLayout;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.DefaultConfiguration;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.core.layout.ByteBufferDestination;
+import org.apache.logging.log4j.core.layout.ByteBufferDestinationHelper;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 日志框架集成：同一事件分别用 %msg 和 %maskedMsg 布局的耗时与分配，差值即脱敏的额外开销
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog4j2.enable.threadlocals=true", "-Dlog4j2.enable.direct.encoders=true"})
+public class LoggingIntegrationBenchmark {
+
+    private static final String PATTERN = "%level %logger - ";
+
+    private PatternLayout logbackPlain;
+
+    private PatternLayout logbackMasked;
+
+    private LoggingEvent logbackEvent;
+
+    private org.apache.logging.log4j.core.layout.PatternLayout log4jPlain;
+
+    private org.apache.logging.log4j.core.layout.PatternLayout log4jMasked;
+
+    private LogEvent log4jEvent;
+
+    private final DiscardingDestination destination = new DiscardingDestination();
+
+    @Setup
+    public void setup() {
+        Payloads.registerFields();
+        String payload = Payloads.generate(Payloads.Shape.FLAT_JSON, 512, 10);
+
+        LoggerContext context = new LoggerContext();
+        logbackPlain = logbackLayout(context, new PatternLayout(), PATTERN + "%msg");
+        logbackMasked = logbackLayout(context, new MaskingPatternLayout(), PATTERN + "%maskedMsg");
+        logbackEvent = new LoggingEvent(LoggingIntegrationBenchmark.class.getName(),
+                context.getLogger("bench"), Level.INFO, "request {}", null, new Object[]{payload});
+
+        DefaultConfiguration configuration = new DefaultConfiguration();
+        log4jPlain = log4jLayout(configuration, PATTERN + "%msg");
+        log4jMasked = log4jLayout(configuration, PATTERN + "%maskedMsg");
+        log4jEvent = Log4jLogEvent.newBuilder()
+                .setLoggerName("bench")
+                .setLevel(org.apache.logging.log4j.Level.INFO)
+                .setMessage(new ParameterizedMessage("request {}", payload))
+                .build();
+    }
+
+    @Benchmark
+    public String logbackMsg() {
+        return logbackPlain.doLayout(logbackEvent);
+    }
+
+    @Benchmark
+    public String logbackMaskedMsg() {
+        return logbackMasked.doLayout(logbackEvent);
+    }
+
+    @Benchmark
+    public ByteBuffer log4jMsg() {
+        log4jPlain.encode(log4jEvent, destination);
+        return destination.buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer log4jMaskedMsg() {
+        log4jMasked.encode(log4jEvent, destination);
+        return destination.buffer;
+    }
+
+    private static PatternLayout logbackLayout(LoggerContext context, PatternLayout layout, String pattern) {
+        layout.setContext(context);
+        layout.setPattern(pattern);
+        layout.start();
+        return layout;
+    }
+
+    private static org.apache.logging.log4j.core.layout.PatternLayout log4jLayout(DefaultConfiguration configuration,
+                                                                                 String pattern) {
+        return org.apache.logging.log4j.core.layout.PatternLayout.newBuilder()
+                .withConfiguration(configuration)
+                .withPattern(pattern)
+                .build();
+    }
+
+    /**
+     * 编码结果直接丢弃，只测量布局本身
+     */
+    private static final class DiscardingDestination implements ByteBufferDestination {
+        private ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+        @Override
+        public ByteBuffer getByteBuffer() {
+            return buffer;
+        }
+
+        @Override
+        public ByteBuffer drain(ByteBuffer buf) {
+            buf.clear();
+            return buf;
+        }
+
+        @Override
+        public void writeBytes(ByteBuffer data) {
+            ByteBufferDestinationHelper.writeToUnsynchronized(data, this);
+        }
+
+        @Override
+        public void writeBytes(byte[] data, int offset, int length) {
+            ByteBufferDestinationHelper.writeToUnsynchronized(data, offset, length, this);
+        }
+    }
+}
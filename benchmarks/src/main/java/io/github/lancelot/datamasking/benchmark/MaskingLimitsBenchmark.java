@@ -0,0 +1,94 @@
+package io.github.lancelot.datamasking.benchmark;
+
+import io.github.lancelot.datamasking.MaskingEngine;
+import io.github.lancelot.datamasking.MaskingLimits;
+import io.github.lancelot.datamasking.SensitiveType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单条异常报文的处理时间：敏感字段下的超长 base64 值、缺少结束引号的字段名、普通报文，
+ * 分别在不限制和限制（字段名 256、值 4096、输入 64K）时脱敏
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MaskingLimitsBenchmark {
+
+    public enum Input {
+        HUGE_VALUE, UNMATCHED_QUOTE, NORMAL
+    }
+
+    @Param({"false", "true"})
+    public boolean limited;
+
+    @Param({"HUGE_VALUE", "UNMATCHED_QUOTE", "NORMAL"})
+    public Input input;
+
+    @Param({"4194304"})
+    public int size;
+
+    private MaskingEngine engine;
+
+    private String payload;
+
+    private byte[] utf8;
+
+    @Setup
+    public void setup() {
+        MaskingEngine.Builder builder = MaskingEngine.builder().field("attachment", SensitiveType.ALL)
+                .field("mobile", SensitiveType.MOBILE_PHONE);
+        if (limited) {
+            builder.limits(MaskingLimits.builder().maxKeyLength(256).maxValueLength(4096).maxInputLength(64 * 1024)
+                    .build());
+        }
+        engine = builder.build();
+        StringBuilder sb = new StringBuilder(size + 64);
+        switch (input) {
+            case HUGE_VALUE:
+                sb.append("{\"mobile\":\"13800138000\",\"attachment\":\"");
+                while (sb.length() < size) {
+                    sb.append("QUJDREVGR0hJSktMTU5PUFFSU1RVVldYWVphYmNkZWZnaGlqa2xtbm9wcXJzdHV2d3h5ejAxMjM0NTY3ODkrLw==");
+                }
+                sb.append("\"}");
+                break;
+            case UNMATCHED_QUOTE:
+                sb.append("{\"mobile\":\"13800138000\",\"msg\":\"x\",\"");
+                while (sb.length() < size) {
+                    sb.append("request failed mobile 13800138000 retry later ");
+                }
+                break;
+            default:
+                sb.append(Payloads.generate(Payloads.Shape.FLAT_JSON, 4096, 10));
+                break;
+        }
+        payload = sb.toString();
+        utf8 = payload.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String deSensitiveString() {
+        return engine.deSensitiveString(payload);
+    }
+
+    @Benchmark
+    public ByteBuffer deSensitiveUtf8() {
+        return engine.deSensitive(ByteBuffer.wrap(utf8));
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.lancelot.datamasking.benchmark;
+
+import io.github.lancelot.datamasking.MaskingStrategy;
+import io.github.lancelot.datamasking.SensitiveInfoRegistry;
+import io.github.lancelot.datamasking.SensitiveReplacer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自定义规则与内置规则的耗时对比
+ *
+ * BUILTIN 按 {@link Payloads#registerFields()} 注册内置类型；KEEP 把同样的字段全部换成
+ * {@link MaskingStrategy#keep} 描述的规则，输出长度相近；MIXED 一半内置一半自定义，
+ * 检查两类规则同时出现时脱敏调用点是否仍然保持单态。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MaskingStrategyBenchmark {
+
+    public enum Rules { BUILTIN, KEEP, MIXED }
+
+    @Param({"BUILTIN", "KEEP", "MIXED"})
+    public Rules rules;
+
+    private String payload;
+
+    private byte[] utf8;
+
+    @Setup
+    public void setup() {
+        Payloads.registerFields();
+        Map<String, MaskingStrategy> strategies = new HashMap<>();
+        if (rules != Rules.BUILTIN) {
+            strategies.put("mobile", MaskingStrategy.keep(3, 4).fixedWidth(6));
+            strategies.put("idCard", MaskingStrategy.keep(3, 3).fixedWidth(6));
+            strategies.put("bankCard", MaskingStrategy.keep(2, 4).fill('#'));
+            strategies.put("name", MaskingStrategy.keep(1, 0).fixedWidth(1));
+            strategies.put("address", MaskingStrategy.keep(2, 2).proportionalWidth(0.5));
+        }
+        if (rules == Rules.KEEP) {
+            strategies.put("email", MaskingStrategy.keep(0, 4));
+            strategies.put("phone", MaskingStrategy.keep(0, 4));
+            strategies.put("bankName", MaskingStrategy.keep(4, 0));
+            strategies.put("cnaps", MaskingStrategy.keep(4, 4).fixedWidth(6));
+            strategies.put("expiryDate", MaskingStrategy.keep(1, 1));
+        }
+        SensitiveInfoRegistry.replaceAllStrategies(strategies);
+        payload = Payloads.generate(Payloads.Shape.FLAT_JSON, 65536, 100);
+        utf8 = payload.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SensitiveInfoRegistry.replaceAllStrategies(Collections.<String, MaskingStrategy>emptyMap());
+    }
+
+    @Benchmark
+    public String deSensitiveString() {
+        return SensitiveReplacer.deSensitiveString(payload);
+    }
+
+    @Benchmark
+    public Object deSensitiveUtf8() {
+        return SensitiveReplacer.deSensitive(utf8);
+    }
+}
@@ -0,0 +1,62 @@
+package io.github.lancelot.datamasking.benchmark;
+
+import io.github.lancelot.datamasking.MaskingMetrics;
+import io.github.lancelot.datamasking.SensitiveReplacer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 指标采集的开销：metrics=false 应与未加入指标前的 {@link SensitiveReplacerBenchmark} 持平，
+ * metrics=true 时多线程也不应因计数器争用而明显变慢
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    @Param({"256", "4096"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private String payload;
+
+    @Setup
+    public void setup() {
+        Payloads.registerFields();
+        if (metrics) {
+            MaskingMetrics.enable();
+        } else {
+            MaskingMetrics.disable();
+        }
+        payload = Payloads.generate(Payloads.Shape.FLAT_JSON, size, 10);
+    }
+
+    @TearDown
+    public void tearDown() {
+        MaskingMetrics.disable();
+    }
+
+    @Benchmark
+    public String deSensitiveString() {
+        return SensitiveReplacer.deSensitiveString(payload);
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.lancelot.datamasking.benchmark;
+
+import io.github.lancelot.datamasking.SensitiveReplacer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大文档顺序脱敏与 {@link SensitiveReplacer#deSensitiveStringParallel(String)} 的对比，
+ * 并行版本的加速比取决于公共 ForkJoinPool 的并行度
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelMaskingBenchmark {
+
+    @Param({"ARRAY_OF_OBJECTS", "NESTED_JSON"})
+    public Payloads.Shape shape;
+
+    @Param({"33554432"})
+    public int size;
+
+    private String payload;
+
+    @Setup
+    public void setup() {
+        Payloads.registerFields();
+        payload = Payloads.generate(shape, size, 10);
+    }
+
+    @Benchmark
+    public String sequential() {
+        return SensitiveReplacer.deSensitiveString(payload);
+    }
+
+    @Benchmark
+    public String parallel() {
+        return SensitiveReplacer.deSensitiveStringParallel(payload);
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.lancelot.datamasking.benchmark;
+
+import io.github.lancelot.datamasking.SensitiveInfoRegistry;
+import io.github.lancelot.datamasking.SensitiveReplacer;
+import io.github.lancelot.datamasking.SensitiveType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 路径规则数量对扫描速度的影响：规则编译成 DFA 后，每个字段名只查一次转移表，耗时应与规则数量无关
+ *
+ * rules 为 0 时不跟踪嵌套，作为只按字段名脱敏的基线。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathRulesBenchmark {
+
+    @Param({"0", "10", "100", "500"})
+    public int rules;
+
+    @Param({"NESTED_JSON", "ARRAY_OF_OBJECTS"})
+    public Payloads.Shape shape;
+
+    private String payload;
+
+    @Setup
+    public void setup() {
+        Payloads.registerFields();
+        Map<String, SensitiveType> paths = new HashMap<>();
+        if (rules > 0) {
+            // 会命中的规则，其余规则形状各异但不命中
+            paths.put("items[*].mobile", SensitiveType.MOBILE_PHONE);
+            paths.put("**.level3.idCard", SensitiveType.ID_CARD);
+        }
+        for (int i = paths.size(); i < rules; i++) {
+            switch (i % 4) {
+                case 0:
+                    paths.put("level0.level1.field" + i, SensitiveType.ALL);
+                    break;
+                case 1:
+                    paths.put("items[*].detail" + i + ".name", SensitiveType.CHINESE_NAME);
+                    break;
+                case 2:
+                    paths.put("*.level" + (i % 8) + ".extra" + i, SensitiveType.ADDRESS);
+                    break;
+                default:
+                    paths.put("**.nested" + i + "[*].email", SensitiveType.EMAIL);
+                    break;
+            }
+        }
+        SensitiveInfoRegistry.replaceAllPaths(paths);
+        payload = Payloads.generate(shape, 65536, 10);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SensitiveInfoRegistry.replaceAllPaths(Collections.<String, SensitiveType>emptyMap());
+    }
+
+    @Benchmark
+    public String deSensitiveString() {
+        return SensitiveReplacer.deSensitiveString(payload);
+    }
+}
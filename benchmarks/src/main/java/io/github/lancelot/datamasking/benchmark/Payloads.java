@@ -0,0 +1,296 @@
+package io.github.lancelot.datamasking.benchmark;
+
+import io.github.lancelot.datamasking.MaskingFormat;
+import io.github.lancelot.datamasking.SensitiveInfoRegistry;
+import io.github.lancelot.datamasking.SensitiveType;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 基准测试用的报文生成器
+ *
+ * 每条记录固定10个字段，敏感字段占比由 density 决定（0/10/100 表示百分比）。
+ */
+public final class Payloads {
+
+    public enum Shape {
+        /**
+         * 不含引号的普通日志文本
+         */
+        PLAIN_TEXT,
+        /**
+         * 单层 JSON 对象
+         */
+        FLAT_JSON,
+        /**
+         * 每层都带字段、嵌套8层的 JSON
+         */
+        NESTED_JSON,
+        /**
+         * 对象数组
+         */
+        ARRAY_OF_OBJECTS
+    }
+
+    private static final int FIELDS_PER_RECORD = 10;
+
+    private static final int NESTING_DEPTH = 8;
+
+    private static final String[][] PLAIN_FIELDS = {
+            {"orderId", "202401010000123456"},
+            {"status", "PAID"},
+            {"amount", "1288.00"},
+            {"channel", "APP"},
+            {"remark", "请尽快发货，谢谢"},
+            {"createTime", "2024-01-01 12:00:00"},
+            {"productName", "机械键盘"},
+            {"quantity", "2"},
+            {"city", "杭州"},
+            {"traceId", "7f3a9c2e5b1d4f60"}
+    };
+
+    private static final String[][] SENSITIVE_FIELDS = {
+            {"name", "张三丰"},
+            {"mobile", "13800138000"},
+            {"idCard", "110101199003072345"},
+            {"email", "zhangsan@example.com"},
+            {"address", "北京市海淀区中关村大街1号"},
+            {"bankCard", "6225880123456789"},
+            {"phone", "01012345678"},
+            {"bankName", "中国工商银行"},
+            {"cnaps", "102100099996"},
+            {"expiryDate", "0126"}
+    };
+
+    private static final String[] FREE_TEXT_VALUES = {
+            "13800138000", "110101199003072340", "4111111111111111", "zhangsan@example.com"
+    };
+
+    private Payloads() {
+    }
+
+    /**
+     * 注册 {@link #SENSITIVE_FIELDS} 中的全部字段
+     */
+    public static void registerFields() {
+        Map<String, SensitiveType> map = new LinkedHashMap<>();
+        map.put("name", SensitiveType.CHINESE_NAME);
+        map.put("mobile", SensitiveType.MOBILE_PHONE);
+        map.put("idCard", SensitiveType.ID_CARD);
+        map.put("email", SensitiveType.EMAIL);
+        map.put("address", SensitiveType.ADDRESS);
+        map.put("bankCard", SensitiveType.BANK_CARD);
+        map.put("phone", SensitiveType.FIXED_PHONE);
+        map.put("bankName", SensitiveType.BANK_NAME);
+        map.put("cnaps", SensitiveType.CNAPS_CODE);
+        map.put("expiryDate", SensitiveType.BANK_CARD_DATE);
+        SensitiveInfoRegistry.replaceAll(map);
+    }
+
+    /**
+     * 生成不小于 size 个字符的报文
+     *
+     * @param shape 报文结构
+     * @param size 目标长度（字符数）
+     * @param density 敏感字段百分比：0、10 或 100
+     */
+    public static String generate(Shape shape, int size, int density) {
+        StringBuilder sb = new StringBuilder(size + 512);
+        int record = 0;
+        switch (shape) {
+            case PLAIN_TEXT:
+                while (sb.length() < size) {
+                    sb.append("2024-01-01 12:00:00.123 INFO [http-nio-8080-exec-").append(record % 200)
+                            .append("] c.e.order.OrderService - order ").append(202401010000L + record)
+                            .append(" paid by user ").append(record).append(" via APP, cost 12ms\n");
+                    record++;
+                }
+                break;
+            case FLAT_JSON:
+                sb.append('{');
+                while (sb.length() < size) {
+                    if (record > 0) {
+                        sb.append(',');
+                    }
+                    appendFields(sb, record++, density);
+                }
+                sb.append('}');
+                break;
+            case NESTED_JSON:
+                sb.append('[');
+                while (sb.length() < size) {
+                    if (record > 0) {
+                        sb.append(',');
+                    }
+                    for (int level = 0; level < NESTING_DEPTH; level++) {
+                        sb.append('{');
+                        appendFields(sb, record++, density);
+                        sb.append(",\"level").append(level).append("\":");
+                    }
+                    sb.append("null");
+                    for (int level = 0; level < NESTING_DEPTH; level++) {
+                        sb.append('}');
+                    }
+                }
+                sb.append(']');
+                break;
+            case ARRAY_OF_OBJECTS:
+                sb.append("{\"items\":[");
+                while (sb.length() < size) {
+                    if (record > 0) {
+                        sb.append(',');
+                    }
+                    sb.append('{');
+                    appendFields(sb, record++, density);
+                    sb.append('}');
+                }
+                sb.append("]}");
+                break;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 生成不小于 size 个字符的普通日志文本，density 百分比的行里带有手机号、身份证、银行卡或邮箱
+     *
+     * @param size 目标长度（字符数）
+     * @param density 带敏感信息的行的百分比：0、10 或 100
+     */
+    public static String generateFreeText(int size, int density) {
+        StringBuilder sb = new StringBuilder(size + 512);
+        int record = 0;
+        while (sb.length() < size) {
+            sb.append("2024-01-01 12:00:00.123 INFO [http-nio-8080-exec-").append(record % 200)
+                    .append("] c.e.order.OrderService - order ").append(202401010000L + record);
+            if (record % 10 < density / 10) {
+                sb.append(" paid by ").append(FREE_TEXT_VALUES[record % FREE_TEXT_VALUES.length]);
+            } else {
+                sb.append(" paid by user ").append(record);
+            }
+            sb.append(" via APP, cost 12ms\n");
+            record++;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 生成不小于 size 个字符的对象数组，每个对象的 body 字段是转义后嵌入的 JSON 字符串
+     *
+     * @param size 目标长度（字符数）
+     * @param density 敏感字段百分比：0、10 或 100
+     */
+    public static String generateEmbedded(int size, int density) {
+        StringBuilder sb = new StringBuilder(size + 1024);
+        StringBuilder inner = new StringBuilder(1024);
+        int record = 0;
+        sb.append('[');
+        while (sb.length() < size) {
+            if (record > 0) {
+                sb.append(',');
+            }
+            inner.setLength(0);
+            inner.append('{');
+            appendFields(inner, record, density);
+            inner.append('}');
+            sb.append("{\"traceId\":\"").append(record).append("\",\"body\":\"");
+            for (int i = 0; i < inner.length(); i++) {
+                char c = inner.charAt(i);
+                if (c == '"' || c == '\\') {
+                    sb.append('\\');
+                }
+                sb.append(c);
+            }
+            sb.append("\"}");
+            record++;
+        }
+        sb.append(']');
+        return sb.toString();
+    }
+
+    /**
+     * 生成不小于 size 个字符、字段与 {@link Shape#FLAT_JSON} 相同的报文：
+     * KEY_VALUE 为逐条 toString() 风格的 Order(k=v, ...)，QUERY_STRING 为编码后的 k=v&amp;...，XML 为逐条 &lt;order&gt; 元素
+     *
+     * @param format 报文格式，不能是 AUTO
+     * @param size 目标长度（字符数）
+     * @param density 敏感字段百分比：0、10 或 100
+     */
+    public static String generate(MaskingFormat format, int size, int density) {
+        if (format == MaskingFormat.JSON) {
+            return generate(Shape.FLAT_JSON, size, density);
+        }
+        StringBuilder sb = new StringBuilder(size + 1024);
+        int record = 0;
+        if (format == MaskingFormat.XML) {
+            sb.append("<orders>");
+        }
+        while (sb.length() < size) {
+            int sensitiveCount = FIELDS_PER_RECORD * density / 100;
+            if (format == MaskingFormat.KEY_VALUE) {
+                sb.append(record > 0 ? " Order(" : "Order(");
+            } else if (format == MaskingFormat.XML) {
+                sb.append("<order>");
+            }
+            for (int i = 0; i < FIELDS_PER_RECORD; i++) {
+                String[] field = i < sensitiveCount ? SENSITIVE_FIELDS[(i + record) % SENSITIVE_FIELDS.length]
+                        : PLAIN_FIELDS[i];
+                switch (format) {
+                    case KEY_VALUE:
+                        if (i > 0) {
+                            sb.append(", ");
+                        }
+                        sb.append(field[0]).append('=');
+                        if (field[1].indexOf(' ') >= 0) {
+                            sb.append('"').append(field[1]).append('"');
+                        } else {
+                            sb.append(field[1]);
+                        }
+                        break;
+                    case QUERY_STRING:
+                        if (record > 0 || i > 0) {
+                            sb.append('&');
+                        }
+                        sb.append(field[0]).append('=').append(urlEncode(field[1]));
+                        break;
+                    default:
+                        sb.append('<').append(field[0]).append('>').append(field[1])
+                                .append("</").append(field[0]).append('>');
+                        break;
+                }
+            }
+            if (format == MaskingFormat.KEY_VALUE) {
+                sb.append(')');
+            } else if (format == MaskingFormat.XML) {
+                sb.append("</order>");
+            }
+            record++;
+        }
+        if (format == MaskingFormat.XML) {
+            sb.append("</orders>");
+        }
+        return sb.toString();
+    }
+
+    private static String urlEncode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void appendFields(StringBuilder sb, int record, int density) {
+        int sensitiveCount = FIELDS_PER_RECORD * density / 100;
+        for (int i = 0; i < FIELDS_PER_RECORD; i++) {
+            String[] field = i < sensitiveCount ? SENSITIVE_FIELDS[(i + record) % SENSITIVE_FIELDS.length]
+                    : PLAIN_FIELDS[i];
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('"').append(field[0]).append("\":\"").append(field[1]).append('"');
+        }
+    }
+}
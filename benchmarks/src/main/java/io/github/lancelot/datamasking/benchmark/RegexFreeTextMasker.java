@@ -0,0 +1,77 @@
+package io.github.lancelot.datamasking.benchmark;
+
+import io.github.lancelot.datamasking.SensitiveConvertor;
+import io.github.lancelot.datamasking.SensitiveType;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 基于正则表达式的自由文本识别，识别规则与核心模块的自由文本识别相同，只作为基准测试的对照组
+ */
+public final class RegexFreeTextMasker {
+
+    private static final Pattern PATTERN = Pattern.compile(
+            "([A-Za-z0-9._%+-]+@[A-Za-z0-9-]+(?:\\.[A-Za-z0-9-]+)*\\.[A-Za-z]{2,})"
+                    + "|(?<![0-9])([0-9]{17}[0-9Xx]|1[3-9][0-9]{9}|[0-9]{16,19})(?![0-9])");
+
+    private static final int[] ID_CARD_WEIGHTS = {7, 9, 10, 5, 8, 4, 2, 1, 6, 3, 7, 9, 10, 5, 8, 4, 2};
+
+    private static final String ID_CARD_CHECK_CODES = "10X98765432";
+
+    public String mask(String input) {
+        Matcher matcher = PATTERN.matcher(input);
+        if (!matcher.find()) {
+            return input;
+        }
+        StringBuffer sb = new StringBuffer(input.length());
+        do {
+            String email = matcher.group(1);
+            String digits = matcher.group(2);
+            SensitiveType type = email != null ? SensitiveType.EMAIL : digitsType(digits);
+            matcher.appendReplacement(sb, "");
+            sb.append(type == null ? matcher.group() : SensitiveConvertor.convertMsg(type, matcher.group()));
+        } while (matcher.find());
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+
+    private static SensitiveType digitsType(String digits) {
+        int length = digits.length();
+        if (length == 18 && isIdCard(digits)) {
+            return SensitiveType.ID_CARD;
+        }
+        if (length == 11 && digits.charAt(0) == '1' && digits.charAt(1) >= '3') {
+            return SensitiveType.MOBILE_PHONE;
+        }
+        if (length >= 16 && length <= 19 && isLuhn(digits)) {
+            return SensitiveType.BANK_CARD;
+        }
+        return null;
+    }
+
+    private static boolean isIdCard(String id) {
+        int sum = 0;
+        for (int i = 0; i < 17; i++) {
+            sum += (id.charAt(i) - '0') * ID_CARD_WEIGHTS[i];
+        }
+        return ID_CARD_CHECK_CODES.charAt(sum % 11) == Character.toUpperCase(id.charAt(17));
+    }
+
+    private static boolean isLuhn(String digits) {
+        int sum = 0;
+        boolean doubled = false;
+        for (int i = digits.length() - 1; i >= 0; i--) {
+            int digit = digits.charAt(i) - '0';
+            if (digit > 9) {
+                return false;
+            }
+            if (doubled) {
+                digit = digit > 4 ? digit * 2 - 9 : digit * 2;
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return sum % 10 == 0;
+    }
+}
@@ -0,0 +1,46 @@
+package io.github.lancelot.datamasking.benchmark;
+
+import io.github.lancelot.datamasking.SensitiveConvertor;
+import io.github.lancelot.datamasking.SensitiveInfoRegistry;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 基于正则表达式的等价脱敏实现，只作为基准测试的对照组
+ */
+public final class RegexMasker {
+
+    private final Pattern pattern;
+
+    /**
+     * @param keys 需要脱敏的字段名
+     */
+    public RegexMasker(String... keys) {
+        StringBuilder alternatives = new StringBuilder();
+        for (String key : keys) {
+            if (alternatives.length() > 0) {
+                alternatives.append('|');
+            }
+            alternatives.append(Pattern.quote(key));
+        }
+        this.pattern = Pattern.compile("\"(" + alternatives + ")\"(\\s*[:=]\\s*)\"([^\"]*)\"");
+    }
+
+    public String mask(String input) {
+        Matcher matcher = pattern.matcher(input);
+        if (!matcher.find()) {
+            return input;
+        }
+        StringBuffer sb = new StringBuffer(input.length());
+        do {
+            String value = SensitiveConvertor.convertMsg(SensitiveInfoRegistry.getSensitiveType(matcher.group(1)),
+                    matcher.group(3).trim());
+            matcher.appendReplacement(sb, "");
+            sb.append('"').append(matcher.group(1)).append('"').append(matcher.group(2))
+                    .append('"').append(value).append('"');
+        } while (matcher.find());
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+}
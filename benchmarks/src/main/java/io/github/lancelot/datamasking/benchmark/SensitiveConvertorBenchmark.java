@@ -0,0 +1,111 @@
+package io.github.lancelot.datamasking.benchmark;
+
+import io.github.lancelot.datamasking.SensitiveConvertor;
+import io.github.lancelot.datamasking.SensitiveType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SensitiveConvertor} 各脱敏规则的单次耗时，以及直接写入输出缓冲区的零分配版本
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensitiveConvertorBenchmark {
+
+    public String name = "张三丰";
+    public String idCard = "110101199003072345";
+    public String fixedPhone = "01012345678";
+    public String mobile = "13800138000";
+    public String address = "北京市海淀区中关村大街1号";
+    public String email = "zhangsan@example.com";
+    public String bankCard = "6225880123456789";
+    public String bankName = "中国工商银行";
+    public String cnaps = "102100099996";
+    public String cardValidDate = "0126";
+    public String password = "mySecret123";
+
+    private final char[] line = "{\"mobile\":\"13800138000\",\"address\":\"北京市海淀区中关村大街1号\"}".toCharArray();
+    private final StringBuilder out = new StringBuilder(64);
+
+    @Benchmark
+    public String chineseName() {
+        return SensitiveConvertor.chineseName(name);
+    }
+
+    @Benchmark
+    public String idCardNum() {
+        return SensitiveConvertor.idCardNum(idCard);
+    }
+
+    @Benchmark
+    public String fixedPhone() {
+        return SensitiveConvertor.fixedPhone(fixedPhone);
+    }
+
+    @Benchmark
+    public String mobilePhone() {
+        return SensitiveConvertor.mobilePhone(mobile);
+    }
+
+    @Benchmark
+    public String address() {
+        return SensitiveConvertor.address(address);
+    }
+
+    @Benchmark
+    public String email() {
+        return SensitiveConvertor.email(email);
+    }
+
+    @Benchmark
+    public String bankCard() {
+        return SensitiveConvertor.bankCard(bankCard);
+    }
+
+    @Benchmark
+    public String bankName() {
+        return SensitiveConvertor.bankName(bankName);
+    }
+
+    @Benchmark
+    public String cnapsCode() {
+        return SensitiveConvertor.cnapsCode(cnaps);
+    }
+
+    @Benchmark
+    public String cardValidDate() {
+        return SensitiveConvertor.cardValidDate(cardValidDate);
+    }
+
+    @Benchmark
+    public String all() {
+        return SensitiveConvertor.all(password, 3);
+    }
+
+    @Benchmark
+    public StringBuilder mobilePhoneInto() {
+        out.setLength(0);
+        SensitiveType.MOBILE_PHONE.mask(line, 11, 22, out);
+        return out;
+    }
+
+    @Benchmark
+    public StringBuilder addressInto() {
+        out.setLength(0);
+        SensitiveType.ADDRESS.mask(line, 35, 48, out);
+        return out;
+    }
+}
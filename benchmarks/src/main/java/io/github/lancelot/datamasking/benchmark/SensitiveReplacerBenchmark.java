@@ -0,0 +1,60 @@
+package io.github.lancelot.datamasking.benchmark;
+
+import io.github.lancelot.datamasking.SensitiveReplacer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SensitiveReplacer#deSensitiveString(String)} 在不同报文结构、大小和敏感字段密度下的耗时，
+ * 以及等价正则实现的对照
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensitiveReplacerBenchmark {
+
+    @Param({"PLAIN_TEXT", "FLAT_JSON", "NESTED_JSON", "ARRAY_OF_OBJECTS"})
+    public Payloads.Shape shape;
+
+    @Param({"1024", "65536", "4194304"})
+    public int size;
+
+    @Param({"0", "10", "100"})
+    public int density;
+
+    private String payload;
+
+    private RegexMasker regexMasker;
+
+    @Setup
+    public void setup() {
+        Payloads.registerFields();
+        payload = Payloads.generate(shape, size, density);
+        regexMasker = new RegexMasker("name", "mobile", "idCard", "email", "address",
+                "bankCard", "phone", "bankName", "cnaps", "expiryDate");
+    }
+
+    @Benchmark
+    public String deSensitiveString() {
+        return SensitiveReplacer.deSensitiveString(payload);
+    }
+
+    @Benchmark
+    public String regex() {
+        return regexMasker.mask(payload);
+    }
+}
@@ -0,0 +1,95 @@
+package io.github.lancelot.datamasking.benchmark;
+
+import io.github.lancelot.datamasking.MaskingStrategy;
+import io.github.lancelot.datamasking.SensitiveInfoRegistry;
+import io.github.lancelot.datamasking.SensitiveReplacer;
+import io.github.lancelot.datamasking.SensitiveType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌化的开销：每次脱敏 1000 条记录的数组，每条一个手机号，从 distinct 个不同的号码中随机抽取；
+ * 预先生成 64 个报文轮流使用，distinct 较大时缓存装不下全部号码
+ *
+ * rule 为 MASK 时按内置手机号规则脱敏作为基线；TOKEN 为默认缓存（4096 条），TOKEN_NO_CACHE 每次都计算 SipHash。
+ * distinct 远大于缓存容量时几乎全部未命中，可以看出缓存本身的额外开销。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizationBenchmark {
+
+    public enum Rule { MASK, TOKEN, TOKEN_NO_CACHE }
+
+    private static final int RECORDS = 1000;
+
+    private static final int PAYLOADS = 64;
+
+    @Param({"MASK", "TOKEN", "TOKEN_NO_CACHE"})
+    public Rule rule;
+
+    @Param({"100", "1000000"})
+    public int distinct;
+
+    private String[] payloads;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        byte[] secret = "0123456789abcdef".getBytes();
+        switch (rule) {
+            case TOKEN:
+                SensitiveInfoRegistry.put("mobile", MaskingStrategy.token(secret));
+                break;
+            case TOKEN_NO_CACHE:
+                SensitiveInfoRegistry.put("mobile", MaskingStrategy.token(secret, 16, 0));
+                break;
+            default:
+                SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+                break;
+        }
+        Random random = new Random(42);
+        payloads = new String[PAYLOADS];
+        for (int p = 0; p < PAYLOADS; p++) {
+            StringBuilder sb = new StringBuilder(RECORDS * 48).append('[');
+            for (int i = 0; i < RECORDS; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append("{\"id\":").append(i).append(",\"mobile\":\"")
+                        .append(13800000000L + random.nextInt(distinct)).append("\"}");
+            }
+            payloads[p] = sb.append(']').toString();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        SensitiveInfoRegistry.replaceAll(Collections.<String, SensitiveType>emptyMap());
+        SensitiveInfoRegistry.replaceAllStrategies(Collections.<String, MaskingStrategy>emptyMap());
+    }
+
+    @Benchmark
+    public String deSensitiveString() {
+        next = (next + 1) & (PAYLOADS - 1);
+        return SensitiveReplacer.deSensitiveString(payloads[next]);
+    }
+}
@@ -0,0 +1,165 @@
+package io.github.lancelot.datamasking.cli;
+
+import io.github.lancelot.datamasking.SensitiveInfoRegistry;
+import io.github.lancelot.datamasking.SensitiveReplacer;
+import io.github.lancelot.datamasking.SensitiveType;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 离线脱敏日志文件，例如交给第三方之前处理多 GB 的日志
+ *
+ * <pre>
+ * java -jar mask-file.jar -f mobile=MOBILE_PHONE -p user.name=CHINESE_NAME app.log app.masked.log
+ * </pre>
+ *
+ * 文件按行处理，参见 {@link SensitiveReplacer#deSensitiveFile(java.nio.file.Path, java.nio.file.Path, int)}。
+ * 处理完成后在标准错误输出耗时和吞吐量。
+ *
+ * {@code --follow} 持续跟踪目录中追加写入的日志，每轮只处理新增的内容，参见 {@link TailMasker}：
+ *
+ * <pre>
+ * java -jar mask-file.jar --follow -f mobile=MOBILE_PHONE /var/log/app /var/log/app-masked
+ * </pre>
+ *
+ * @author lancelot
+ */
+public final class MaskFile {
+
+    static final int OK = 0;
+
+    static final int IO_ERROR = 1;
+
+    static final int USAGE_ERROR = 2;
+
+    private MaskFile() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * @return 退出码：0 成功，1 读写失败，2 参数错误
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println("mask-file: " + e.getMessage());
+            err.println(Options.USAGE);
+            return USAGE_ERROR;
+        } catch (IOException e) {
+            err.println("mask-file: cannot read rules: " + e);
+            return IO_ERROR;
+        }
+        if (options.help) {
+            out.println(Options.USAGE);
+            return OK;
+        }
+        try {
+            configure(options);
+        } catch (IllegalArgumentException e) {
+            err.println("mask-file: " + e.getMessage());
+            return USAGE_ERROR;
+        }
+        if (options.follow) {
+            return follow(options, err);
+        }
+        if (!Files.isRegularFile(options.input)) {
+            err.println("mask-file: not a regular file: " + options.input);
+            return IO_ERROR;
+        }
+        try {
+            long start = System.nanoTime();
+            long read = Files.size(options.input);
+            long written = SensitiveReplacer.deSensitiveFile(options.input, options.output, options.threads);
+            double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+            err.println(String.format(Locale.ROOT, "mask-file: %d bytes in, %d bytes out, %.3f s, %.1f MB/s",
+                    read, written, seconds, read / seconds / (1024 * 1024)));
+            return OK;
+        } catch (IllegalArgumentException e) {
+            err.println("mask-file: " + e.getMessage());
+            return USAGE_ERROR;
+        } catch (IOException e) {
+            err.println("mask-file: " + e);
+            return IO_ERROR;
+        }
+    }
+
+    private static int follow(Options options, PrintStream err) {
+        if (!Files.isDirectory(options.input)) {
+            err.println("mask-file: not a directory: " + options.input);
+            return IO_ERROR;
+        }
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(options.output);
+            if (Files.isSameFile(options.input, options.output)) {
+                err.println("mask-file: <input-dir> and <output-dir> must differ");
+                return USAGE_ERROR;
+            }
+            try (TailMasker tail = new TailMasker(options.input, options.output, options.glob, options.state,
+                    options.syncBytes, err)) {
+                if (options.once) {
+                    tail.poll();
+                } else {
+                    loop(tail, options.interval);
+                }
+                double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+                err.println(String.format(Locale.ROOT, "mask-file: %d bytes in, %d bytes out, %.3f s",
+                        tail.bytesIn(), tail.bytesOut(), seconds));
+            }
+            return OK;
+        } catch (IllegalArgumentException e) {
+            err.println("mask-file: " + e.getMessage());
+            return USAGE_ERROR;
+        } catch (IOException e) {
+            err.println("mask-file: " + e);
+            return IO_ERROR;
+        }
+    }
+
+    /**
+     * 轮询直到进程收到终止信号；当前一轮处理完并写入检查点后才退出
+     */
+    private static void loop(TailMasker tail, long interval) throws IOException {
+        CountDownLatch stop = new CountDownLatch(1);
+        CountDownLatch stopped = new CountDownLatch(1);
+        Thread hook = new Thread(() -> {
+            stop.countDown();
+            try {
+                stopped.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "mask-file-shutdown");
+        Runtime.getRuntime().addShutdownHook(hook);
+        try {
+            do {
+                tail.poll();
+            } while (!stop.await(interval, TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stopped.countDown();
+        }
+    }
+
+    private static void configure(Options options) {
+        SensitiveInfoRegistry.putAll(options.fields);
+        SensitiveInfoRegistry.putAllPaths(options.paths);
+        if (!options.detect.isEmpty()) {
+            SensitiveInfoRegistry.detectInFreeText(options.detect.toArray(new SensitiveType[0]));
+        }
+        if (options.embeddedJson) {
+            SensitiveInfoRegistry.maskEmbeddedJson(true);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package io.github.lancelot.datamasking.cli;
+
+import io.github.lancelot.datamasking.SensitiveType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * 命令行参数
+ *
+ * @author lancelot
+ */
+final class Options {
+
+    static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: mask-file [options] <input> <output>",
+            "       mask-file --follow [options] <input-dir> <output-dir>",
+            "",
+            "Options:",
+            "  -t, --threads N          worker threads, default: available processors",
+            "  -f, --field NAME=TYPE    mask values of field NAME as TYPE, repeatable",
+            "  -p, --path PATH=TYPE     mask values at PATH (e.g. user.name, orders[*].card) as TYPE, repeatable",
+            "  -r, --rules FILE         properties file of NAME=TYPE entries, keys starting with $. are paths",
+            "  -d, --detect TYPE,...    detect TYPEs in free text: MOBILE_PHONE, ID_CARD, BANK_CARD, EMAIL",
+            "  -e, --embedded-json      mask JSON embedded in string values",
+            "  -F, --follow             keep masking lines appended to files in <input-dir> into <output-dir>,",
+            "                           resuming from a checkpoint and following rotation and truncation",
+            "      --glob PATTERN       files to follow, default: *",
+            "      --interval MS        follow mode poll interval, default: 1000",
+            "      --once               follow mode: poll once and exit, e.g. from cron",
+            "      --state FILE         follow mode checkpoint, default: <output-dir>/" + TailMasker.STATE_FILE,
+            "      --sync-bytes N       follow mode: fsync outputs and checkpoint every N bytes, default: 16777216",
+            "  -h, --help               print this help",
+            "",
+            "TYPE is one of: " + typeNames());
+
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    final Map<String, SensitiveType> fields = new LinkedHashMap<>();
+
+    final Map<String, SensitiveType> paths = new LinkedHashMap<>();
+
+    final Set<SensitiveType> detect = EnumSet.noneOf(SensitiveType.class);
+
+    boolean embeddedJson;
+
+    boolean help;
+
+    boolean follow;
+
+    String glob = "*";
+
+    long interval = 1000;
+
+    boolean once;
+
+    Path state;
+
+    long syncBytes = 16 << 20;
+
+    /**
+     * 使用了只在 --follow 下有效的选项
+     */
+    private boolean followOnly;
+
+    Path input;
+
+    Path output;
+
+    /**
+     * @throws IllegalArgumentException 参数不合法，消息可以直接展示给用户
+     */
+    static Options parse(String[] args) throws IOException {
+        Options options = new Options();
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-t":
+                case "--threads":
+                    options.threads = parseThreads(value(args, ++i, arg));
+                    break;
+                case "-f":
+                case "--field":
+                    putRule(options.fields, value(args, ++i, arg));
+                    break;
+                case "-p":
+                case "--path":
+                    putRule(options.paths, value(args, ++i, arg));
+                    break;
+                case "-r":
+                case "--rules":
+                    options.loadRules(Paths.get(value(args, ++i, arg)));
+                    break;
+                case "-d":
+                case "--detect":
+                    for (String type : value(args, ++i, arg).split(",")) {
+                        options.detect.add(parseType(type.trim()));
+                    }
+                    break;
+                case "-e":
+                case "--embedded-json":
+                    options.embeddedJson = true;
+                    break;
+                case "-F":
+                case "--follow":
+                    options.follow = true;
+                    break;
+                case "--glob":
+                    options.glob = value(args, ++i, arg);
+                    options.followOnly = true;
+                    break;
+                case "--interval":
+                    options.interval = parsePositive("interval", value(args, ++i, arg));
+                    options.followOnly = true;
+                    break;
+                case "--once":
+                    options.once = true;
+                    options.followOnly = true;
+                    break;
+                case "--state":
+                    options.state = Paths.get(value(args, ++i, arg));
+                    options.followOnly = true;
+                    break;
+                case "--sync-bytes":
+                    options.syncBytes = parsePositive("sync-bytes", value(args, ++i, arg));
+                    options.followOnly = true;
+                    break;
+                case "-h":
+                case "--help":
+                    options.help = true;
+                    break;
+                default:
+                    if (arg.startsWith("-") && arg.length() > 1) {
+                        throw new IllegalArgumentException("unknown option: " + arg);
+                    }
+                    positional.add(arg);
+                    break;
+            }
+        }
+        if (options.help) {
+            return options;
+        }
+        if (options.followOnly && !options.follow) {
+            throw new IllegalArgumentException("--glob, --interval, --once, --state and --sync-bytes require --follow");
+        }
+        if (positional.size() != 2) {
+            throw new IllegalArgumentException(options.follow ? "expected <input-dir> and <output-dir>"
+                    : "expected <input> and <output>");
+        }
+        options.input = Paths.get(positional.get(0));
+        options.output = Paths.get(positional.get(1));
+        if (options.state == null) {
+            options.state = options.output.resolve(TailMasker.STATE_FILE);
+        }
+        return options;
+    }
+
+    private void loadRules(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        for (String key : properties.stringPropertyNames()) {
+            SensitiveType type = parseType(properties.getProperty(key).trim());
+            if (key.startsWith("$.")) {
+                paths.put(key, type);
+            } else {
+                fields.put(key, type);
+            }
+        }
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("missing value for " + option);
+        }
+        return args[i];
+    }
+
+    private static int parseThreads(String value) {
+        try {
+            int threads = Integer.parseInt(value);
+            if (threads > 0) {
+                return threads;
+            }
+        } catch (NumberFormatException ignored) {
+            // 与非正数一样报错
+        }
+        throw new IllegalArgumentException("threads must be a positive integer: " + value);
+    }
+
+    private static long parsePositive(String name, String value) {
+        try {
+            long n = Long.parseLong(value);
+            if (n > 0) {
+                return n;
+            }
+        } catch (NumberFormatException ignored) {
+            // 与非正数一样报错
+        }
+        throw new IllegalArgumentException(name + " must be a positive integer: " + value);
+    }
+
+    private static void putRule(Map<String, SensitiveType> rules, String rule) {
+        int eq = rule.lastIndexOf('=');
+        if (eq <= 0 || eq == rule.length() - 1) {
+            throw new IllegalArgumentException("expected NAME=TYPE: " + rule);
+        }
+        rules.put(rule.substring(0, eq), parseType(rule.substring(eq + 1)));
+    }
+
+    private static SensitiveType parseType(String name) {
+        try {
+            return SensitiveType.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown type: " + name + ", expected one of: " + typeNames());
+        }
+    }
+
+    private static String typeNames() {
+        StringBuilder sb = new StringBuilder();
+        for (SensitiveType type : SensitiveType.values()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(type.name());
+        }
+        return sb.toString();
+    }
+}
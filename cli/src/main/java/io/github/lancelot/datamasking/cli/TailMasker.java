@@ -0,0 +1,445 @@
+package io.github.lancelot.datamasking.cli;
+
+import io.github.lancelot.datamasking.MaskingEngine;
+import io.github.lancelot.datamasking.Utf8LineMasker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * 持续脱敏目录中不断追加的日志文件，每轮只处理上一轮之后新增的字节
+ *
+ * 输出目录中与输入同名的文件是脱敏后的副本，内容与对输入调用
+ * {@link io.github.lancelot.datamasking.SensitiveReplacer#deSensitiveFile(Path, Path)} 一致。
+ * 每个文件的 inode（{@link BasicFileAttributes#fileKey()}）、已处理的输入偏移和对应的输出长度保存在检查点文件中：
+ * <ul>
+ * <li>新增的部分按 {@link #READ_SIZE} 大块读取，只处理到最后一个换行，未写完的行留到下一轮</li>
+ * <li>文件改名（轮转）时把旧文件剩余的内容处理完，输出随之改名；原名下的新文件从头开始</li>
+ * <li>文件变短（copytruncate）时从头开始，输出清空</li>
+ * <li>输出累计 {@code syncBytes} 字节或一轮结束时统一 fsync，再原子地替换检查点文件。
+ * 崩溃后输出截断到检查点记录的长度，从记录的偏移继续，不会重复或遗漏</li>
+ * </ul>
+ * 每轮的开销是列一次目录加上新增字节的处理，与文件总大小无关。
+ * 文件系统不提供 fileKey 时无法识别改名，改名后的文件当作新文件处理。
+ *
+ * 非线程安全。
+ *
+ * @author lancelot
+ */
+final class TailMasker implements Closeable {
+
+    static final int READ_SIZE = 1 << 20;
+
+    static final String STATE_FILE = ".mask-file.state";
+
+    private final Path inputDir;
+
+    private final Path outputDir;
+
+    private final PathMatcher matcher;
+
+    private final Path stateFile;
+
+    private final Path stateTemp;
+
+    private final long syncBytes;
+
+    private final PrintStream err;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(READ_SIZE);
+
+    /**
+     * 按文件名排序，检查点文件的内容稳定
+     */
+    private final Map<String, Entry> entries = new TreeMap<>();
+
+    /**
+     * 上次检查点之后写出的字节数
+     */
+    private long unsynced;
+
+    /**
+     * 上次检查点之后文件有增删、改名或重置
+     */
+    private boolean dirty;
+
+    private long bytesIn;
+
+    private long bytesOut;
+
+    /**
+     * @param glob 要跟踪的文件名，{@link java.nio.file.FileSystem#getPathMatcher} 的 glob 语法
+     * @throws IOException 检查点文件无法读取或格式错误
+     */
+    TailMasker(Path inputDir, Path outputDir, String glob, Path stateFile, long syncBytes, PrintStream err)
+            throws IOException {
+        this.inputDir = inputDir;
+        this.outputDir = outputDir;
+        this.matcher = inputDir.getFileSystem().getPathMatcher("glob:" + glob);
+        this.stateFile = stateFile.toAbsolutePath().normalize();
+        this.stateTemp = this.stateFile.resolveSibling(this.stateFile.getFileName() + ".tmp");
+        this.syncBytes = syncBytes;
+        this.err = err;
+        load();
+    }
+
+    /**
+     * 处理一轮：识别改名和截断，脱敏所有文件新增的完整行，最后写检查点
+     *
+     * @return 本轮处理的输入字节数
+     */
+    long poll() throws IOException {
+        long before = bytesIn;
+        Map<String, BasicFileAttributes> files = list();
+        rotate(files);
+        for (Map.Entry<String, BasicFileAttributes> file : files.entrySet()) {
+            String name = file.getKey();
+            Entry entry = entries.get(name);
+            if (entry == null) {
+                if (!matcher.matches(inputDir.getFileSystem().getPath(name))) {
+                    continue;
+                }
+                entry = new Entry(name, key(file.getValue()));
+                entries.put(name, entry);
+                reset(entry);
+            }
+            follow(entry, file.getValue().size(), false);
+        }
+        if (dirty || unsynced > 0) {
+            checkpoint();
+        }
+        return bytesIn - before;
+    }
+
+    long bytesIn() {
+        return bytesIn;
+    }
+
+    long bytesOut() {
+        return bytesOut;
+    }
+
+    /**
+     * 把已写出的内容落盘并写检查点
+     */
+    @Override
+    public void close() throws IOException {
+        if (dirty || unsynced > 0) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * 输入目录下的普通文件，不含检查点文件
+     */
+    private Map<String, BasicFileAttributes> list() throws IOException {
+        Map<String, BasicFileAttributes> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(inputDir)) {
+            for (Path file : stream) {
+                Path absolute = file.toAbsolutePath().normalize();
+                if (absolute.equals(stateFile) || absolute.equals(stateTemp)) {
+                    continue;
+                }
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    // 列目录之后被删除
+                    continue;
+                }
+                if (attributes.isRegularFile()) {
+                    files.put(file.getFileName().toString(), attributes);
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * 按 inode 找出被删除和改名的文件。改名的先把剩余内容处理完，输出分两步改名，
+     * 避免 a.1 -> a.2、a -> a.1 这样的连续轮转互相覆盖。改名后不再匹配 glob 的文件不再跟踪
+     */
+    private void rotate(Map<String, BasicFileAttributes> files) throws IOException {
+        Map<String, String> names = new HashMap<>();
+        for (Map.Entry<String, BasicFileAttributes> file : files.entrySet()) {
+            String key = key(file.getValue());
+            if (!key.isEmpty()) {
+                names.put(key, file.getKey());
+            }
+        }
+        List<Entry> removed = new ArrayList<>();
+        List<Entry> renamed = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            String current = entry.fileKey.isEmpty() ? (files.containsKey(entry.name) ? entry.name : null)
+                    : names.get(entry.fileKey);
+            if (current == null) {
+                removed.add(entry);
+            } else if (!current.equals(entry.name)) {
+                err.println("mask-file: " + entry.name + " rotated to " + current);
+                follow(entry, files.get(current).size(), inputDir.resolve(current), true);
+                renamed.add(entry);
+            }
+        }
+        removed.addAll(renamed);
+        for (Entry entry : removed) {
+            entries.remove(entry.name);
+            closeOutput(entry);
+            dirty = true;
+        }
+        for (Entry entry : renamed) {
+            Path output = outputDir.resolve(entry.name);
+            if (Files.exists(output)) {
+                Files.move(output, rotating(entry.name), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        for (Entry entry : renamed) {
+            Path rotating = rotating(entry.name);
+            entry.name = names.get(entry.fileKey);
+            if (Files.exists(rotating)) {
+                Files.move(rotating, outputDir.resolve(entry.name), StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (matcher.matches(inputDir.getFileSystem().getPath(entry.name))) {
+                entries.put(entry.name, entry);
+            }
+        }
+    }
+
+    private Path rotating(String name) {
+        return outputDir.resolve(name + ".mask-file-rotating");
+    }
+
+    private void follow(Entry entry, long size, boolean drain) throws IOException {
+        follow(entry, size, inputDir.resolve(entry.name), drain);
+    }
+
+    /**
+     * 脱敏 entry.offset 到 size 之间的内容
+     *
+     * @param drain 处理到文件末尾，最后一行没有换行也输出
+     */
+    private void follow(Entry entry, long size, Path file, boolean drain) throws IOException {
+        if (size < entry.offset) {
+            err.println("mask-file: " + entry.name + " truncated, restarting from the beginning");
+            reset(entry);
+        }
+        if (size == entry.offset && !drain) {
+            return;
+        }
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (entry.offset < size) {
+                buffer.clear();
+                buffer.limit((int) Math.min(READ_SIZE, size - entry.offset));
+                while (buffer.hasRemaining()) {
+                    if (in.read(buffer, entry.offset + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+                buffer.flip();
+                int end = buffer.limit();
+                if (!drain) {
+                    int newline = lastNewline(buffer);
+                    if (newline >= 0) {
+                        end = newline + 1;
+                    } else if (end < READ_SIZE) {
+                        // 未写完的行，等下一轮
+                        break;
+                    }
+                    // 超过一块的长行先交给脱敏器，行尾之前不更新检查点
+                }
+                if (end == 0) {
+                    break;
+                }
+                buffer.limit(end);
+                write(entry, masker(entry).mask(buffer));
+                entry.offset += end;
+                bytesIn += end;
+                if (buffer.get(end - 1) == '\n') {
+                    entry.line();
+                }
+                if (unsynced >= syncBytes) {
+                    checkpoint();
+                }
+            }
+        }
+        if (drain) {
+            write(entry, masker(entry).finish());
+            entry.line();
+        }
+    }
+
+    private static int lastNewline(ByteBuffer bytes) {
+        for (int i = bytes.limit() - 1; i >= 0; i--) {
+            if (bytes.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Utf8LineMasker masker(Entry entry) {
+        if (entry.masker == null) {
+            entry.masker = MaskingEngine.global().newLineMasker();
+        }
+        return entry.masker;
+    }
+
+    private void write(Entry entry, ByteBuffer masked) throws IOException {
+        FileChannel out = output(entry);
+        while (masked.hasRemaining()) {
+            int n = out.write(masked, entry.output);
+            entry.output += n;
+            unsynced += n;
+            bytesOut += n;
+        }
+    }
+
+    /**
+     * 打开输出，超出已写长度的部分（上次崩溃前写出但没有进入检查点的内容）截掉
+     */
+    private FileChannel output(Entry entry) throws IOException {
+        if (entry.out == null) {
+            FileChannel out = FileChannel.open(outputDir.resolve(entry.name),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            if (out.size() > entry.output) {
+                out.truncate(entry.output);
+            }
+            entry.out = out;
+        }
+        return entry.out;
+    }
+
+    /**
+     * 从头开始，输出清空
+     */
+    private void reset(Entry entry) throws IOException {
+        entry.offset = 0;
+        entry.output = 0;
+        entry.masker = null;
+        entry.line();
+        output(entry);
+        dirty = true;
+    }
+
+    private static void closeOutput(Entry entry) throws IOException {
+        if (entry.out != null) {
+            entry.out.force(false);
+            entry.out.close();
+            entry.out = null;
+        }
+    }
+
+    /**
+     * 输出 fsync 后原子地替换检查点文件，只记录行尾的位置
+     */
+    private void checkpoint() throws IOException {
+        Properties properties = new Properties();
+        for (Entry entry : entries.values()) {
+            closeOutput(entry);
+            properties.setProperty(entry.name, entry.lineOffset + "," + entry.lineOutput + "," + entry.fileKey);
+        }
+        try (FileChannel channel = FileChannel.open(stateTemp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            properties.store(out, "mask-file --follow checkpoint: offset,output length,file key");
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(stateTemp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        unsynced = 0;
+        dirty = false;
+    }
+
+    private void load() throws IOException {
+        if (!Files.exists(stateFile)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(stateFile)) {
+            properties.load(in);
+        }
+        for (String name : properties.stringPropertyNames()) {
+            String value = properties.getProperty(name);
+            String[] parts = value.split(",", 3);
+            Entry entry;
+            try {
+                if (parts.length != 3) {
+                    throw new NumberFormatException();
+                }
+                entry = new Entry(name, parts[2]);
+                entry.offset = Long.parseLong(parts[0]);
+                entry.output = Long.parseLong(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new IOException("invalid checkpoint entry in " + stateFile + ": " + name + "=" + value);
+            }
+            entry.line();
+            entries.put(name, entry);
+            Path output = outputDir.resolve(name);
+            if (!Files.exists(output) || Files.size(output) < entry.output) {
+                err.println("mask-file: " + output + " is shorter than the checkpoint, restarting " + name);
+                reset(entry);
+            }
+        }
+    }
+
+    private static String key(BasicFileAttributes attributes) {
+        Object key = attributes.fileKey();
+        return key == null ? "" : key.toString();
+    }
+
+    private static final class Entry {
+
+        String name;
+
+        final String fileKey;
+
+        /**
+         * 已交给脱敏器的输入偏移
+         */
+        long offset;
+
+        /**
+         * 已写出的输出长度
+         */
+        long output;
+
+        /**
+         * 最近一个行尾处的输入偏移和输出长度，写入检查点；长行处理到一半时小于 offset、output
+         */
+        long lineOffset;
+
+        long lineOutput;
+
+        Utf8LineMasker masker;
+
+        FileChannel out;
+
+        Entry(String name, String fileKey) {
+            this.name = name;
+            this.fileKey = fileKey;
+        }
+
+        void line() {
+            lineOffset = offset;
+            lineOutput = output;
+        }
+    }
+}
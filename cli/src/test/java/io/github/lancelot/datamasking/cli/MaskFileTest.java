@@ -0,0 +1,142 @@
+package io.github.lancelot.datamasking.cli;
+
+import io.github.lancelot.datamasking.SensitiveInfoRegistry;
+import io.github.lancelot.datamasking.SensitiveType;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.*;
+
+public class MaskFileTest {
+
+    private Map<String, SensitiveType> savedFields;
+
+    private Map<String, SensitiveType> savedPaths;
+
+    private Path dir;
+
+    private ByteArrayOutputStream out;
+
+    private ByteArrayOutputStream err;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        savedFields = new HashMap<>(SensitiveInfoRegistry.snapshot().fields());
+        savedPaths = new HashMap<>(SensitiveInfoRegistry.snapshot().paths());
+        SensitiveInfoRegistry.replaceAll(Collections.emptyMap());
+        SensitiveInfoRegistry.replaceAllPaths(Collections.emptyMap());
+        dir = Files.createTempDirectory("mask-file");
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+    }
+
+    @AfterMethod
+    public void restore() throws Exception {
+        SensitiveInfoRegistry.replaceAll(savedFields);
+        SensitiveInfoRegistry.replaceAllPaths(savedPaths);
+        SensitiveInfoRegistry.detectInFreeText();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    private int run(String... args) {
+        return MaskFile.run(args, new PrintStream(out, true), new PrintStream(err, true));
+    }
+
+    @Test
+    public void testMaskFile() throws Exception {
+        Path input = dir.resolve("app.log");
+        Path output = dir.resolve("app.masked.log");
+        Files.write(input, ("{\"mobile\":\"13800138000\"}\n"
+                + "{\"user\":{\"name\":\"张三\"},\"name\":\"order\"}\r\n"
+                + "call 13900139000 failed").getBytes(StandardCharsets.UTF_8));
+
+        int code = run("-t", "2", "-f", "mobile=MOBILE_PHONE", "--path", "user.name=CHINESE_NAME",
+                "-d", "MOBILE_PHONE", input.toString(), output.toString());
+
+        assertEquals(code, MaskFile.OK, err.toString());
+        assertEquals(new String(Files.readAllBytes(output), StandardCharsets.UTF_8),
+                "{\"mobile\":\"138******8000\"}\n"
+                        + "{\"user\":{\"name\":\"张*\"},\"name\":\"order\"}\r\n"
+                        + "call 139******9000 failed");
+        assertTrue(err.toString().contains("bytes in"));
+    }
+
+    @Test
+    public void testRulesFile() throws Exception {
+        Path rules = dir.resolve("rules.properties");
+        Files.write(rules, "mobile=MOBILE_PHONE\n$.user.name=CHINESE_NAME\n".getBytes(StandardCharsets.ISO_8859_1));
+        Path input = dir.resolve("in.log");
+        Path output = dir.resolve("out.log");
+        Files.write(input, "{\"mobile\":\"13800138000\",\"user\":{\"name\":\"张三\"}}".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(run("--rules", rules.toString(), input.toString(), output.toString()), MaskFile.OK);
+        assertEquals(new String(Files.readAllBytes(output), StandardCharsets.UTF_8),
+                "{\"mobile\":\"138******8000\",\"user\":{\"name\":\"张*\"}}");
+    }
+
+    @Test
+    public void testUsageErrors() {
+        assertEquals(run(), MaskFile.USAGE_ERROR);
+        assertEquals(run("-t", "0", "a", "b"), MaskFile.USAGE_ERROR);
+        assertEquals(run("-f", "mobile", "a", "b"), MaskFile.USAGE_ERROR);
+        assertEquals(run("-f", "mobile=PHONE", "a", "b"), MaskFile.USAGE_ERROR);
+        assertEquals(run("--unknown", "a", "b"), MaskFile.USAGE_ERROR);
+        assertEquals(run("-t"), MaskFile.USAGE_ERROR);
+        assertTrue(err.toString().contains("Usage: mask-file"));
+
+        assertEquals(run("-h"), MaskFile.OK);
+        assertTrue(out.toString().contains("--threads"));
+    }
+
+    @Test
+    public void testFollowOnce() throws Exception {
+        Path input = Files.createDirectory(dir.resolve("in"));
+        Path output = dir.resolve("out");
+        Files.write(input.resolve("app.log"), "{\"mobile\":\"13800138000\"}\n{\"mobile\":\"139"
+                .getBytes(StandardCharsets.UTF_8));
+        try {
+            assertEquals(run("--follow", "--once", "-f", "mobile=MOBILE_PHONE", input.toString(), output.toString()),
+                    MaskFile.OK, err.toString());
+            assertEquals(new String(Files.readAllBytes(output.resolve("app.log")), StandardCharsets.UTF_8),
+                    "{\"mobile\":\"138******8000\"}\n");
+            assertTrue(Files.exists(output.resolve(".mask-file.state")));
+            assertTrue(err.toString().contains("25 bytes in"));
+        } finally {
+            Files.delete(input.resolve("app.log"));
+            Files.delete(input);
+            try (Stream<Path> files = Files.list(output)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(output);
+        }
+
+        assertEquals(run("--once", "a", "b"), MaskFile.USAGE_ERROR);
+        assertEquals(run("--follow", "--interval", "0", "a", "b"), MaskFile.USAGE_ERROR);
+        assertEquals(run("--follow", dir.toString(), dir.toString()), MaskFile.USAGE_ERROR);
+        assertEquals(run("--follow", dir.resolve("missing").toString(), dir.toString()), MaskFile.IO_ERROR);
+    }
+
+    @Test
+    public void testMissingInput() {
+        assertEquals(run(dir.resolve("missing.log").toString(), dir.resolve("out.log").toString()),
+                MaskFile.IO_ERROR);
+    }
+}
@@ -0,0 +1,171 @@
+package io.github.lancelot.datamasking.cli;
+
+import io.github.lancelot.datamasking.SensitiveInfoRegistry;
+import io.github.lancelot.datamasking.SensitiveReplacer;
+import io.github.lancelot.datamasking.SensitiveType;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.*;
+
+public class TailMaskerTest {
+
+    private static final String LINE = "{\"mobile\":\"13800138000\"}\n";
+
+    private static final String MASKED = "{\"mobile\":\"138******8000\"}\n";
+
+    private Map<String, SensitiveType> saved;
+
+    private Path root;
+
+    private Path in;
+
+    private Path out;
+
+    private ByteArrayOutputStream err;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        saved = new HashMap<>(SensitiveInfoRegistry.snapshot().fields());
+        SensitiveInfoRegistry.replaceAll(Collections.singletonMap("mobile", SensitiveType.MOBILE_PHONE));
+        root = Files.createTempDirectory("tail-masker");
+        in = Files.createDirectory(root.resolve("in"));
+        out = Files.createDirectory(root.resolve("out"));
+        err = new ByteArrayOutputStream();
+    }
+
+    @AfterMethod
+    public void restore() throws Exception {
+        SensitiveInfoRegistry.replaceAll(saved);
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private TailMasker open() throws IOException {
+        return new TailMasker(in, out, "*.log*", out.resolve(TailMasker.STATE_FILE), 1 << 20,
+                new PrintStream(err, true));
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testOnlyAppendedCompleteLines() throws Exception {
+        Path log = in.resolve("app.log");
+        append(log, LINE + LINE + "{\"mobile\":\"139");
+        append(in.resolve("ignored.txt"), LINE);
+        try (TailMasker tail = open()) {
+            assertEquals(tail.poll(), LINE.length() * 2);
+            assertEquals(read(out.resolve("app.log")), MASKED + MASKED);
+            assertFalse(Files.exists(out.resolve("ignored.txt")));
+            assertEquals(tail.poll(), 0);
+
+            append(log, "00139000\"}\r\n" + LINE);
+            tail.poll();
+            assertEquals(read(out.resolve("app.log")),
+                    MASKED + MASKED + "{\"mobile\":\"139******9000\"}\r\n" + MASKED);
+            assertEquals(tail.bytesIn(), Files.size(log));
+        }
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() throws Exception {
+        Path log = in.resolve("app.log");
+        append(log, LINE);
+        try (TailMasker tail = open()) {
+            tail.poll();
+        }
+        // 崩溃前写出但没有进入检查点的内容
+        append(out.resolve("app.log"), "partial");
+        append(log, LINE);
+        try (TailMasker tail = open()) {
+            assertEquals(tail.poll(), LINE.length());
+        }
+        assertEquals(read(out.resolve("app.log")), MASKED + MASKED);
+
+        Files.delete(out.resolve("app.log"));
+        try (TailMasker tail = open()) {
+            assertEquals(tail.poll(), LINE.length() * 2);
+        }
+        assertEquals(read(out.resolve("app.log")), MASKED + MASKED);
+        assertTrue(err.toString().contains("shorter than the checkpoint"));
+    }
+
+    @Test
+    public void testRotation() throws Exception {
+        Path log = in.resolve("app.log");
+        append(log, LINE);
+        try (TailMasker tail = open()) {
+            tail.poll();
+            append(log, LINE + "{\"mobile\":\"13900139000\"}");
+            Files.move(in.resolve("app.log"), in.resolve("app.log.1"));
+            append(log, "new " + LINE);
+            tail.poll();
+            assertEquals(read(out.resolve("app.log.1")), MASKED + MASKED + "{\"mobile\":\"139******9000\"}");
+            assertEquals(read(out.resolve("app.log")), "new " + MASKED);
+
+            // a.log.1 -> a.log.2、a.log -> a.log.1
+            Files.move(in.resolve("app.log.1"), in.resolve("app.log.2"));
+            Files.move(in.resolve("app.log"), in.resolve("app.log.1"));
+            append(log, LINE);
+            tail.poll();
+            assertEquals(read(out.resolve("app.log.2")), MASKED + MASKED + "{\"mobile\":\"139******9000\"}");
+            assertEquals(read(out.resolve("app.log.1")), "new " + MASKED);
+            assertEquals(read(out.resolve("app.log")), MASKED);
+            assertEquals(tail.poll(), 0);
+        }
+        assertTrue(err.toString().contains("app.log rotated to app.log.1"));
+    }
+
+    @Test
+    public void testTruncation() throws Exception {
+        Path log = in.resolve("app.log");
+        append(log, LINE + LINE);
+        try (TailMasker tail = open()) {
+            tail.poll();
+            Files.write(log, ("short " + LINE).getBytes(StandardCharsets.UTF_8));
+            tail.poll();
+            assertEquals(read(out.resolve("app.log")), "short " + MASKED);
+        }
+        assertTrue(err.toString().contains("truncated"));
+    }
+
+    @Test
+    public void testLineLongerThanReadSize() throws Exception {
+        char[] padding = new char[TailMasker.READ_SIZE * 2];
+        Arrays.fill(padding, 'x');
+        String line = "{\"note\":\"" + new String(padding) + "\",\"mobile\":\"13800138000\"}\n";
+        Path log = in.resolve("app.log");
+        append(log, line.substring(0, TailMasker.READ_SIZE + 100));
+        try (TailMasker tail = open()) {
+            assertEquals(tail.poll(), TailMasker.READ_SIZE);
+            append(log, line.substring(TailMasker.READ_SIZE + 100) + LINE);
+            tail.poll();
+        }
+        assertEquals(read(out.resolve("app.log")), SensitiveReplacer.deSensitiveString(line) + MASKED);
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.lancelot.datamasking;
+
+/**
+ * 各输入格式的可续接状态机的公共接口，参见 {@link MaskingFormat}
+ *
+ * 输入可以分多段喂入，状态在段与段之间保留；非线程安全，处理完一个输入后可以重置复用。
+ */
+interface FormatScanner {
+
+    /**
+     * 重置为初始状态，以便处理下一个输入
+     */
+    void reset(SensitiveInfoRegistry.Snapshot snapshot);
+
+    /**
+     * 处理 chars[off, end)，结果追加到 out
+     */
+    void scan(char[] chars, int off, int end, StringBuilder out);
+
+    /**
+     * 输入结束，输出缓存的内容。未结束的敏感值按规则脱敏后输出，不会原样泄露
+     */
+    void finish(StringBuilder out);
+
+    /**
+     * 创建格式对应的状态机
+     *
+     * @param format 具体的格式，不能是 {@link MaskingFormat#AUTO}
+     */
+    static FormatScanner create(MaskingFormat format, SensitiveInfoRegistry.Snapshot snapshot) {
+        switch (format) {
+            case JSON:
+                return new SensitiveScanner(snapshot);
+            case KEY_VALUE:
+                return new KeyValueScanner(snapshot, false);
+            case QUERY_STRING:
+                return new KeyValueScanner(snapshot, true);
+            case XML:
+                return new XmlScanner(snapshot);
+            default:
+                throw new IllegalArgumentException("format must be specified: " + format);
+        }
+    }
+}
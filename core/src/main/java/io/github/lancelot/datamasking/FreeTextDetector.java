@@ -0,0 +1,497 @@
+package io.github.lancelot.datamasking;
+
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 非结构化文本中的敏感信息识别，作用于状态机 START 状态下的文本
+ *
+ * 手写的扫描，不使用正则：数字类候选至少11位，每隔11个字符探测一次是否为数字即可跳过大部分文本；
+ * 邮箱只在 '@' 处触发，向两侧展开。
+ * <ul>
+ * <li>手机号：11位连续数字，1开头、第二位3-9</li>
+ * <li>身份证：18位，前17位为数字，最后一位为数字或X，校验码正确</li>
+ * <li>银行卡：16-19位连续数字，满足 Luhn 校验</li>
+ * <li>邮箱：local@domain.tld，顶级域名至少两个字母</li>
+ * </ul>
+ * 数字串前后不能紧邻其他数字。命中后按对应 {@link SensitiveType} 的规则脱敏。
+ *
+ * 调用方需要保证传入的区间不会把一个候选截断，分段输入时用 {@link #tokenStart} 找出
+ * 结尾可能未完的部分，留到下一段再处理。
+ */
+final class FreeTextDetector {
+
+    /**
+     * 候选的最大长度，邮箱地址最长254个字符
+     */
+    static final int MAX_TOKEN_LENGTH = 256;
+
+    /**
+     * 数字类候选的最短长度（手机号）
+     */
+    private static final int MIN_DIGITS = 11;
+
+    private static final Set<SensitiveType> SUPPORTED = EnumSet.of(
+            SensitiveType.MOBILE_PHONE, SensitiveType.ID_CARD, SensitiveType.BANK_CARD, SensitiveType.EMAIL);
+
+    private static final int[] ID_CARD_WEIGHTS = {7, 9, 10, 5, 8, 4, 2, 1, 6, 3, 7, 9, 10, 5, 8, 4, 2};
+
+    private static final char[] ID_CARD_CHECK_CODES = "10X98765432".toCharArray();
+
+    /**
+     * 可以出现在候选中的 ASCII 字符：字母、数字和 ._%+-@
+     */
+    private static final boolean[] TOKEN_CHARS = new boolean[128];
+
+    static {
+        for (int c = 0; c < 128; c++) {
+            TOKEN_CHARS[c] = isAlphanumeric(c) || c == '.' || c == '_' || c == '%' || c == '+' || c == '-' || c == '@';
+        }
+    }
+
+    private final boolean mobilePhone;
+    private final boolean idCard;
+    private final boolean bankCard;
+    private final boolean email;
+    private final boolean digits;
+
+    private FreeTextDetector(Set<SensitiveType> types) {
+        this.mobilePhone = types.contains(SensitiveType.MOBILE_PHONE);
+        this.idCard = types.contains(SensitiveType.ID_CARD);
+        this.bankCard = types.contains(SensitiveType.BANK_CARD);
+        this.email = types.contains(SensitiveType.EMAIL);
+        this.digits = mobilePhone || idCard || bankCard;
+    }
+
+    /**
+     * @param types 需要识别的类型
+     * @return 识别器，types 为空时返回 null
+     * @throws IllegalArgumentException 包含不支持识别的类型
+     */
+    static FreeTextDetector of(Set<SensitiveType> types) {
+        for (SensitiveType type : types) {
+            if (!SUPPORTED.contains(type)) {
+                throw new IllegalArgumentException("free text detection not supported for " + type);
+            }
+        }
+        return types.isEmpty() ? null : new FreeTextDetector(types);
+    }
+
+    /**
+     * 识别 chars[start, end) 中的敏感信息，脱敏后追加到 out
+     *
+     * @return 脱敏的个数
+     */
+    int mask(char[] chars, int start, int end, StringBuilder out) {
+        int masked = 0;
+        int flushed = start;
+        int i = start;
+        int at = email ? FastScan.indexOf(chars, '@', start, end) : end;
+        while (i < end) {
+            int run = digits ? nextDigitRun(chars, i, at) : at;
+            if (run < at) {
+                int runEnd = run + MIN_DIGITS;
+                while (runEnd < end && isDigit(chars[runEnd])) {
+                    runEnd++;
+                }
+                // 数字串后面跟着 '@'，是邮箱用户名的一部分，交给邮箱处理
+                if (at < end && localEnd(chars, runEnd, end) == at) {
+                    i = at;
+                    continue;
+                }
+                boolean trailingX = runEnd - run == 17 && runEnd < end && (chars[runEnd] | 0x20) == 'x'
+                        && !(runEnd + 1 < end && isDigit(chars[runEnd + 1]));
+                int tokenEnd = trailingX ? runEnd + 1 : runEnd;
+                SensitiveType type = digitsType(chars, run, tokenEnd, trailingX);
+                if (type != null) {
+                    out.append(chars, flushed, run - flushed);
+                    SensitiveConvertor.convertMsg(type, chars, run, tokenEnd, out);
+                    flushed = tokenEnd;
+                    masked++;
+                }
+                i = tokenEnd;
+                continue;
+            }
+            if (at == end) {
+                break;
+            }
+            int tokenEnd = emailEnd(chars, at, end);
+            int localStart = localStart(chars, at, flushed);
+            if (tokenEnd > 0 && localStart < at) {
+                out.append(chars, flushed, localStart - flushed);
+                SensitiveConvertor.convertMsg(SensitiveType.EMAIL, chars, localStart, tokenEnd, out);
+                flushed = tokenEnd;
+                masked++;
+                i = tokenEnd;
+            } else {
+                i = at + 1;
+            }
+            at = FastScan.indexOf(chars, '@', i, end);
+        }
+        out.append(chars, flushed, end - flushed);
+        return masked;
+    }
+
+    /**
+     * 识别 bytes[start, end) 中的敏感信息，脱敏后追加到 out。候选都是 ASCII，
+     * 多字节字符的每个字节都大于 0x7F，只会被当作分隔
+     *
+     * @param bytes 必须是小端序，参见 {@link FastScan#littleEndian(ByteBuffer)}
+     * @return 脱敏的个数
+     */
+    int mask(ByteBuffer bytes, int start, int end, Utf8Output out) {
+        int masked = 0;
+        int flushed = start;
+        int i = start;
+        int at = email ? FastScan.indexOf(bytes, (byte) '@', start, end) : end;
+        while (i < end) {
+            int run = digits ? nextDigitRun(bytes, i, at) : at;
+            if (run < at) {
+                int runEnd = run + MIN_DIGITS;
+                while (runEnd < end && isDigit(bytes.get(runEnd))) {
+                    runEnd++;
+                }
+                if (at < end && localEnd(bytes, runEnd, end) == at) {
+                    i = at;
+                    continue;
+                }
+                boolean trailingX = runEnd - run == 17 && runEnd < end && (bytes.get(runEnd) | 0x20) == 'x'
+                        && !(runEnd + 1 < end && isDigit(bytes.get(runEnd + 1)));
+                int tokenEnd = trailingX ? runEnd + 1 : runEnd;
+                SensitiveType type = digitsType(bytes, run, tokenEnd, trailingX);
+                if (type != null) {
+                    out.put(bytes, flushed, run);
+                    Utf8SensitiveConvertor.convertMsg(type, bytes, run, tokenEnd, out);
+                    flushed = tokenEnd;
+                    masked++;
+                }
+                i = tokenEnd;
+                continue;
+            }
+            if (at == end) {
+                break;
+            }
+            int tokenEnd = emailEnd(bytes, at, end);
+            int localStart = localStart(bytes, at, flushed);
+            if (tokenEnd > 0 && localStart < at) {
+                out.put(bytes, flushed, localStart);
+                Utf8SensitiveConvertor.convertMsg(SensitiveType.EMAIL, bytes, localStart, tokenEnd, out);
+                flushed = tokenEnd;
+                masked++;
+                i = tokenEnd;
+            } else {
+                i = at + 1;
+            }
+            at = FastScan.indexOf(bytes, (byte) '@', i, end);
+        }
+        out.put(bytes, flushed, end);
+        return masked;
+    }
+
+    /**
+     * chars[from, to) 中第一个不少于 {@link #MIN_DIGITS} 位的数字串的起始位置，不存在返回 to
+     *
+     * 这样的数字串必然覆盖每隔 MIN_DIGITS 个字符取一个的探测点，因此只需检查探测点，
+     * 探测点是数字时再向两侧展开。from 之前的字符不能是数字。
+     */
+    private static int nextDigitRun(char[] chars, int from, int to) {
+        int probe = from + MIN_DIGITS - 1;
+        while (probe < to) {
+            if (!isDigit(chars[probe])) {
+                probe += MIN_DIGITS;
+                continue;
+            }
+            int runStart = probe;
+            while (runStart > from && isDigit(chars[runStart - 1])) {
+                runStart--;
+            }
+            int runEnd = probe + 1;
+            while (runEnd < to && isDigit(chars[runEnd])) {
+                runEnd++;
+            }
+            if (runEnd - runStart >= MIN_DIGITS) {
+                return runStart;
+            }
+            probe = runEnd + MIN_DIGITS;
+        }
+        return to;
+    }
+
+    private static int nextDigitRun(ByteBuffer bytes, int from, int to) {
+        int probe = from + MIN_DIGITS - 1;
+        while (probe < to) {
+            if (!isDigit(bytes.get(probe))) {
+                probe += MIN_DIGITS;
+                continue;
+            }
+            int runStart = probe;
+            while (runStart > from && isDigit(bytes.get(runStart - 1))) {
+                runStart--;
+            }
+            int runEnd = probe + 1;
+            while (runEnd < to && isDigit(bytes.get(runEnd))) {
+                runEnd++;
+            }
+            if (runEnd - runStart >= MIN_DIGITS) {
+                return runStart;
+            }
+            probe = runEnd + MIN_DIGITS;
+        }
+        return to;
+    }
+
+    /**
+     * chars[start, end) 结尾处可能未完的候选的起始位置，没有返回 end
+     */
+    static int tokenStart(char[] chars, int start, int end) {
+        int i = end;
+        while (i > start && isTokenChar(chars[i - 1])) {
+            i--;
+        }
+        return i;
+    }
+
+    static int tokenStart(ByteBuffer bytes, int start, int end) {
+        int i = end;
+        while (i > start && isTokenChar(bytes.get(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+
+    /**
+     * chars[start, end) 开头的候选字符结束的位置
+     */
+    static int tokenEnd(char[] chars, int start, int end) {
+        int i = start;
+        while (i < end && isTokenChar(chars[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    static int tokenEnd(ByteBuffer bytes, int start, int end) {
+        int i = start;
+        while (i < end && isTokenChar(bytes.get(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private SensitiveType digitsType(char[] chars, int start, int end, boolean trailingX) {
+        int length = end - start;
+        if (length == 18 && idCard && isIdCardChecksumValid(chars, start, trailingX)) {
+            return SensitiveType.ID_CARD;
+        }
+        if (trailingX) {
+            return null;
+        }
+        if (length == 11 && mobilePhone && chars[start] == '1' && chars[start + 1] >= '3') {
+            return SensitiveType.MOBILE_PHONE;
+        }
+        if (length >= 16 && length <= 19 && bankCard && isLuhnValid(chars, start, end)) {
+            return SensitiveType.BANK_CARD;
+        }
+        return null;
+    }
+
+    private SensitiveType digitsType(ByteBuffer bytes, int start, int end, boolean trailingX) {
+        int length = end - start;
+        if (length == 18 && idCard && isIdCardChecksumValid(bytes, start, trailingX)) {
+            return SensitiveType.ID_CARD;
+        }
+        if (trailingX) {
+            return null;
+        }
+        if (length == 11 && mobilePhone && bytes.get(start) == '1' && bytes.get(start + 1) >= '3') {
+            return SensitiveType.MOBILE_PHONE;
+        }
+        if (length >= 16 && length <= 19 && bankCard && isLuhnValid(bytes, start, end)) {
+            return SensitiveType.BANK_CARD;
+        }
+        return null;
+    }
+
+    private static boolean isIdCardChecksumValid(char[] chars, int start, boolean trailingX) {
+        int sum = 0;
+        for (int i = 0; i < 17; i++) {
+            sum += (chars[start + i] - '0') * ID_CARD_WEIGHTS[i];
+        }
+        char expected = ID_CARD_CHECK_CODES[sum % 11];
+        return trailingX ? expected == 'X' : expected == chars[start + 17];
+    }
+
+    private static boolean isIdCardChecksumValid(ByteBuffer bytes, int start, boolean trailingX) {
+        int sum = 0;
+        for (int i = 0; i < 17; i++) {
+            sum += (bytes.get(start + i) - '0') * ID_CARD_WEIGHTS[i];
+        }
+        char expected = ID_CARD_CHECK_CODES[sum % 11];
+        return trailingX ? expected == 'X' : expected == bytes.get(start + 17);
+    }
+
+    private static boolean isLuhnValid(char[] chars, int start, int end) {
+        int sum = 0;
+        boolean doubled = false;
+        for (int i = end - 1; i >= start; i--) {
+            int digit = chars[i] - '0';
+            if (doubled) {
+                digit = digit > 4 ? digit * 2 - 9 : digit * 2;
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return sum % 10 == 0;
+    }
+
+    private static boolean isLuhnValid(ByteBuffer bytes, int start, int end) {
+        int sum = 0;
+        boolean doubled = false;
+        for (int i = end - 1; i >= start; i--) {
+            int digit = bytes.get(i) - '0';
+            if (doubled) {
+                digit = digit > 4 ? digit * 2 - 9 : digit * 2;
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return sum % 10 == 0;
+    }
+
+    /**
+     * 从 from 开始第一个不能出现在邮箱用户名中的字符的位置
+     */
+    private static int localEnd(char[] chars, int from, int end) {
+        int i = from;
+        while (i < end && isLocalChar(chars[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int localEnd(ByteBuffer bytes, int from, int end) {
+        int i = from;
+        while (i < end && isLocalChar(bytes.get(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * 从 at 向前找邮箱用户名的起始位置，不越过 floor
+     */
+    private static int localStart(char[] chars, int at, int floor) {
+        int i = at;
+        while (i > floor && isLocalChar(chars[i - 1])) {
+            i--;
+        }
+        return i;
+    }
+
+    private static int localStart(ByteBuffer bytes, int at, int floor) {
+        int i = at;
+        while (i > floor && isLocalChar(bytes.get(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+
+    /**
+     * '@' 之后是合法域名时返回域名结束位置，否则返回 -1
+     */
+    private static int emailEnd(char[] chars, int at, int end) {
+        int i = at + 1;
+        int lastDot = -1;
+        while (i < end && isDomainChar(chars[i])) {
+            if (chars[i] == '.') {
+                lastDot = i;
+            }
+            i++;
+        }
+        // 句末的 '.' 不属于域名
+        while (i > at + 1 && (chars[i - 1] == '.' || chars[i - 1] == '-')) {
+            i--;
+        }
+        while (lastDot >= i) {
+            lastDot = lastIndexOfDot(chars, at + 1, lastDot);
+        }
+        if (lastDot <= at + 1 || i - lastDot <= 2) {
+            return -1;
+        }
+        for (int j = lastDot + 1; j < i; j++) {
+            if (!isLetter(chars[j])) {
+                return -1;
+            }
+        }
+        return i;
+    }
+
+    private static int emailEnd(ByteBuffer bytes, int at, int end) {
+        int i = at + 1;
+        int lastDot = -1;
+        while (i < end && isDomainChar(bytes.get(i))) {
+            if (bytes.get(i) == '.') {
+                lastDot = i;
+            }
+            i++;
+        }
+        while (i > at + 1 && (bytes.get(i - 1) == '.' || bytes.get(i - 1) == '-')) {
+            i--;
+        }
+        while (lastDot >= i) {
+            lastDot = lastIndexOfDot(bytes, at + 1, lastDot);
+        }
+        if (lastDot <= at + 1 || i - lastDot <= 2) {
+            return -1;
+        }
+        for (int j = lastDot + 1; j < i; j++) {
+            if (!isLetter(bytes.get(j))) {
+                return -1;
+            }
+        }
+        return i;
+    }
+
+    private static int lastIndexOfDot(char[] chars, int from, int before) {
+        for (int i = before - 1; i >= from; i--) {
+            if (chars[i] == '.') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOfDot(ByteBuffer bytes, int from, int before) {
+        for (int i = before - 1; i >= from; i--) {
+            if (bytes.get(i) == '.') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isAlphanumeric(int c) {
+        return isDigit(c) || isLetter(c);
+    }
+
+    private static boolean isTokenChar(int c) {
+        return c >= 0 && c < 128 && TOKEN_CHARS[c];
+    }
+
+    private static boolean isLocalChar(int c) {
+        return c != '@' && isTokenChar(c);
+    }
+
+    private static boolean isDomainChar(int c) {
+        return isAlphanumeric(c) || c == '.' || c == '-';
+    }
+}
@@ -0,0 +1,141 @@
+package io.github.lancelot.datamasking;
+
+import java.nio.ByteBuffer;
+
+/**
+ * JSON 字符串转义的判断、解码与编码
+ *
+ * 状态机用 {@link FastScan} 找到引号后，只有引号前紧挨着反斜杠时才需要数反斜杠的个数，
+ * 奇数个说明引号被转义。常见的无转义输入只多一次字符比较。
+ */
+final class JsonEscapes {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private JsonEscapes() {
+    }
+
+    /**
+     * chars[from, at) 末尾是否有奇数个反斜杠，即 at 处的字符是否被转义
+     *
+     * @param carry from 之前（上一段）的内容是否以奇数个反斜杠结尾
+     */
+    static boolean isEscaped(char[] chars, int from, int at, boolean carry) {
+        int i = at - 1;
+        while (i >= from && chars[i] == '\\') {
+            i--;
+        }
+        boolean odd = ((at - 1 - i) & 1) == 1;
+        return i < from && carry ? !odd : odd;
+    }
+
+    static boolean isEscaped(ByteBuffer bytes, int from, int at, boolean carry) {
+        int i = at - 1;
+        while (i >= from && bytes.get(i) == '\\') {
+            i--;
+        }
+        boolean odd = ((at - 1 - i) & 1) == 1;
+        return i < from && carry ? !odd : odd;
+    }
+
+    static boolean containsBackslash(char[] chars, int start, int end) {
+        return FastScan.indexOf(chars, '\\', start, end) < end;
+    }
+
+    /**
+     * 解码 chars[start, end) 中的转义序列，结果追加到 out。不合法的转义原样保留
+     */
+    static void unescape(CharSequence chars, int start, int end, StringBuilder out) {
+        for (int i = start; i < end; i++) {
+            char c = chars.charAt(i);
+            if (c != '\\' || i + 1 == end) {
+                out.append(c);
+                continue;
+            }
+            char e = chars.charAt(++i);
+            switch (e) {
+                case '"':
+                case '\\':
+                case '/':
+                    out.append(e);
+                    break;
+                case 'b':
+                    out.append('\b');
+                    break;
+                case 'f':
+                    out.append('\f');
+                    break;
+                case 'n':
+                    out.append('\n');
+                    break;
+                case 'r':
+                    out.append('\r');
+                    break;
+                case 't':
+                    out.append('\t');
+                    break;
+                case 'u':
+                    int code = i + 4 < end ? hex(chars, i + 1) : -1;
+                    if (code >= 0) {
+                        out.append((char) code);
+                        i += 4;
+                    } else {
+                        out.append('\\').append(e);
+                    }
+                    break;
+                default:
+                    out.append('\\').append(e);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 把 chars[start, end) 编码为 JSON 字符串内容（不含两侧引号），结果追加到 out
+     */
+    static void escape(CharSequence chars, int start, int end, StringBuilder out) {
+        for (int i = start; i < end; i++) {
+            char c = chars.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                    out.append('\\').append(c);
+                    break;
+                case '\b':
+                    out.append("\\b");
+                    break;
+                case '\f':
+                    out.append("\\f");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < ' ') {
+                        out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        out.append(c);
+                    }
+                    break;
+            }
+        }
+    }
+
+    private static int hex(CharSequence chars, int start) {
+        int code = 0;
+        for (int i = start; i < start + 4; i++) {
+            int digit = Character.digit(chars.charAt(i), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            code = code << 4 | digit;
+        }
+        return code;
+    }
+}
@@ -0,0 +1,351 @@
+package io.github.lancelot.datamasking;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 字段名预筛选：判断输入中是否可能出现已注册的字段名，不可能时输入原样返回，不经过状态机、不复制
+ *
+ * 状态机只在一对引号之间查找字段名，因此只需检查每两个相邻引号之间的片段：先按长度和首字符的位图过滤，
+ * 再计算与 {@link String#hashCode()} 相同的哈希，到开放寻址表中逐字比较。只要有一个片段命中就返回 true，
+ * 交给状态机完整处理。判断是保守的，状态机会命中的字段名一定能找到，反之不一定。
+ *
+ * 开启嵌入 JSON 脱敏时，嵌入层的字段名以 \" 结尾，比较前去掉片段末尾的反斜杠；
+ * 片段中间还有反斜杠时，解码后的字段名无法直接比较，按可能命中处理。
+ *
+ * 字段名宽松匹配时表中保存折叠后的字段名，片段同样边折叠边计算长度、首字符和哈希，仍然只扫描一遍。
+ */
+final class KeyPrefilter {
+
+    /**
+     * 长度位图的最后一位代表所有不短于该值的字段名
+     */
+    private static final int LONG_KEY = 63;
+
+    private final long lengths;
+
+    /**
+     * 首字符位图，按字符的低 7 位分成两个 long；非 ASCII 字符共用同一组位，只会多放过，不会漏掉
+     */
+    private final long firstLow;
+
+    private final long firstHigh;
+
+    private final String[] keys;
+
+    private final int[] hashes;
+
+    private final int mask;
+
+    private final boolean embeddedJson;
+
+    private final boolean folded;
+
+    /**
+     * 最长的字段名长度，宽松匹配时片段折叠到超过该长度即可放弃
+     */
+    private final int maxLength;
+
+    private KeyPrefilter(Set<String> names, boolean embeddedJson, boolean folded) {
+        int size = Integer.highestOneBit(Math.max(1, names.size()) * 2 - 1) << 1;
+        long lengths = 0;
+        long firstLow = 0;
+        long firstHigh = 0;
+        int maxLength = 0;
+        this.keys = new String[size];
+        this.hashes = new int[size];
+        this.mask = size - 1;
+        for (String name : names) {
+            lengths |= 1L << Math.min(name.length(), LONG_KEY);
+            maxLength = Math.max(maxLength, name.length());
+            if (!name.isEmpty()) {
+                char first = name.charAt(0);
+                if ((first & 0x40) == 0) {
+                    firstLow |= 1L << first;
+                } else {
+                    firstHigh |= 1L << first;
+                }
+            }
+            int hash = name.hashCode();
+            int slot = hash & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = name;
+            hashes[slot] = hash;
+        }
+        this.lengths = lengths;
+        this.firstLow = firstLow;
+        this.firstHigh = firstHigh;
+        this.embeddedJson = embeddedJson;
+        this.folded = folded;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * @param names 可能命中的全部字段名
+     * @param embeddedJson 是否开启了嵌入 JSON 脱敏
+     * @return 预筛选，字段名中含有引号（状态机按转义后的原文比较，无法按片段筛选）时返回 null
+     */
+    static KeyPrefilter compile(Collection<String> names, boolean embeddedJson) {
+        return compile(names, embeddedJson, false);
+    }
+
+    /**
+     * @param folded 是否宽松匹配字段名，参见 {@link SensitiveKeyTable#fold(char)}
+     * @see #compile(Collection, boolean)
+     */
+    static KeyPrefilter compile(Collection<String> names, boolean embeddedJson, boolean folded) {
+        Set<String> unique = new LinkedHashSet<>();
+        for (String name : names) {
+            if (name.indexOf('"') >= 0) {
+                return null;
+            }
+            unique.add(folded ? SensitiveKeyTable.foldKey(name) : name);
+        }
+        return new KeyPrefilter(unique, embeddedJson, folded);
+    }
+
+    /**
+     * @param scratch 暂存区，不长于暂存区的输入先整体复制再检查，比逐个 charAt 快
+     * @return 输入中可能含有已注册的字段名时返回 true，返回 false 时脱敏结果一定与输入相同
+     */
+    boolean mayMatch(CharSequence input, char[] scratch) {
+        int length = input.length();
+        if (input instanceof String) {
+            String string = (String) input;
+            // 没有引号就没有字段名，普通文本日志只需这一步，String.indexOf 有向量化的内建实现
+            if (string.indexOf('"') < 0) {
+                return false;
+            }
+            if (length <= scratch.length) {
+                string.getChars(0, length, scratch, 0);
+                return mayMatch(scratch, 0, length);
+            }
+        } else if (input instanceof StringBuilder && length <= scratch.length) {
+            ((StringBuilder) input).getChars(0, length, scratch, 0);
+            return mayMatch(scratch, 0, length);
+        }
+        int open = -1;
+        for (int i = 0; i < length; i++) {
+            if (input.charAt(i) == '"') {
+                if (open >= 0 && candidate(input, open + 1, i)) {
+                    return true;
+                }
+                open = i;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return chars[from, to) 中可能含有已注册的字段名时返回 true
+     */
+    boolean mayMatch(char[] chars, int from, int to) {
+        int open = FastScan.indexOf(chars, '"', from, to);
+        while (open < to) {
+            int close = FastScan.indexOf(chars, '"', open + 1, to);
+            if (close == to) {
+                // 未闭合的字段名不会被查找
+                return false;
+            }
+            if (candidate(chars, open + 1, close)) {
+                return true;
+            }
+            open = close;
+        }
+        return false;
+    }
+
+    private boolean candidate(CharSequence input, int start, int end) {
+        if (embeddedJson) {
+            while (end > start && input.charAt(end - 1) == '\\') {
+                end--;
+            }
+            for (int i = start; i < end; i++) {
+                if (input.charAt(i) == '\\') {
+                    return true;
+                }
+            }
+        }
+        if (folded) {
+            return foldedCandidate(input, start, end);
+        }
+        int length = end - start;
+        if (!lengthAndFirst(length, length == 0 ? 0 : input.charAt(start))) {
+            return false;
+        }
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + input.charAt(i);
+        }
+        for (int slot = hash & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && equals(keys[slot], input, start, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 宽松匹配：折叠后的长度、首字符和哈希在同一遍中算出
+     */
+    private boolean foldedCandidate(CharSequence input, int start, int end) {
+        int length = 0;
+        char first = 0;
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            if (SensitiveKeyTable.isSeparator(c)) {
+                continue;
+            }
+            c = SensitiveKeyTable.fold(c);
+            if (length++ == 0) {
+                // 先按首字符过滤，大多数片段不需要折叠完
+                if (!firstChar(c)) {
+                    return false;
+                }
+                first = c;
+            } else if (length > maxLength) {
+                return false;
+            }
+            hash = 31 * hash + c;
+        }
+        if (!lengthAndFirst(length, first)) {
+            return false;
+        }
+        for (int slot = hash & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && foldedEquals(keys[slot], input, start, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean candidate(char[] chars, int start, int end) {
+        if (embeddedJson) {
+            while (end > start && chars[end - 1] == '\\') {
+                end--;
+            }
+            if (FastScan.indexOf(chars, '\\', start, end) < end) {
+                return true;
+            }
+        }
+        if (folded) {
+            return foldedCandidate(chars, start, end);
+        }
+        int length = end - start;
+        if (!lengthAndFirst(length, length == 0 ? 0 : chars[start])) {
+            return false;
+        }
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        for (int slot = hash & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && equals(keys[slot], chars, start, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean foldedCandidate(char[] chars, int start, int end) {
+        int length = 0;
+        char first = 0;
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (SensitiveKeyTable.isSeparator(c)) {
+                continue;
+            }
+            c = SensitiveKeyTable.fold(c);
+            if (length++ == 0) {
+                // 先按首字符过滤，大多数片段不需要折叠完
+                if (!firstChar(c)) {
+                    return false;
+                }
+                first = c;
+            } else if (length > maxLength) {
+                return false;
+            }
+            hash = 31 * hash + c;
+        }
+        if (!lengthAndFirst(length, first)) {
+            return false;
+        }
+        for (int slot = hash & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && foldedEquals(keys[slot], chars, start, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按长度和首字符的位图过滤，空片段只看长度
+     */
+    private boolean lengthAndFirst(int length, char first) {
+        if ((lengths & (1L << Math.min(length, LONG_KEY))) == 0) {
+            return false;
+        }
+        return length == 0 || firstChar(first);
+    }
+
+    private boolean firstChar(char c) {
+        return (((c & 0x40) == 0 ? firstLow : firstHigh) & (1L << c)) != 0;
+    }
+
+    private static boolean equals(String key, CharSequence input, int start, int end) {
+        if (key.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) != input.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equals(String key, char[] chars, int start, int end) {
+        if (key.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean foldedEquals(String key, CharSequence input, int start, int end) {
+        int k = 0;
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            if (SensitiveKeyTable.isSeparator(c)) {
+                continue;
+            }
+            if (k == key.length() || key.charAt(k++) != SensitiveKeyTable.fold(c)) {
+                return false;
+            }
+        }
+        return k == key.length();
+    }
+
+    private static boolean foldedEquals(String key, char[] chars, int start, int end) {
+        int k = 0;
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (SensitiveKeyTable.isSeparator(c)) {
+                continue;
+            }
+            if (k == key.length() || key.charAt(k++) != SensitiveKeyTable.fold(c)) {
+                return false;
+            }
+        }
+        return k == key.length();
+    }
+}
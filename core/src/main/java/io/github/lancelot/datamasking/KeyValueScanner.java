@@ -0,0 +1,464 @@
+package io.github.lancelot.datamasking;
+
+/**
+ * key=value 格式的可续接状态机，用于 {@link MaskingFormat#KEY_VALUE} 和 {@link MaskingFormat#QUERY_STRING}
+ *
+ * 文本中直接跳到下一个 '='，往回取紧挨着的字母、数字、'_'、'-' 作为字段名查找，
+ * 例如 User(mobile=...)、a.b.mobile=...、/path?mobile=... 中的字段名都是 mobile。
+ * 非敏感字段的值不需要单独识别，作为普通文本输出；敏感字段的值到分隔符为止：
+ * <ul>
+ * <li>KEY_VALUE：空白、',' ';' '&amp;' '"' 和右括号，也可以整体用双引号或单引号括起来，
+ * 引号内的反斜杠转义下一个字符，含转义的值先解码再脱敏，结果重新转义。'=' 两侧可以有空格或制表符</li>
+ * <li>QUERY_STRING：'&amp;' '#' '"' 和空白，含 %XX 或 '+' 的值先解码再脱敏，结果重新编码</li>
+ * </ul>
+ *
+ * KEY_VALUE 中非敏感字段的值以 '{' 或 '[' 开头、括号后是引号时（例如 payload={"mobile":"..."}）按 JSON 处理，
+ * 交给 {@link SensitiveScanner} 直到括号配对结束。
+ *
+ * 分段结尾处可能是字段名开头的部分和未结束的敏感值缓存到下一段，内存占用只与最长的字段名/值有关。
+ */
+final class KeyValueScanner implements FormatScanner {
+
+    private enum State {
+        TEXT, VALUE, QUOTED_VALUE, JSON_PROBE, JSON_VALUE
+    }
+
+    /**
+     * 复用时保留的缓存上限，超过后释放
+     */
+    private static final int MAX_RETAINED_PENDING = 64 * 1024;
+
+    /**
+     * 判断值是否为 JSON 时最多缓存的括号和空白字符数
+     */
+    private static final int MAX_PROBE = 64;
+
+    private final boolean query;
+
+    private SensitiveInfoRegistry.Snapshot snapshot;
+
+    private SensitiveKeyTable keyTable;
+
+    /**
+     * 本次调用的指标计数，未开启 {@link MaskingMetrics} 时为 null
+     */
+    private MaskingMetrics.Tally tally;
+
+    private State state = State.TEXT;
+
+    /**
+     * 下一个字符是值的第一个字符，需要跳过 '=' 后的空白并判断是否用引号括起来
+     */
+    private boolean valueFirst;
+
+    /**
+     * 引号值的引号字符
+     */
+    private char quote;
+
+    /**
+     * 引号值已读部分是否以奇数个反斜杠结尾
+     */
+    private boolean escapeCarry;
+
+    private MaskingStrategy valueStrategy;
+
+    /**
+     * 处理 JSON 值的扫描器，按需创建
+     */
+    private SensitiveScanner json;
+
+    /**
+     * JSON 值中未闭合的括号数，以及当前是否在字符串内、字符串内上一个字符是否为转义的反斜杠
+     */
+    private int jsonDepth;
+    private boolean jsonString;
+    private boolean jsonEscape;
+
+    /**
+     * TEXT 状态下是分段结尾可能属于字段名的部分（以及其后 '=' 前的空白），
+     * JSON_PROBE 状态下是 '=' 之后的括号和空白，其他状态下是跨越分段的敏感值
+     */
+    private char[] pending;
+    private int pendingLength;
+
+    /**
+     * @param query 是否按查询串处理
+     */
+    KeyValueScanner(SensitiveInfoRegistry.Snapshot snapshot, boolean query) {
+        this.query = query;
+        reset(snapshot);
+    }
+
+    @Override
+    public void reset(SensitiveInfoRegistry.Snapshot snapshot) {
+        this.snapshot = snapshot;
+        keyTable = snapshot.keyTable;
+        state = State.TEXT;
+        valueFirst = false;
+        escapeCarry = false;
+        valueStrategy = null;
+        pendingLength = 0;
+        tally = MaskingMetrics.startTally(tally);
+        if (json != null) {
+            json.reset(snapshot);
+            json.shareTally(tally);
+        }
+        if (pending != null && pending.length > MAX_RETAINED_PENDING) {
+            pending = null;
+        }
+    }
+
+    @Override
+    public void scan(char[] chars, int off, int end, StringBuilder out) {
+        if (tally != null) {
+            tally.chars += end - off;
+        }
+        int i = off;
+        if (state == State.TEXT && pendingLength > 0) {
+            // 上一段结尾的字段名候选接上本段开头的部分
+            int candidateEnd = candidateEnd(chars, off, end, isKeyChar(pending[pendingLength - 1]));
+            appendPending(chars, off, candidateEnd);
+            if (candidateEnd == end) {
+                return;
+            }
+            out.append(pending, 0, pendingLength);
+            if (chars[candidateEnd] == '=') {
+                out.append('=');
+                MaskingStrategy strategy = lookupKey(pending, 0, trimEnd(pending, 0, pendingLength));
+                pendingLength = 0;
+                startValue(strategy);
+                i = candidateEnd + 1;
+            } else {
+                pendingLength = 0;
+                i = candidateEnd;
+            }
+        }
+        int valueStart = i;
+
+        while (i < end) {
+            switch (state) {
+                case TEXT: {
+                    int eq = FastScan.indexOf(chars, '=', i, end);
+                    int keyEnd = trimEnd(chars, i, eq);
+                    int keyStart = keyStart(chars, i, keyEnd);
+                    if (eq == end) {
+                        if (keyStart < keyEnd) {
+                            out.append(chars, i, keyStart - i);
+                            appendPending(chars, keyStart, end);
+                        } else {
+                            out.append(chars, i, end - i);
+                        }
+                        i = end;
+                        break;
+                    }
+                    out.append(chars, i, eq + 1 - i);
+                    if (keyStart < keyEnd) {
+                        startValue(lookupKey(chars, keyStart, keyEnd));
+                    }
+                    i = eq + 1;
+                    valueStart = i;
+                    break;
+                }
+
+                case VALUE: {
+                    if (valueFirst) {
+                        char c = chars[i];
+                        if (!query && (c == ' ' || c == '\t')) {
+                            out.append(c);
+                            valueStart = ++i;
+                            break;
+                        }
+                        valueFirst = false;
+                        if (!query && (c == '"' || c == '\'')) {
+                            out.append(c);
+                            quote = c;
+                            escapeCarry = false;
+                            state = State.QUOTED_VALUE;
+                            valueStart = ++i;
+                            break;
+                        }
+                    }
+                    int stop = valueEnd(chars, i, end);
+                    if (stop == end) {
+                        appendPending(chars, valueStart, end);
+                    } else {
+                        processValue(chars, valueStart, stop, false, out);
+                        state = State.TEXT;
+                    }
+                    i = stop;
+                    break;
+                }
+
+                case QUOTED_VALUE: {
+                    int close = FastScan.indexOf(chars, quote, i, end);
+                    while (close < end && JsonEscapes.isEscaped(chars, valueStart, close, escapeCarry)) {
+                        close = FastScan.indexOf(chars, quote, close + 1, end);
+                    }
+                    if (close == end) {
+                        escapeCarry = JsonEscapes.isEscaped(chars, valueStart, end, escapeCarry);
+                        appendPending(chars, valueStart, end);
+                        i = end;
+                    } else {
+                        processValue(chars, valueStart, close, true, out);
+                        out.append(quote);
+                        state = State.TEXT;
+                        i = close + 1;
+                    }
+                    break;
+                }
+
+                case JSON_PROBE: {
+                    char c = chars[i];
+                    if ((c == '{' || c == '[' || c == ' ' || c == '\t') && pendingLength < MAX_PROBE) {
+                        appendPending(chars, i, i + 1);
+                        i++;
+                    } else if (c == '"' && jsonEnd(pending, 0, pendingLength) == pendingLength && jsonDepth > 0) {
+                        // 括号后是引号，按 JSON 处理；当前字符交给 JSON_VALUE
+                        json().scan(pending, 0, pendingLength, out);
+                        pendingLength = 0;
+                        state = State.JSON_VALUE;
+                    } else {
+                        // 不是 JSON，缓存的括号和空白作为普通文本输出，当前字符交给 TEXT
+                        if (pendingLength > 0) {
+                            out.append(pending, 0, pendingLength);
+                            pendingLength = 0;
+                        }
+                        jsonDepth = 0;
+                        state = State.TEXT;
+                    }
+                    break;
+                }
+
+                case JSON_VALUE: {
+                    int stop = jsonEnd(chars, i, end);
+                    json.scan(chars, i, stop, out);
+                    i = stop;
+                    if (jsonDepth == 0) {
+                        json.finish(out);
+                        state = State.TEXT;
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void finish(StringBuilder out) {
+        switch (state) {
+            case TEXT:
+            case JSON_PROBE:
+                if (pendingLength > 0) {
+                    out.append(pending, 0, pendingLength);
+                    pendingLength = 0;
+                }
+                break;
+            case JSON_VALUE:
+                json.finish(out);
+                break;
+            default:
+                if (tally != null && state == State.QUOTED_VALUE) {
+                    tally.malformed++;
+                }
+                processValue(pending, 0, 0, state == State.QUOTED_VALUE, out);
+                break;
+        }
+        state = State.TEXT;
+        valueFirst = false;
+        escapeCarry = false;
+        valueStrategy = null;
+        jsonDepth = 0;
+        jsonString = false;
+        jsonEscape = false;
+        if (tally != null) {
+            tally.record();
+        }
+    }
+
+    /**
+     * '=' 之后：敏感字段进入值状态；非敏感字段的值作为普通文本输出，KEY_VALUE 中先判断是否为 JSON
+     */
+    private void startValue(MaskingStrategy strategy) {
+        if (strategy != null) {
+            valueStrategy = strategy;
+            valueFirst = true;
+            state = State.VALUE;
+        } else if (!query) {
+            jsonDepth = 0;
+            jsonString = false;
+            jsonEscape = false;
+            state = State.JSON_PROBE;
+        }
+    }
+
+    private SensitiveScanner json() {
+        if (json == null) {
+            json = new SensitiveScanner(snapshot, 1);
+            json.shareTally(tally);
+        }
+        return json;
+    }
+
+    /**
+     * 跟踪 JSON 值的括号配对，字符串内的括号不计
+     *
+     * @return 括号配对结束处（闭合括号之后）的位置，本段内没有结束时返回 to
+     */
+    private int jsonEnd(char[] chars, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = chars[i];
+            if (jsonString) {
+                if (jsonEscape) {
+                    jsonEscape = false;
+                } else if (c == '\\') {
+                    jsonEscape = true;
+                } else if (c == '"') {
+                    jsonString = false;
+                }
+            } else if (c == '"') {
+                jsonString = true;
+            } else if (c == '{' || c == '[') {
+                jsonDepth++;
+            } else if ((c == '}' || c == ']') && --jsonDepth <= 0) {
+                jsonDepth = 0;
+                return i + 1;
+            }
+        }
+        return to;
+    }
+
+    private MaskingStrategy lookupKey(char[] chars, int start, int end) {
+        MaskingStrategy strategy = keyTable.strategy(keyTable.find(chars, start, end));
+        if (tally != null) {
+            tally.key(strategy == null ? null : strategy.type);
+        }
+        return strategy;
+    }
+
+    /**
+     * 值结束时调用，敏感值按规则脱敏后输出
+     *
+     * @param quoted 是否为引号值，引号值中的反斜杠转义先解码再脱敏
+     */
+    private void processValue(char[] chars, int valueStart, int valueEnd, boolean quoted, StringBuilder out) {
+        MaskingStrategy strategy = valueStrategy;
+        valueStrategy = null;
+        if (pendingLength > 0) {
+            appendPending(chars, valueStart, valueEnd);
+            chars = pending;
+            valueStart = 0;
+            valueEnd = pendingLength;
+            pendingLength = 0;
+        }
+        if (strategy == null) {
+            return;
+        }
+        if (tally != null) {
+            tally.valuesMasked++;
+        }
+        if (valueEnd <= valueStart) {
+            return;
+        }
+        if (quoted && JsonEscapes.containsBackslash(chars, valueStart, valueEnd)) {
+            StringBuilder decoded = new StringBuilder(valueEnd - valueStart);
+            for (int i = valueStart; i < valueEnd; i++) {
+                char c = chars[i];
+                if (c == '\\' && i + 1 < valueEnd) {
+                    c = chars[++i];
+                }
+                decoded.append(c);
+            }
+            String masked = strategy.mask(decoded.toString());
+            for (int i = 0; i < masked.length(); i++) {
+                char c = masked.charAt(i);
+                if (c == quote || c == '\\') {
+                    out.append('\\');
+                }
+                out.append(c);
+            }
+        } else if (query && PercentEncoding.isEncoded(chars, valueStart, valueEnd)) {
+            StringBuilder decoded = new StringBuilder(valueEnd - valueStart);
+            PercentEncoding.decode(chars, valueStart, valueEnd, decoded);
+            String masked = strategy.mask(decoded.toString());
+            PercentEncoding.encode(masked, 0, masked.length(), out);
+        } else {
+            strategy.mask(chars, valueStart, valueEnd, out);
+        }
+    }
+
+    private int valueEnd(char[] chars, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = chars[i];
+            if (c == '&' || c == '"' || Character.isWhitespace(c)) {
+                return i;
+            }
+            if (query ? c == '#' : c == ',' || c == ';' || c == ')' || c == '}' || c == ']') {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static boolean isKeyChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-';
+    }
+
+    /**
+     * KEY_VALUE 中 chars[from, to) 去掉末尾空格和制表符后的结束位置，即 '=' 前的字段名结束处
+     */
+    private int trimEnd(char[] chars, int from, int to) {
+        int i = to;
+        if (!query) {
+            while (i > from && (chars[i - 1] == ' ' || chars[i - 1] == '\t')) {
+                i--;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * 上一段结尾的字段名候选在本段的延续：还在字段名中时先是字段名字符，KEY_VALUE 中之后可以是空格和制表符
+     */
+    private int candidateEnd(char[] chars, int from, int to, boolean inKey) {
+        int i = from;
+        if (inKey) {
+            while (i < to && isKeyChar(chars[i])) {
+                i++;
+            }
+        }
+        if (!query) {
+            while (i < to && (chars[i] == ' ' || chars[i] == '\t')) {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * chars[from, to) 末尾连续的字段名字符的起始位置
+     */
+    private static int keyStart(char[] chars, int from, int to) {
+        int i = to;
+        while (i > from && isKeyChar(chars[i - 1])) {
+            i--;
+        }
+        return i;
+    }
+
+    private void appendPending(char[] chars, int start, int end) {
+        int length = end - start;
+        if (length <= 0) {
+            return;
+        }
+        if (pending == null) {
+            pending = new char[Math.max(64, length)];
+        } else if (pendingLength + length > pending.length) {
+            char[] grown = new char[Math.max(pending.length * 2, pendingLength + length)];
+            System.arraycopy(pending, 0, grown, 0, pendingLength);
+            pending = grown;
+        }
+        System.arraycopy(chars, start, pending, pendingLength, length);
+        pendingLength += length;
+    }
+}
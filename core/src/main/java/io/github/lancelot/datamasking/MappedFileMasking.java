@@ -0,0 +1,196 @@
+package io.github.lancelot.datamasking;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于内存映射的文件脱敏
+ *
+ * 主线程按约 segmentSize 在换行处切分文件，每段交给工作线程：映射该段后逐行运行
+ * {@link Utf8SensitiveScanner}，结果写入该段独占的直接内存缓冲区。主线程按顺序取回结果写入输出文件，
+ * 缓冲区写完后给下一段复用。同时处理的段数固定为线程数的两倍，
+ * 因此内存占用只与线程数和分段大小有关，与文件大小无关，堆上也没有按行创建的 String。
+ *
+ * 每行单独处理（行尾的 \n、\r\n 原样保留），结果与逐行调用 {@link SensitiveReplacer#deSensitiveString} 一致。
+ */
+final class MappedFileMasking {
+
+    /**
+     * 默认分段大小
+     */
+    static final int DEFAULT_SEGMENT_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * 寻找换行时每次读取的长度
+     */
+    private static final int BOUNDARY_PROBE_SIZE = 64 * 1024;
+
+    private static final AtomicInteger POOL_IDS = new AtomicInteger();
+
+    private MappedFileMasking() {
+    }
+
+    /**
+     * 使用注册表的当前快照
+     *
+     * @return 输出的字节数
+     */
+    static long mask(Path input, Path output, int threads, int segmentSize) throws IOException {
+        return mask(input, output, threads, segmentSize, SensitiveInfoRegistry.snapshot());
+    }
+
+    /**
+     * @return 输出的字节数
+     */
+    static long mask(Path input, Path output, int threads, int segmentSize, SensitiveInfoRegistry.Snapshot snapshot)
+            throws IOException {
+        if (threads < 1 || segmentSize < 1) {
+            throw new IllegalArgumentException("threads and segmentSize must be positive");
+        }
+        if (Files.exists(output) && Files.isSameFile(input, output)) {
+            throw new IllegalArgumentException("output must not be the input file: " + output);
+        }
+        int inFlight = threads * 2;
+        ExecutorService pool = newPool(threads);
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            ByteBuffer probe = ByteBuffer.allocateDirect(BOUNDARY_PROBE_SIZE);
+            Deque<Utf8Output> buffers = new ArrayDeque<>(inFlight);
+            Deque<Future<Utf8Output>> segments = new ArrayDeque<>(inFlight);
+            long written = 0;
+            long start = 0;
+            while (start < size) {
+                long end = nextLineStart(in, Math.min(size, start + segmentSize), size, probe);
+                if (segments.size() == inFlight) {
+                    written += write(segments.poll(), out, buffers);
+                }
+                Utf8Output buffer = buffers.isEmpty()
+                        ? new Utf8Output((int) Math.min(end - start + 1024, Integer.MAX_VALUE), true) : buffers.poll();
+                segments.add(pool.submit(new Segment(in, start, end, snapshot, buffer)));
+                start = end;
+            }
+            while (!segments.isEmpty()) {
+                written += write(segments.poll(), out, buffers);
+            }
+            return written;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static ExecutorService newPool(int threads) {
+        final int poolId = POOL_IDS.incrementAndGet();
+        final AtomicInteger threadIds = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "data-masking-file-" + poolId + "-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * from 处或之后第一个行首的位置，即下一个 '\n' 之后，没有换行时返回 size
+     */
+    static long nextLineStart(FileChannel in, long from, long size, ByteBuffer probe) throws IOException {
+        long position = from;
+        while (position < size) {
+            probe.clear();
+            int read = in.read(probe, position);
+            if (read <= 0) {
+                return size;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static long write(Future<Utf8Output> segment, FileChannel out, Deque<Utf8Output> buffers)
+            throws IOException {
+        Utf8Output buffer;
+        try {
+            buffer = segment.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while masking file");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+        ByteBuffer result = buffer.flip();
+        long length = result.remaining();
+        while (result.hasRemaining()) {
+            out.write(result);
+        }
+        buffer.clear();
+        buffers.add(buffer);
+        return length;
+    }
+
+    /**
+     * 处理 [start, end)，start 是行首，end 是行首或文件末尾
+     */
+    private static final class Segment implements Callable<Utf8Output> {
+        private final FileChannel in;
+        private final long start;
+        private final long end;
+        private final SensitiveInfoRegistry.Snapshot snapshot;
+        private final Utf8Output out;
+
+        private Segment(FileChannel in, long start, long end, SensitiveInfoRegistry.Snapshot snapshot,
+                        Utf8Output out) {
+            this.in = in;
+            this.start = start;
+            this.end = end;
+            this.snapshot = snapshot;
+            this.out = out;
+        }
+
+        @Override
+        public Utf8Output call() throws IOException {
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("line too long at offset " + start);
+            }
+            MappedByteBuffer mapped = in.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            ByteBuffer bytes = FastScan.littleEndian(mapped);
+            Utf8SensitiveScanner scanner = new Utf8SensitiveScanner(snapshot);
+            int length = (int) (end - start);
+            int lineStart = 0;
+            while (lineStart < length) {
+                int newline = FastScan.indexOf(bytes, (byte) '\n', lineStart, length);
+                int lineEnd = newline > lineStart && bytes.get(newline - 1) == '\r' ? newline - 1 : newline;
+                scanner.scanLittleEndian(bytes, lineStart, lineEnd, out);
+                scanner.finish(out);
+                out.put(bytes, lineEnd, Math.min(length, newline + 1));
+                lineStart = newline + 1;
+            }
+            return out;
+        }
+    }
+}
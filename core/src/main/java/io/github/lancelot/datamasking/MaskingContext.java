@@ -0,0 +1,233 @@
+package io.github.lancelot.datamasking;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 可复用的脱敏上下文
+ *
+ * 持有一个固定大小的输入暂存区、一个输出缓冲区和一个状态机，逐条脱敏时全部复用：
+ * 输入按暂存区大小分段拷贝后交给状态机，不再为每条日志复制整段 char[]、新建 StringBuilder。
+ * 单条超长输入撑大的输出缓冲区用完即释放，不会常驻。
+ *
+ * 输入中不可能出现已注册的字段名时（参见 {@link KeyPrefilter}）不经过状态机，
+ * {@link #deSensitive(CharSequence)} 对 String 输入直接返回同一个实例。
+ *
+ * 非 JSON 格式的输入用 {@link #deSensitive(CharSequence, MaskingFormat)} 指定格式，各格式的状态机在首次使用时创建并复用。
+ *
+ * 默认使用全局注册表的规则，{@link MaskingEngine#newContext()} 创建的实例使用该引擎的规则。
+ *
+ * 非线程安全，每个线程使用自己的实例，例如放在 ThreadLocal 或日志 appender 的成员变量中。
+ */
+public final class MaskingContext {
+
+    private static final int SCRATCH_SIZE = 8192;
+
+    private static final int MAX_RETAINED_OUTPUT = 64 * 1024;
+
+    private final char[] scratch = new char[SCRATCH_SIZE];
+
+    private final SensitiveScanner scanner = new SensitiveScanner(SensitiveInfoRegistry.Snapshot.EMPTY);
+
+    private FormatScanner keyValueScanner;
+
+    private FormatScanner queryScanner;
+
+    private FormatScanner xmlScanner;
+
+    private StringBuilder output = new StringBuilder(SCRATCH_SIZE);
+
+    private final MaskingEngine engine;
+
+    /**
+     * 使用全局注册表的规则
+     */
+    public MaskingContext() {
+        this(MaskingEngine.global());
+    }
+
+    MaskingContext(MaskingEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * 按 JSON 格式脱敏单条输入
+     *
+     * @param input 输入，null 或空串原样返回
+     * @return 脱敏结果
+     */
+    public String deSensitive(CharSequence input) {
+        return deSensitive(input, MaskingFormat.JSON);
+    }
+
+    /**
+     * 按指定格式脱敏单条输入
+     *
+     * @param input 输入，null 或空串原样返回
+     * @param format 输入的格式
+     * @return 脱敏结果
+     */
+    public String deSensitive(CharSequence input, MaskingFormat format) {
+        return deSensitive(input, format, engine.snapshot());
+    }
+
+    String deSensitive(CharSequence input, MaskingFormat format, SensitiveInfoRegistry.Snapshot snapshot) {
+        if (input == null) {
+            return null;
+        }
+        if (input.length() == 0) {
+            return input.toString();
+        }
+        if (format == MaskingFormat.AUTO) {
+            format = MaskingFormat.detect(input);
+        }
+        if (format == MaskingFormat.JSON && unchanged(input, snapshot)) {
+            return input.toString();
+        }
+        StringBuilder out = output;
+        out.setLength(0);
+        scan(input, scanner(format, snapshot), out);
+        String result = out.toString();
+        if (out.capacity() > MAX_RETAINED_OUTPUT) {
+            output = new StringBuilder(SCRATCH_SIZE);
+        }
+        return result;
+    }
+
+    /**
+     * 按 JSON 格式脱敏单条输入，结果追加到调用方的缓冲区，不产生任何中间对象
+     *
+     * @param input 输入，null 视为空
+     * @param out 输出缓冲区，不能与 input 是同一个对象
+     */
+    public void deSensitive(CharSequence input, StringBuilder out) {
+        deSensitive(input, MaskingFormat.JSON, out);
+    }
+
+    /**
+     * 按指定格式脱敏单条输入，结果追加到调用方的缓冲区
+     *
+     * @param input 输入，null 视为空
+     * @param format 输入的格式
+     * @param out 输出缓冲区，不能与 input 是同一个对象
+     */
+    public void deSensitive(CharSequence input, MaskingFormat format, StringBuilder out) {
+        deSensitive(input, format, out, engine.snapshot());
+    }
+
+    void deSensitive(CharSequence input, MaskingFormat format, StringBuilder out,
+                     SensitiveInfoRegistry.Snapshot snapshot) {
+        if (input == null) {
+            return;
+        }
+        if (format == MaskingFormat.AUTO) {
+            format = MaskingFormat.detect(input);
+        }
+        if (format == MaskingFormat.JSON && unchanged(input, snapshot)) {
+            out.append(input);
+            return;
+        }
+        scan(input, scanner(format, snapshot), out);
+    }
+
+    /**
+     * 取出格式对应的状态机并切换到快照
+     */
+    private FormatScanner scanner(MaskingFormat format, SensitiveInfoRegistry.Snapshot snapshot) {
+        FormatScanner scanner;
+        switch (format) {
+            case KEY_VALUE:
+                scanner = keyValueScanner == null ? keyValueScanner = FormatScanner.create(format, snapshot) : keyValueScanner;
+                break;
+            case QUERY_STRING:
+                scanner = queryScanner == null ? queryScanner = FormatScanner.create(format, snapshot) : queryScanner;
+                break;
+            case XML:
+                scanner = xmlScanner == null ? xmlScanner = FormatScanner.create(format, snapshot) : xmlScanner;
+                break;
+            default:
+                scanner = this.scanner;
+                break;
+        }
+        scanner.reset(snapshot);
+        return scanner;
+    }
+
+    private void scan(CharSequence input, FormatScanner scanner, StringBuilder out) {
+        int length = input.length();
+        if (scanner == this.scanner) {
+            // 超过上限的部分不再拷贝，多喂一个字符让状态机知道输入被截断
+            length = (int) Math.min(length, this.scanner.maxInputLength() + 1L);
+        }
+        for (int off = 0; off < length; off += SCRATCH_SIZE) {
+            int end = Math.min(length, off + SCRATCH_SIZE);
+            copy(input, off, end);
+            scanner.scan(scratch, 0, end - off, out);
+        }
+        scanner.finish(out);
+    }
+
+    /**
+     * 批量脱敏
+     *
+     * @param inputs 输入
+     * @return 与输入一一对应的脱敏结果
+     */
+    public List<String> deSensitiveAll(List<? extends CharSequence> inputs) {
+        return deSensitiveAll(inputs, engine.snapshot());
+    }
+
+    List<String> deSensitiveAll(List<? extends CharSequence> inputs, SensitiveInfoRegistry.Snapshot snapshot) {
+        List<String> results = new ArrayList<>(inputs.size());
+        for (CharSequence input : inputs) {
+            results.add(deSensitive(input, MaskingFormat.JSON, snapshot));
+        }
+        return results;
+    }
+
+    /**
+     * 批量脱敏
+     *
+     * @param inputs 输入
+     * @return 与输入一一对应的脱敏结果
+     */
+    public String[] deSensitiveAll(CharSequence[] inputs) {
+        return deSensitiveAll(inputs, engine.snapshot());
+    }
+
+    String[] deSensitiveAll(CharSequence[] inputs, SensitiveInfoRegistry.Snapshot snapshot) {
+        String[] results = new String[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            results[i] = deSensitive(inputs[i], MaskingFormat.JSON, snapshot);
+        }
+        return results;
+    }
+
+    /**
+     * 预筛选判断脱敏结果是否一定与输入相同
+     */
+    private boolean unchanged(CharSequence input, SensitiveInfoRegistry.Snapshot snapshot) {
+        KeyPrefilter prefilter = snapshot.prefilter;
+        if (prefilter == null || input.length() > snapshot.limits().maxInputLength()) {
+            return false;
+        }
+        boolean unchanged = !prefilter.mayMatch(input, scratch);
+        MaskingMetrics metrics = MaskingMetrics.current();
+        if (metrics != null) {
+            metrics.fastPath(unchanged, input.length());
+        }
+        return unchanged;
+    }
+
+    private void copy(CharSequence input, int start, int end) {
+        if (input instanceof String) {
+            ((String) input).getChars(start, end, scratch, 0);
+        } else if (input instanceof StringBuilder) {
+            ((StringBuilder) input).getChars(start, end, scratch, 0);
+        } else {
+            for (int i = start; i < end; i++) {
+                scratch[i - start] = input.charAt(i);
+            }
+        }
+    }
+}
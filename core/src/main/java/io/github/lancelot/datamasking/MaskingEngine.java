@@ -0,0 +1,391 @@
+package io.github.lancelot.datamasking;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 持有一套编译好的脱敏规则的引擎，适用于多租户等需要同时使用多套规则的场景
+ *
+ * 通过 {@link #builder()} 创建的引擎在构造时即编译好字段名查找表、路径自动机和预筛选，之后不可变，
+ * 与全局注册表 {@link SensitiveInfoRegistry} 及其他引擎互不影响，可以被任意多个线程同时使用。
+ * 脱敏时用到的暂存区和状态机放在每个线程自己的 {@link MaskingContext} 中，不属于引擎，
+ * 因此同一线程交替使用多个引擎也不会创建新的上下文。
+ *
+ * {@link #global()} 是默认实例，每次调用取注册表的最新快照，{@link SensitiveReplacer} 的静态方法都委托给它。
+ * 按租户查找引擎参见 {@link MaskingEngineCache}。
+ */
+public final class MaskingEngine {
+
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
+    /**
+     * 并行脱敏的最小分段，小于两段的输入直接顺序处理
+     */
+    private static final int MIN_PARALLEL_CHUNK_SIZE = 256 * 1024;
+
+    private static final MaskingEngine GLOBAL = new MaskingEngine(null);
+
+    /**
+     * 每个线程复用的脱敏上下文，所有引擎共用，规则由调用时传入的快照决定
+     */
+    private static final ThreadLocal<MaskingContext> CONTEXT = new ThreadLocal<MaskingContext>() {
+        @Override
+        protected MaskingContext initialValue() {
+            return new MaskingContext(GLOBAL);
+        }
+    };
+
+    /**
+     * 编译好的规则，默认实例为 null
+     */
+    private final SensitiveInfoRegistry.Snapshot rules;
+
+    private MaskingEngine(SensitiveInfoRegistry.Snapshot rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * 默认实例，使用全局注册表的规则，注册表的修改对之后的调用立即生效
+     */
+    public static MaskingEngine global() {
+        return GLOBAL;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 当前使用的规则，默认实例返回注册表的最新快照
+     */
+    public SensitiveInfoRegistry.Snapshot snapshot() {
+        return rules != null ? rules : SensitiveInfoRegistry.snapshot();
+    }
+
+    /**
+     * 规则的版本号，即 {@link Builder#version(long)} 设置的值
+     */
+    public long version() {
+        return snapshot().version();
+    }
+
+    /**
+     * 创建使用本引擎规则的上下文，供日志 appender 等自行管理上下文的调用方使用
+     */
+    public MaskingContext newContext() {
+        return new MaskingContext(this);
+    }
+
+    /**
+     * 创建使用本引擎规则的按行脱敏器
+     */
+    public Utf8LineMasker newLineMasker() {
+        return new Utf8LineMasker(this);
+    }
+
+    /**
+     * 按 JSON 格式脱敏
+     *
+     * @param json 输入，null 或空串原样返回
+     * @return 脱敏结果
+     */
+    public String deSensitiveString(String json) {
+        if (json == null || json.isEmpty()) {
+            return json;
+        }
+        return CONTEXT.get().deSensitive(json, MaskingFormat.JSON, snapshot());
+    }
+
+    /**
+     * 按指定格式脱敏
+     *
+     * @param input 输入，null 或空串原样返回
+     * @param format 输入的格式
+     * @return 脱敏结果
+     */
+    public String deSensitiveString(String input, MaskingFormat format) {
+        if (input == null || input.isEmpty()) {
+            return input;
+        }
+        return CONTEXT.get().deSensitive(input, format, snapshot());
+    }
+
+    /**
+     * 按 JSON 格式脱敏，结果直接追加到调用方的缓冲区
+     *
+     * @param input 输入，null 视为空
+     * @param out 输出缓冲区，不能与 input 是同一个对象
+     */
+    public void deSensitive(CharSequence input, StringBuilder out) {
+        CONTEXT.get().deSensitive(input, MaskingFormat.JSON, out, snapshot());
+    }
+
+    /**
+     * 按指定格式脱敏，结果直接追加到调用方的缓冲区
+     *
+     * @param input 输入，null 视为空
+     * @param format 输入的格式
+     * @param out 输出缓冲区，不能与 input 是同一个对象
+     */
+    public void deSensitive(CharSequence input, MaskingFormat format, StringBuilder out) {
+        CONTEXT.get().deSensitive(input, format, out, snapshot());
+    }
+
+    /**
+     * 批量脱敏，所有输入使用同一版本的规则
+     *
+     * @param inputs 输入
+     * @return 与输入一一对应的脱敏结果
+     */
+    public List<String> deSensitiveBatch(List<? extends CharSequence> inputs) {
+        return CONTEXT.get().deSensitiveAll(inputs, snapshot());
+    }
+
+    /**
+     * 批量脱敏，所有输入使用同一版本的规则
+     *
+     * @param inputs 输入
+     * @return 与输入一一对应的脱敏结果
+     */
+    public String[] deSensitiveBatch(CharSequence[] inputs) {
+        return CONTEXT.get().deSensitiveAll(inputs, snapshot());
+    }
+
+    /**
+     * 并行脱敏，参见 {@link SensitiveReplacer#deSensitiveStringParallel(String, ForkJoinPool)}
+     *
+     * @param json 输入
+     * @param pool 执行分段任务的线程池
+     * @return 脱敏结果
+     */
+    public String deSensitiveStringParallel(String json, ForkJoinPool pool) {
+        if (json == null || json.length() < 2 * MIN_PARALLEL_CHUNK_SIZE) {
+            return deSensitiveString(json);
+        }
+        int chunkSize = Math.max(MIN_PARALLEL_CHUNK_SIZE, json.length() / (pool.getParallelism() * 4));
+        return ParallelMasking.mask(json, snapshot(), pool, chunkSize);
+    }
+
+    /**
+     * 流式脱敏，参见 {@link SensitiveReplacer#deSensitive(Reader, Writer)}
+     *
+     * @param in 输入
+     * @param out 输出
+     * @param format 输入的格式，流式处理时不能是 {@link MaskingFormat#AUTO}
+     * @throws IOException 读写失败
+     */
+    public void deSensitive(Reader in, Writer out, MaskingFormat format) throws IOException {
+        FormatScanner scanner = FormatScanner.create(format, snapshot());
+        char[] buffer = new char[STREAM_BUFFER_SIZE];
+        char[] outBuffer = new char[STREAM_BUFFER_SIZE];
+        StringBuilder result = new StringBuilder(STREAM_BUFFER_SIZE);
+
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            scanner.scan(buffer, 0, read, result);
+            outBuffer = flush(result, outBuffer, out);
+        }
+        scanner.finish(result);
+        flush(result, outBuffer, out);
+        out.flush();
+    }
+
+    /**
+     * 直接对 UTF-8 字节脱敏，处理 [position, limit) 区间，不改变 utf8 的 position 和 limit
+     *
+     * @param utf8 UTF-8 编码的输入，可以是堆内或直接内存
+     * @return 脱敏结果，position 为0，limit 为结果长度
+     */
+    public ByteBuffer deSensitive(ByteBuffer utf8) {
+        if (utf8 == null) {
+            return null;
+        }
+        Utf8Output out = new Utf8Output(utf8.remaining() + 16, false);
+        Utf8SensitiveScanner scanner = new Utf8SensitiveScanner(snapshot());
+        scanner.scan(utf8, utf8.position(), utf8.limit(), out);
+        scanner.finish(out);
+        return out.flip();
+    }
+
+    /**
+     * 脱敏 UTF-8 文本文件，参见 {@link SensitiveReplacer#deSensitiveFile(Path, Path, int)}
+     *
+     * @param input 输入文件
+     * @param output 输出文件，已存在时覆盖，不能与 input 相同
+     * @param threads 工作线程数
+     * @return 输出的字节数
+     * @throws IOException 读写失败
+     */
+    public long deSensitiveFile(Path input, Path output, int threads) throws IOException {
+        return MappedFileMasking.mask(input, output, threads, MappedFileMasking.DEFAULT_SEGMENT_SIZE, snapshot());
+    }
+
+    private static char[] flush(StringBuilder result, char[] outBuffer, Writer out) throws IOException {
+        int length = result.length();
+        if (length == 0) {
+            return outBuffer;
+        }
+        if (length > outBuffer.length) {
+            outBuffer = new char[length];
+        }
+        result.getChars(0, length, outBuffer, 0);
+        out.write(outBuffer, 0, length);
+        result.setLength(0);
+        return outBuffer;
+    }
+
+    /**
+     * 引擎构建器，方法与 {@link SensitiveInfoRegistry} 的同名方法含义相同，非线程安全
+     */
+    public static final class Builder {
+
+        private long version;
+
+        private final Map<String, SensitiveType> fields = new HashMap<>();
+
+        private final Map<String, MaskingStrategy> strategies = new HashMap<>();
+
+        private final Map<String, SensitiveType> paths = new HashMap<>();
+
+        private final Set<SensitiveType> freeTextTypes = EnumSet.noneOf(SensitiveType.class);
+
+        private boolean embeddedJson;
+
+        private boolean relaxedKeys;
+
+        private MaskingLimits limits = MaskingLimits.NONE;
+
+        private Builder() {
+        }
+
+        /**
+         * 复制一份已有的规则，例如 {@link SensitiveInfoRegistry#snapshot()}，之后可以继续修改
+         */
+        public Builder from(SensitiveInfoRegistry.Snapshot snapshot) {
+            version = snapshot.version();
+            fields.clear();
+            fields.putAll(snapshot.fields());
+            strategies.clear();
+            strategies.putAll(snapshot.strategies());
+            paths.clear();
+            paths.putAll(snapshot.paths());
+            freeTextTypes.clear();
+            freeTextTypes.addAll(snapshot.freeTextTypes());
+            embeddedJson = snapshot.embeddedJson();
+            relaxedKeys = snapshot.relaxedKeyMatching();
+            limits = snapshot.limits();
+            return this;
+        }
+
+        /**
+         * 规则的版本号，例如租户策略的修订号，由 {@link MaskingEngine#version()} 返回，默认为0
+         */
+        public Builder version(long version) {
+            this.version = version;
+            return this;
+        }
+
+        /**
+         * @see SensitiveInfoRegistry#put(String, SensitiveType)
+         */
+        public Builder field(String fieldName, SensitiveType sensitiveType) {
+            if (fieldName == null || sensitiveType == null) {
+                throw new IllegalArgumentException("fieldName and sensitiveType must not be null");
+            }
+            fields.put(fieldName, sensitiveType);
+            strategies.remove(fieldName);
+            return this;
+        }
+
+        /**
+         * @see SensitiveInfoRegistry#put(String, MaskingStrategy)
+         */
+        public Builder field(String fieldName, MaskingStrategy strategy) {
+            if (fieldName == null || strategy == null) {
+                throw new IllegalArgumentException("fieldName and strategy must not be null");
+            }
+            strategies.put(fieldName, strategy);
+            fields.remove(fieldName);
+            return this;
+        }
+
+        public Builder fields(Map<String, SensitiveType> map) {
+            for (Map.Entry<String, SensitiveType> entry : map.entrySet()) {
+                field(entry.getKey(), entry.getValue());
+            }
+            return this;
+        }
+
+        /**
+         * @see SensitiveInfoRegistry#putPath(String, SensitiveType)
+         */
+        public Builder path(String path, SensitiveType sensitiveType) {
+            if (path == null || sensitiveType == null) {
+                throw new IllegalArgumentException("path and sensitiveType must not be null");
+            }
+            paths.put(path, sensitiveType);
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException 包含不支持识别的类型
+         * @see SensitiveInfoRegistry#detectInFreeText(SensitiveType...)
+         */
+        public Builder detectInFreeText(SensitiveType... types) {
+            Set<SensitiveType> detected = EnumSet.noneOf(SensitiveType.class);
+            detected.addAll(Arrays.asList(types));
+            FreeTextDetector.of(detected);
+            freeTextTypes.clear();
+            freeTextTypes.addAll(detected);
+            return this;
+        }
+
+        /**
+         * @see SensitiveInfoRegistry#maskEmbeddedJson(boolean)
+         */
+        public Builder maskEmbeddedJson(boolean enabled) {
+            this.embeddedJson = enabled;
+            return this;
+        }
+
+        /**
+         * @see SensitiveInfoRegistry#relaxedKeyMatching(boolean)
+         */
+        public Builder relaxedKeyMatching(boolean enabled) {
+            this.relaxedKeys = enabled;
+            return this;
+        }
+
+        /**
+         * @see SensitiveInfoRegistry#limits(MaskingLimits)
+         */
+        public Builder limits(MaskingLimits limits) {
+            if (limits == null) {
+                throw new IllegalArgumentException("limits must not be null");
+            }
+            this.limits = limits;
+            return this;
+        }
+
+        /**
+         * 编译规则，构建器之后的修改不影响已经创建的引擎
+         *
+         * @throws IllegalArgumentException 路径格式不合法
+         */
+        public MaskingEngine build() {
+            return new MaskingEngine(SensitiveInfoRegistry.Snapshot.of(version, new HashMap<>(fields),
+                    new HashMap<>(strategies), new HashMap<>(paths), EnumSet.copyOf(freeTextTypes), embeddedJson,
+                    relaxedKeys, limits));
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package io.github.lancelot.datamasking;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * 按策略 ID 和版本号缓存编译好的 {@link MaskingEngine}，用于按租户查找引擎
+ *
+ * 每个策略只缓存一个版本：请求的版本与缓存的不同时重新编译并替换，策略更新后旧版本的引擎随之释放。
+ * 比缓存中更旧的版本（更新过程中仍在处理的旧请求）只编译不缓存，不会把新版本挤掉。
+ * 同一策略并发未命中时只编译一次，其他线程等待结果。编译在哈希表的锁之外进行，
+ * 不会阻塞同一个桶里其他策略的查找，编译器也可以访问同一个缓存。
+ *
+ * 条目数超过上限时按 CLOCK（second chance）淘汰：新条目不带标记，命中时只在条目未被标记时写一次标记，
+ * 热点租户的并发查找不会争用同一缓存行。时钟指针按哈希表的遍历顺序循环，在两次淘汰之间保持位置：
+ * 从上次停下的地方继续，跳过并清除已标记的条目，移除第一个未标记的，
+ * 因此只访问过一次的策略先于反复访问的策略被淘汰，每个条目在被淘汰前都有一整圈的时间被再次访问。
+ * 命中时不加锁、不产生任何对象。
+ */
+public final class MaskingEngineCache {
+
+    /**
+     * 按策略 ID 和版本号编译引擎，例如从配置中心读取租户的规则后用 {@link MaskingEngine#builder()} 构建
+     */
+    public interface Compiler {
+
+        /**
+         * 不持有缓存的锁时调用。编译期间同一策略同一版本的其他查找等待结果，因此不能查找正在编译的版本
+         *
+         * @param policyId 策略 ID
+         * @param version 请求的版本号
+         * @return 编译好的引擎，不能为 null
+         */
+        MaskingEngine compile(String policyId, long version);
+    }
+
+    private final int maxEntries;
+
+    private final Compiler compiler;
+
+    private final ConcurrentHashMap<String, Entry> entries;
+
+    /**
+     * 时钟指针，只在 {@link #evict(Entry)} 中访问
+     */
+    private Iterator<Map.Entry<String, Entry>> hand;
+
+    /**
+     * @param maxEntries 最多缓存的策略数
+     * @param compiler 未命中时编译引擎
+     */
+    public MaskingEngineCache(int maxEntries, Compiler compiler) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        if (compiler == null) {
+            throw new IllegalArgumentException("compiler must not be null");
+        }
+        this.maxEntries = maxEntries;
+        this.compiler = compiler;
+        this.entries = new ConcurrentHashMap<>(Math.min(maxEntries, 1024) * 4 / 3 + 1);
+    }
+
+    /**
+     * 取出策略指定版本的引擎，未缓存时编译
+     *
+     * @param policyId 策略 ID，例如租户 ID
+     * @param version 策略版本号
+     * @return 引擎
+     */
+    public MaskingEngine get(String policyId, long version) {
+        Entry entry = entries.get(policyId);
+        MaskingEngine engine;
+        if (entry == null || entry.version != version || (engine = entry.engine) == null) {
+            return load(policyId, version);
+        }
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return engine;
+    }
+
+    /**
+     * 移除策略的缓存，下次查找时重新编译
+     */
+    public void invalidate(String policyId) {
+        entries.remove(policyId);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * 当前缓存的策略数
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private MaskingEngine load(String policyId, long version) {
+        for (;;) {
+            Entry cached = entries.get(policyId);
+            if (cached != null && cached.version > version) {
+                // 缓存中是更新的版本，只编译不缓存
+                return compile(policyId, version);
+            }
+            if (cached != null && cached.version == version) {
+                return cached.await();
+            }
+            // 先发布未完成的条目再在锁外编译，并发未命中的线程等待同一个结果
+            Entry created = new Entry(policyId, version);
+            boolean published = cached == null
+                    ? entries.putIfAbsent(policyId, created) == null
+                    : entries.replace(policyId, cached, created);
+            if (!published) {
+                continue;
+            }
+            created.task.run();
+            MaskingEngine engine;
+            try {
+                engine = created.await();
+            } catch (RuntimeException | Error e) {
+                // 编译失败不缓存，下次查找重新编译
+                entries.remove(policyId, created);
+                throw e;
+            }
+            if (entries.size() > maxEntries) {
+                evict(created);
+            }
+            return engine;
+        }
+    }
+
+    private MaskingEngine compile(String policyId, long version) {
+        MaskingEngine engine = compiler.compile(policyId, version);
+        if (engine == null) {
+            throw new IllegalStateException("compiler returned null for policy " + policyId + " version " + version);
+        }
+        return engine;
+    }
+
+    /**
+     * 淘汰到不超过上限，刚加载的条目不参与淘汰
+     */
+    private synchronized void evict(Entry loaded) {
+        while (entries.size() > maxEntries) {
+            // 每个条目最多经过两次：第一次清除标记，第二次一定未标记
+            int steps = 2 * (entries.size() + 1);
+            boolean evicted = false;
+            while (!evicted && steps-- > 0) {
+                if (hand == null || !hand.hasNext()) {
+                    hand = entries.entrySet().iterator();
+                    if (!hand.hasNext()) {
+                        return;
+                    }
+                }
+                Map.Entry<String, Entry> candidate = hand.next();
+                Entry value = candidate.getValue();
+                if (value == loaded || value.engine == null) {
+                    // 刚加载的和仍在编译的条目不参与淘汰
+                    continue;
+                }
+                if (value.referenced) {
+                    value.referenced = false;
+                } else {
+                    evicted = entries.remove(candidate.getKey(), value);
+                }
+            }
+            if (!evicted) {
+                return;
+            }
+        }
+    }
+
+    private final class Entry {
+
+        final long version;
+
+        final FutureTask<MaskingEngine> task;
+
+        /**
+         * 编译完成前为 null
+         */
+        volatile MaskingEngine engine;
+
+        /**
+         * 自上次淘汰扫描以来命中过
+         */
+        volatile boolean referenced;
+
+        Entry(String policyId, long version) {
+            this.version = version;
+            this.task = new FutureTask<>(() -> engine = compile(policyId, version));
+        }
+
+        /**
+         * 等待编译完成，编译器抛出的异常原样抛出
+         */
+        MaskingEngine await() {
+            boolean interrupted = false;
+            try {
+                for (;;) {
+                    try {
+                        return task.get();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+                        if (cause instanceof RuntimeException) {
+                            throw (RuntimeException) cause;
+                        }
+                        if (cause instanceof Error) {
+                            throw (Error) cause;
+                        }
+                        throw new IllegalStateException(cause);
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package io.github.lancelot.datamasking;
+
+/**
+ * 输入的结构格式，决定用哪一个状态机查找字段名和值
+ *
+ * 所有格式共用 {@link SensitiveInfoRegistry} 中按字段名注册的类型和自定义规则，按同样的规则脱敏；
+ * 路径规则、自由文本识别和嵌入 JSON 只在 {@link #JSON} 格式下生效。
+ *
+ * @see MaskingContext#deSensitive(CharSequence, MaskingFormat)
+ */
+public enum MaskingFormat {
+
+    /**
+     * JSON，以及普通文本中的 "key":"value"、"key"=value，默认格式
+     */
+    JSON,
+
+    /**
+     * 未加引号的 key=value，例如 Java toString() 输出的 User(mobile=13800138000, name=张三)、
+     * logfmt 风格的 mobile=13800138000 name="张三"。值到空白、逗号、分号、&amp; 或右括号为止，
+     * 也可以用双引号或单引号括起来；以 '{"' 或 '["' 开头的值按 JSON 处理
+     */
+    KEY_VALUE,
+
+    /**
+     * URL 查询串和 application/x-www-form-urlencoded 表单：mobile=13800138000&amp;name=%E5%BC%A0%E4%B8%89。
+     * 值先按 UTF-8 解码 %XX 和 '+' 再脱敏，脱敏结果重新编码
+     */
+    QUERY_STRING,
+
+    /**
+     * XML 元素 &lt;mobile&gt;13800138000&lt;/mobile&gt; 和属性 &lt;user mobile="13800138000"/&gt;，
+     * 带命名空间前缀时按本地名查找。值中的实体先解码再脱敏，脱敏结果重新转义
+     */
+    XML,
+
+    /**
+     * 按输入的内容逐条判断格式，参见 {@link #detect(CharSequence)}
+     */
+    AUTO;
+
+    /**
+     * 判断时最多查看的字符数
+     */
+    private static final int DETECT_LIMIT = 512;
+
+    /**
+     * 按输入中第一个结构字符判断格式：'"' 为 JSON；'{' 后是带引号的字段名和 ':'、'[' 后是引号或这样的对象时为 JSON，
+     * 否则继续往后看（例如 toString() 输出的 User{mobile=...}）；'&lt;' 后跟字母为 XML；
+     * '=' 且后面的值以 '&amp;' 结束为 QUERY_STRING，否则为 KEY_VALUE；都没有时为 JSON
+     *
+     * @return 具体的格式，不会返回 AUTO
+     */
+    static MaskingFormat detect(CharSequence input) {
+        int limit = Math.min(input.length(), DETECT_LIMIT);
+        for (int i = 0; i < limit; i++) {
+            char c = input.charAt(i);
+            switch (c) {
+                case '{':
+                    if (isJsonObject(input, i)) {
+                        return JSON;
+                    }
+                    break;
+                case '[': {
+                    int next = skipWhitespace(input, i + 1, limit);
+                    if (next < limit && (input.charAt(next) == '"' || isJsonObject(input, next))) {
+                        return JSON;
+                    }
+                    break;
+                }
+                case '"':
+                    return JSON;
+                case '<':
+                    if (i + 1 < input.length() && Character.isLetter(input.charAt(i + 1))) {
+                        return XML;
+                    }
+                    break;
+                case '=':
+                    return isQueryValue(input, i + 1) ? QUERY_STRING : KEY_VALUE;
+                default:
+                    break;
+            }
+        }
+        return JSON;
+    }
+
+    /**
+     * at 处是 '{'，其后是带引号的字段名和 ':'
+     */
+    private static boolean isJsonObject(CharSequence input, int at) {
+        int limit = Math.min(input.length(), at + DETECT_LIMIT);
+        if (at >= limit || input.charAt(at) != '{') {
+            return false;
+        }
+        int i = skipWhitespace(input, at + 1, limit);
+        if (i >= limit || input.charAt(i) != '"') {
+            return false;
+        }
+        for (i++; i < limit; i++) {
+            char c = input.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                i = skipWhitespace(input, i + 1, limit);
+                return i < limit && input.charAt(i) == ':';
+            }
+        }
+        return false;
+    }
+
+    private static int skipWhitespace(CharSequence input, int from, int limit) {
+        int i = from;
+        while (i < limit && Character.isWhitespace(input.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * from 开始的值是否以 '&amp;' 结束，中间没有空白和逗号
+     */
+    private static boolean isQueryValue(CharSequence input, int from) {
+        int limit = Math.min(input.length(), from + DETECT_LIMIT);
+        for (int i = from; i < limit; i++) {
+            char c = input.charAt(i);
+            if (c == '&') {
+                return true;
+            }
+            if (c == ',' || Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,200 @@
+package io.github.lancelot.datamasking;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JSON 状态机每条输入的工作量上限，避免一条异常报文（超长的 base64 值、缺少结束引号）拖慢日志线程
+ *
+ * <ul>
+ *     <li>maxKeyLength：字段名超过上限后不再缓存和查找，上限实际不小于最长的注册字段名</li>
+ *     <li>maxValueLength：敏感值或嵌入的 JSON 超过上限后不再缓存，超出部分不输出</li>
+ *     <li>maxInputLength：只处理输入的前 maxInputLength 个字符，之后的内容丢弃并追加截断标记</li>
+ *     <li>maxDepth：对象/数组的最大嵌套层数</li>
+ * </ul>
+ *
+ * 超过上限时的处理取决于 failClosed：
+ * <ul>
+ *     <li>fail-closed（默认）：宁可多遮盖。超长字段名之后的内容不输出，其值整体替换为 {@link #REDACTED}；
+ *     超长的敏感值整体替换为 {@link #REDACTED}；截断处未结束的敏感值替换为 {@link #REDACTED}；
+ *     嵌套超过上限时丢弃之后的内容并追加截断标记</li>
+ *     <li>fail-open：尽量保留原文。超长字段名处回到 START 继续扫描；超长的敏感值只对前 maxValueLength 个字符脱敏（不截断转义序列和多字节字符），
+ *     超长的嵌入 JSON 按普通字符串原样输出；嵌套超过上限时更深的层次不再匹配路径规则，按字段名的脱敏不受影响</li>
+ * </ul>
+ *
+ * 超过上限计入 {@link MaskingMetrics} 的格式异常数。长度以 char 计，UTF-8 输入以字节计。
+ * 只作用于 {@link MaskingFormat#JSON}，其他格式的状态机不受限制。设置了上限时不再分段并行处理。
+ *
+ * 不可变，通过 {@link #builder()} 创建，用 {@link SensitiveInfoRegistry#limits(MaskingLimits)} 或
+ * {@link MaskingEngine.Builder#limits(MaskingLimits)} 生效。
+ */
+public final class MaskingLimits {
+
+    /**
+     * 不限制
+     */
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    /**
+     * 默认的截断标记
+     */
+    public static final String DEFAULT_TRUNCATION_MARKER = "...[truncated]";
+
+    /**
+     * fail-closed 时代替整个值输出的内容
+     */
+    public static final String REDACTED = "******";
+
+    /**
+     * 不做任何限制，默认值
+     */
+    public static final MaskingLimits NONE = builder().failClosed(false).build();
+
+    static final byte[] REDACTED_UTF8 = REDACTED.getBytes(StandardCharsets.UTF_8);
+
+    private final int maxKeyLength;
+
+    private final int maxValueLength;
+
+    private final int maxInputLength;
+
+    private final int maxDepth;
+
+    private final String truncationMarker;
+
+    final byte[] truncationMarkerUtf8;
+
+    private final boolean failClosed;
+
+    private MaskingLimits(Builder builder) {
+        this.maxKeyLength = builder.maxKeyLength;
+        this.maxValueLength = builder.maxValueLength;
+        this.maxInputLength = builder.maxInputLength;
+        this.maxDepth = builder.maxDepth;
+        this.truncationMarker = builder.truncationMarker;
+        this.truncationMarkerUtf8 = truncationMarker.getBytes(StandardCharsets.UTF_8);
+        this.failClosed = builder.failClosed;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int maxKeyLength() {
+        return maxKeyLength;
+    }
+
+    public int maxValueLength() {
+        return maxValueLength;
+    }
+
+    public int maxInputLength() {
+        return maxInputLength;
+    }
+
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    public String truncationMarker() {
+        return truncationMarker;
+    }
+
+    public boolean failClosed() {
+        return failClosed;
+    }
+
+    /**
+     * 是否没有设置任何上限
+     */
+    boolean unlimited() {
+        return maxKeyLength == UNLIMITED && maxValueLength == UNLIMITED && maxInputLength == UNLIMITED
+                && maxDepth == UNLIMITED;
+    }
+
+    @Override
+    public String toString() {
+        return "MaskingLimits{maxKeyLength=" + maxKeyLength + ", maxValueLength=" + maxValueLength
+                + ", maxInputLength=" + maxInputLength + ", maxDepth=" + maxDepth
+                + ", failClosed=" + failClosed + "}";
+    }
+
+    public static final class Builder {
+
+        private int maxKeyLength = UNLIMITED;
+
+        private int maxValueLength = UNLIMITED;
+
+        private int maxInputLength = UNLIMITED;
+
+        private int maxDepth = UNLIMITED;
+
+        private String truncationMarker = DEFAULT_TRUNCATION_MARKER;
+
+        private boolean failClosed = true;
+
+        private Builder() {
+        }
+
+        /**
+         * @param maxKeyLength 字段名的最大长度，必须大于0
+         */
+        public Builder maxKeyLength(int maxKeyLength) {
+            this.maxKeyLength = positive("maxKeyLength", maxKeyLength);
+            return this;
+        }
+
+        /**
+         * @param maxValueLength 敏感值和嵌入 JSON 的最大长度，必须大于0
+         */
+        public Builder maxValueLength(int maxValueLength) {
+            this.maxValueLength = positive("maxValueLength", maxValueLength);
+            return this;
+        }
+
+        /**
+         * @param maxInputLength 每条输入处理的最大长度，必须大于0
+         */
+        public Builder maxInputLength(int maxInputLength) {
+            this.maxInputLength = positive("maxInputLength", maxInputLength);
+            return this;
+        }
+
+        /**
+         * @param maxDepth 对象/数组的最大嵌套层数，必须大于0
+         */
+        public Builder maxDepth(int maxDepth) {
+            this.maxDepth = positive("maxDepth", maxDepth);
+            return this;
+        }
+
+        /**
+         * @param truncationMarker 输入被截断时追加的内容，可以为空串
+         */
+        public Builder truncationMarker(String truncationMarker) {
+            if (truncationMarker == null) {
+                throw new IllegalArgumentException("truncationMarker must not be null");
+            }
+            this.truncationMarker = truncationMarker;
+            return this;
+        }
+
+        /**
+         * @param failClosed 超过上限时是否宁可多遮盖，默认 true
+         */
+        public Builder failClosed(boolean failClosed) {
+            this.failClosed = failClosed;
+            return this;
+        }
+
+        public MaskingLimits build() {
+            return new MaskingLimits(this);
+        }
+
+        private static int positive(String name, int value) {
+            if (value <= 0) {
+                throw new IllegalArgumentException(name + " must be positive: " + value);
+            }
+            return value;
+        }
+    }
+}
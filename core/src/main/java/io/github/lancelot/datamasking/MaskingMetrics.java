@@ -0,0 +1,350 @@
+package io.github.lancelot.datamasking;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 脱敏引擎的运行指标，默认关闭
+ *
+ * 开启后每次脱敏调用（{@link SensitiveReplacer} 的各个入口、{@link MaskingContext}）结束时累加：
+ * 调用次数、耗时、扫描的字符/字节数、遇到的字段名数、按脱敏类型统计的命中字段数、脱敏的值个数，
+ * 以及输入格式异常导致状态机重新同步的次数；使用 {@link MaskingStrategy#token} 时另外统计令牌缓存的命中率。
+ * 字符串输入先经过字段名预筛选，统计不含已注册字段名、直接原样返回（快速路径）的比例。
+ *
+ * 调用过程中只在状态机自己的计数器上累加，结束时一次性合并到 {@link LongAdder}，
+ * 多线程同时脱敏时不会争用同一个缓存行。关闭时状态机只在每个字段名、每个值处多一次 null 判断。
+ *
+ * <pre>
+ * MaskingMetrics metrics = MaskingMetrics.enable();
+ * metrics.registerMBean();
+ * </pre>
+ */
+public final class MaskingMetrics implements MaskingMetricsMXBean {
+
+    /**
+     * JMX 注册名
+     */
+    public static final String OBJECT_NAME = "io.github.lancelot.datamasking:type=MaskingMetrics";
+
+    private static final SensitiveType[] TYPES = SensitiveType.values();
+
+    private static volatile MaskingMetrics current;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder charsScanned = new LongAdder();
+    private final LongAdder bytesScanned = new LongAdder();
+    private final LongAdder keysSeen = new LongAdder();
+    private final LongAdder[] keysMatched = new LongAdder[TYPES.length];
+    private final LongAdder valuesMasked = new LongAdder();
+    private final LongAdder malformedResets = new LongAdder();
+    private final LongAdder totalTimeNanos = new LongAdder();
+    private final LongAdder tokenCacheHits = new LongAdder();
+    private final LongAdder tokenCacheMisses = new LongAdder();
+    private final LongAdder fastPathHits = new LongAdder();
+    private final LongAdder fastPathMisses = new LongAdder();
+
+    private MaskingMetrics() {
+        for (int i = 0; i < keysMatched.length; i++) {
+            keysMatched[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 开启指标采集，已经开启时返回当前实例
+     */
+    public static synchronized MaskingMetrics enable() {
+        if (current == null) {
+            current = new MaskingMetrics();
+        }
+        return current;
+    }
+
+    /**
+     * 关闭指标采集，已有的实例保留最后的数值
+     */
+    public static synchronized void disable() {
+        current = null;
+    }
+
+    /**
+     * @return 当前实例，未开启时返回 null
+     */
+    public static MaskingMetrics current() {
+        return current;
+    }
+
+    /**
+     * 注册到平台 MBeanServer，名称为 {@link #OBJECT_NAME}，已注册时先注销旧的
+     *
+     * @throws IllegalStateException 注册失败
+     */
+    public ObjectName registerMBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            return name;
+        } catch (JMException e) {
+            throw new IllegalStateException("failed to register " + OBJECT_NAME, e);
+        }
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getCharsScanned() {
+        return charsScanned.sum();
+    }
+
+    @Override
+    public long getBytesScanned() {
+        return bytesScanned.sum();
+    }
+
+    @Override
+    public long getKeysSeen() {
+        return keysSeen.sum();
+    }
+
+    /**
+     * 命中该脱敏类型的字段数（按字段名或路径规则）
+     */
+    public long getKeysMatched(SensitiveType type) {
+        return keysMatched[type.ordinal()].sum();
+    }
+
+    @Override
+    public Map<String, Long> getKeysMatched() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (SensitiveType type : TYPES) {
+            result.put(type.name(), keysMatched[type.ordinal()].sum());
+        }
+        return result;
+    }
+
+    /**
+     * 与 {@link #getKeysMatched()} 相同，键为枚举
+     */
+    public Map<SensitiveType, Long> keysMatchedByType() {
+        Map<SensitiveType, Long> result = new EnumMap<>(SensitiveType.class);
+        for (SensitiveType type : TYPES) {
+            result.put(type, keysMatched[type.ordinal()].sum());
+        }
+        return result;
+    }
+
+    /**
+     * 脱敏的值个数，包括字段值和自由文本中识别出的敏感信息
+     */
+    @Override
+    public long getValuesMasked() {
+        return valuesMasked.sum();
+    }
+
+    /**
+     * 状态机因输入格式异常重新同步的次数：引号后既不是冒号也不是分隔符，或输入在字段名/字符串值中间结束
+     */
+    @Override
+    public long getMalformedResets() {
+        return malformedResets.sum();
+    }
+
+    @Override
+    public long getTotalTimeNanos() {
+        return totalTimeNanos.sum();
+    }
+
+    /**
+     * 令牌缓存命中次数，所有 {@link MaskingStrategy#token} 规则合计
+     */
+    @Override
+    public long getTokenCacheHits() {
+        return tokenCacheHits.sum();
+    }
+
+    @Override
+    public long getTokenCacheMisses() {
+        return tokenCacheMisses.sum();
+    }
+
+    /**
+     * 令牌缓存命中率，没有查找时为 0
+     */
+    @Override
+    public double getTokenCacheHitRate() {
+        long hits = tokenCacheHits.sum();
+        long total = hits + tokenCacheMisses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * 预筛选判断不含已注册字段名、原样返回的输入个数。这些调用计入调用次数和字符数，不计耗时
+     */
+    @Override
+    public long getFastPathHits() {
+        return fastPathHits.sum();
+    }
+
+    /**
+     * 预筛选发现可能含有已注册字段名、交给状态机处理的输入个数
+     */
+    @Override
+    public long getFastPathMisses() {
+        return fastPathMisses.sum();
+    }
+
+    /**
+     * 经过预筛选的输入中直接原样返回的比例，没有经过预筛选的输入时为 0
+     */
+    @Override
+    public double getFastPathHitRate() {
+        long hits = fastPathHits.sum();
+        long total = hits + fastPathMisses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public void reset() {
+        calls.reset();
+        charsScanned.reset();
+        bytesScanned.reset();
+        keysSeen.reset();
+        for (LongAdder adder : keysMatched) {
+            adder.reset();
+        }
+        valuesMasked.reset();
+        malformedResets.reset();
+        totalTimeNanos.reset();
+        tokenCacheHits.reset();
+        tokenCacheMisses.reset();
+        fastPathHits.reset();
+        fastPathMisses.reset();
+    }
+
+    /**
+     * 令牌缓存查找一次，直接累加：查找发生在脱敏规则内部，拿不到状态机的计数器
+     */
+    void tokenCache(boolean hit) {
+        (hit ? tokenCacheHits : tokenCacheMisses).increment();
+    }
+
+    /**
+     * 预筛选一次。命中时不经过状态机，在这里记一次调用；未命中时由状态机记录
+     */
+    void fastPath(boolean hit, int chars) {
+        if (hit) {
+            fastPathHits.increment();
+            calls.increment();
+            charsScanned.add(chars);
+        } else {
+            fastPathMisses.increment();
+        }
+    }
+
+    /**
+     * 为状态机创建计数器，当前未开启时返回 null
+     */
+    static Tally startTally(Tally reuse) {
+        MaskingMetrics metrics = current;
+        if (metrics == null) {
+            return null;
+        }
+        Tally tally = reuse != null && reuse.metrics == metrics ? reuse : new Tally(metrics);
+        tally.clear();
+        return tally;
+    }
+
+    /**
+     * 单次调用内的计数，只被一个线程访问
+     */
+    static final class Tally {
+        private final MaskingMetrics metrics;
+        private final int[] matched = new int[TYPES.length];
+        private long startNanos;
+        long chars;
+        long bytes;
+        int keysSeen;
+        int valuesMasked;
+        int malformed;
+
+        private Tally(MaskingMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        void key(SensitiveType type) {
+            keysSeen++;
+            if (type != null) {
+                matched[type.ordinal()]++;
+            }
+        }
+
+        /**
+         * 合并另一个状态机的计数，起始时间取较早的
+         */
+        void absorb(Tally other) {
+            startNanos = Math.min(startNanos, other.startNanos);
+            chars += other.chars;
+            bytes += other.bytes;
+            keysSeen += other.keysSeen;
+            valuesMasked += other.valuesMasked;
+            malformed += other.malformed;
+            for (int i = 0; i < matched.length; i++) {
+                matched[i] += other.matched[i];
+            }
+        }
+
+        /**
+         * 调用结束，合并到全局指标后清零
+         */
+        void record() {
+            MaskingMetrics m = metrics;
+            m.calls.increment();
+            m.totalTimeNanos.add(System.nanoTime() - startNanos);
+            if (chars > 0) {
+                m.charsScanned.add(chars);
+            }
+            if (bytes > 0) {
+                m.bytesScanned.add(bytes);
+            }
+            if (keysSeen > 0) {
+                m.keysSeen.add(keysSeen);
+            }
+            for (int i = 0; i < matched.length; i++) {
+                if (matched[i] > 0) {
+                    m.keysMatched[i].add(matched[i]);
+                }
+            }
+            if (valuesMasked > 0) {
+                m.valuesMasked.add(valuesMasked);
+            }
+            if (malformed > 0) {
+                m.malformedResets.add(malformed);
+            }
+            clear();
+        }
+
+        private void clear() {
+            startNanos = System.nanoTime();
+            chars = 0;
+            bytes = 0;
+            keysSeen = 0;
+            valuesMasked = 0;
+            malformed = 0;
+            for (int i = 0; i < matched.length; i++) {
+                matched[i] = 0;
+            }
+        }
+    }
+}
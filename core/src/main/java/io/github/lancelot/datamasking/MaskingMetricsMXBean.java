@@ -0,0 +1,42 @@
+package io.github.lancelot.datamasking;
+
+import java.util.Map;
+
+/**
+ * {@link MaskingMetrics} 的 JMX 视图，参见 {@link MaskingMetrics#registerMBean()}
+ */
+public interface MaskingMetricsMXBean {
+
+    long getCalls();
+
+    long getCharsScanned();
+
+    long getBytesScanned();
+
+    long getKeysSeen();
+
+    /**
+     * 脱敏类型名 -> 命中的字段数
+     */
+    Map<String, Long> getKeysMatched();
+
+    long getValuesMasked();
+
+    long getMalformedResets();
+
+    long getTotalTimeNanos();
+
+    long getTokenCacheHits();
+
+    long getTokenCacheMisses();
+
+    double getTokenCacheHitRate();
+
+    long getFastPathHits();
+
+    long getFastPathMisses();
+
+    double getFastPathHitRate();
+
+    void reset();
+}
@@ -0,0 +1,522 @@
+package io.github.lancelot.datamasking;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 自定义脱敏规则，与 {@link SensitiveType} 一样按字段名注册，参见 {@link SensitiveInfoRegistry#put(String, MaskingStrategy)}
+ *
+ * <pre>
+ * // 护照号：保留前 2 位和后 2 位，中间固定输出 4 个 #
+ * MaskingStrategy.keep(2, 2).fill('#').fixedWidth(4);
+ * // IP 地址：只保留前 3 位，隐藏部分按原长度输出
+ * MaskingStrategy.keep(3, 0);
+ * // 只用于关联查询的标识：输出 SHA-256 摘要的前 16 个十六进制字符
+ * MaskingStrategy.hash();
+ * // 整个值输出为空
+ * MaskingStrategy.drop();
+ * // 带密钥的令牌，例如 tok_3f9a21c04be17d52：同一密钥下相同的值输出相同，便于跨日志关联同一客户
+ * MaskingStrategy.token(secret);
+ * </pre>
+ *
+ * 规则只由几个数值描述，不是回调：扫描器命中字段后直接按描述输出，内置类型也编译成同样的描述
+ * （{@link #of(SensitiveType)}），热点路径上只有一个具体类，不会因为规则增多而出现多态调用。
+ *
+ * 与内置规则相同，空白值输出为空，"null" 原样输出。实例不可变，修改方法返回新实例。
+ */
+public final class MaskingStrategy implements SensitiveMasker {
+
+    static final int BUILTIN = 0;
+    static final int KEEP = 1;
+    static final int HASH = 2;
+    static final int DROP = 3;
+    static final int TOKEN = 4;
+
+    /**
+     * 按原长度输出填充字符
+     */
+    private static final int PROPORTIONAL = -1;
+
+    /**
+     * 摘要输出的字节数，十六进制后为 16 个字符
+     */
+    private static final int HASH_BYTES = 8;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final String TOKEN_PREFIX = "tok_";
+
+    /**
+     * {@link #token(byte[])} 默认缓存的条目数
+     */
+    public static final int DEFAULT_TOKEN_CACHE_SIZE = 4096;
+
+    private static final MaskingStrategy[] BUILTINS;
+
+    static {
+        SensitiveType[] types = SensitiveType.values();
+        BUILTINS = new MaskingStrategy[types.length];
+        for (SensitiveType type : types) {
+            BUILTINS[type.ordinal()] = new MaskingStrategy(BUILTIN, type, 0, 0, '*', PROPORTIONAL, 1, null, 0, null);
+        }
+    }
+
+    private static final ThreadLocal<MessageDigest> DIGEST = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+    };
+
+    final int mode;
+
+    /**
+     * 内置规则对应的类型，其他规则为 null
+     */
+    final SensitiveType type;
+
+    private final int prefix;
+    private final int suffix;
+    private final char fill;
+    private final byte[] fillUtf8;
+
+    /**
+     * 填充字符个数，{@link #PROPORTIONAL} 表示按隐藏部分的长度乘以 {@link #ratio}
+     */
+    private final int width;
+    private final double ratio;
+
+    /**
+     * 令牌的 SipHash 密钥，其他规则为 0
+     */
+    private final long k0;
+    private final long k1;
+
+    /**
+     * 令牌的十六进制位数
+     */
+    private final int digits;
+
+    /**
+     * 令牌缓存，未开启为 null
+     */
+    private final TokenCache cache;
+
+    private MaskingStrategy(int mode, SensitiveType type, int prefix, int suffix, char fill, int width,
+                            double ratio, byte[] secret, int digits, TokenCache cache) {
+        this.mode = mode;
+        this.type = type;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.fill = fill;
+        this.fillUtf8 = String.valueOf(fill).getBytes(StandardCharsets.UTF_8);
+        this.width = width;
+        this.ratio = ratio;
+        this.k0 = secret == null ? 0 : SipHash.keyPart(secret, 0);
+        this.k1 = secret == null ? 0 : SipHash.keyPart(secret, 1);
+        this.digits = digits;
+        this.cache = cache;
+    }
+
+    /**
+     * 内置类型对应的规则
+     */
+    public static MaskingStrategy of(SensitiveType type) {
+        return BUILTINS[type.ordinal()];
+    }
+
+    /**
+     * 保留前 prefix 位和后 suffix 位，其余部分用 '*' 代替，个数与隐藏的字符数相同。
+     * 值的长度不超过 prefix + suffix 时全部隐藏，短值不会原样泄露。
+     *
+     * @throws IllegalArgumentException prefix 或 suffix 为负数
+     */
+    public static MaskingStrategy keep(int prefix, int suffix) {
+        if (prefix < 0 || suffix < 0) {
+            throw new IllegalArgumentException("prefix and suffix must not be negative");
+        }
+        return new MaskingStrategy(KEEP, null, prefix, suffix, '*', PROPORTIONAL, 1, null, 0, null);
+    }
+
+    /**
+     * 输出值的 UTF-8 编码的 SHA-256 摘要的前 16 个十六进制字符，相同的值输出相同，可用于关联查询。
+     * 摘要没有密钥，取值范围小的数据（如手机号）可以被穷举还原。
+     */
+    public static MaskingStrategy hash() {
+        return new MaskingStrategy(HASH, null, 0, 0, '*', PROPORTIONAL, 1, null, 0, null);
+    }
+
+    /**
+     * 整个值输出为空，效果与 {@link SensitiveType#NULL} 相同
+     */
+    public static MaskingStrategy drop() {
+        return new MaskingStrategy(DROP, null, 0, 0, '*', PROPORTIONAL, 1, null, 0, null);
+    }
+
+    /**
+     * 带密钥的确定性令牌，输出 "tok_" 加 16 位十六进制，缓存最近的 {@link #DEFAULT_TOKEN_CACHE_SIZE} 个值
+     *
+     * @see #token(byte[], int, int)
+     */
+    public static MaskingStrategy token(byte[] secret) {
+        return token(secret, 16, DEFAULT_TOKEN_CACHE_SIZE);
+    }
+
+    /**
+     * 带密钥的确定性令牌：对值的 UTF-8 编码计算 SipHash-2-4，输出 "tok_" 加前 digits 位十六进制。
+     *
+     * 相同的密钥下，相同的值在任意调用、任意节点上输出相同，可以跨日志关联同一客户而不暴露原值；
+     * 不知道密钥时无法穷举还原。位数越少冲突越多，关联大量不同的值时建议不少于 12 位。
+     *
+     * 最近出现的值的令牌保存在固定大小的缓存中，热点值命中时不重新计算；命中率见
+     * {@link MaskingMetrics#getTokenCacheHits()}。每次调用本方法创建独立的缓存，应注册同一个实例。
+     *
+     * @param secret 16 字节密钥，例如随机生成后保存在配置中心，各节点共享
+     * @param digits 十六进制位数，1 到 16
+     * @param cacheSize 缓存的条目数，0 表示不缓存
+     * @throws IllegalArgumentException 参数不合法
+     */
+    public static MaskingStrategy token(byte[] secret, int digits, int cacheSize) {
+        if (secret == null || secret.length != 16) {
+            throw new IllegalArgumentException("secret must be 16 bytes");
+        }
+        if (digits < 1 || digits > 16) {
+            throw new IllegalArgumentException("digits must be between 1 and 16: " + digits);
+        }
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("cacheSize must not be negative: " + cacheSize);
+        }
+        return new MaskingStrategy(TOKEN, null, 0, 0, '*', PROPORTIONAL, 1, secret, digits,
+                cacheSize == 0 ? null : new TokenCache(cacheSize));
+    }
+
+    /**
+     * 填充字符，默认 '*'
+     *
+     * @throws IllegalStateException 不是 {@link #keep} 创建的规则
+     */
+    public MaskingStrategy fill(char fill) {
+        requireKeep();
+        return new MaskingStrategy(KEEP, null, prefix, suffix, fill, width, ratio, null, 0, null);
+    }
+
+    /**
+     * 固定输出 width 个填充字符，不暴露原值的长度
+     *
+     * @throws IllegalArgumentException width 为负数
+     * @throws IllegalStateException 不是 {@link #keep} 创建的规则
+     */
+    public MaskingStrategy fixedWidth(int width) {
+        requireKeep();
+        if (width < 0) {
+            throw new IllegalArgumentException("width must not be negative: " + width);
+        }
+        return new MaskingStrategy(KEEP, null, prefix, suffix, fill, width, 1, null, 0, null);
+    }
+
+    /**
+     * 输出 ceil(隐藏的字符数 * ratio) 个填充字符，默认为 1
+     *
+     * @throws IllegalArgumentException ratio 不是正数
+     * @throws IllegalStateException 不是 {@link #keep} 创建的规则
+     */
+    public MaskingStrategy proportionalWidth(double ratio) {
+        requireKeep();
+        if (!(ratio > 0) || Double.isInfinite(ratio)) {
+            throw new IllegalArgumentException("ratio must be positive: " + ratio);
+        }
+        return new MaskingStrategy(KEEP, null, prefix, suffix, fill, PROPORTIONAL, ratio, null, 0, null);
+    }
+
+    private void requireKeep() {
+        if (mode != KEEP) {
+            throw new IllegalStateException("only keep(prefix, suffix) strategies can be customized");
+        }
+    }
+
+    /**
+     * 按本规则把 chars[start, end) 脱敏后追加到 out
+     */
+    @Override
+    public void mask(char[] chars, int start, int end, StringBuilder out) {
+        if (mode == BUILTIN) {
+            SensitiveConvertor.convertMsg(type, chars, start, end, out);
+            return;
+        }
+        if (SensitiveConvertor.isBlank(chars, start, end)) {
+            return;
+        }
+        if (SensitiveConvertor.isNullLiteral(chars, start, end)) {
+            out.append(chars, start, end - start);
+            return;
+        }
+        switch (mode) {
+            case KEEP: {
+                int length = end - start;
+                int keepPrefix = prefix;
+                int keepSuffix = suffix;
+                if (keepPrefix + keepSuffix >= length) {
+                    keepPrefix = 0;
+                    keepSuffix = 0;
+                }
+                out.append(chars, start, keepPrefix);
+                appendFill(out, fillCount(length - keepPrefix - keepSuffix));
+                out.append(chars, end - keepSuffix, keepSuffix);
+                break;
+            }
+            case HASH: {
+                MessageDigest digest = DIGEST.get();
+                digest.update(StandardCharsets.UTF_8.encode(CharBuffer.wrap(chars, start, end - start)));
+                byte[] hash = digest.digest();
+                for (int i = 0; i < HASH_BYTES; i++) {
+                    out.append(HEX[(hash[i] >> 4) & 0xF]).append(HEX[hash[i] & 0xF]);
+                }
+                break;
+            }
+            case TOKEN:
+                appendToken(chars, start, end, out);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void appendToken(char[] chars, int start, int end, StringBuilder out) {
+        boolean ascii = isAscii(chars, start, end);
+        int hash = 0;
+        if (ascii && cache != null) {
+            hash = TokenCache.hash(chars, start, end);
+            TokenCache.Entry entry = cache.get(chars, start, end, hash);
+            countToken(entry != null);
+            if (entry != null) {
+                out.append(entry.token);
+                return;
+            }
+        }
+        byte[] key;
+        if (ascii) {
+            key = new byte[end - start];
+            for (int i = 0; i < key.length; i++) {
+                key[i] = (byte) chars[start + i];
+            }
+        } else {
+            ByteBuffer utf8 = StandardCharsets.UTF_8.encode(CharBuffer.wrap(chars, start, end - start));
+            key = new byte[utf8.remaining()];
+            utf8.get(key);
+            if (cache != null) {
+                hash = TokenCache.hash(ByteBuffer.wrap(key), 0, key.length);
+                TokenCache.Entry entry = cache.get(ByteBuffer.wrap(key), 0, key.length, hash);
+                countToken(entry != null);
+                if (entry != null) {
+                    out.append(entry.token);
+                    return;
+                }
+            }
+        }
+        long sip = SipHash.hash(k0, k1, key, 0, key.length);
+        if (cache != null && cache.admit(hash)) {
+            out.append(cache.put(key, hash, tokenString(sip)).token);
+            return;
+        }
+        out.append(TOKEN_PREFIX);
+        for (int i = 0; i < digits; i++) {
+            out.append(hexDigit(sip, i));
+        }
+    }
+
+    private void putToken(ByteBuffer src, int start, int end, Utf8Output out) {
+        int hash = 0;
+        if (cache != null) {
+            hash = TokenCache.hash(src, start, end);
+            TokenCache.Entry entry = cache.get(src, start, end, hash);
+            countToken(entry != null);
+            if (entry != null) {
+                out.put(entry.tokenBytes, 0, entry.tokenBytes.length);
+                return;
+            }
+        }
+        byte[] key = new byte[end - start];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = src.get(start + i);
+        }
+        long sip = SipHash.hash(k0, k1, key, 0, key.length);
+        if (cache != null && cache.admit(hash)) {
+            byte[] token = cache.put(key, hash, tokenString(sip)).tokenBytes;
+            out.put(token, 0, token.length);
+            return;
+        }
+        for (int i = 0; i < TOKEN_PREFIX.length(); i++) {
+            out.put((byte) TOKEN_PREFIX.charAt(i));
+        }
+        for (int i = 0; i < digits; i++) {
+            out.put((byte) hexDigit(sip, i));
+        }
+    }
+
+    /**
+     * "tok_" 加 SipHash 的前 digits 位十六进制
+     */
+    private String tokenString(long sip) {
+        char[] token = new char[TOKEN_PREFIX.length() + digits];
+        TOKEN_PREFIX.getChars(0, TOKEN_PREFIX.length(), token, 0);
+        for (int i = 0; i < digits; i++) {
+            token[TOKEN_PREFIX.length() + i] = hexDigit(sip, i);
+        }
+        return new String(token);
+    }
+
+    private static char hexDigit(long value, int index) {
+        return HEX[(int) (value >>> (60 - index * 4)) & 0xF];
+    }
+
+    private static void countToken(boolean hit) {
+        MaskingMetrics metrics = MaskingMetrics.current();
+        if (metrics != null) {
+            metrics.tokenCache(hit);
+        }
+    }
+
+    private static boolean isAscii(char[] chars, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (chars[i] >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按本规则屏蔽单个值，规则与 {@link SensitiveConvertor#convertMsg(SensitiveType, String)} 相同
+     */
+    public String mask(String value) {
+        if (mode == BUILTIN) {
+            return SensitiveConvertor.convertMsg(type, value);
+        }
+        if (value == null) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder(value.length());
+        mask(value.toCharArray(), 0, value.length(), out);
+        return out.toString();
+    }
+
+    /**
+     * 按本规则把 UTF-8 编码的 src[start, end) 脱敏后写入 out，保留的前缀/后缀按码点计数
+     */
+    void maskUtf8(ByteBuffer src, int start, int end, Utf8Output out) {
+        if (mode == BUILTIN) {
+            Utf8SensitiveConvertor.convertMsg(type, src, start, end, out);
+            return;
+        }
+        if (Utf8SensitiveConvertor.isBlank(src, start, end)) {
+            return;
+        }
+        if (Utf8SensitiveConvertor.isNullLiteral(src, start, end)) {
+            out.put(src, start, end);
+            return;
+        }
+        switch (mode) {
+            case KEEP: {
+                int length = Utf8SensitiveConvertor.codePointCount(src, start, end);
+                int keepPrefix = prefix;
+                int keepSuffix = suffix;
+                if (keepPrefix + keepSuffix >= length) {
+                    keepPrefix = 0;
+                    keepSuffix = 0;
+                }
+                out.put(src, start, Utf8SensitiveConvertor.firstCodePoints(src, start, end, keepPrefix));
+                int count = fillCount(length - keepPrefix - keepSuffix);
+                if (fillUtf8.length == 1) {
+                    out.repeat(fillUtf8[0], count);
+                } else {
+                    for (int i = 0; i < count; i++) {
+                        out.put(fillUtf8, 0, fillUtf8.length);
+                    }
+                }
+                out.put(src, Utf8SensitiveConvertor.lastCodePoints(src, start, end, keepSuffix), end);
+                break;
+            }
+            case HASH: {
+                ByteBuffer value = src.duplicate();
+                value.limit(end);
+                value.position(start);
+                MessageDigest digest = DIGEST.get();
+                digest.update(value);
+                byte[] hash = digest.digest();
+                for (int i = 0; i < HASH_BYTES; i++) {
+                    out.put((byte) HEX[(hash[i] >> 4) & 0xF]);
+                    out.put((byte) HEX[hash[i] & 0xF]);
+                }
+                break;
+            }
+            case TOKEN:
+                putToken(src, start, end, out);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private int fillCount(int hidden) {
+        if (width != PROPORTIONAL) {
+            return width;
+        }
+        return ratio == 1 ? hidden : (int) Math.ceil(hidden * ratio);
+    }
+
+    private void appendFill(StringBuilder out, int count) {
+        for (int i = 0; i < count; i++) {
+            out.append(fill);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MaskingStrategy) || mode == TOKEN) {
+            // 令牌规则带有各自的缓存和密钥，只与自身相等
+            return false;
+        }
+        MaskingStrategy that = (MaskingStrategy) o;
+        return mode == that.mode && type == that.type && prefix == that.prefix && suffix == that.suffix
+                && fill == that.fill && width == that.width && Double.compare(ratio, that.ratio) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mode;
+        result = 31 * result + (type == null ? 0 : type.hashCode());
+        result = 31 * result + prefix;
+        result = 31 * result + suffix;
+        result = 31 * result + fill;
+        result = 31 * result + width;
+        result = 31 * result + Double.hashCode(ratio);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        switch (mode) {
+            case BUILTIN:
+                return type.name();
+            case KEEP:
+                return "keep(" + prefix + ", " + suffix + ").fill('" + fill + "')"
+                        + (width == PROPORTIONAL ? ".proportionalWidth(" + ratio + ")" : ".fixedWidth(" + width + ")");
+            case HASH:
+                return "hash()";
+            case TOKEN:
+                return "token(" + digits + ")";
+            default:
+                return "drop()";
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package io.github.lancelot.datamasking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * 超大报文的并行脱敏
+ *
+ * 1. 预扫描：在均分点附近找一个看起来位于字符串之外的 ','，在其后切分；
+ * 2. 推测执行：每个分段假设自己从 START 状态开始，在 ForkJoinPool 中并行脱敏；
+ * 3. 校验拼接：按顺序检查上一段真实的结束状态，是 START 则推测成立，直接使用该段结果；
+ *    否则用上一段的状态机接着重新处理该段。
+ *
+ * 状态机是确定的，同一状态下处理同一段输入得到同样的输出，因此结果与顺序处理逐字节一致，
+ * 推测失败只会退化为顺序处理该段。
+ */
+final class ParallelMasking {
+
+    /**
+     * 向后寻找切分点的最大距离
+     */
+    private static final int BOUNDARY_SEARCH_WINDOW = 64 * 1024;
+
+    private ParallelMasking() {
+    }
+
+    /**
+     * @param chunkSize 期望的分段大小
+     */
+    static String mask(String json, SensitiveInfoRegistry.Snapshot snapshot, ForkJoinPool pool, int chunkSize) {
+        if (snapshot.pathAutomaton != null || !snapshot.limits().unlimited()) {
+            // 路径规则依赖从文档开头累积的嵌套栈，上限按整个输入计算，分段无法推测，顺序处理
+            SensitiveScanner scanner = new SensitiveScanner(snapshot);
+            StringBuilder result = new StringBuilder(json.length());
+            char[] chars = json.toCharArray();
+            scanner.scan(chars, 0, chars.length, result);
+            scanner.finish(result);
+            return result.toString();
+        }
+        char[] chars = json.toCharArray();
+        List<Integer> boundaries = boundaries(chars, chunkSize);
+
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>(boundaries.size() - 1);
+        for (int i = 0; i + 1 < boundaries.size(); i++) {
+            tasks.add(pool.submit(new Chunk(chars, boundaries.get(i), boundaries.get(i + 1), snapshot)));
+        }
+
+        StringBuilder result = new StringBuilder(chars.length);
+        SensitiveScanner scanner = null;
+        for (ForkJoinTask<Chunk> task : tasks) {
+            Chunk chunk = task.join();
+            if (scanner == null || scanner.isAtStart()) {
+                // 推测成立：上一段结束于 START，本段的推测结果就是顺序处理的结果
+                result.append(chunk.out);
+                if (scanner != null) {
+                    chunk.scanner.absorbMetrics(scanner);
+                }
+                scanner = chunk.scanner;
+            } else {
+                // 推测失败：沿用上一段的状态重新处理本段
+                scanner.scan(chars, chunk.start, chunk.end, result);
+            }
+        }
+        scanner.finish(result);
+        return result.toString();
+    }
+
+    /**
+     * 预扫描切分点，返回值首尾分别为 0 和 chars.length
+     */
+    static List<Integer> boundaries(char[] chars, int chunkSize) {
+        List<Integer> boundaries = new ArrayList<>();
+        boundaries.add(0);
+        int target = chunkSize;
+        while (target < chars.length) {
+            int limit = Math.min(chars.length, target + BOUNDARY_SEARCH_WINDOW);
+            int boundary = -1;
+            for (int i = target; i < limit; i++) {
+                if (chars[i] == ',' && isValueEnd(chars[i - 1])) {
+                    boundary = i + 1;
+                    break;
+                }
+            }
+            if (boundary > 0 && boundary < chars.length) {
+                boundaries.add(boundary);
+                target = boundary + chunkSize;
+            } else {
+                target += chunkSize;
+            }
+        }
+        boundaries.add(chars.length);
+        return boundaries;
+    }
+
+    /**
+     * ',' 前面是字符串、数字或 true/false/null 的结尾时，大概率位于字符串之外
+     */
+    private static boolean isValueEnd(char c) {
+        return c == '"' || c == '}' || c == ']' || (c >= '0' && c <= '9') || c == 'e' || c == 'l';
+    }
+
+    /**
+     * 假设从 START 状态开始处理 chars[start, end)
+     */
+    private static final class Chunk implements Callable<Chunk> {
+        private final char[] chars;
+        private final int start;
+        private final int end;
+        private final SensitiveScanner scanner;
+        private StringBuilder out;
+
+        private Chunk(char[] chars, int start, int end, SensitiveInfoRegistry.Snapshot snapshot) {
+            this.chars = chars;
+            this.start = start;
+            this.end = end;
+            this.scanner = new SensitiveScanner(snapshot);
+        }
+
+        @Override
+        public Chunk call() {
+            out = new StringBuilder(end - start + 64);
+            scanner.scan(chars, start, end, out);
+            return this;
+        }
+    }
+}
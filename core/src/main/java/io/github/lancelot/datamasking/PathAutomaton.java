@@ -0,0 +1,333 @@
+package io.github.lancelot.datamasking;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 路径规则编译成的确定有限自动机
+ *
+ * 路径由 '.' 分隔的若干段组成，例如 user.name、orders[*].card.number、**.idCard：
+ * <ul>
+ * <li>字段名：匹配对象中的该字段</li>
+ * <li>*：匹配对象中的任意一个字段</li>
+ * <li>[*]：跟在字段名后（或单独作为一段），匹配数组中的任意一个元素</li>
+ * <li>**：匹配任意多层（包括0层）字段或数组元素</li>
+ * </ul>
+ * 开头的 "$." 可以省略。
+ *
+ * 输入符号是字段名或“数组元素”：规则中出现过的字段名各占一个符号，其余字段名共用符号0，
+ * 数组元素为最后一个符号。所有规则先按位置展开成 NFA，再用子集构造一次性转成 DFA，
+ * 状态转移是一张 int 表。扫描时每层嵌套只需查一次表，与规则数量无关。
+ * 多条规则同时命中时，取通配段最少的规则，相同时取路径字典序最小的。
+ */
+final class PathAutomaton {
+
+    /**
+     * 不再可能命中任何规则的状态
+     */
+    static final int DEAD = 0;
+
+    /**
+     * DFA 状态数上限，防止大量 ** 规则导致状态爆炸
+     */
+    private static final int MAX_STATES = 1 << 16;
+
+    private static final int NAME = 0;
+    private static final int ANY_KEY = 1;
+    private static final int ARRAY = 2;
+    private static final int DEEP = 3;
+
+    private final List<String> symbolNames;
+
+    /**
+     * 规则最后一段的字段名，有规则以 * 结尾时为 null
+     */
+    private final List<String> finalNames;
+
+    private final int symbolCount;
+
+    private final int start;
+
+    /**
+     * 状态 s 在符号 a 上的转移为 transitions[s * symbolCount + a]
+     */
+    private final int[] transitions;
+
+    private final SensitiveType[] types;
+
+    private PathAutomaton(List<String> symbolNames, List<String> finalNames, int start, int[] transitions,
+                          SensitiveType[] types) {
+        this.symbolNames = symbolNames;
+        this.finalNames = finalNames;
+        this.symbolCount = symbolNames.size() + 2;
+        this.start = start;
+        this.transitions = transitions;
+        this.types = types;
+    }
+
+    /**
+     * @param rules 路径 -> 脱敏类型
+     * @return 自动机，rules 为空时返回 null
+     * @throws IllegalArgumentException 路径格式不合法，或规则过于复杂
+     */
+    static PathAutomaton compile(Map<String, SensitiveType> rules) {
+        if (rules.isEmpty()) {
+            return null;
+        }
+        List<Rule> sorted = new ArrayList<>();
+        for (Map.Entry<String, SensitiveType> entry : rules.entrySet()) {
+            sorted.add(Rule.parse(entry.getKey(), entry.getValue()));
+        }
+        Collections.sort(sorted);
+
+        Map<String, Integer> symbols = new LinkedHashMap<>();
+        int positions = 0;
+        int[] offsets = new int[sorted.size()];
+        for (int r = 0; r < sorted.size(); r++) {
+            offsets[r] = positions;
+            positions += sorted.get(r).kinds.length + 1;
+        }
+        // 位置编号 -> (规则, 步骤)
+        int[] positionRules = new int[positions];
+        int[] positionSteps = new int[positions];
+        for (int r = 0; r < sorted.size(); r++) {
+            Rule rule = sorted.get(r);
+            for (int p = 0; p <= rule.kinds.length; p++) {
+                positionRules[offsets[r] + p] = r;
+                positionSteps[offsets[r] + p] = p;
+            }
+            for (int p = 0; p < rule.kinds.length; p++) {
+                if (rule.kinds[p] == NAME) {
+                    Integer symbol = symbols.get(rule.names[p]);
+                    if (symbol == null) {
+                        symbol = symbols.size() + 1;
+                        symbols.put(rule.names[p], symbol);
+                    }
+                    rule.symbols[p] = symbol;
+                }
+            }
+        }
+        int symbolCount = symbols.size() + 2;
+        int arraySymbol = symbolCount - 1;
+
+        // 子集构造，状态0为空集（DEAD）
+        List<BitSet> states = new ArrayList<>();
+        Map<BitSet, Integer> ids = new HashMap<>();
+        BitSet dead = new BitSet();
+        states.add(dead);
+        ids.put(dead, DEAD);
+        BitSet initial = new BitSet(positions);
+        for (int r = 0; r < sorted.size(); r++) {
+            addClosure(initial, sorted.get(r), offsets[r], 0);
+        }
+        int start = ids.containsKey(initial) ? ids.get(initial) : add(states, ids, initial);
+
+        int[] transitions = new int[16 * symbolCount];
+        for (int s = 0; s < states.size(); s++) {
+            BitSet current = states.get(s);
+            if (transitions.length < (s + 1) * symbolCount) {
+                int[] grown = new int[Math.max(transitions.length * 2, (s + 1) * symbolCount)];
+                System.arraycopy(transitions, 0, grown, 0, transitions.length);
+                transitions = grown;
+            }
+            for (int a = 0; a < symbolCount; a++) {
+                BitSet next = new BitSet(positions);
+                for (int bit = current.nextSetBit(0); bit >= 0; bit = current.nextSetBit(bit + 1)) {
+                    int r = positionRules[bit];
+                    int p = positionSteps[bit];
+                    Rule rule = sorted.get(r);
+                    if (p < rule.kinds.length && rule.matches(p, a, arraySymbol)) {
+                        addClosure(next, rule, offsets[r], rule.kinds[p] == DEEP ? p : p + 1);
+                    }
+                }
+                Integer id = ids.get(next);
+                if (id == null) {
+                    if (states.size() >= MAX_STATES) {
+                        throw new IllegalArgumentException("too many path rules, automaton exceeds " + MAX_STATES
+                                + " states");
+                    }
+                    id = add(states, ids, next);
+                }
+                transitions[s * symbolCount + a] = id;
+            }
+        }
+
+        SensitiveType[] types = new SensitiveType[states.size()];
+        for (int s = 0; s < states.size(); s++) {
+            BitSet set = states.get(s);
+            for (int r = 0; r < sorted.size() && types[s] == null; r++) {
+                Rule rule = sorted.get(r);
+                if (set.get(offsets[r] + rule.kinds.length)) {
+                    types[s] = rule.type;
+                }
+            }
+        }
+        int[] trimmed = new int[states.size() * symbolCount];
+        System.arraycopy(transitions, 0, trimmed, 0, trimmed.length);
+        return new PathAutomaton(Collections.unmodifiableList(new ArrayList<>(symbols.keySet())),
+                finalNames(sorted), start, trimmed, types);
+    }
+
+    /**
+     * 规则只在字段名处命中，命中时的字段名一定是某条规则最后一段的字段名；以 [*] 结尾的规则不会在字段名处命中
+     */
+    private static List<String> finalNames(List<Rule> rules) {
+        List<String> names = new ArrayList<>();
+        for (Rule rule : rules) {
+            int last = rule.kinds.length - 1;
+            if (rule.kinds[last] == ANY_KEY) {
+                return null;
+            }
+            if (rule.kinds[last] == NAME) {
+                names.add(rule.names[last]);
+            }
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * 规则中出现的字段名，第 i 个的符号为 i + 1
+     */
+    List<String> symbolNames() {
+        return symbolNames;
+    }
+
+    /**
+     * 可能命中规则的字段名，供 {@link KeyPrefilter} 使用
+     *
+     * @return 字段名，有规则以 * 结尾（任意字段名都可能命中）时返回 null
+     */
+    List<String> finalNames() {
+        return finalNames;
+    }
+
+    int start() {
+        return start;
+    }
+
+    /**
+     * 进入对象中符号为 symbol 的字段
+     */
+    int field(int state, int symbol) {
+        return transitions[state * symbolCount + symbol];
+    }
+
+    /**
+     * 进入数组的元素
+     */
+    int element(int state) {
+        return transitions[state * symbolCount + symbolCount - 1];
+    }
+
+    /**
+     * @return 在该状态命中的规则的脱敏类型，没有命中返回null
+     */
+    SensitiveType type(int state) {
+        return types[state];
+    }
+
+    private static int add(List<BitSet> states, Map<BitSet, Integer> ids, BitSet set) {
+        int id = states.size();
+        states.add(set);
+        ids.put(set, id);
+        return id;
+    }
+
+    /**
+     * 加入位置 p 及其通过 ** 可以直接跳过到达的位置
+     */
+    private static void addClosure(BitSet set, Rule rule, int offset, int p) {
+        set.set(offset + p);
+        while (p < rule.kinds.length && rule.kinds[p] == DEEP) {
+            p++;
+            set.set(offset + p);
+        }
+    }
+
+    private static final class Rule implements Comparable<Rule> {
+        private final String path;
+        private final SensitiveType type;
+        private final int[] kinds;
+        private final String[] names;
+        private final int[] symbols;
+        private final int wildcards;
+
+        private Rule(String path, SensitiveType type, List<Integer> kinds, List<String> names) {
+            this.path = path;
+            this.type = type;
+            this.kinds = new int[kinds.size()];
+            this.names = names.toArray(new String[0]);
+            this.symbols = new int[kinds.size()];
+            int wildcards = 0;
+            for (int i = 0; i < kinds.size(); i++) {
+                this.kinds[i] = kinds.get(i);
+                if (this.kinds[i] == ANY_KEY || this.kinds[i] == DEEP) {
+                    wildcards++;
+                }
+            }
+            this.wildcards = wildcards;
+        }
+
+        static Rule parse(String path, SensitiveType type) {
+            if (path == null || type == null) {
+                throw new IllegalArgumentException("path and type must not be null");
+            }
+            String body = path.startsWith("$.") ? path.substring(2) : path;
+            List<Integer> kinds = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            for (String segment : body.split("\\.", -1)) {
+                if (segment.equals("**")) {
+                    add(kinds, names, DEEP, null);
+                    continue;
+                }
+                int bracket = segment.indexOf('[');
+                String name = bracket < 0 ? segment : segment.substring(0, bracket);
+                if (name.equals("*")) {
+                    add(kinds, names, ANY_KEY, null);
+                } else if (!name.isEmpty()) {
+                    add(kinds, names, NAME, name);
+                } else if (bracket != 0) {
+                    throw new IllegalArgumentException("empty segment in path: " + path);
+                }
+                for (int i = bracket; i >= 0 && i < segment.length(); i += 3) {
+                    if (!segment.startsWith("[*]", i)) {
+                        throw new IllegalArgumentException("only [*] is supported for arrays: " + path);
+                    }
+                    add(kinds, names, ARRAY, null);
+                }
+            }
+            if (kinds.get(kinds.size() - 1) == DEEP) {
+                throw new IllegalArgumentException("path must not end with **: " + path);
+            }
+            return new Rule(path, type, kinds, names);
+        }
+
+        private static void add(List<Integer> kinds, List<String> names, int kind, String name) {
+            kinds.add(kind);
+            names.add(name);
+        }
+
+        boolean matches(int p, int symbol, int arraySymbol) {
+            switch (kinds[p]) {
+                case NAME:
+                    return symbol == symbols[p];
+                case ANY_KEY:
+                    return symbol != arraySymbol;
+                case ARRAY:
+                    return symbol == arraySymbol;
+                default:
+                    return true;
+            }
+        }
+
+        @Override
+        public int compareTo(Rule o) {
+            return wildcards != o.wildcards ? Integer.compare(wildcards, o.wildcards) : path.compareTo(o.path);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.lancelot.datamasking;
+
+/**
+ * 状态机扫描时的嵌套栈，记录每一层对象/数组在 {@link PathAutomaton} 中的状态
+ *
+ * 最外层（第0层）视为对象，这样既能匹配 {...} 中的字段，也能匹配日志文本里直接出现的 "key":"value"。
+ * 括号不配对时只会让后续字段匹配不上路径规则，不会越界。
+ */
+final class PathTracker {
+
+    private PathAutomaton automaton;
+
+    private int[] states = new int[16];
+
+    private boolean[] arrays = new boolean[16];
+
+    private int depth;
+
+    /**
+     * 最近一个字段名对应的状态，其值是对象或数组时入栈
+     */
+    private int fieldState;
+
+    void reset(PathAutomaton automaton) {
+        this.automaton = automaton;
+        restart();
+    }
+
+    /**
+     * 回到最外层，沿用当前的自动机
+     */
+    void restart() {
+        depth = 0;
+        states[0] = automaton.start();
+        arrays[0] = false;
+        fieldState = PathAutomaton.DEAD;
+    }
+
+    /**
+     * 遇到字段名
+     *
+     * @param symbol 字段名在路径规则中的符号
+     * @return 命中的路径规则的脱敏类型，没有命中返回null
+     */
+    SensitiveType field(int symbol) {
+        fieldState = arrays[depth] ? PathAutomaton.DEAD : automaton.field(states[depth], symbol);
+        return automaton.type(fieldState);
+    }
+
+    /**
+     * 字段的值是对象或数组
+     */
+    void openValue(boolean array) {
+        push(fieldState, array);
+    }
+
+    /**
+     * 不跟在字段名后的 '{' 或 '['：数组元素，或最外层的对象/数组
+     */
+    void open(boolean array) {
+        int state;
+        if (arrays[depth]) {
+            state = automaton.element(states[depth]);
+        } else {
+            state = depth == 0 ? automaton.start() : PathAutomaton.DEAD;
+        }
+        push(state, array);
+    }
+
+    void close() {
+        if (depth > 0) {
+            depth--;
+        }
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    private void push(int state, boolean array) {
+        if (++depth == states.length) {
+            int[] grownStates = new int[depth * 2];
+            boolean[] grownArrays = new boolean[depth * 2];
+            System.arraycopy(states, 0, grownStates, 0, depth);
+            System.arraycopy(arrays, 0, grownArrays, 0, depth);
+            states = grownStates;
+            arrays = grownArrays;
+        }
+        states[depth] = state;
+        arrays[depth] = array;
+    }
+}
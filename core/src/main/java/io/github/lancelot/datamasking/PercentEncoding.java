@@ -0,0 +1,93 @@
+package io.github.lancelot.datamasking;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * application/x-www-form-urlencoded 的解码与编码，用于查询串中的敏感值
+ *
+ * 解码：%XX 按 UTF-8 字节序列解码，'+' 解码为空格，不合法的 % 原样保留。
+ * 编码：与 {@link java.net.URLEncoder} 相同，字母数字和 -_.* 原样输出，空格输出为 '+'，其余按 UTF-8 编码为 %XX。
+ */
+final class PercentEncoding {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private PercentEncoding() {
+    }
+
+    /**
+     * chars[start, end) 中是否有需要解码的 '%' 或 '+'
+     */
+    static boolean isEncoded(char[] chars, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (chars[i] == '%' || chars[i] == '+') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解码 chars[start, end)，结果追加到 out
+     */
+    static void decode(char[] chars, int start, int end, StringBuilder out) {
+        byte[] bytes = null;
+        int i = start;
+        while (i < end) {
+            char c = chars[i];
+            if (c == '+') {
+                out.append(' ');
+                i++;
+            } else if (c == '%' && hexByte(chars, i, end) >= 0) {
+                // 连续的 %XX 是同一个 UTF-8 序列，一起解码
+                if (bytes == null) {
+                    bytes = new byte[(end - i) / 3];
+                }
+                int count = 0;
+                int b;
+                while (i < end && chars[i] == '%' && (b = hexByte(chars, i, end)) >= 0) {
+                    bytes[count++] = (byte) b;
+                    i += 3;
+                }
+                out.append(new String(bytes, 0, count, StandardCharsets.UTF_8));
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+    }
+
+    /**
+     * 编码 chars[start, end)，结果追加到 out
+     */
+    static void encode(CharSequence chars, int start, int end, StringBuilder out) {
+        for (int i = start; i < end; i++) {
+            char c = chars.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '*') {
+                out.append(c);
+            } else if (c == ' ') {
+                out.append('+');
+            } else {
+                int next = i + 1 < end && Character.isHighSurrogate(c) ? i + 2 : i + 1;
+                byte[] bytes = chars.subSequence(i, next).toString().getBytes(StandardCharsets.UTF_8);
+                for (byte b : bytes) {
+                    out.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+                }
+                i = next - 1;
+            }
+        }
+    }
+
+    /**
+     * chars[i] 开始的 %XX 的值，不合法返回 -1
+     */
+    private static int hexByte(char[] chars, int i, int end) {
+        if (i + 2 >= end) {
+            return -1;
+        }
+        int high = Character.digit(chars[i + 1], 16);
+        int low = Character.digit(chars[i + 2], 16);
+        return high < 0 || low < 0 ? -1 : high << 4 | low;
+    }
+}
@@ -0,0 +1,325 @@
+package io.github.lancelot.datamasking;
+
+/**
+ * 脱敏规则
+ *
+ * 每个规则都归结为“保留前 N 位 + 若干个* + 保留后 M 位”，由 {@link #prefixLength}、
+ * {@link #maskLength}、{@link #suffixLength} 统一描述，再分别写入 String 或输出缓冲区，
+ * 不产生中间字符串。
+ *
+ * @author lancelot
+ */
+public final class SensitiveConvertor {
+
+
+	private static final String NULLSTR = "null";
+
+	private static final int MASK_SIZE = 6;
+
+	private static final int ALL_MASK_SIZE = 3;
+
+	private static final char[] STARS = "****************".toCharArray();
+
+	/**
+	 * [中文姓名] 只显示第一个汉字，其他隐藏为星号<例子：李**>
+	 *
+	 * @param name
+	 * @return
+	 */
+	public static String chineseName(String fullName) {
+		return mask(SensitiveType.CHINESE_NAME, fullName);
+	}
+
+	/**
+	 * [证件号码类]（身份证，军官证，护照等身份证明证件类） 后8位用******（6个*）代替。不足8位，直接******（6个*）代替
+	 *
+	 * @param id
+	 * @return
+	 */
+	public static String idCardNum(String id) {
+		return mask(SensitiveType.ID_CARD, id);
+	}
+
+	/**
+	 * [固定电话] 后四位，其他隐藏<例子：****1234>
+	 *
+	 * @param num
+	 * @return
+	 */
+	public static String fixedPhone(String phone) {
+		return mask(SensitiveType.FIXED_PHONE, phone);
+	}
+
+	/**
+	 * [手机号码类]（联系人电话，个人手机） 前3位显示，后4位显示，中间部分******（6个*）代替 不足7位直接******（6个*）代替
+	 *
+	 * @param num
+	 * @return
+	 */
+	public static String mobilePhone(String phone) {
+		return mask(SensitiveType.MOBILE_PHONE, phone);
+	}
+
+	/**
+	 * [地址类] 前2位显示 ，后2位显示，中间部分******（6个*）代替 不足4位全部******（6个*）代替
+	 *
+	 * @param address
+	 * @return
+	 */
+	public static String address(String address) {
+		return mask(SensitiveType.ADDRESS, address);
+	}
+
+	/**
+	 * [邮箱类]******.com / (.)号之前全部******（6个*）代替，（.）号之后显示出来
+	 *
+	 * @param email
+	 * @return
+	 */
+	public static String email(String email) {
+		return mask(SensitiveType.EMAIL, email);
+	}
+
+	/**
+	 * [卡号 ] 前2位显示，后4位显示，中间部分******（6个*）代替
+	 *
+	 * @param cardNum
+	 * @return
+	 */
+	public static String bankCard(String cardNum) {
+		return mask(SensitiveType.BANK_CARD, cardNum);
+	}
+
+	/**
+	 * [银行名] 显示前4位
+	 *
+	 * @param bankName
+	 * @return
+	 */
+	public static String bankName(String bankName) {
+		return mask(SensitiveType.BANK_NAME, bankName);
+	}
+
+	/**
+	 * [统一社会信用代码类（注册码，营业执照，牌照类的码） ] 前4位显示，后4位显示，中间部分******（6个*）代替
+	 *
+	 * @param code
+	 * @return
+	 */
+	public static String cnapsCode(String code) {
+		return mask(SensitiveType.CNAPS_CODE, code);
+	}
+
+	/**
+	 * [银行卡有效期] 前1位，后1位，其他隐藏<例子:“0**6”>
+	 *
+	 * @param num
+	 * @return
+	 */
+	public static String cardValidDate(String date) {
+		return mask(SensitiveType.BANK_CARD_DATE, date);
+	}
+
+	/**
+	 * 全部隐藏
+	 *
+	 * @param num
+	 * @return
+	 */
+	public static String all(String data, int sensitiveSize) {
+		StringBuilder sb = new StringBuilder(Math.max(sensitiveSize, 0));
+		appendMask(sb, sensitiveSize);
+		return sb.toString();
+	}
+
+	/**
+	 * 根据信息类型屏蔽<br>
+	 *
+	 * @param type
+	 *            信息类型
+	 * @param key
+	 *            信息key 如bankaccountno
+	 * @param value
+	 *            信息value 如 62121212312312
+	 * @return
+	 */
+	public static String convertMsg(SensitiveType type, String value) {
+		if (isBlank(value)) {
+			return "";
+		}
+		// 返回null 时保持原样返回方便查问题
+		if (NULLSTR.equalsIgnoreCase(value)) {
+			return value;
+		}
+		return mask(type, value);
+	}
+
+	/**
+	 * 根据信息类型屏蔽 chars[start, end)，结果直接追加到 out，不创建任何中间对象<br>
+	 * 规则与 {@link #convertMsg(SensitiveType, String)} 相同：空白值输出为空，"null" 原样输出
+	 *
+	 * @param type 信息类型
+	 * @param chars 字符数组
+	 * @param start 值起始位置（包含）
+	 * @param end 值结束位置（不包含）
+	 * @param out 输出缓冲区
+	 */
+	public static void convertMsg(SensitiveType type, char[] chars, int start, int end, StringBuilder out) {
+		if (isBlank(chars, start, end)) {
+			return;
+		}
+		int length = end - start;
+		// 返回null 时保持原样返回方便查问题
+		if (isNullLiteral(chars, start, end)) {
+			out.append(chars, start, length);
+			return;
+		}
+		int dot = type == SensitiveType.EMAIL ? lastIndexOf(chars, start, end, '.') : -1;
+		int prefix = prefixLength(type, length, dot);
+		int suffix = suffixLength(type, length, dot);
+		out.append(chars, start, prefix);
+		appendMask(out, maskLength(type, length, dot));
+		out.append(chars, end - suffix, suffix);
+	}
+
+	/**
+	 * 按规则屏蔽单个值，空白值原样返回
+	 */
+	private static String mask(SensitiveType type, String value) {
+		if (isBlank(value)) {
+			return value;
+		}
+		int length = value.length();
+		int dot = type == SensitiveType.EMAIL ? value.lastIndexOf('.') : -1;
+		int prefix = prefixLength(type, length, dot);
+		int suffix = suffixLength(type, length, dot);
+		int mask = maskLength(type, length, dot);
+		StringBuilder sb = new StringBuilder(prefix + mask + suffix);
+		sb.append(value, 0, prefix);
+		appendMask(sb, mask);
+		sb.append(value, length - suffix, length);
+		return sb.toString();
+	}
+
+	/**
+	 * 保留的前缀长度
+	 *
+	 * @param length 值的长度（字符数或码点数）
+	 * @param dot 邮箱最后一个'.'的位置，其他类型忽略
+	 */
+	static int prefixLength(SensitiveType type, int length, int dot) {
+		switch (type) {
+		case CHINESE_NAME:
+		case BANK_CARD_DATE:
+			return 1;
+		case ID_CARD:
+			return length > 8 ? 3 : 0;
+		case MOBILE_PHONE:
+			return length > 7 ? 3 : 0;
+		case ADDRESS:
+			return length > 4 ? 2 : 0;
+		case BANK_CARD:
+			return length > 6 ? 2 : 0;
+		case BANK_NAME:
+			return length > 4 ? 4 : 1;
+		case CNAPS_CODE:
+			return length > 8 ? 4 : 0;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * 保留的后缀长度
+	 */
+	static int suffixLength(SensitiveType type, int length, int dot) {
+		switch (type) {
+		case ID_CARD:
+			return length > 8 ? 3 : 0;
+		case FIXED_PHONE:
+			return length > 4 ? 4 : 0;
+		case MOBILE_PHONE:
+			return length > 7 ? 4 : 0;
+		case ADDRESS:
+			return length > 4 ? 2 : 0;
+		case EMAIL:
+			return dot > 1 ? length - dot : 0;
+		case BANK_CARD:
+			return length > 6 ? 4 : 0;
+		case CNAPS_CODE:
+			return length > 8 ? 4 : 0;
+		case BANK_CARD_DATE:
+			return 1;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * 中间*的个数
+	 */
+	static int maskLength(SensitiveType type, int length, int dot) {
+		switch (type) {
+		case CHINESE_NAME:
+			return 1;
+		case FIXED_PHONE:
+			return length > 4 ? length - 4 : MASK_SIZE;
+		case BANK_NAME:
+			return length - prefixLength(type, length, dot);
+		case BANK_CARD_DATE:
+			return Math.max(length - 2, 0);
+		case ALL:
+			return ALL_MASK_SIZE;
+		case NULL:
+			return 0;
+		default:
+			return MASK_SIZE;
+		}
+	}
+
+	private static void appendMask(StringBuilder out, int count) {
+		while (count > 0) {
+			int n = Math.min(count, STARS.length);
+			out.append(STARS, 0, n);
+			count -= n;
+		}
+	}
+
+	private static boolean isBlank(String value) {
+		if (value == null) {
+			return true;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			if (!Character.isWhitespace(value.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static boolean isBlank(char[] chars, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (!Character.isWhitespace(chars[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static boolean isNullLiteral(char[] chars, int start, int end) {
+		return end - start == 4
+				&& (chars[start] | 0x20) == 'n'
+				&& (chars[start + 1] | 0x20) == 'u'
+				&& (chars[start + 2] | 0x20) == 'l'
+				&& (chars[start + 3] | 0x20) == 'l';
+	}
+
+	private static int lastIndexOf(char[] chars, int start, int end, char c) {
+		for (int i = end - 1; i >= start; i--) {
+			if (chars[i] == c) {
+				return i - start;
+			}
+		}
+		return -1;
+	}
+}
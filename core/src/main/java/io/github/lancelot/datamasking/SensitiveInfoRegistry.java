@@ -0,0 +1,466 @@
+package io.github.lancelot.datamasking;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * 注册脱敏信息
+ *
+ * 注册表以不可变的 {@link Snapshot} 发布：每次修改都复制一份新的字段表，编译出查找表后
+ * 通过一次 CAS 整体替换。脱敏线程每次调用只读取一次快照，读取不加锁、不阻塞，
+ * 也不会看到修改到一半的状态（例如 replaceAll 过程中的空注册表）。
+ */
+public class SensitiveInfoRegistry {
+
+    private static final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+
+    private static final List<Consumer<Snapshot>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 原子地替换全部注册信息
+     */
+    public static void replaceAll(Map<String, SensitiveType> map) {
+        final Map<String, SensitiveType> fields = new HashMap<>(map);
+        update(current -> current.withFields(fields));
+    }
+
+    public static void putAll(Map<String, SensitiveType> map) {
+        update(current -> {
+            Map<String, SensitiveType> fields = new HashMap<>(current.fields);
+            fields.putAll(map);
+            return current.withFields(fields);
+        });
+    }
+
+    /**
+     * 清空字段名、自定义规则和路径规则
+     */
+    public static void clear() {
+        update(Snapshot::cleared);
+    }
+
+    public static void put(String fieldName,SensitiveType sensitiveType) {
+        update(current -> {
+            Map<String, SensitiveType> fields = new HashMap<>(current.fields);
+            fields.put(fieldName, sensitiveType);
+            if (!current.strategies.containsKey(fieldName)) {
+                return current.withFields(fields);
+            }
+            Map<String, MaskingStrategy> strategies = new HashMap<>(current.strategies);
+            strategies.remove(fieldName);
+            return current.withFields(fields, strategies);
+        });
+    }
+
+    /**
+     * 按字段名注册自定义脱敏规则，例如护照号、车牌号、IP 地址
+     *
+     * 同一字段名只保留最后一次注册：之前用 {@link #put(String, SensitiveType)} 注册的类型会被移除，反之亦然。
+     * 路径规则仍然优先。
+     *
+     * @param fieldName 字段名
+     * @param strategy 脱敏规则
+     */
+    public static void put(String fieldName, MaskingStrategy strategy) {
+        if (strategy == null) {
+            throw new IllegalArgumentException("strategy must not be null");
+        }
+        update(current -> {
+            Map<String, MaskingStrategy> strategies = new HashMap<>(current.strategies);
+            strategies.put(fieldName, strategy);
+            if (!current.fields.containsKey(fieldName)) {
+                return current.withStrategies(strategies);
+            }
+            Map<String, SensitiveType> fields = new HashMap<>(current.fields);
+            fields.remove(fieldName);
+            return current.withFields(fields, strategies);
+        });
+    }
+
+    /**
+     * 原子地替换全部自定义规则，按类型注册的字段名不变，同名时以自定义规则为准
+     *
+     * @see #put(String, MaskingStrategy)
+     */
+    public static void replaceAllStrategies(Map<String, MaskingStrategy> map) {
+        final Map<String, MaskingStrategy> strategies = new HashMap<>(map);
+        if (strategies.containsValue(null)) {
+            throw new IllegalArgumentException("strategy must not be null");
+        }
+        update(current -> current.withStrategies(strategies));
+    }
+
+    /**
+     * 按路径注册，例如 user.name、orders[*].card.number、**.idCard，用于区分同名但含义不同的字段
+     *
+     * 字段名以 '.' 分隔，* 匹配任意一个字段，[*] 匹配数组元素，** 匹配任意多层，开头的 "$." 可以省略。
+     * 路径规则优先于 {@link #put} 注册的字段名；多条路径同时命中时，取通配段最少的，相同时取字典序最小的。
+     *
+     * @param path 路径
+     * @param sensitiveType 脱敏类型
+     * @throws IllegalArgumentException 路径格式不合法
+     */
+    public static void putPath(String path, SensitiveType sensitiveType) {
+        update(current -> {
+            Map<String, SensitiveType> paths = new HashMap<>(current.paths);
+            paths.put(path, sensitiveType);
+            return current.withPaths(paths);
+        });
+    }
+
+    /**
+     * @see #putPath(String, SensitiveType)
+     */
+    public static void putAllPaths(Map<String, SensitiveType> map) {
+        update(current -> {
+            Map<String, SensitiveType> paths = new HashMap<>(current.paths);
+            paths.putAll(map);
+            return current.withPaths(paths);
+        });
+    }
+
+    /**
+     * 原子地替换全部路径规则，字段名注册不变
+     *
+     * @see #putPath(String, SensitiveType)
+     */
+    public static void replaceAllPaths(Map<String, SensitiveType> map) {
+        final Map<String, SensitiveType> paths = new HashMap<>(map);
+        update(current -> current.withPaths(paths));
+    }
+
+    /**
+     * 在非结构化文本（字段名、字段值之外的部分）中识别敏感信息，例如 "user 13800138000 failed login"
+     *
+     * 支持 {@link SensitiveType#MOBILE_PHONE}、{@link SensitiveType#ID_CARD}、{@link SensitiveType#BANK_CARD}、
+     * {@link SensitiveType#EMAIL}，识别到后按对应规则脱敏。默认关闭，不传参数即关闭。
+     *
+     * @param types 需要识别的类型
+     * @throws IllegalArgumentException 包含不支持识别的类型
+     */
+    public static void detectInFreeText(SensitiveType... types) {
+        final Set<SensitiveType> freeTextTypes = EnumSet.noneOf(SensitiveType.class);
+        freeTextTypes.addAll(Arrays.asList(types));
+        FreeTextDetector.of(freeTextTypes);
+        update(current -> current.withFreeTextTypes(freeTextTypes));
+    }
+
+    /**
+     * 是否对字符串值中嵌入的 JSON 递归脱敏，例如 {"body":"{\"mobile\":\"13800138000\"}"}
+     *
+     * 开启后以 '{' 或 '[' 开头的非敏感字符串值会先解码转义，脱敏后再转义输出，
+     * 多层转义的 JSON 逐层处理。输出的转义形式可能与输入不同（例如 \u0041 输出为 A），但语义不变。默认关闭。
+     *
+     * @param enabled 是否开启
+     */
+    public static void maskEmbeddedJson(boolean enabled) {
+        update(current -> current.withEmbeddedJson(enabled));
+    }
+
+    /**
+     * 字段名宽松匹配：忽略大小写和 '_'、'-'，注册 mobileNo 即可命中 mobile_no、MOBILE_NO、mobile-no 和 MobileNo
+     *
+     * 折叠后的字段名预先编译进查找表，扫描时逐字符折叠，不需要调用方 toLowerCase，也不产生对象。
+     * 同时作用于路径规则中的字段名和 {@link #getSensitiveType(String)}。默认关闭，按原样精确匹配。
+     *
+     * @param enabled 是否开启
+     */
+    public static void relaxedKeyMatching(boolean enabled) {
+        update(current -> current.withRelaxedKeys(enabled));
+    }
+
+    /**
+     * 限制 JSON 状态机处理每条输入的工作量，防止单条异常报文拖慢日志线程，参见 {@link MaskingLimits}
+     *
+     * @param limits 上限，{@link MaskingLimits#NONE} 表示不限制（默认）
+     */
+    public static void limits(MaskingLimits limits) {
+        if (limits == null) {
+            throw new IllegalArgumentException("limits must not be null");
+        }
+        update(current -> current.withLimits(limits));
+    }
+
+    public static SensitiveType getSensitiveType(String key) {
+        return snapshot.get().getSensitiveType(key);
+    }
+
+    /**
+     * 不分配对象地查找 chars[start, end) 对应的脱敏类型
+     *
+     * @param chars 字符数组
+     * @param start 字段名起始位置（包含）
+     * @param end 字段名结束位置（不包含）
+     * @return 脱敏类型，未注册返回null
+     */
+    public static SensitiveType getSensitiveType(char[] chars, int start, int end) {
+        return snapshot.get().keyTable.lookup(chars, start, end);
+    }
+
+    /**
+     * 当前快照，需要多次查找时先取快照，保证看到的是同一版本
+     */
+    public static Snapshot snapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * 注册快照发布后的回调，在修改注册表的线程上同步执行，
+     * 可用于把新快照预编译成其他查找结构，避免首次脱敏时才编译。
+     * 注册时会立即以当前快照回调一次。并发修改时回调顺序不保证与版本号一致，需要时按版本号判断新旧。
+     *
+     * @param listener 回调
+     */
+    public static void addListener(Consumer<Snapshot> listener) {
+        listeners.add(listener);
+        listener.accept(snapshot.get());
+    }
+
+    public static void removeListener(Consumer<Snapshot> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 复制-修改-CAS，失败说明有并发修改，基于最新快照重做
+     */
+    private static void update(UnaryOperator<Snapshot> mutation) {
+        Snapshot current;
+        Snapshot next;
+        do {
+            current = snapshot.get();
+            next = mutation.apply(current);
+        } while (!snapshot.compareAndSet(current, next));
+        for (Consumer<Snapshot> listener : listeners) {
+            listener.accept(next);
+        }
+    }
+
+    /**
+     * 不可变的注册表快照，构造时即编译好查找表
+     */
+    public static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(0, Collections.<String, SensitiveType>emptyMap(),
+                Collections.<String, MaskingStrategy>emptyMap(), Collections.<String, SensitiveType>emptyMap(),
+                EnumSet.noneOf(SensitiveType.class), false, false, MaskingLimits.NONE);
+
+        private final long version;
+
+        private final Map<String, SensitiveType> fields;
+
+        private final Map<String, MaskingStrategy> strategies;
+
+        private final Map<String, SensitiveType> paths;
+
+        private final Set<SensitiveType> freeTextTypes;
+
+        private final boolean embeddedJson;
+
+        private final boolean relaxedKeys;
+
+        private final MaskingLimits limits;
+
+        final SensitiveKeyTable keyTable;
+
+        /**
+         * 路径规则，没有路径规则时为 null
+         */
+        final PathAutomaton pathAutomaton;
+
+        /**
+         * 自由文本识别，未开启时为 null
+         */
+        final FreeTextDetector detector;
+
+        /**
+         * 字段名预筛选，不能按字段名判断输入是否需要脱敏时为 null（开启了自由文本识别，有路径规则以 * 结尾，
+         * 或限制了字段名长度、嵌套层数且 fail-closed）
+         */
+        final KeyPrefilter prefilter;
+
+        private Snapshot(long version, Map<String, SensitiveType> fields, Map<String, MaskingStrategy> strategies,
+                         Map<String, SensitiveType> paths, Set<SensitiveType> freeTextTypes, boolean embeddedJson,
+                         boolean relaxedKeys, MaskingLimits limits) {
+            this.version = version;
+            this.embeddedJson = embeddedJson;
+            this.relaxedKeys = relaxedKeys;
+            this.limits = limits;
+            this.fields = Collections.unmodifiableMap(fields);
+            this.strategies = Collections.unmodifiableMap(strategies);
+            this.paths = Collections.unmodifiableMap(paths);
+            this.freeTextTypes = Collections.unmodifiableSet(freeTextTypes);
+            this.pathAutomaton = PathAutomaton.compile(relaxedKeys ? foldPaths(paths) : paths);
+            this.keyTable = SensitiveKeyTable.compile(fields, strategies, pathAutomaton == null
+                    ? Collections.<String>emptyList() : pathAutomaton.symbolNames(), relaxedKeys);
+            this.detector = FreeTextDetector.of(freeTextTypes);
+            this.prefilter = compilePrefilter();
+        }
+
+        /**
+         * 编译一份独立于注册表的快照，供 {@link MaskingEngine.Builder} 使用，传入的集合不再被修改
+         */
+        static Snapshot of(long version, Map<String, SensitiveType> fields, Map<String, MaskingStrategy> strategies,
+                           Map<String, SensitiveType> paths, Set<SensitiveType> freeTextTypes, boolean embeddedJson,
+                           boolean relaxedKeys, MaskingLimits limits) {
+            return new Snapshot(version, fields, strategies, paths, freeTextTypes, embeddedJson, relaxedKeys, limits);
+        }
+
+        /**
+         * 宽松匹配时路径中的字段名同样折叠，与查找表中的符号一致；折叠后相同的路径取字典序最小的
+         */
+        private static Map<String, SensitiveType> foldPaths(Map<String, SensitiveType> paths) {
+            Map<String, SensitiveType> folded = new HashMap<>();
+            for (Map.Entry<String, SensitiveType> entry : new TreeMap<>(paths).entrySet()) {
+                String key = SensitiveKeyTable.foldKey(entry.getKey());
+                if (!folded.containsKey(key)) {
+                    folded.put(key, entry.getValue());
+                }
+            }
+            return folded;
+        }
+
+        private KeyPrefilter compilePrefilter() {
+            if (detector != null || (pathAutomaton != null && pathAutomaton.finalNames() == null)) {
+                return null;
+            }
+            if (limits.failClosed() && (limits.maxKeyLength() != MaskingLimits.UNLIMITED
+                    || limits.maxDepth() != MaskingLimits.UNLIMITED)) {
+                // fail-closed 时超长的字段名和过深的嵌套即使不含注册的字段名也会改变输出
+                return null;
+            }
+            List<String> names = new ArrayList<>(fields.keySet());
+            names.addAll(strategies.keySet());
+            if (pathAutomaton != null) {
+                names.addAll(pathAutomaton.finalNames());
+            }
+            return KeyPrefilter.compile(names, embeddedJson, relaxedKeys);
+        }
+
+        private Snapshot withFields(Map<String, SensitiveType> fields) {
+            return new Snapshot(version + 1, fields, strategies, paths, freeTextTypes, embeddedJson, relaxedKeys, limits);
+        }
+
+        private Snapshot withStrategies(Map<String, MaskingStrategy> strategies) {
+            return new Snapshot(version + 1, fields, strategies, paths, freeTextTypes, embeddedJson, relaxedKeys, limits);
+        }
+
+        private Snapshot withFields(Map<String, SensitiveType> fields, Map<String, MaskingStrategy> strategies) {
+            return new Snapshot(version + 1, fields, strategies, paths, freeTextTypes, embeddedJson, relaxedKeys, limits);
+        }
+
+        private Snapshot cleared() {
+            return new Snapshot(version + 1, new HashMap<String, SensitiveType>(),
+                    new HashMap<String, MaskingStrategy>(), new HashMap<String, SensitiveType>(), freeTextTypes,
+                    embeddedJson, relaxedKeys, limits);
+        }
+
+        private Snapshot withPaths(Map<String, SensitiveType> paths) {
+            return new Snapshot(version + 1, fields, strategies, paths, freeTextTypes, embeddedJson, relaxedKeys, limits);
+        }
+
+        private Snapshot withFreeTextTypes(Set<SensitiveType> types) {
+            return new Snapshot(version + 1, fields, strategies, paths, types, embeddedJson, relaxedKeys, limits);
+        }
+
+        private Snapshot withEmbeddedJson(boolean enabled) {
+            return new Snapshot(version + 1, fields, strategies, paths, freeTextTypes, enabled, relaxedKeys, limits);
+        }
+
+        private Snapshot withRelaxedKeys(boolean enabled) {
+            return new Snapshot(version + 1, fields, strategies, paths, freeTextTypes, embeddedJson, enabled, limits);
+        }
+
+        private Snapshot withLimits(MaskingLimits limits) {
+            return new Snapshot(version + 1, fields, strategies, paths, freeTextTypes, embeddedJson, relaxedKeys, limits);
+        }
+
+        /**
+         * 版本号，每次修改加一
+         */
+        public long version() {
+            return version;
+        }
+
+        /**
+         * 字段名到脱敏类型的只读视图
+         */
+        public Map<String, SensitiveType> fields() {
+            return fields;
+        }
+
+        /**
+         * 字段名到自定义脱敏规则的只读视图
+         */
+        public Map<String, MaskingStrategy> strategies() {
+            return strategies;
+        }
+
+        /**
+         * 路径规则到脱敏类型的只读视图
+         */
+        public Map<String, SensitiveType> paths() {
+            return paths;
+        }
+
+        /**
+         * 在非结构化文本中识别的类型，参见 {@link SensitiveInfoRegistry#detectInFreeText}
+         */
+        public Set<SensitiveType> freeTextTypes() {
+            return freeTextTypes;
+        }
+
+        /**
+         * 是否对嵌入的 JSON 递归脱敏，参见 {@link SensitiveInfoRegistry#maskEmbeddedJson}
+         */
+        public boolean embeddedJson() {
+            return embeddedJson;
+        }
+
+        /**
+         * 是否宽松匹配字段名，参见 {@link SensitiveInfoRegistry#relaxedKeyMatching}
+         */
+        public boolean relaxedKeyMatching() {
+            return relaxedKeys;
+        }
+
+        /**
+         * JSON 状态机的工作量上限，参见 {@link SensitiveInfoRegistry#limits}
+         */
+        public MaskingLimits limits() {
+            return limits;
+        }
+
+        public SensitiveType getSensitiveType(String key) {
+            if (key == null) {
+                return null;
+            }
+            return relaxedKeys ? keyTable.lookup(key) : fields.get(key);
+        }
+
+        /**
+         * 字段名对应的脱敏规则，包括按类型注册的（{@link MaskingStrategy#of(SensitiveType)}）和自定义规则，
+         * 宽松匹配时同样生效。不考虑路径规则
+         *
+         * @param key 字段名
+         * @return 脱敏规则，未注册返回null
+         */
+        public MaskingStrategy getStrategy(String key) {
+            if (key == null) {
+                return null;
+            }
+            return keyTable.strategy(keyTable.find(key));
+        }
+    }
+}
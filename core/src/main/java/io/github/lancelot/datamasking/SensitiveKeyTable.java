@@ -0,0 +1,399 @@
+package io.github.lancelot.datamasking;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 编译后的敏感字段查找表
+ *
+ * 将注册表中的字段名编译成不可变的扁平字典树(trie)，可以直接用 (char[], start, end)
+ * 探测，查找过程不产生任何对象。大多数非敏感字段在前一两个字符就会失配返回。
+ *
+ * 节点 i 的出边保存在 [edgeStart[i], edgeStart[i+1]) 区间内，按字符升序排列。
+ *
+ * 每个节点同时保存编译好的 {@link MaskingStrategy}，内置类型和自定义规则统一按同一种描述输出。
+ *
+ * 同一棵树里还编译了路径规则中出现的字段名，每个字段名对应一个符号编号，供 {@link PathAutomaton}
+ * 使用；查找一次字段名即可同时得到脱敏类型和符号。
+ *
+ * 宽松匹配时编译的是折叠后的字段名（忽略大小写和 '_'、'-'，参见 {@link #fold(char)}），
+ * 查找时逐字符折叠后走同一棵树，mobile、Mobile、MOBILE、mobile_no、mobileNo 命中同一个节点，也不产生对象。
+ * 多个字段名折叠后相同时，自定义规则优先，同类之间取字典序最小的字段名的规则。
+ */
+final class SensitiveKeyTable {
+
+    static final SensitiveKeyTable EMPTY = compile(new TreeMap<String, SensitiveType>());
+
+    private static final int LINEAR_SEARCH_THRESHOLD = 8;
+
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    private final SensitiveType[] types;
+    private final MaskingStrategy[] strategies;
+    private final int[] symbols;
+
+    /**
+     * 是否宽松匹配
+     */
+    private final boolean folded;
+
+    /**
+     * 编译进来的字段名的最大 UTF-8 字节数
+     */
+    private final int longestKey;
+
+    private SensitiveKeyTable(int[] edgeStart, char[] edgeChars, int[] edgeTargets, SensitiveType[] types,
+                              MaskingStrategy[] strategies, int[] symbols, boolean folded, int longestKey) {
+        this.folded = folded;
+        this.longestKey = longestKey;
+        this.edgeStart = edgeStart;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.types = types;
+        this.strategies = strategies;
+        this.symbols = symbols;
+    }
+
+    /**
+     * 将字段名与脱敏类型的映射编译成查找表
+     *
+     * @param map 字段名 -> 脱敏类型
+     * @return 不可变查找表
+     */
+    static SensitiveKeyTable compile(Map<String, SensitiveType> map) {
+        return compile(map, Collections.<String, MaskingStrategy>emptyMap(), Collections.<String>emptyList());
+    }
+
+    /**
+     * 将字段名与脱敏类型、自定义规则的映射，以及路径规则中的字段名编译成查找表
+     *
+     * @param map 字段名 -> 脱敏类型
+     * @param customs 字段名 -> 自定义规则，同名时优先于 map
+     * @param symbolNames 路径规则中的字段名，第 i 个的符号为 i + 1，其他字段名的符号为 0
+     * @return 不可变查找表
+     */
+    static SensitiveKeyTable compile(Map<String, SensitiveType> map, Map<String, MaskingStrategy> customs,
+                                     List<String> symbolNames) {
+        return compile(map, customs, symbolNames, false);
+    }
+
+    /**
+     * @param folded 是否宽松匹配，为 true 时 symbolNames 中折叠后相同的字段名只保留第一个的符号
+     * @see #compile(Map, Map, List)
+     */
+    static SensitiveKeyTable compile(Map<String, SensitiveType> map, Map<String, MaskingStrategy> customs,
+                                     List<String> symbolNames, boolean folded) {
+        Node root = new Node();
+        int longestKey = 0;
+        for (String key : map.keySet()) {
+            longestKey = Math.max(longestKey, utf8Length(key));
+        }
+        for (String key : customs.keySet()) {
+            longestKey = Math.max(longestKey, utf8Length(key));
+        }
+        for (String key : symbolNames) {
+            longestKey = Math.max(longestKey, utf8Length(key));
+        }
+        // 宽松匹配时按字典序插入，折叠后相同的字段名只有第一个生效
+        for (Map.Entry<String, SensitiveType> entry : (folded ? new TreeMap<>(map) : map).entrySet()) {
+            Node node = root.descendant(folded ? foldKey(entry.getKey()) : entry.getKey());
+            if (node.type == null) {
+                node.type = entry.getValue();
+                node.strategy = MaskingStrategy.of(entry.getValue());
+            }
+        }
+        for (Map.Entry<String, MaskingStrategy> entry : (folded ? new TreeMap<>(customs) : customs).entrySet()) {
+            Node node = root.descendant(folded ? foldKey(entry.getKey()) : entry.getKey());
+            if (!node.custom) {
+                node.custom = true;
+                node.strategy = entry.getValue();
+                node.type = entry.getValue().type;
+            }
+        }
+        for (int i = 0; i < symbolNames.size(); i++) {
+            Node node = root.descendant(folded ? foldKey(symbolNames.get(i)) : symbolNames.get(i));
+            if (node.symbol == 0) {
+                node.symbol = i + 1;
+            }
+        }
+
+        // 广度优先展开，保证每个节点的出边在数组中连续
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(root);
+        int edgeCount = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            node.id = i;
+            edgeCount += node.children.size();
+            nodes.addAll(node.children.values());
+        }
+
+        int[] edgeStart = new int[nodes.size() + 1];
+        char[] edgeChars = new char[edgeCount];
+        int[] edgeTargets = new int[edgeCount];
+        SensitiveType[] types = new SensitiveType[nodes.size()];
+        MaskingStrategy[] strategies = new MaskingStrategy[nodes.size()];
+        int[] symbols = new int[nodes.size()];
+        int edge = 0;
+        for (Node node : nodes) {
+            edgeStart[node.id] = edge;
+            types[node.id] = node.type;
+            strategies[node.id] = node.strategy;
+            symbols[node.id] = node.symbol;
+            for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+                edgeChars[edge] = child.getKey();
+                edgeTargets[edge] = child.getValue().id;
+                edge++;
+            }
+        }
+        edgeStart[nodes.size()] = edge;
+        return new SensitiveKeyTable(edgeStart, edgeChars, edgeTargets, types, strategies, symbols, folded,
+                longestKey);
+    }
+
+    /**
+     * 最长的字段名的 UTF-8 字节数（不少于字符数），{@link MaskingLimits#maxKeyLength()} 不会小于它，
+     * 注册过的字段名总能匹配
+     */
+    int longestKey() {
+        return longestKey;
+    }
+
+    private static int utf8Length(String key) {
+        int length = 0;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            length += c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+        }
+        return length;
+    }
+
+    /**
+     * 宽松匹配的字符折叠：ASCII 大写转小写，其他字符按 {@link Character#toLowerCase(char)}。
+     * '_' 和 '-' 在查找时直接跳过，不经过这里
+     */
+    static char fold(char c) {
+        if (c < 0x80) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    static boolean isSeparator(char c) {
+        return c == '_' || c == '-';
+    }
+
+    /**
+     * 折叠后的字段名，只在编译时使用
+     */
+    static String foldKey(String key) {
+        StringBuilder sb = new StringBuilder(key.length());
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (!isSeparator(c)) {
+                sb.append(fold(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 查找 chars[start, end) 对应的脱敏类型
+     *
+     * @return 脱敏类型，未注册返回null
+     */
+    SensitiveType lookup(char[] chars, int start, int end) {
+        return type(find(chars, start, end));
+    }
+
+    /**
+     * 查找 chars[start, end) 对应的节点，用 {@link #type(int)}、{@link #symbol(int)} 取结果
+     *
+     * @return 节点编号，不存在返回 -1
+     */
+    int find(char[] chars, int start, int end) {
+        if (folded) {
+            return findFolded(chars, start, end);
+        }
+        int node = 0;
+        for (int i = start; i < end; i++) {
+            node = next(node, chars[i]);
+            if (node < 0) {
+                return -1;
+            }
+        }
+        return node;
+    }
+
+    private int findFolded(char[] chars, int start, int end) {
+        int node = 0;
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (isSeparator(c)) {
+                continue;
+            }
+            node = next(node, fold(c));
+            if (node < 0) {
+                return -1;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * @param node {@link #find} 的结果
+     * @return 脱敏类型，未注册返回null
+     */
+    SensitiveType type(int node) {
+        return node < 0 ? null : types[node];
+    }
+
+    /**
+     * @param node {@link #find} 的结果
+     * @return 脱敏规则，未注册返回null
+     */
+    MaskingStrategy strategy(int node) {
+        return node < 0 ? null : strategies[node];
+    }
+
+    /**
+     * @param node {@link #find} 的结果
+     * @return 路径规则中的符号，未出现在路径规则中返回0
+     */
+    int symbol(int node) {
+        return node < 0 ? 0 : symbols[node];
+    }
+
+    SensitiveType lookup(CharSequence key) {
+        return type(find(key));
+    }
+
+    /**
+     * 查找 key 对应的节点
+     *
+     * @return 节点编号，不存在返回 -1
+     */
+    int find(CharSequence key) {
+        int node = 0;
+        for (int i = 0; i < key.length(); i++) {
+            node = advance(node, key.charAt(i));
+            if (node < 0) {
+                return -1;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * 查找 UTF-8 编码的 bytes[start, end) 对应的脱敏类型，边查找边解码，不产生对象
+     *
+     * @return 脱敏类型，未注册或编码不合法返回null
+     */
+    SensitiveType lookupUtf8(ByteBuffer bytes, int start, int end) {
+        return type(findUtf8(bytes, start, end));
+    }
+
+    /**
+     * 查找 UTF-8 编码的 bytes[start, end) 对应的节点
+     *
+     * @return 节点编号，不存在或编码不合法返回 -1
+     */
+    int findUtf8(ByteBuffer bytes, int start, int end) {
+        int node = 0;
+        int i = start;
+        while (i < end && node >= 0) {
+            int b = bytes.get(i);
+            if (b >= 0) {
+                node = advance(node, (char) b);
+                i++;
+            } else if ((b & 0xE0) == 0xC0 && i + 1 < end) {
+                node = advance(node, (char) (((b & 0x1F) << 6) | (bytes.get(i + 1) & 0x3F)));
+                i += 2;
+            } else if ((b & 0xF0) == 0xE0 && i + 2 < end) {
+                node = advance(node, (char) (((b & 0x0F) << 12) | ((bytes.get(i + 1) & 0x3F) << 6)
+                        | (bytes.get(i + 2) & 0x3F)));
+                i += 3;
+            } else if ((b & 0xF8) == 0xF0 && i + 3 < end) {
+                int codePoint = ((b & 0x07) << 18) | ((bytes.get(i + 1) & 0x3F) << 12)
+                        | ((bytes.get(i + 2) & 0x3F) << 6) | (bytes.get(i + 3) & 0x3F);
+                node = advance(node, Character.highSurrogate(codePoint));
+                if (node >= 0) {
+                    node = advance(node, Character.lowSurrogate(codePoint));
+                }
+                i += 4;
+            } else {
+                return -1;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * 宽松匹配时跳过分隔符、折叠后再查找
+     */
+    private int advance(int node, char c) {
+        if (folded) {
+            if (isSeparator(c)) {
+                return node;
+            }
+            c = fold(c);
+        }
+        return next(node, c);
+    }
+
+    private int next(int node, char c) {
+        int low = edgeStart[node];
+        int high = edgeStart[node + 1] - 1;
+        if (high - low < LINEAR_SEARCH_THRESHOLD) {
+            for (int i = low; i <= high; i++) {
+                if (edgeChars[i] == c) {
+                    return edgeTargets[i];
+                }
+            }
+            return -1;
+        }
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = edgeChars[mid];
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+
+    private static final class Node {
+        private final TreeMap<Character, Node> children = new TreeMap<>();
+        private SensitiveType type;
+        private MaskingStrategy strategy;
+        private int symbol;
+        private boolean custom;
+        private int id;
+
+        private Node descendant(String key) {
+            Node node = this;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.child(key.charAt(i));
+            }
+            return node;
+        }
+
+        private Node child(char c) {
+            Node child = children.get(c);
+            if (child == null) {
+                child = new Node();
+                children.put(c, child);
+            }
+            return child;
+        }
+    }
+}
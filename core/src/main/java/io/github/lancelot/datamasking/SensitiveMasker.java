@@ -0,0 +1,22 @@
+package io.github.lancelot.datamasking;
+
+/**
+ * 脱敏规则 SPI
+ *
+ * 直接把 chars[start, end) 的脱敏结果追加到输出缓冲区，不创建中间字符串。
+ * 内置规则见 {@link SensitiveType}。
+ *
+ * @author lancelot
+ */
+public interface SensitiveMasker {
+
+	/**
+	 * 把 chars[start, end) 脱敏后追加到 out
+	 *
+	 * @param chars 字符数组
+	 * @param start 值起始位置（包含）
+	 * @param end 值结束位置（不包含）
+	 * @param out 输出缓冲区
+	 */
+	void mask(char[] chars, int start, int end, StringBuilder out);
+}
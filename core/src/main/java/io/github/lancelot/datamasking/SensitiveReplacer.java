@@ -0,0 +1,210 @@
+package io.github.lancelot.datamasking;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 敏感信息替换器
+ *
+ * ┌───────────────────────────────────────────────────────┐
+ * │               敏感信息替换器状态机                     │
+ * ├─────────────┬─────────────┬───────────┬───────────────┤
+ * │   当前状态   │   触发条件   │   动作    │   下一状态    │
+ * ├─────────────┼─────────────┼───────────┼───────────────┤
+ * │ 初始(START)  │ 遇到 '"'     │ 开始记录键│ 键解析中(IN_KEY)│
+ * │             │ 其他字符     │ 直接输出  │ (保持状态)     │
+ * ├─────────────┼─────────────┼───────────┼───────────────┤
+ * │ 键解析中      │ 遇到 '"'     │ 结束记录键│ 键结束(AFTER_KEY)│
+ * │ (IN_KEY)    │ 其他字符     │ 记录键字符│ (保持状态)     │
+ * ├─────────────┼─────────────┼───────────┼───────────────┤
+ * │ 键结束       │ 遇到 :/=     │ 直接输出  │ 值开始前       │
+ * │ (AFTER_KEY) │ 其他字符     │ 直接输出  │ (保持状态)     │
+ * ├─────────────┼─────────────┼───────────┼───────────────┤
+ * │ 值开始前      │ 空白字符     │ 跳过空白符│ (保持状态)     │
+ * │(BEFORE_VALUE)│ 遇到 '"'     │ 直接输出  │ 字符串值解析中  │
+ * │             │ 遇到 {/[     │ 直接输出  │ 初始(START)    │
+ * │             │ 其他字符     │ 开始记录值│ 非字符串值解析中│
+ * ├─────────────┼─────────────┼───────────┼───────────────┤
+ * │ 字符串值     │ 遇到 '"'     │ 执行脱敏  │ 值处理完成     │
+ * │ 解析中       │ 其他字符     │ 记录值字符│ (保持状态)     │
+ * ├─────────────┼─────────────┼───────────┼───────────────┤
+ * │ 非字符串值    │ 遇到 ,/}     │ 执行脱敏  │ 初始(START)    │
+ * │ 解析中       │ 其他字符     │ 记录值字符│ (保持状态)     │
+ * ├─────────────┼─────────────┼───────────┼───────────────┤
+ * │ 值处理完成    │ 任意字符     │ 重置状态  │ 初始(START)    │
+ * └─────────────┴─────────────┴───────────┴───────────────┘
+ *
+ * 关键动作说明：
+ * 1. "执行脱敏" = 检查敏感字段注册表 + 按规则转换值
+ * 2. "记录键/值字符" = 将字符追加到当前键/值缓冲区
+ * 3. "跳过空白符" = 忽略 : 后的空格/换行等空白字符
+ *
+ * 状态机由 {@link SensitiveScanner} 实现，状态可以跨越输入分段保留，
+ * 因此既可以处理完整字符串，也可以流式处理 {@link Reader}。
+ *
+ * 静态方法使用全局注册表的规则，委托给默认引擎 {@link MaskingEngine#global()}；
+ * 需要同时使用多套规则时用 {@link MaskingEngine#builder()} 创建各自的引擎。
+ */
+public class SensitiveReplacer {
+
+    public static String deSensitiveString(String json) {
+        return MaskingEngine.global().deSensitiveString(json);
+    }
+
+    /**
+     * 按指定格式脱敏，例如 key=value 日志、查询串和 XML 报文
+     *
+     * @param input 输入，null 或空串原样返回
+     * @param format 输入的格式
+     * @return 脱敏结果
+     * @see MaskingFormat
+     */
+    public static String deSensitiveString(String input, MaskingFormat format) {
+        return MaskingEngine.global().deSensitiveString(input, format);
+    }
+
+    /**
+     * 脱敏结果直接追加到调用方的缓冲区，复用当前线程的上下文，不产生中间对象
+     *
+     * @param input 输入，null 视为空
+     * @param out 输出缓冲区，不能与 input 是同一个对象
+     */
+    public static void deSensitive(CharSequence input, StringBuilder out) {
+        MaskingEngine.global().deSensitive(input, out);
+    }
+
+    /**
+     * 按指定格式脱敏，结果直接追加到调用方的缓冲区
+     *
+     * @param input 输入，null 视为空
+     * @param format 输入的格式
+     * @param out 输出缓冲区，不能与 input 是同一个对象
+     */
+    public static void deSensitive(CharSequence input, MaskingFormat format, StringBuilder out) {
+        MaskingEngine.global().deSensitive(input, format, out);
+    }
+
+    /**
+     * 批量脱敏，所有输入复用当前线程的暂存区和输出缓冲区
+     *
+     * @param inputs 输入
+     * @return 与输入一一对应的脱敏结果
+     * @see MaskingContext
+     */
+    public static List<String> deSensitiveBatch(List<? extends CharSequence> inputs) {
+        return MaskingEngine.global().deSensitiveBatch(inputs);
+    }
+
+    /**
+     * 批量脱敏，所有输入复用当前线程的暂存区和输出缓冲区
+     *
+     * @param inputs 输入
+     * @return 与输入一一对应的脱敏结果
+     * @see MaskingContext
+     */
+    public static String[] deSensitiveBatch(CharSequence[] inputs) {
+        return MaskingEngine.global().deSensitiveBatch(inputs);
+    }
+
+    /**
+     * 使用公共 ForkJoinPool 并行脱敏，结果与 {@link #deSensitiveString(String)} 完全一致
+     *
+     * @see #deSensitiveStringParallel(String, ForkJoinPool)
+     */
+    public static String deSensitiveStringParallel(String json) {
+        return deSensitiveStringParallel(json, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 并行脱敏，适用于数百MB的单个 JSON 文档
+     *
+     * 在字符串之外的 ',' 处切分，各段在 pool 中推测执行后按顺序校验拼接，
+     * 推测失败的分段会重新处理，结果与 {@link #deSensitiveString(String)} 完全一致。
+     *
+     * @param json 输入
+     * @param pool 执行分段任务的线程池
+     * @return 脱敏结果
+     */
+    public static String deSensitiveStringParallel(String json, ForkJoinPool pool) {
+        return MaskingEngine.global().deSensitiveStringParallel(json, pool);
+    }
+
+    /**
+     * 流式脱敏，适用于数MB的请求/响应报文
+     *
+     * 按块读取输入，每块处理完立即写出，只缓存当前未结束的字段名和敏感值，
+     * 内存占用与最长的值成正比，而不是与整个报文成正比。不会关闭输入输出流。
+     *
+     * @param in 输入
+     * @param out 输出
+     * @throws IOException 读写失败
+     */
+    public static void deSensitive(Reader in, Writer out) throws IOException {
+        deSensitive(in, out, MaskingFormat.JSON);
+    }
+
+    /**
+     * 按指定格式流式脱敏，参见 {@link #deSensitive(Reader, Writer)}
+     *
+     * @param in 输入
+     * @param out 输出
+     * @param format 输入的格式，流式处理时不能是 {@link MaskingFormat#AUTO}
+     * @throws IOException 读写失败
+     */
+    public static void deSensitive(Reader in, Writer out, MaskingFormat format) throws IOException {
+        MaskingEngine.global().deSensitive(in, out, format);
+    }
+
+    /**
+     * 直接对 UTF-8 字节脱敏，不经过 String 解码/编码
+     *
+     * @param utf8 UTF-8 编码的输入
+     * @return 脱敏结果，position 为0，limit 为结果长度
+     */
+    public static ByteBuffer deSensitive(byte[] utf8) {
+        if (utf8 == null) {
+            return null;
+        }
+        return deSensitive(ByteBuffer.wrap(utf8));
+    }
+
+    /**
+     * 直接对 UTF-8 字节脱敏，处理 [position, limit) 区间，不改变 utf8 的 position 和 limit
+     *
+     * @param utf8 UTF-8 编码的输入，可以是堆内或直接内存
+     * @return 脱敏结果，position 为0，limit 为结果长度
+     */
+    public static ByteBuffer deSensitive(ByteBuffer utf8) {
+        return MaskingEngine.global().deSensitive(utf8);
+    }
+
+    /**
+     * 脱敏 UTF-8 文本文件，使用可用处理器数量的工作线程
+     *
+     * @see #deSensitiveFile(Path, Path, int)
+     */
+    public static long deSensitiveFile(Path input, Path output) throws IOException {
+        return deSensitiveFile(input, output, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 脱敏 UTF-8 文本文件，适用于数GB的离线日志
+     *
+     * 输入通过内存映射读取，在换行处切分后由多个线程并行处理，经直接内存缓冲区按顺序写出。
+     * 内存占用与文件大小无关。每行单独处理，结果与逐行调用 {@link #deSensitiveString(String)} 一致。
+     *
+     * @param input 输入文件
+     * @param output 输出文件，已存在时覆盖，不能与 input 相同
+     * @param threads 工作线程数
+     * @return 输出的字节数
+     * @throws IOException 读写失败
+     */
+    public static long deSensitiveFile(Path input, Path output, int threads) throws IOException {
+        return MaskingEngine.global().deSensitiveFile(input, output, threads);
+    }
+}
@@ -0,0 +1,728 @@
+package io.github.lancelot.datamasking;
+
+import java.nio.CharBuffer;
+
+/**
+ * 敏感信息替换器状态机的可续接实现，状态转换见 {@link SensitiveReplacer}
+ *
+ * 输入可以分多段喂入，状态在段与段之间保留。字段名在结束引号处就完成查找，
+ * 非敏感字段的值直接输出；只有跨越分段的字段名和敏感字段的值会被缓存，
+ * 因此内存占用只与最长的字段名/值有关，与输入总长度无关。
+ *
+ * 开启自由文本识别时，START 状态下的文本交给 {@link FreeTextDetector}，分段结尾处可能未完的
+ * 候选同样缓存到下一段。
+ *
+ * 注册了路径规则时，START 状态还要在括号处停下，由 {@link PathTracker} 维护嵌套栈，
+ * 字段名结束时同时按路径规则和字段名确定脱敏类型，路径规则优先。
+ *
+ * 字段名和字符串值中的 \" 不会结束字符串。含转义的敏感值先解码再脱敏，脱敏结果重新转义后输出。
+ * 开启嵌入 JSON 脱敏时，以 '{' 或 '[' 开头的非敏感字符串值解码后交给下一层扫描器递归脱敏。
+ *
+ * 设置了 {@link MaskingLimits} 时，超长的字段名和值在超过上限处就停止缓存，缓存不会超过上限；
+ * 超过输入长度上限后不再处理后续分段，结束时追加截断标记。限制嵌套层数时与路径规则一样在括号处停下计数。
+ *
+ * 非线程安全，同一时刻只能处理一个输入，可以通过 {@link #reset(SensitiveInfoRegistry.Snapshot)} 复用。
+ */
+final class SensitiveScanner implements FormatScanner {
+
+    private enum State {
+        START, IN_KEY, AFTER_KEY, BEFORE_VALUE, IN_VALUE, IN_STRING_VALUE, AFTER_VALUE
+    }
+
+    /**
+     * 复用时保留的缓存上限，超过后释放，避免一次超长的值让缓存常驻
+     */
+    private static final int MAX_RETAINED_PENDING = 64 * 1024;
+
+    /**
+     * 嵌入 JSON 的最大递归层数，更深的按普通字符串处理
+     */
+    private static final int MAX_EMBEDDED_DEPTH = 8;
+
+    private SensitiveInfoRegistry.Snapshot snapshot;
+
+    private SensitiveKeyTable keyTable;
+
+    /**
+     * 自由文本识别，未开启时为 null
+     */
+    private FreeTextDetector detector;
+
+    /**
+     * 是否维护路径规则的嵌套栈，只有注册了路径规则时才维护
+     */
+    private boolean trackPaths;
+
+    private PathTracker paths;
+
+    /**
+     * 是否在括号处停下计算嵌套层数：注册了路径规则或限制了嵌套层数
+     */
+    private boolean trackDepth;
+
+    /**
+     * 当前嵌套层数，不跟踪时为0
+     */
+    private int depth;
+
+    private MaskingLimits limits;
+
+    private int maxKeyLength;
+
+    private int maxValueLength;
+
+    private int maxDepth;
+
+    /**
+     * 本次输入还能处理的字符数，不限制时为 {@link MaskingLimits#UNLIMITED}。只有最外层扫描器限制输入长度
+     */
+    private int remaining;
+
+    /**
+     * 输入已被截断，之后的分段直接丢弃，结束时追加截断标记
+     */
+    private boolean truncated;
+
+    /**
+     * 当前字段名超过上限，直到结束引号都不缓存；fail-closed 时超出部分不输出
+     */
+    private boolean keyOverflow;
+
+    /**
+     * 下一个值整体替换为 {@link MaskingLimits#REDACTED}（字段名超长时）
+     */
+    private boolean redactValue;
+
+    /**
+     * 当前值超过上限或已被整体替换，直到值结束都不输出
+     */
+    private boolean skipValue;
+
+    /**
+     * 本扫描器所在的嵌入层数，最外层为0
+     */
+    private final int embeddedDepth;
+
+    /**
+     * 是否识别嵌入的 JSON
+     */
+    private boolean embeddedJson;
+
+    /**
+     * 下一个字符是字符串值的第一个字符，需要判断是否为嵌入的 JSON
+     */
+    private boolean probeEmbedded;
+
+    /**
+     * 当前字符串值是嵌入的 JSON，与敏感值一样缓存到结束引号
+     */
+    private boolean embedded;
+
+    /**
+     * 处理嵌入 JSON 的下一层扫描器，按需创建
+     */
+    private SensitiveScanner child;
+
+    /**
+     * 当前字符串已读部分是否以奇数个反斜杠结尾，用于判断下一段开头的引号是否被转义
+     */
+    private boolean escapeCarry;
+
+    /**
+     * 本次调用的指标计数，未开启 {@link MaskingMetrics} 时为 null
+     */
+    private MaskingMetrics.Tally tally;
+
+    private State state = State.START;
+
+    /**
+     * 当前字段名对应的脱敏规则，在字段名结束时确定
+     */
+    private MaskingStrategy valueStrategy;
+
+    /**
+     * 跨越分段的字段名或敏感值
+     */
+    private char[] pending;
+    private int pendingLength;
+
+    SensitiveScanner(SensitiveInfoRegistry.Snapshot snapshot) {
+        this(snapshot, 0);
+    }
+
+    SensitiveScanner(SensitiveInfoRegistry.Snapshot snapshot, int embeddedDepth) {
+        this.embeddedDepth = embeddedDepth;
+        reset(snapshot);
+    }
+
+    /**
+     * 重置为初始状态，以便处理下一个输入
+     */
+    @Override
+    public void reset(SensitiveInfoRegistry.Snapshot snapshot) {
+        this.snapshot = snapshot;
+        this.keyTable = snapshot.keyTable;
+        this.embeddedJson = snapshot.embeddedJson() && embeddedDepth < MAX_EMBEDDED_DEPTH;
+        this.detector = snapshot.detector;
+        this.trackPaths = snapshot.pathAutomaton != null;
+        if (trackPaths) {
+            if (paths == null) {
+                paths = new PathTracker();
+            }
+            paths.reset(snapshot.pathAutomaton);
+        }
+        this.limits = snapshot.limits();
+        this.maxKeyLength = Math.max(limits.maxKeyLength(), keyTable.longestKey());
+        this.maxValueLength = limits.maxValueLength();
+        this.maxDepth = limits.maxDepth();
+        this.trackDepth = trackPaths || maxDepth != MaskingLimits.UNLIMITED;
+        state = State.START;
+        valueStrategy = null;
+        probeEmbedded = false;
+        embedded = false;
+        escapeCarry = false;
+        pendingLength = 0;
+        restartLimits();
+        tally = embeddedDepth == 0 ? MaskingMetrics.startTally(tally) : null;
+        if (pending != null && pending.length > MAX_RETAINED_PENDING) {
+            pending = null;
+        }
+    }
+
+    /**
+     * 处理 chars[off, end)，结果追加到 out
+     */
+    @Override
+    public void scan(char[] chars, int off, int end, StringBuilder out) {
+        if (truncated) {
+            return;
+        }
+        if (remaining != MaskingLimits.UNLIMITED) {
+            if (end - off > remaining) {
+                end = off + remaining;
+                truncated = true;
+                exceeded();
+            }
+            remaining -= end - off;
+        }
+        if (tally != null) {
+            tally.chars += end - off;
+        }
+        State currentState = state;
+        if (currentState == State.START && pendingLength > 0) {
+            // 上一段结尾未完的自由文本候选，接上本段开头的部分后一起识别
+            int tokenEnd = FreeTextDetector.tokenEnd(chars, off, end);
+            appendPending(chars, off, tokenEnd);
+            if (tokenEnd == end && pendingLength < FreeTextDetector.MAX_TOKEN_LENGTH) {
+                return;
+            }
+            countDetected(detector.mask(pending, 0, pendingLength, out));
+            pendingLength = 0;
+            off = tokenEnd;
+        }
+        // 本段内字段名/敏感值的起始位置，-1 表示不在本段内开始
+        // 当前字符串已读部分是否以奇数个反斜杠结尾
+        boolean carry = escapeCarry;
+        int keyStart = currentState == State.IN_KEY ? off : -1;
+        int valueStart = (currentState == State.IN_VALUE || currentState == State.IN_STRING_VALUE) ? off : -1;
+
+        for (int i = off; i < end; i++) {
+            char c = chars[i];
+
+            switch (currentState) {
+                case START: {
+                    // 快速跳到下一个引号（跟踪嵌套时还有括号），中间的字符整段输出
+                    int quote = trackDepth ? FastScan.indexOfStructural(chars, i, end)
+                            : FastScan.indexOf(chars, '"', i, end);
+                    if (detector == null) {
+                        out.append(chars, i, quote - i);
+                    } else if (quote < end) {
+                        countDetected(detector.mask(chars, i, quote, out));
+                    } else {
+                        int tail = Math.max(FreeTextDetector.tokenStart(chars, i, end),
+                                end - FreeTextDetector.MAX_TOKEN_LENGTH);
+                        countDetected(detector.mask(chars, i, tail, out));
+                        appendPending(chars, tail, end);
+                    }
+                    if (quote < end && chars[quote] != '"') {
+                        if (!bracket(chars[quote], false)) {
+                            i = end;
+                            break;
+                        }
+                        out.append(chars[quote]);
+                    } else if (quote < end) {
+                        keyStart = quote + 1; // 跳过开头的引号
+                        carry = false;
+                        currentState = State.IN_KEY;
+                        out.append('"');
+                    }
+                    i = quote;
+                    break;
+                }
+
+                case IN_KEY: {
+                    int quote = FastScan.indexOf(chars, '"', i, end);
+                    if (!keyOverflow && pendingLength + quote - keyStart > maxKeyLength) {
+                        // 字段名超过上限：不再缓存，直到结束引号都按不匹配的字段名处理；fail-closed 时超出部分不输出
+                        int limit = Math.max(i, keyStart + maxKeyLength - pendingLength);
+                        pendingLength = 0;
+                        keyOverflow = true;
+                        exceeded();
+                        if (limits.failClosed()) {
+                            out.append(chars, i, limit - i);
+                            i = limit - 1;
+                            break;
+                        }
+                    }
+                    boolean hidden = keyOverflow && limits.failClosed();
+                    boolean escaped = quote < end && mayBeEscaped(chars, keyStart, quote, carry)
+                            && JsonEscapes.isEscaped(chars, keyStart, quote, carry);
+                    if (!hidden) {
+                        out.append(chars, i, quote - i);
+                    }
+                    if (escaped) {
+                        if (!hidden) {
+                            out.append('"');
+                        }
+                    } else if (quote < end && keyOverflow) {
+                        keyOverflow = false;
+                        if (hidden) {
+                            redactValue = true;
+                        } else {
+                            valueStrategy = overlongKey();
+                        }
+                        currentState = State.AFTER_KEY;
+                        out.append('"');
+                    } else if (quote < end) {
+                        valueStrategy = lookupKey(chars, keyStart, quote);
+                        currentState = State.AFTER_KEY;
+                        out.append('"');
+                    }
+                    i = quote;
+                    break;
+                }
+
+                case AFTER_KEY:
+                    if (c == ':' || c == '=') {
+                        currentState = State.BEFORE_VALUE;
+                        out.append(c);
+                    } else if (Character.isWhitespace(c)) {
+                        out.append(c);
+                    } else {
+                        // 后面不是冒号，引号里的不是字段名（例如数组中的字符串），交回 START 处理
+                        if (tally != null && c != ',' && c != ']' && c != '}') {
+                            tally.malformed++;
+                        }
+                        valueStrategy = null;
+                        redactValue = false;
+                        currentState = State.START;
+                        i--;
+                    }
+                    break;
+
+                case BEFORE_VALUE:
+                    // 跳过冒号后的空白字符
+                    if (Character.isWhitespace(c)) {
+                        out.append(c);
+                    } else if (c == '"') {
+                        valueStart = i + 1; // 跳过开头的引号
+                        carry = false;
+                        if (embeddedJson) {
+                            probeEmbedded = valueStrategy == null && !redactValue;
+                        }
+                        currentState = State.IN_STRING_VALUE;
+                        out.append(c);
+                        redactNext(out);
+                    } else if (c == '{' || c == '[') {
+                        //处理 [或者{或者 [{这种开始嵌套结构
+                        valueStrategy = null;
+                        redactValue = false;
+                        currentState = State.START;
+                        if (!bracket(c, true)) {
+                            i = end;
+                            break;
+                        }
+                        out.append(c);
+                    } else {
+                        valueStart = i;
+                        currentState = State.IN_VALUE;
+                        redactNext(out);
+                        i--; // 当前字符属于值，交给 IN_VALUE 处理
+                    }
+                    break;
+
+                case IN_STRING_VALUE: {
+                    if (probeEmbedded) {
+                        probeEmbedded = false;
+                        embedded = c == '{' || c == '[';
+                    }
+                    int quote = FastScan.indexOf(chars, '"', i, end);
+                    boolean escaped = quote < end && mayBeEscaped(chars, valueStart, quote, carry)
+                            && JsonEscapes.isEscaped(chars, valueStart, quote, carry);
+                    // 被转义的引号属于值，一起计入长度
+                    int stop = escaped ? quote + 1 : quote;
+                    if ((valueStrategy != null || embedded) && pendingLength + stop - valueStart > maxValueLength) {
+                        overflowValue(chars, valueStart, embedded ? i : stop, true, out);
+                    }
+                    if (valueStrategy == null && !embedded && !skipValue) {
+                        out.append(chars, i, stop - i);
+                    }
+                    if (quote < end && !escaped) {
+                        processValue(chars, valueStart, quote, true, out);
+                        skipValue = false;
+                        out.append('"');
+                        currentState = State.AFTER_VALUE;
+                    }
+                    i = quote;
+                    break;
+                }
+
+                case IN_VALUE:
+                    if (c == ',' || c == '}') {
+                        processValue(chars, valueStart, i, false, out);
+                        skipValue = false;
+                        currentState = State.START;
+                        i--; // 分隔符交给 START 处理
+                    } else if (valueStrategy == null) {
+                        if (!skipValue) {
+                            out.append(c);
+                        }
+                    } else if (pendingLength + i + 1 - valueStart > maxValueLength) {
+                        overflowValue(chars, valueStart, i, false, out);
+                    }
+                    break;
+
+                case AFTER_VALUE:
+                    currentState = State.START;
+                    i--;
+                    break;
+            }
+        }
+
+        // 分段结束时缓存未完成的字段名或敏感值
+        if (currentState == State.IN_KEY) {
+            escapeCarry = JsonEscapes.isEscaped(chars, keyStart, end, carry);
+            if (!keyOverflow) {
+                appendPending(chars, keyStart, end);
+            }
+        } else if (currentState == State.IN_STRING_VALUE) {
+            escapeCarry = JsonEscapes.isEscaped(chars, valueStart, end, carry);
+            if ((valueStrategy != null || embedded) && pendingLength + end - valueStart > maxValueLength) {
+                overflowValue(chars, valueStart, end, true, out);
+            }
+            if (valueStrategy != null || embedded) {
+                appendPending(chars, valueStart, end);
+            }
+        } else if (currentState == State.IN_VALUE && valueStrategy != null) {
+            if (pendingLength + end - valueStart > maxValueLength) {
+                overflowValue(chars, valueStart, end, false, out);
+            } else {
+                appendPending(chars, valueStart, end);
+            }
+        }
+        state = currentState;
+    }
+
+    /**
+     * 输入结束。未闭合的敏感值按规则脱敏后输出，不会原样泄露；输入被截断且 fail-closed 时整体替换。
+     * 输入被截断时最后追加截断标记
+     */
+    @Override
+    public void finish(StringBuilder out) {
+        if (tally != null && (state == State.IN_KEY || state == State.IN_STRING_VALUE)) {
+            tally.malformed++;
+        }
+        if (state == State.START && pendingLength > 0) {
+            countDetected(detector.mask(pending, 0, pendingLength, out));
+        }
+        if (state == State.IN_VALUE || state == State.IN_STRING_VALUE) {
+            if (truncated && limits.failClosed() && (valueStrategy != null || embedded)) {
+                redact(out);
+            } else {
+                processValue(pending, 0, 0, state == State.IN_STRING_VALUE, out);
+            }
+        }
+        if (truncated) {
+            out.append(limits.truncationMarker());
+        }
+        state = State.START;
+        valueStrategy = null;
+        probeEmbedded = false;
+        embedded = false;
+        escapeCarry = false;
+        pendingLength = 0;
+        restartLimits();
+        if (trackPaths) {
+            paths.restart();
+        }
+        if (tally != null && embeddedDepth == 0) {
+            tally.record();
+        }
+    }
+
+    /**
+     * 嵌入 JSON 的下一层扫描器计入上层调用的指标
+     */
+    void shareTally(MaskingMetrics.Tally tally) {
+        this.tally = tally;
+    }
+
+    /**
+     * 并行脱敏时合并上一分段状态机的指标，整个文档只记为一次调用
+     */
+    void absorbMetrics(SensitiveScanner previous) {
+        if (tally != null && previous.tally != null) {
+            tally.absorb(previous.tally);
+        }
+    }
+
+    /**
+     * 是否处于初始状态，此时后续输出与之前的输入无关
+     */
+    boolean isAtStart() {
+        return state == State.START && pendingLength == 0 && depth == 0 && !truncated;
+    }
+
+    /**
+     * 最外层扫描器每次输入处理的最大长度，调用方可以不再读取超出的部分
+     */
+    int maxInputLength() {
+        return embeddedDepth == 0 ? limits.maxInputLength() : MaskingLimits.UNLIMITED;
+    }
+
+    private void restartLimits() {
+        remaining = maxInputLength();
+        truncated = false;
+        depth = 0;
+        keyOverflow = false;
+        redactValue = false;
+        skipValue = false;
+    }
+
+    /**
+     * 引号前不是反斜杠时一定没有转义，省去数反斜杠
+     */
+    private static boolean mayBeEscaped(char[] chars, int from, int quote, boolean carry) {
+        return quote > from ? chars[quote - 1] == '\\' : carry;
+    }
+
+    /**
+     * 括号处调整嵌套层次。超过层数上限后更深的层次不再入栈，其中的字段不匹配路径规则
+     *
+     * @param value 是否为字段的值
+     * @return 超过层数上限且 fail-closed 时返回 false，之后的输入全部丢弃
+     */
+    private boolean bracket(char c, boolean value) {
+        if (c == '{' || c == '[') {
+            if (++depth > maxDepth) {
+                if (depth == maxDepth + 1) {
+                    exceeded();
+                }
+                if (limits.failClosed()) {
+                    truncated = true;
+                    return false;
+                }
+            } else if (trackPaths) {
+                if (value) {
+                    paths.openValue(c == '[');
+                } else {
+                    paths.open(c == '[');
+                }
+            }
+        } else if (depth > 0) {
+            if (trackPaths && depth <= maxDepth) {
+                paths.close();
+            }
+            depth--;
+        }
+        return true;
+    }
+
+    /**
+     * 超过上限，计为格式异常
+     */
+    private void exceeded() {
+        if (tally != null) {
+            tally.malformed++;
+        }
+    }
+
+    /**
+     * 值开始时，字段名超长（fail-closed）的值整体替换，之后的内容跳过
+     */
+    private void redactNext(StringBuilder out) {
+        if (redactValue) {
+            redactValue = false;
+            valueStrategy = null;
+            redact(out);
+        }
+    }
+
+    /**
+     * 当前值整体替换为 {@link MaskingLimits#REDACTED}，已缓存的部分丢弃，直到值结束都不输出
+     */
+    private void redact(StringBuilder out) {
+        out.append(MaskingLimits.REDACTED);
+        if (tally != null) {
+            tally.valuesMasked++;
+        }
+        valueStrategy = null;
+        embedded = false;
+        pendingLength = 0;
+        skipValue = true;
+    }
+
+    /**
+     * 敏感值或嵌入的 JSON 超过上限：fail-closed 整体替换；fail-open 时敏感值只对前 maxValueLength 个字符脱敏，
+     * 嵌入的 JSON 改为原样输出
+     *
+     * 保留的前缀在已读部分全部缓存后截取，结果与分段位置无关，也不会在反斜杠和被转义的字符之间截断。
+     *
+     * @param read 本段中已经读过的位置，[valueStart, read) 与缓存一起是值已读的部分
+     */
+    private void overflowValue(char[] chars, int valueStart, int read, boolean quoted, StringBuilder out) {
+        exceeded();
+        if (limits.failClosed()) {
+            redact(out);
+        } else if (embedded) {
+            if (pendingLength > 0) {
+                out.append(pending, 0, pendingLength);
+            }
+            out.append(chars, valueStart, read - valueStart);
+            embedded = false;
+            pendingLength = 0;
+        } else {
+            appendPending(chars, valueStart, read);
+            int cut = Math.min(pendingLength, maxValueLength);
+            if (quoted && JsonEscapes.isEscaped(pending, 0, cut, false)) {
+                cut--;
+            }
+            pendingLength = cut;
+            processValue(pending, 0, 0, quoted, out);
+            skipValue = true;
+        }
+    }
+
+    private MaskingStrategy lookupKey(char[] chars, int keyStart, int keyEnd) {
+        int node;
+        if (pendingLength == 0) {
+            node = keyTable.find(chars, keyStart, keyEnd);
+        } else {
+            appendPending(chars, keyStart, keyEnd);
+            node = keyTable.find(pending, 0, pendingLength);
+            pendingLength = 0;
+        }
+        SensitiveType type = trackPaths && depth <= maxDepth ? paths.field(keyTable.symbol(node)) : null;
+        MaskingStrategy strategy = type != null ? MaskingStrategy.of(type) : keyTable.strategy(node);
+        if (tally != null) {
+            tally.key(strategy == null ? null : strategy.type);
+        }
+        return strategy;
+    }
+
+    /**
+     * fail-open 时超长的字段名：不匹配任何注册的字段名，路径规则按未注册的字段名匹配
+     */
+    private MaskingStrategy overlongKey() {
+        SensitiveType type = trackPaths && depth <= maxDepth ? paths.field(0) : null;
+        MaskingStrategy strategy = type != null ? MaskingStrategy.of(type) : null;
+        if (tally != null) {
+            tally.key(strategy == null ? null : strategy.type);
+        }
+        return strategy;
+    }
+
+    private void countDetected(int masked) {
+        if (tally != null) {
+            tally.valuesMasked += masked;
+        }
+    }
+
+    /**
+     * 值结束时调用。非敏感值已经原样输出，敏感值去除首尾空白后按规则脱敏
+     *
+     * @param quoted 是否为字符串值，字符串值需要处理转义
+     */
+    private void processValue(char[] chars, int valueStart, int valueEnd, boolean quoted, StringBuilder out) {
+        if (valueStrategy == null && !embedded) {
+            return;
+        }
+        MaskingStrategy strategy = valueStrategy;
+        boolean json = embedded;
+        valueStrategy = null;
+        embedded = false;
+        if (pendingLength > 0) {
+            appendPending(chars, valueStart, valueEnd);
+            chars = pending;
+            valueStart = 0;
+            valueEnd = pendingLength;
+            pendingLength = 0;
+        }
+        if (json) {
+            maskEmbedded(chars, valueStart, valueEnd, out);
+            return;
+        }
+        if (tally != null) {
+            tally.valuesMasked++;
+        }
+        if (valueEnd > valueStart) { // 确保有值需要处理
+            while (valueStart < valueEnd && chars[valueStart] <= ' ') {
+                valueStart++;
+            }
+            while (valueEnd > valueStart && chars[valueEnd - 1] <= ' ') {
+                valueEnd--;
+            }
+            if (quoted && JsonEscapes.containsBackslash(chars, valueStart, valueEnd)) {
+                maskEscaped(strategy, chars, valueStart, valueEnd, out);
+            } else {
+                strategy.mask(chars, valueStart, valueEnd, out);
+            }
+        }
+    }
+
+    /**
+     * 含转义的敏感值：解码后脱敏，再转义输出，避免保留的字符截断转义序列
+     */
+    private static void maskEscaped(MaskingStrategy strategy, char[] chars, int start, int end, StringBuilder out) {
+        StringBuilder decoded = new StringBuilder(end - start);
+        JsonEscapes.unescape(CharBuffer.wrap(chars), start, end, decoded);
+        String masked = strategy.mask(decoded.toString());
+        JsonEscapes.escape(masked, 0, masked.length(), out);
+    }
+
+    /**
+     * 嵌入的 JSON：解码后用下一层扫描器脱敏，再转义输出
+     */
+    private void maskEmbedded(char[] chars, int start, int end, StringBuilder out) {
+        StringBuilder decoded = new StringBuilder(end - start);
+        JsonEscapes.unescape(CharBuffer.wrap(chars), start, end, decoded);
+        char[] json = new char[decoded.length()];
+        decoded.getChars(0, json.length, json, 0);
+        if (child == null) {
+            child = new SensitiveScanner(snapshot, embeddedDepth + 1);
+        } else {
+            child.reset(snapshot);
+        }
+        child.shareTally(tally);
+        StringBuilder masked = new StringBuilder(json.length + 16);
+        child.scan(json, 0, json.length, masked);
+        child.finish(masked);
+        JsonEscapes.escape(masked, 0, masked.length(), out);
+    }
+
+    private void appendPending(char[] chars, int start, int end) {
+        int length = end - start;
+        if (length <= 0) {
+            return;
+        }
+        if (pending == null) {
+            pending = new char[Math.max(64, length)];
+        } else if (pendingLength + length > pending.length) {
+            char[] grown = new char[Math.max(pending.length * 2, pendingLength + length)];
+            System.arraycopy(pending, 0, grown, 0, pendingLength);
+            pending = grown;
+        }
+        System.arraycopy(chars, start, pending, pendingLength, length);
+        pendingLength += length;
+    }
+}
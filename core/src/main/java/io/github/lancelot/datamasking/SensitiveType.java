@@ -1,10 +1,10 @@
 package io.github.lancelot.datamasking;
 
 /**
- * 敏感数据类型定义
+ * 敏感数据类型定义，每个类型同时是对应的内置脱敏规则
  * @author lancelot
  */
-public enum SensitiveType {
+public enum SensitiveType implements SensitiveMasker {
 
 	/**
 	 * 中文名
@@ -84,6 +84,15 @@ public enum SensitiveType {
 		return name;
 	}
 
+	/**
+	 * 按本类型的规则把 chars[start, end) 脱敏后追加到 out，不创建中间字符串
+	 * @see SensitiveConvertor#convertMsg(SensitiveType, char[], int, int, StringBuilder)
+	 */
+	@Override
+	public void mask(char[] chars, int start, int end, StringBuilder out) {
+		SensitiveConvertor.convertMsg(this, chars, start, end, out);
+	}
+
 	/**
 	 * 根据描述名称获取对应的枚举值（忽略大小写）
 	 * @param name 枚举的描述名称
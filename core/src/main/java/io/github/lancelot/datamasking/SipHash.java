@@ -0,0 +1,74 @@
+package io.github.lancelot.datamasking;
+
+/**
+ * SipHash-2-4，带 128 位密钥的 64 位哈希
+ *
+ * 比 HMAC-SHA256 快一个数量级，短输入（手机号、证件号）只需几十纳秒；不知道密钥时无法从输出反推输入，
+ * 也无法离线穷举。
+ */
+final class SipHash {
+
+    private SipHash() {
+    }
+
+    /**
+     * 从 16 字节密钥中按小端序读取的第 index 个 64 位整数
+     */
+    static long keyPart(byte[] key, int index) {
+        long k = 0;
+        for (int i = 7; i >= 0; i--) {
+            k = (k << 8) | (key[index * 8 + i] & 0xFF);
+        }
+        return k;
+    }
+
+    /**
+     * 计算 src[start, end) 的哈希
+     */
+    static long hash(long k0, long k1, byte[] src, int start, int end) {
+        long v0 = 0x736f6d6570736575L ^ k0;
+        long v1 = 0x646f72616e646f6dL ^ k1;
+        long v2 = 0x6c7967656e657261L ^ k0;
+        long v3 = 0x7465646279746573L ^ k1;
+        int length = end - start;
+        int blockEnd = start + (length & ~7);
+        for (int i = start; i < blockEnd; i += 8) {
+            long m = (src[i] & 0xFFL)
+                    | (src[i + 1] & 0xFFL) << 8
+                    | (src[i + 2] & 0xFFL) << 16
+                    | (src[i + 3] & 0xFFL) << 24
+                    | (src[i + 4] & 0xFFL) << 32
+                    | (src[i + 5] & 0xFFL) << 40
+                    | (src[i + 6] & 0xFFL) << 48
+                    | (src[i + 7] & 0xFFL) << 56;
+            v3 ^= m;
+            for (int r = 0; r < 2; r++) {
+                v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+                v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+                v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+                v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+            }
+            v0 ^= m;
+        }
+        long last = (long) length << 56;
+        for (int i = end - 1; i >= blockEnd; i--) {
+            last |= (src[i] & 0xFFL) << ((i - blockEnd) * 8);
+        }
+        v3 ^= last;
+        for (int r = 0; r < 2; r++) {
+            v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+            v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+            v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+            v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+        }
+        v0 ^= last;
+        v2 ^= 0xFF;
+        for (int r = 0; r < 4; r++) {
+            v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+            v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+            v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+            v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+        }
+        return v0 ^ v1 ^ v2 ^ v3;
+    }
+}
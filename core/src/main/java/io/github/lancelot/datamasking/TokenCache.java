@@ -0,0 +1,207 @@
+package io.github.lancelot.datamasking;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 值 -> 令牌的有界缓存，供 {@link MaskingStrategy#token} 使用
+ *
+ * 组相联结构：按值的哈希选一组，每组 {@link #WAYS} 路，组内按最近使用排序，未命中时淘汰组内最久未用的一项。
+ * 与 TinyLFU 的 doorkeeper 一样，值第一次未命中时只在位图中记一笔，第二次未命中才放入缓存，
+ * 只出现一次的值不会挤掉热点值，也不产生缓存条目；位图每经过与容量相同次数的未命中就清空一次，让旧的记录老化，
+ * 同时把置位比例限制在八分之一以内，避免大量只出现一次的值因误判被放入缓存。
+ * 条目不可变，读写都不加锁；并发写同一组时可能丢失一次插入或移动，只影响命中率，不会读到错误的令牌。
+ * 命中时不产生任何对象，容量固定，与输入的不同值个数无关。
+ */
+final class TokenCache {
+
+    static final int WAYS = 4;
+
+    private final Entry[] entries;
+
+    private final int setMask;
+
+    private final long[] doorkeeper;
+
+    private final int doorkeeperMask;
+
+    /**
+     * 位图清空前允许的未命中次数
+     */
+    private final int doorkeeperLimit;
+
+    private int doorkeeperCount;
+
+    /**
+     * @param capacity 最多缓存的条目数，向上取整到 {@link #WAYS} 乘以 2 的幂
+     */
+    TokenCache(int capacity) {
+        int sets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS));
+        if (sets * WAYS < capacity) {
+            sets <<= 1;
+        }
+        this.entries = new Entry[sets * WAYS];
+        this.setMask = sets - 1;
+        // 每个条目 8 位，误判率约 12%；容量很小时至少一个 long
+        this.doorkeeper = new long[Math.max(1, entries.length / 8)];
+        this.doorkeeperMask = doorkeeper.length * 64 - 1;
+        this.doorkeeperLimit = entries.length;
+    }
+
+    int capacity() {
+        return entries.length;
+    }
+
+    /**
+     * UTF-8 字节 src[start, end) 的索引哈希，与 {@link #hash(char[], int, int)} 对 ASCII 输入结果相同
+     */
+    static int hash(ByteBuffer src, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + (src.get(i) & 0xFF);
+        }
+        return mix(h);
+    }
+
+    /**
+     * chars[start, end) 的索引哈希，只用于全部是 ASCII 的值
+     */
+    static int hash(char[] chars, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + chars[i];
+        }
+        return mix(h);
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B1;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return 缓存的条目，未命中返回 null
+     */
+    Entry get(ByteBuffer src, int start, int end, int hash) {
+        int base = (hash & setMask) * WAYS;
+        for (int way = 0; way < WAYS; way++) {
+            Entry entry = entries[base + way];
+            if (entry == null) {
+                return null;
+            }
+            if (entry.hash == hash && entry.matches(src, start, end)) {
+                promote(base, way, entry);
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * ASCII 值的查找，chars 与 UTF-8 编码逐字节相同
+     *
+     * @return 缓存的条目，未命中返回 null
+     */
+    Entry get(char[] chars, int start, int end, int hash) {
+        int base = (hash & setMask) * WAYS;
+        for (int way = 0; way < WAYS; way++) {
+            Entry entry = entries[base + way];
+            if (entry == null) {
+                return null;
+            }
+            if (entry.hash == hash && entry.matches(chars, start, end)) {
+                promote(base, way, entry);
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 未命中时调用，判断是否值得放入缓存：最近未命中过（位图中已有记录）返回 true，否则记录后返回 false
+     */
+    boolean admit(int hash) {
+        if (++doorkeeperCount >= doorkeeperLimit) {
+            doorkeeperCount = 0;
+            Arrays.fill(doorkeeper, 0);
+        }
+        int bit = (hash * 0x85EBCA6B) >>> 7 & doorkeeperMask;
+        long mask = 1L << bit;
+        int word = bit >>> 6;
+        if ((doorkeeper[word] & mask) != 0) {
+            return true;
+        }
+        doorkeeper[word] |= mask;
+        return false;
+    }
+
+    /**
+     * 放到组的最前面，组满时淘汰最后一项
+     *
+     * @param key 值的 UTF-8 编码
+     * @param token 令牌，只含 ASCII 字符
+     * @return 新条目
+     */
+    Entry put(byte[] key, int hash, String token) {
+        int base = (hash & setMask) * WAYS;
+        Entry entry = new Entry(hash, key, token);
+        for (int i = WAYS - 1; i > 0; i--) {
+            entries[base + i] = entries[base + i - 1];
+        }
+        entries[base] = entry;
+        return entry;
+    }
+
+    private void promote(int base, int way, Entry entry) {
+        if (way == 0) {
+            // 已在最前，不写数组，避免多线程命中热点值时反复使缓存行失效
+            return;
+        }
+        for (int i = way; i > 0; i--) {
+            entries[base + i] = entries[base + i - 1];
+        }
+        entries[base] = entry;
+    }
+
+    /**
+     * 令牌同时保存字符串和 ASCII 字节两种形式，两条输出路径都可以整体复制
+     */
+    static final class Entry {
+        private final int hash;
+        private final byte[] key;
+        final String token;
+        final byte[] tokenBytes;
+
+        Entry(int hash, byte[] key, String token) {
+            this.hash = hash;
+            this.key = key;
+            this.token = token;
+            this.tokenBytes = token.getBytes(StandardCharsets.US_ASCII);
+        }
+
+        private boolean matches(ByteBuffer src, int start, int end) {
+            if (end - start != key.length) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (src.get(start + i) != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matches(char[] chars, int start, int end) {
+            if (end - start != key.length) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (chars[start + i] != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package io.github.lancelot.datamasking;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 按行脱敏以任意大小分块到达的 UTF-8 字节流，适用于网络连接、Reactive Streams 等逐块推送 NDJSON 日志的场景
+ *
+ * 每行单独处理（行尾的 \n、\r\n 原样保留），结果与逐行调用 {@link SensitiveReplacer#deSensitiveString} 一致。
+ * 一行可以跨越任意多个块，块内已经确定的部分立即输出，只缓存当前未结束的字段名和敏感值。
+ * 每行开始时取注册表的最新快照，长期运行的连接同样能看到规则的变更；
+ * {@link MaskingEngine#newLineMasker()} 创建的实例始终使用该引擎的规则。
+ *
+ * 非线程安全，每条连接/每个流使用自己的实例。
+ */
+public final class Utf8LineMasker {
+
+    private static final byte[] CR = {'\r'};
+
+    private final MaskingEngine engine;
+
+    private SensitiveInfoRegistry.Snapshot snapshot;
+
+    private Utf8SensitiveScanner scanner;
+
+    /**
+     * 当前行已经有内容交给状态机
+     */
+    private boolean inLine;
+
+    /**
+     * 上一块以 '\r' 结尾，要看下一块是否以 '\n' 开头才能确定是否是行尾
+     */
+    private boolean pendingCr;
+
+    /**
+     * 使用全局注册表的规则
+     */
+    public Utf8LineMasker() {
+        this(MaskingEngine.global());
+    }
+
+    Utf8LineMasker(MaskingEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * 脱敏一个块
+     *
+     * @param chunk 输入，处理 position 到 limit 之间的字节，不会修改 position 和 limit
+     * @return 本块能够确定的脱敏结果，position 为0，limit 为结果长度；可能为空
+     */
+    public ByteBuffer mask(ByteBuffer chunk) {
+        Utf8Output out = new Utf8Output(chunk.remaining() + 16, false);
+        ByteBuffer bytes = FastScan.littleEndian(chunk);
+        int pos = chunk.position();
+        int end = chunk.limit();
+        if (pendingCr && pos < end) {
+            pendingCr = false;
+            if (bytes.get(pos) == '\n') {
+                endLine(out);
+                out.put(CR, 0, 1);
+                out.put((byte) '\n');
+                pos++;
+            } else {
+                scanner().scan(ByteBuffer.wrap(CR), 0, 1, out);
+            }
+        }
+        while (pos < end) {
+            int newline = FastScan.indexOf(bytes, (byte) '\n', pos, end);
+            if (newline == end) {
+                int stop = end;
+                if (bytes.get(end - 1) == '\r') {
+                    stop--;
+                    pendingCr = true;
+                }
+                if (stop > pos) {
+                    scanner().scanLittleEndian(bytes, pos, stop, out);
+                }
+                break;
+            }
+            int lineEnd = newline > pos && bytes.get(newline - 1) == '\r' ? newline - 1 : newline;
+            scanner().scanLittleEndian(bytes, pos, lineEnd, out);
+            endLine(out);
+            out.put(bytes, lineEnd, newline + 1);
+            pos = newline + 1;
+        }
+        return out.flip();
+    }
+
+    /**
+     * 输入结束，输出最后一行（没有换行符）缓存的内容，未闭合的敏感值按规则脱敏后输出。之后可以继续处理新的输入
+     *
+     * @return 剩余的脱敏结果，可能为空
+     */
+    public ByteBuffer finish() {
+        Utf8Output out = new Utf8Output(16, false);
+        if (pendingCr) {
+            pendingCr = false;
+            scanner().scan(ByteBuffer.wrap(CR), 0, 1, out);
+        }
+        if (inLine) {
+            endLine(out);
+        }
+        return out.flip();
+    }
+
+    /**
+     * 行首取最新的快照，规则有变化时换新的状态机
+     */
+    private Utf8SensitiveScanner scanner() {
+        if (!inLine) {
+            inLine = true;
+            SensitiveInfoRegistry.Snapshot current = engine.snapshot();
+            if (current != snapshot) {
+                snapshot = current;
+                scanner = new Utf8SensitiveScanner(current);
+            }
+        }
+        return scanner;
+    }
+
+    private void endLine(Utf8Output out) {
+        scanner().finish(out);
+        inLine = false;
+    }
+}
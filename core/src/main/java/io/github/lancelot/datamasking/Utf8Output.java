@@ -0,0 +1,95 @@
+package io.github.lancelot.datamasking;
+
+import java.nio.ByteBuffer;
+
+/**
+ * UTF-8 脱敏结果的可增长输出缓冲区
+ */
+final class Utf8Output {
+
+    private final boolean direct;
+
+    private ByteBuffer buffer;
+
+    Utf8Output(int capacity, boolean direct) {
+        this.direct = direct;
+        this.buffer = allocate(Math.max(16, capacity));
+    }
+
+    void put(byte b) {
+        if (!buffer.hasRemaining()) {
+            grow(1);
+        }
+        buffer.put(b);
+    }
+
+    /**
+     * 追加 src[start, end)，会修改 src 的 position，limit 保持不变
+     */
+    void put(ByteBuffer src, int start, int end) {
+        int length = end - start;
+        if (length <= 0) {
+            return;
+        }
+        if (buffer.remaining() < length) {
+            grow(length);
+        }
+        int limit = src.limit();
+        src.limit(end);
+        src.position(start);
+        buffer.put(src);
+        src.limit(limit);
+    }
+
+    void put(byte[] src, int start, int end) {
+        int length = end - start;
+        if (length <= 0) {
+            return;
+        }
+        if (buffer.remaining() < length) {
+            grow(length);
+        }
+        buffer.put(src, start, length);
+    }
+
+    void repeat(byte b, int count) {
+        if (count <= 0) {
+            return;
+        }
+        if (buffer.remaining() < count) {
+            grow(count);
+        }
+        for (int i = 0; i < count; i++) {
+            buffer.put(b);
+        }
+    }
+
+    int length() {
+        return buffer.position();
+    }
+
+    void clear() {
+        buffer.clear();
+    }
+
+    /**
+     * 已写入的内容，position 为0，limit 为写入长度。之后继续写入前需要 {@link #clear()}
+     */
+    ByteBuffer flip() {
+        buffer.flip();
+        return buffer;
+    }
+
+    private void grow(int needed) {
+        int capacity = buffer.capacity();
+        int newCapacity = Math.max(capacity + (capacity >> 1), buffer.position() + needed);
+        ByteBuffer grown = allocate(newCapacity);
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+}
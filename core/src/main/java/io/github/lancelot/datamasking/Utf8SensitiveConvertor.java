@@ -0,0 +1,129 @@
+package io.github.lancelot.datamasking;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 直接作用于 UTF-8 字节的脱敏规则，与 {@link SensitiveConvertor} 一一对应
+ *
+ * 保留的前缀/后缀长度与 {@link SensitiveConvertor} 使用同一套描述，但按码点计数，
+ * 不会把一个汉字切成半个，也不需要先解码成 String。
+ *
+ * @author lancelot
+ */
+final class Utf8SensitiveConvertor {
+
+	private static final byte STAR = '*';
+
+	private Utf8SensitiveConvertor() {
+	}
+
+	/**
+	 * 根据信息类型屏蔽 src[start, end)，结果写入 out
+	 *
+	 * @param type 信息类型
+	 * @param src 已去除首尾ASCII空白的值
+	 */
+	static void convertMsg(SensitiveType type, ByteBuffer src, int start, int end, Utf8Output out) {
+		if (isBlank(src, start, end)) {
+			return;
+		}
+		// 返回null 时保持原样返回方便查问题
+		if (isNullLiteral(src, start, end)) {
+			out.put(src, start, end);
+			return;
+		}
+		int length = codePointCount(src, start, end);
+		int dot = -1;
+		if (type == SensitiveType.EMAIL) {
+			int dotByte = lastIndexOf(src, start, end, (byte) '.');
+			dot = dotByte < 0 ? -1 : codePointCount(src, start, dotByte);
+		}
+		int prefix = SensitiveConvertor.prefixLength(type, length, dot);
+		int suffix = SensitiveConvertor.suffixLength(type, length, dot);
+		out.put(src, start, firstCodePoints(src, start, end, prefix));
+		out.repeat(STAR, SensitiveConvertor.maskLength(type, length, dot));
+		out.put(src, lastCodePoints(src, start, end, suffix), end);
+	}
+
+	static int codePointCount(ByteBuffer src, int start, int end) {
+		int count = 0;
+		for (int i = start; i < end; i++) {
+			if ((src.get(i) & 0xC0) != 0x80) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 前 n 个码点之后的字节位置
+	 */
+	static int firstCodePoints(ByteBuffer src, int start, int end, int n) {
+		int i = start;
+		while (i < end && n > 0) {
+			i++;
+			while (i < end && (src.get(i) & 0xC0) == 0x80) {
+				i++;
+			}
+			n--;
+		}
+		return i;
+	}
+
+	/**
+	 * 最后 n 个码点的起始字节位置
+	 */
+	static int lastCodePoints(ByteBuffer src, int start, int end, int n) {
+		int i = end;
+		while (i > start && n > 0) {
+			i--;
+			while (i > start && (src.get(i) & 0xC0) == 0x80) {
+				i--;
+			}
+			n--;
+		}
+		return i;
+	}
+
+	private static int lastIndexOf(ByteBuffer src, int start, int end, byte b) {
+		for (int i = end - 1; i >= start; i--) {
+			if (src.get(i) == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	static boolean isNullLiteral(ByteBuffer src, int start, int end) {
+		return end - start == 4
+				&& (src.get(start) | 0x20) == 'n'
+				&& (src.get(start + 1) | 0x20) == 'u'
+				&& (src.get(start + 2) | 0x20) == 'l'
+				&& (src.get(start + 3) | 0x20) == 'l';
+	}
+
+	static boolean isBlank(ByteBuffer src, int start, int end) {
+		int i = start;
+		while (i < end) {
+			int b = src.get(i);
+			int codePoint;
+			if (b >= 0) {
+				codePoint = b;
+				i++;
+			} else if ((b & 0xE0) == 0xC0 && i + 1 < end) {
+				codePoint = ((b & 0x1F) << 6) | (src.get(i + 1) & 0x3F);
+				i += 2;
+			} else if ((b & 0xF0) == 0xE0 && i + 2 < end) {
+				codePoint = ((b & 0x0F) << 12) | ((src.get(i + 1) & 0x3F) << 6) | (src.get(i + 2) & 0x3F);
+				i += 3;
+			} else {
+				// 四字节码点都不是空白字符
+				return false;
+			}
+			if (!Character.isWhitespace(codePoint)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,633 @@
+package io.github.lancelot.datamasking;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 直接作用于 UTF-8 字节的敏感信息替换器状态机，状态转换与 {@link SensitiveScanner} 相同
+ *
+ * 状态机只识别 ASCII 分隔符，而 UTF-8 多字节序列中的每个字节都大于 0x7F，
+ * 不会被误认为分隔符，因此无需解码成 char[]。字段名在查找时边读边解码，
+ * 敏感值交给 {@link Utf8SensitiveConvertor} 按码点脱敏。
+ *
+ * 转义的处理与 {@link SensitiveScanner} 相同，含转义的敏感值和嵌入的 JSON 解码成字符后处理，
+ * 只在出现转义时才走这条较慢的路径。
+ *
+ * 与 {@link SensitiveScanner} 一样支持分段输入、遵守 {@link MaskingLimits}（长度按字节计），非线程安全。
+ */
+final class Utf8SensitiveScanner {
+
+    private enum State {
+        START, IN_KEY, AFTER_KEY, BEFORE_VALUE, IN_VALUE, IN_STRING_VALUE, AFTER_VALUE
+    }
+
+    private final SensitiveInfoRegistry.Snapshot snapshot;
+
+    private final SensitiveKeyTable keyTable;
+
+    private final FreeTextDetector detector;
+
+    /**
+     * 路径规则的嵌套栈，没有路径规则时为 null
+     */
+    private final PathTracker paths;
+
+    /**
+     * 是否在括号处停下计算嵌套层数：注册了路径规则或限制了嵌套层数
+     */
+    private final boolean trackDepth;
+
+    private int depth;
+
+    private final MaskingLimits limits;
+
+    private final int maxKeyLength;
+
+    private final int maxValueLength;
+
+    private final int maxDepth;
+
+    /**
+     * 本次输入还能处理的字节数，不限制时为 {@link MaskingLimits#UNLIMITED}
+     */
+    private int remaining;
+
+    private boolean truncated;
+
+    private boolean keyOverflow;
+
+    private boolean redactValue;
+
+    private boolean skipValue;
+
+    private final boolean embeddedJson;
+
+    private boolean probeEmbedded;
+
+    private boolean embedded;
+
+    /**
+     * 处理嵌入 JSON 的下一层扫描器，按需创建
+     */
+    private SensitiveScanner child;
+
+    private boolean escapeCarry;
+
+    /**
+     * 本次调用的指标计数，未开启 {@link MaskingMetrics} 时为 null
+     */
+    private MaskingMetrics.Tally tally;
+
+    private State state = State.START;
+
+    private MaskingStrategy valueStrategy;
+
+    private byte[] pending;
+    private ByteBuffer pendingView;
+    private int pendingLength;
+
+    Utf8SensitiveScanner(SensitiveInfoRegistry.Snapshot snapshot) {
+        this.snapshot = snapshot;
+        this.embeddedJson = snapshot.embeddedJson();
+        this.keyTable = snapshot.keyTable;
+        this.detector = snapshot.detector;
+        if (snapshot.pathAutomaton != null) {
+            paths = new PathTracker();
+            paths.reset(snapshot.pathAutomaton);
+        } else {
+            paths = null;
+        }
+        this.limits = snapshot.limits();
+        this.maxKeyLength = Math.max(limits.maxKeyLength(), keyTable.longestKey());
+        this.maxValueLength = limits.maxValueLength();
+        this.maxDepth = limits.maxDepth();
+        this.trackDepth = paths != null || maxDepth != MaskingLimits.UNLIMITED;
+        restartLimits();
+        tally = MaskingMetrics.startTally(null);
+    }
+
+    /**
+     * 处理 in[off, end)，结果追加到 out。不会修改 in 的 position 和 limit
+     */
+    void scan(ByteBuffer in, int off, int end, Utf8Output out) {
+        scanLittleEndian(FastScan.littleEndian(in), off, end, out);
+    }
+
+    /**
+     * 与 {@link #scan} 相同，但 bytes 必须已经是小端序，参见 {@link FastScan#littleEndian(ByteBuffer)}。
+     * 会修改 bytes 的 position 和 limit，逐行处理同一个缓冲区时省去每次创建视图
+     */
+    void scanLittleEndian(ByteBuffer bytes, int off, int end, Utf8Output out) {
+        if (truncated) {
+            return;
+        }
+        if (remaining != MaskingLimits.UNLIMITED) {
+            if (end - off > remaining) {
+                end = boundary(bytes, off, off + remaining);
+                truncated = true;
+                exceeded();
+            }
+            remaining -= end - off;
+        }
+        if (tally != null) {
+            tally.bytes += end - off;
+        }
+        State currentState = state;
+        if (currentState == State.START && pendingLength > 0) {
+            int tokenEnd = FreeTextDetector.tokenEnd(bytes, off, end);
+            appendPending(bytes, off, tokenEnd);
+            if (tokenEnd == end && pendingLength < FreeTextDetector.MAX_TOKEN_LENGTH) {
+                return;
+            }
+            countDetected(detector.mask(pendingView, 0, pendingLength, out));
+            pendingLength = 0;
+            off = tokenEnd;
+        }
+        // 当前字符串已读部分是否以奇数个反斜杠结尾
+        boolean carry = escapeCarry;
+        int keyStart = currentState == State.IN_KEY ? off : -1;
+        int valueStart = (currentState == State.IN_VALUE || currentState == State.IN_STRING_VALUE) ? off : -1;
+
+        for (int i = off; i < end; i++) {
+            byte c = bytes.get(i);
+
+            switch (currentState) {
+                case START: {
+                    int quote = trackDepth ? FastScan.indexOfStructural(bytes, i, end)
+                            : FastScan.indexOf(bytes, (byte) '"', i, end);
+                    if (detector == null) {
+                        out.put(bytes, i, quote);
+                    } else if (quote < end) {
+                        countDetected(detector.mask(bytes, i, quote, out));
+                    } else {
+                        int tail = Math.max(FreeTextDetector.tokenStart(bytes, i, end),
+                                end - FreeTextDetector.MAX_TOKEN_LENGTH);
+                        countDetected(detector.mask(bytes, i, tail, out));
+                        appendPending(bytes, tail, end);
+                    }
+                    if (quote < end && bytes.get(quote) != '"') {
+                        if (!bracket(bytes.get(quote), false)) {
+                            i = end;
+                            break;
+                        }
+                        out.put(bytes.get(quote));
+                    } else if (quote < end) {
+                        keyStart = quote + 1;
+                        carry = false;
+                        currentState = State.IN_KEY;
+                        out.put((byte) '"');
+                    }
+                    i = quote;
+                    break;
+                }
+
+                case IN_KEY: {
+                    int quote = FastScan.indexOf(bytes, (byte) '"', i, end);
+                    if (!keyOverflow && pendingLength + quote - keyStart > maxKeyLength) {
+                        int limit = boundary(bytes, i, Math.max(i, keyStart + maxKeyLength - pendingLength));
+                        pendingLength = 0;
+                        keyOverflow = true;
+                        exceeded();
+                        if (limits.failClosed()) {
+                            out.put(bytes, i, limit);
+                            i = limit - 1;
+                            break;
+                        }
+                    }
+                    boolean hidden = keyOverflow && limits.failClosed();
+                    boolean escaped = quote < end && mayBeEscaped(bytes, keyStart, quote, carry)
+                            && JsonEscapes.isEscaped(bytes, keyStart, quote, carry);
+                    if (!hidden) {
+                        out.put(bytes, i, quote);
+                    }
+                    if (escaped) {
+                        if (!hidden) {
+                            out.put((byte) '"');
+                        }
+                    } else if (quote < end && keyOverflow) {
+                        keyOverflow = false;
+                        if (hidden) {
+                            redactValue = true;
+                        } else {
+                            valueStrategy = overlongKey();
+                        }
+                        currentState = State.AFTER_KEY;
+                        out.put((byte) '"');
+                    } else if (quote < end) {
+                        valueStrategy = lookupKey(bytes, keyStart, quote);
+                        currentState = State.AFTER_KEY;
+                        out.put((byte) '"');
+                    }
+                    i = quote;
+                    break;
+                }
+
+                case AFTER_KEY:
+                    if (c == ':' || c == '=') {
+                        currentState = State.BEFORE_VALUE;
+                        out.put(c);
+                    } else if (c >= 0 && Character.isWhitespace((char) c)) {
+                        out.put(c);
+                    } else {
+                        if (tally != null && c != ',' && c != ']' && c != '}') {
+                            tally.malformed++;
+                        }
+                        valueStrategy = null;
+                        redactValue = false;
+                        currentState = State.START;
+                        i--;
+                    }
+                    break;
+
+                case BEFORE_VALUE:
+                    if (c >= 0 && Character.isWhitespace((char) c)) {
+                        out.put(c);
+                    } else if (c == '"') {
+                        valueStart = i + 1;
+                        carry = false;
+                        if (embeddedJson) {
+                            probeEmbedded = valueStrategy == null && !redactValue;
+                        }
+                        currentState = State.IN_STRING_VALUE;
+                        out.put(c);
+                        redactNext(out);
+                    } else if (c == '{' || c == '[') {
+                        valueStrategy = null;
+                        redactValue = false;
+                        currentState = State.START;
+                        if (!bracket(c, true)) {
+                            i = end;
+                            break;
+                        }
+                        out.put(c);
+                    } else {
+                        valueStart = i;
+                        currentState = State.IN_VALUE;
+                        redactNext(out);
+                        i--;
+                    }
+                    break;
+
+                case IN_STRING_VALUE: {
+                    if (probeEmbedded) {
+                        probeEmbedded = false;
+                        embedded = c == '{' || c == '[';
+                    }
+                    int quote = FastScan.indexOf(bytes, (byte) '"', i, end);
+                    boolean escaped = quote < end && mayBeEscaped(bytes, valueStart, quote, carry)
+                            && JsonEscapes.isEscaped(bytes, valueStart, quote, carry);
+                    int stop = escaped ? quote + 1 : quote;
+                    if ((valueStrategy != null || embedded) && pendingLength + stop - valueStart > maxValueLength) {
+                        overflowValue(bytes, valueStart, embedded ? i : stop, true, out);
+                    }
+                    if (valueStrategy == null && !embedded && !skipValue) {
+                        out.put(bytes, i, stop);
+                    }
+                    if (quote < end && !escaped) {
+                        processValue(bytes, valueStart, quote, true, out);
+                        skipValue = false;
+                        out.put((byte) '"');
+                        currentState = State.AFTER_VALUE;
+                    }
+                    i = quote;
+                    break;
+                }
+
+                case IN_VALUE:
+                    if (c == ',' || c == '}') {
+                        processValue(bytes, valueStart, i, false, out);
+                        skipValue = false;
+                        currentState = State.START;
+                        i--;
+                    } else if (valueStrategy == null) {
+                        if (!skipValue) {
+                            out.put(c);
+                        }
+                    } else if (pendingLength + i + 1 - valueStart > maxValueLength) {
+                        overflowValue(bytes, valueStart, i, false, out);
+                    }
+                    break;
+
+                case AFTER_VALUE:
+                    currentState = State.START;
+                    i--;
+                    break;
+            }
+        }
+
+        if (currentState == State.IN_KEY) {
+            escapeCarry = JsonEscapes.isEscaped(bytes, keyStart, end, carry);
+            if (!keyOverflow) {
+                appendPending(bytes, keyStart, end);
+            }
+        } else if (currentState == State.IN_STRING_VALUE) {
+            escapeCarry = JsonEscapes.isEscaped(bytes, valueStart, end, carry);
+            if ((valueStrategy != null || embedded) && pendingLength + end - valueStart > maxValueLength) {
+                overflowValue(bytes, valueStart, end, true, out);
+            }
+            if (valueStrategy != null || embedded) {
+                appendPending(bytes, valueStart, end);
+            }
+        } else if (currentState == State.IN_VALUE && valueStrategy != null) {
+            if (pendingLength + end - valueStart > maxValueLength) {
+                overflowValue(bytes, valueStart, end, false, out);
+            } else {
+                appendPending(bytes, valueStart, end);
+            }
+        }
+        state = currentState;
+    }
+
+    /**
+     * 输入结束。未闭合的敏感值按规则脱敏后输出，输入被截断且 fail-closed 时整体替换；被截断时最后追加截断标记
+     */
+    void finish(Utf8Output out) {
+        if (tally != null && (state == State.IN_KEY || state == State.IN_STRING_VALUE)) {
+            tally.malformed++;
+        }
+        if (state == State.START && pendingLength > 0) {
+            countDetected(detector.mask(pendingView, 0, pendingLength, out));
+        }
+        if (state == State.IN_VALUE || state == State.IN_STRING_VALUE) {
+            if (truncated && limits.failClosed() && (valueStrategy != null || embedded)) {
+                redact(out);
+            } else {
+                processValue(null, 0, 0, state == State.IN_STRING_VALUE, out);
+            }
+        }
+        if (truncated) {
+            out.put(limits.truncationMarkerUtf8, 0, limits.truncationMarkerUtf8.length);
+        }
+        state = State.START;
+        valueStrategy = null;
+        probeEmbedded = false;
+        embedded = false;
+        escapeCarry = false;
+        pendingLength = 0;
+        restartLimits();
+        if (paths != null) {
+            paths.restart();
+        }
+        if (tally != null) {
+            tally.record();
+        }
+    }
+
+    private void restartLimits() {
+        remaining = limits.maxInputLength();
+        truncated = false;
+        depth = 0;
+        keyOverflow = false;
+        redactValue = false;
+        skipValue = false;
+    }
+
+    /**
+     * 引号前不是反斜杠时一定没有转义，省去数反斜杠
+     */
+    private static boolean mayBeEscaped(ByteBuffer bytes, int from, int quote, boolean carry) {
+        return quote > from ? bytes.get(quote - 1) == '\\' : carry;
+    }
+
+    /**
+     * @return 超过层数上限且 fail-closed 时返回 false，之后的输入全部丢弃
+     * @see SensitiveScanner
+     */
+    private boolean bracket(byte c, boolean value) {
+        if (c == '{' || c == '[') {
+            if (++depth > maxDepth) {
+                if (depth == maxDepth + 1) {
+                    exceeded();
+                }
+                if (limits.failClosed()) {
+                    truncated = true;
+                    return false;
+                }
+            } else if (paths != null) {
+                if (value) {
+                    paths.openValue(c == '[');
+                } else {
+                    paths.open(c == '[');
+                }
+            }
+        } else if (depth > 0) {
+            if (paths != null && depth <= maxDepth) {
+                paths.close();
+            }
+            depth--;
+        }
+        return true;
+    }
+
+    private void exceeded() {
+        if (tally != null) {
+            tally.malformed++;
+        }
+    }
+
+    private void redactNext(Utf8Output out) {
+        if (redactValue) {
+            redactValue = false;
+            valueStrategy = null;
+            redact(out);
+        }
+    }
+
+    private void redact(Utf8Output out) {
+        out.put(MaskingLimits.REDACTED_UTF8, 0, MaskingLimits.REDACTED_UTF8.length);
+        if (tally != null) {
+            tally.valuesMasked++;
+        }
+        valueStrategy = null;
+        embedded = false;
+        pendingLength = 0;
+        skipValue = true;
+    }
+
+    /**
+     * 敏感值或嵌入的 JSON 超过上限，处理同 {@link SensitiveScanner}
+     */
+    private void overflowValue(ByteBuffer bytes, int valueStart, int read, boolean quoted, Utf8Output out) {
+        exceeded();
+        if (limits.failClosed()) {
+            redact(out);
+        } else if (embedded) {
+            if (pendingLength > 0) {
+                out.put(pending, 0, pendingLength);
+            }
+            out.put(bytes, valueStart, read);
+            embedded = false;
+            pendingLength = 0;
+        } else {
+            appendPending(bytes, valueStart, read);
+            int cut = boundary(pending, Math.min(pendingLength, maxValueLength));
+            if (quoted && JsonEscapes.isEscaped(pendingView, 0, cut, false)) {
+                cut--;
+            }
+            pendingLength = cut;
+            processValue(null, 0, 0, quoted, out);
+            skipValue = true;
+        }
+    }
+
+    /**
+     * bytes[0, cut) 的最后一个字符不完整时退回到它的起点。只向前看，结果与 cut 之后是否已读无关
+     */
+    private static int boundary(byte[] bytes, int cut) {
+        int start = cut;
+        while (start > 0 && (bytes[start - 1] & 0xC0) == 0x80) {
+            start--;
+        }
+        if (start == 0) {
+            return cut;
+        }
+        int lead = bytes[start - 1] & 0xFF;
+        int length = lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 1;
+        return start - 1 + length > cut ? start - 1 : cut;
+    }
+
+    /**
+     * 截断处退回到码点边界，不把多字节字符截成两半
+     */
+    private static int boundary(ByteBuffer bytes, int from, int cut) {
+        while (cut > from && (bytes.get(cut) & 0xC0) == 0x80) {
+            cut--;
+        }
+        return cut;
+    }
+
+    private MaskingStrategy lookupKey(ByteBuffer bytes, int keyStart, int keyEnd) {
+        int node;
+        if (pendingLength == 0) {
+            node = keyTable.findUtf8(bytes, keyStart, keyEnd);
+        } else {
+            appendPending(bytes, keyStart, keyEnd);
+            node = keyTable.findUtf8(pendingView, 0, pendingLength);
+            pendingLength = 0;
+        }
+        SensitiveType type = paths != null && depth <= maxDepth ? paths.field(keyTable.symbol(node)) : null;
+        MaskingStrategy strategy = type != null ? MaskingStrategy.of(type) : keyTable.strategy(node);
+        if (tally != null) {
+            tally.key(strategy == null ? null : strategy.type);
+        }
+        return strategy;
+    }
+
+    /**
+     * fail-open 时超长的字段名，与 {@link SensitiveScanner} 相同
+     */
+    private MaskingStrategy overlongKey() {
+        SensitiveType type = paths != null && depth <= maxDepth ? paths.field(0) : null;
+        MaskingStrategy strategy = type != null ? MaskingStrategy.of(type) : null;
+        if (tally != null) {
+            tally.key(strategy == null ? null : strategy.type);
+        }
+        return strategy;
+    }
+
+    private void countDetected(int masked) {
+        if (tally != null) {
+            tally.valuesMasked += masked;
+        }
+    }
+
+    private void processValue(ByteBuffer bytes, int valueStart, int valueEnd, boolean quoted, Utf8Output out) {
+        if (valueStrategy == null && !embedded) {
+            return;
+        }
+        MaskingStrategy strategy = valueStrategy;
+        boolean json = embedded;
+        valueStrategy = null;
+        embedded = false;
+        if (pendingLength > 0) {
+            if (bytes != null) {
+                appendPending(bytes, valueStart, valueEnd);
+            }
+            bytes = pendingView;
+            valueStart = 0;
+            valueEnd = pendingLength;
+            pendingLength = 0;
+        }
+        if (json) {
+            maskEmbedded(bytes, valueStart, valueEnd, out);
+            return;
+        }
+        if (tally != null) {
+            tally.valuesMasked++;
+        }
+        if (valueEnd > valueStart) {
+            while (valueStart < valueEnd && (bytes.get(valueStart) & 0xFF) <= ' ') {
+                valueStart++;
+            }
+            while (valueEnd > valueStart && (bytes.get(valueEnd - 1) & 0xFF) <= ' ') {
+                valueEnd--;
+            }
+            if (quoted && FastScan.indexOf(bytes, (byte) '\\', valueStart, valueEnd) < valueEnd) {
+                StringBuilder decoded = new StringBuilder(valueEnd - valueStart);
+                String raw = decode(bytes, valueStart, valueEnd);
+                JsonEscapes.unescape(raw, 0, raw.length(), decoded);
+                String masked = strategy.mask(decoded.toString());
+                StringBuilder escaped = new StringBuilder(masked.length() + 16);
+                JsonEscapes.escape(masked, 0, masked.length(), escaped);
+                encode(escaped, out);
+            } else {
+                strategy.maskUtf8(bytes, valueStart, valueEnd, out);
+            }
+        }
+    }
+
+    /**
+     * 嵌入的 JSON：解码后交给字符扫描器脱敏，再转义输出
+     */
+    private void maskEmbedded(ByteBuffer bytes, int start, int end, Utf8Output out) {
+        String raw = decode(bytes, start, end);
+        StringBuilder decoded = new StringBuilder(raw.length());
+        JsonEscapes.unescape(raw, 0, raw.length(), decoded);
+        char[] json = new char[decoded.length()];
+        decoded.getChars(0, json.length, json, 0);
+        if (child == null) {
+            child = new SensitiveScanner(snapshot, 1);
+        } else {
+            child.reset(snapshot);
+        }
+        child.shareTally(tally);
+        StringBuilder masked = new StringBuilder(json.length + 16);
+        child.scan(json, 0, json.length, masked);
+        child.finish(masked);
+        StringBuilder escaped = new StringBuilder(masked.length() + 16);
+        JsonEscapes.escape(masked, 0, masked.length(), escaped);
+        encode(escaped, out);
+    }
+
+    private static String decode(ByteBuffer bytes, int start, int end) {
+        byte[] copy = new byte[end - start];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = bytes.get(start + i);
+        }
+        return new String(copy, StandardCharsets.UTF_8);
+    }
+
+    private static void encode(CharSequence chars, Utf8Output out) {
+        byte[] encoded = chars.toString().getBytes(StandardCharsets.UTF_8);
+        out.put(encoded, 0, encoded.length);
+    }
+
+    private void appendPending(ByteBuffer bytes, int start, int end) {
+        int length = end - start;
+        if (length <= 0) {
+            return;
+        }
+        if (pending == null || pendingLength + length > pending.length) {
+            byte[] grown = new byte[Math.max(pending == null ? 64 : pending.length * 2, pendingLength + length)];
+            if (pending != null) {
+                System.arraycopy(pending, 0, grown, 0, pendingLength);
+            }
+            pending = grown;
+            pendingView = FastScan.littleEndian(ByteBuffer.wrap(grown));
+        }
+        for (int i = 0; i < length; i++) {
+            pending[pendingLength + i] = bytes.get(start + i);
+        }
+        pendingLength += length;
+    }
+}
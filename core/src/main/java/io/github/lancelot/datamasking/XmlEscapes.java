@@ -0,0 +1,102 @@
+package io.github.lancelot.datamasking;
+
+/**
+ * XML 字符引用与预定义实体的解码与编码，用于元素内容和属性值中的敏感值
+ */
+final class XmlEscapes {
+
+    private XmlEscapes() {
+    }
+
+    static boolean containsAmpersand(char[] chars, int start, int end) {
+        return FastScan.indexOf(chars, '&', start, end) < end;
+    }
+
+    /**
+     * 解码 chars[start, end) 中的 &amp;lt; &amp;gt; &amp;amp; &amp;quot; &amp;apos; 和 &amp;#NN; &amp;#xHH;，
+     * 结果追加到 out。不认识的实体原样保留
+     */
+    static void unescape(char[] chars, int start, int end, StringBuilder out) {
+        int i = start;
+        while (i < end) {
+            char c = chars[i];
+            int semicolon = c == '&' ? FastScan.indexOf(chars, ';', i + 1, Math.min(end, i + 12)) : -1;
+            if (semicolon < 0 || semicolon == Math.min(end, i + 12)) {
+                out.append(c);
+                i++;
+                continue;
+            }
+            int code = entity(chars, i + 1, semicolon);
+            if (code < 0) {
+                out.append(c);
+                i++;
+            } else {
+                out.appendCodePoint(code);
+                i = semicolon + 1;
+            }
+        }
+    }
+
+    /**
+     * 把 chars[start, end) 编码为元素内容或属性值，结果追加到 out
+     */
+    static void escape(CharSequence chars, int start, int end, StringBuilder out) {
+        for (int i = start; i < end; i++) {
+            char c = chars.charAt(i);
+            switch (c) {
+                case '&':
+                    out.append("&amp;");
+                    break;
+                case '<':
+                    out.append("&lt;");
+                    break;
+                case '>':
+                    out.append("&gt;");
+                    break;
+                case '"':
+                    out.append("&quot;");
+                    break;
+                case '\'':
+                    out.append("&apos;");
+                    break;
+                default:
+                    out.append(c);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * &amp; 与 ; 之间的实体名对应的码点，不认识返回 -1
+     */
+    private static int entity(char[] chars, int start, int end) {
+        int length = end - start;
+        if (length >= 2 && chars[start] == '#') {
+            boolean hex = chars[start + 1] == 'x' || chars[start + 1] == 'X';
+            int code = 0;
+            for (int i = start + (hex ? 2 : 1); i < end; i++) {
+                int digit = Character.digit(chars[i], hex ? 16 : 10);
+                if (digit < 0) {
+                    return -1;
+                }
+                code = code * (hex ? 16 : 10) + digit;
+            }
+            return end > start + (hex ? 2 : 1) && Character.isValidCodePoint(code) ? code : -1;
+        }
+        String name = new String(chars, start, length);
+        switch (name) {
+            case "lt":
+                return '<';
+            case "gt":
+                return '>';
+            case "amp":
+                return '&';
+            case "quot":
+                return '"';
+            case "apos":
+                return '\'';
+            default:
+                return -1;
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package io.github.lancelot.datamasking;
+
+/**
+ * XML 的可续接状态机，用于 {@link MaskingFormat#XML}
+ *
+ * 开始标签的元素名和属性名按本地名（去掉命名空间前缀）查找：敏感元素的文本内容到下一个 '&lt;' 为止，
+ * 敏感属性的值到对应的引号为止，按规则脱敏后输出，其余内容原样输出。
+ * 文本内容前后的空白原样保留，只有空白的内容（后面是子元素）不脱敏。含实体的值先解码再脱敏，结果重新转义。
+ * 敏感元素的内容是 CDATA 时，&lt;![CDATA[ 和 ]]&gt; 原样保留，其中的内容按规则脱敏（不解码实体）。
+ * 结束标签和处理指令跳到下一个 '&gt;'；注释、DOCTYPE 和其他位置的 CDATA 按普通文本处理，其中的标签同样脱敏。
+ *
+ * 跨越分段的元素名、属性名和敏感值缓存到下一段，内存占用只与最长的名字/值有关。
+ */
+final class XmlScanner implements FormatScanner {
+
+    private enum State {
+        TEXT, TAG_NAME, IN_TAG, ATTR_NAME, AFTER_ATTR_NAME, BEFORE_ATTR_VALUE, ATTR_VALUE, ELEMENT_VALUE, MARKUP,
+        CDATA_PROBE, CDATA_VALUE
+    }
+
+    private static final char[] CDATA_OPEN = "<![CDATA[".toCharArray();
+
+    /**
+     * 复用时保留的缓存上限，超过后释放
+     */
+    private static final int MAX_RETAINED_PENDING = 64 * 1024;
+
+    private SensitiveKeyTable keyTable;
+
+    /**
+     * 本次调用的指标计数，未开启 {@link MaskingMetrics} 时为 null
+     */
+    private MaskingMetrics.Tally tally;
+
+    private State state = State.TEXT;
+
+    /**
+     * 下一个字符是 '&lt;' 之后的第一个字符
+     */
+    private boolean tagFirst;
+
+    /**
+     * 当前开始标签以 "/&gt;" 结束
+     */
+    private boolean selfClosing;
+
+    /**
+     * 当前开始标签的元素对应的脱敏规则
+     */
+    private MaskingStrategy elementStrategy;
+
+    /**
+     * 当前属性值或元素内容对应的脱敏规则
+     */
+    private MaskingStrategy valueStrategy;
+
+    /**
+     * 当前属性值的引号
+     */
+    private char quote;
+
+    /**
+     * 敏感元素内容中的 '&lt;' 之后已匹配的 {@link #CDATA_OPEN} 字符数
+     */
+    private int cdataMatched;
+
+    /**
+     * 敏感元素的脱敏规则，内容中遇到 '&lt;' 时保留，用于其后的 CDATA
+     */
+    private MaskingStrategy cdataStrategy;
+
+    /**
+     * 跨越分段的名字或敏感值
+     */
+    private char[] pending;
+    private int pendingLength;
+
+    XmlScanner(SensitiveInfoRegistry.Snapshot snapshot) {
+        reset(snapshot);
+    }
+
+    @Override
+    public void reset(SensitiveInfoRegistry.Snapshot snapshot) {
+        keyTable = snapshot.keyTable;
+        clear();
+        tally = MaskingMetrics.startTally(tally);
+        if (pending != null && pending.length > MAX_RETAINED_PENDING) {
+            pending = null;
+        }
+    }
+
+    @Override
+    public void scan(char[] chars, int off, int end, StringBuilder out) {
+        if (tally != null) {
+            tally.chars += end - off;
+        }
+        State currentState = state;
+        // 本段内名字/值的起始位置
+        int nameStart = off;
+        int valueStart = off;
+
+        for (int i = off; i < end; i++) {
+            char c = chars[i];
+
+            switch (currentState) {
+                case TEXT: {
+                    int lt = FastScan.indexOf(chars, '<', i, end);
+                    out.append(chars, i, lt - i);
+                    if (lt < end) {
+                        out.append('<');
+                        tagFirst = true;
+                        nameStart = lt + 1;
+                        currentState = State.TAG_NAME;
+                    }
+                    i = lt;
+                    break;
+                }
+
+                case TAG_NAME:
+                    if (tagFirst) {
+                        tagFirst = false;
+                        if (c == '/' || c == '?') {
+                            out.append(c);
+                            currentState = State.MARKUP;
+                            break;
+                        }
+                        if (!isNameStart(c)) {
+                            // "a < b" 之类的文本，以及 "<!" 开头的注释、CDATA 和 DOCTYPE
+                            currentState = State.TEXT;
+                            i--;
+                            break;
+                        }
+                    }
+                    if (isNameChar(c)) {
+                        out.append(c);
+                        break;
+                    }
+                    elementStrategy = lookupName(chars, nameStart, i);
+                    selfClosing = false;
+                    currentState = State.IN_TAG;
+                    i--;
+                    break;
+
+                case IN_TAG:
+                    if (c == '>') {
+                        out.append(c);
+                        if (elementStrategy != null && !selfClosing) {
+                            valueStrategy = elementStrategy;
+                            valueStart = i + 1;
+                            currentState = State.ELEMENT_VALUE;
+                        } else {
+                            currentState = State.TEXT;
+                        }
+                        elementStrategy = null;
+                    } else if (isNameStart(c)) {
+                        selfClosing = false;
+                        nameStart = i;
+                        currentState = State.ATTR_NAME;
+                        i--;
+                    } else {
+                        selfClosing = c == '/';
+                        out.append(c);
+                    }
+                    break;
+
+                case ATTR_NAME:
+                    if (isNameChar(c)) {
+                        out.append(c);
+                        break;
+                    }
+                    valueStrategy = lookupName(chars, nameStart, i);
+                    currentState = State.AFTER_ATTR_NAME;
+                    i--;
+                    break;
+
+                case AFTER_ATTR_NAME:
+                    if (c == '=') {
+                        out.append(c);
+                        currentState = State.BEFORE_ATTR_VALUE;
+                    } else if (Character.isWhitespace(c)) {
+                        out.append(c);
+                    } else {
+                        // 没有值的属性
+                        valueStrategy = null;
+                        currentState = State.IN_TAG;
+                        i--;
+                    }
+                    break;
+
+                case BEFORE_ATTR_VALUE:
+                    if (c == '"' || c == '\'') {
+                        out.append(c);
+                        quote = c;
+                        valueStart = i + 1;
+                        currentState = State.ATTR_VALUE;
+                    } else if (Character.isWhitespace(c)) {
+                        out.append(c);
+                    } else {
+                        valueStrategy = null;
+                        currentState = State.IN_TAG;
+                        i--;
+                    }
+                    break;
+
+                case ATTR_VALUE: {
+                    int close = FastScan.indexOf(chars, quote, i, end);
+                    if (valueStrategy == null) {
+                        out.append(chars, i, close - i);
+                    }
+                    if (close < end) {
+                        processValue(chars, valueStart, close, true, out);
+                        out.append(quote);
+                        currentState = State.IN_TAG;
+                    }
+                    i = close;
+                    break;
+                }
+
+                case ELEMENT_VALUE: {
+                    int lt = FastScan.indexOf(chars, '<', i, end);
+                    if (lt < end) {
+                        cdataStrategy = valueStrategy;
+                        processValue(chars, valueStart, lt, true, out);
+                        cdataMatched = 1;
+                        currentState = State.CDATA_PROBE;
+                    }
+                    i = lt;
+                    break;
+                }
+
+                case CDATA_PROBE:
+                    if (c == CDATA_OPEN[cdataMatched]) {
+                        if (++cdataMatched == CDATA_OPEN.length) {
+                            out.append(CDATA_OPEN);
+                            valueStart = i + 1;
+                            currentState = State.CDATA_VALUE;
+                        }
+                    } else if (cdataMatched == 1) {
+                        // 子元素或结束标签
+                        out.append('<');
+                        tagFirst = true;
+                        nameStart = i;
+                        cdataStrategy = null;
+                        currentState = State.TAG_NAME;
+                        i--;
+                    } else {
+                        // 注释等，按普通文本处理
+                        out.append(CDATA_OPEN, 0, cdataMatched);
+                        cdataStrategy = null;
+                        currentState = State.TEXT;
+                        i--;
+                    }
+                    break;
+
+                case CDATA_VALUE: {
+                    // 结束标记可能跨越分段，整个内容缓存后查找
+                    int from = Math.max(0, pendingLength - 2);
+                    int before = pendingLength;
+                    appendPending(chars, valueStart, end);
+                    int close = indexOfCdataEnd(pending, from, pendingLength);
+                    if (close < 0) {
+                        i = end;
+                        valueStart = end;
+                        break;
+                    }
+                    int resume = valueStart + close + 3 - before;
+                    pendingLength = close;
+                    valueStrategy = cdataStrategy;
+                    processValue(pending, 0, 0, false, out);
+                    out.append("]]>");
+                    // 之后可能还有空白或下一段 CDATA
+                    valueStrategy = cdataStrategy;
+                    valueStart = resume;
+                    currentState = State.ELEMENT_VALUE;
+                    i = resume - 1;
+                    break;
+                }
+
+                case MARKUP: {
+                    int gt = FastScan.indexOf(chars, '>', i, end);
+                    out.append(chars, i, Math.min(gt + 1, end) - i);
+                    if (gt < end) {
+                        currentState = State.TEXT;
+                    }
+                    i = gt;
+                    break;
+                }
+            }
+        }
+
+        // 分段结束时缓存未完成的名字或敏感值
+        if (currentState == State.TAG_NAME || currentState == State.ATTR_NAME) {
+            appendPending(chars, nameStart, end);
+        } else if ((currentState == State.ATTR_VALUE || currentState == State.ELEMENT_VALUE) && valueStrategy != null) {
+            appendPending(chars, valueStart, end);
+        }
+        state = currentState;
+    }
+
+    @Override
+    public void finish(StringBuilder out) {
+        if (tally != null && state != State.TEXT) {
+            tally.malformed++;
+        }
+        if ((state == State.ATTR_VALUE || state == State.ELEMENT_VALUE) && pendingLength > 0) {
+            processValue(pending, 0, 0, true, out);
+        } else if (state == State.CDATA_VALUE && pendingLength > 0) {
+            // 未结束的 CDATA 同样按规则脱敏
+            valueStrategy = cdataStrategy;
+            processValue(pending, 0, 0, false, out);
+        } else if (state == State.CDATA_PROBE) {
+            out.append(CDATA_OPEN, 0, cdataMatched);
+        }
+        clear();
+        if (tally != null) {
+            tally.record();
+        }
+    }
+
+    private void clear() {
+        state = State.TEXT;
+        tagFirst = false;
+        selfClosing = false;
+        elementStrategy = null;
+        valueStrategy = null;
+        cdataMatched = 0;
+        cdataStrategy = null;
+        pendingLength = 0;
+    }
+
+    /**
+     * chars[from, to) 中 "]]&gt;" 的位置，没有时返回 -1
+     */
+    private static int indexOfCdataEnd(char[] chars, int from, int to) {
+        for (int i = from; i + 2 < to; i++) {
+            if (chars[i] == ']' && chars[i + 1] == ']' && chars[i + 2] == '>') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 按本地名查找元素名或属性名
+     */
+    private MaskingStrategy lookupName(char[] chars, int start, int end) {
+        if (pendingLength > 0) {
+            appendPending(chars, start, end);
+            chars = pending;
+            start = 0;
+            end = pendingLength;
+            pendingLength = 0;
+        }
+        for (int i = end - 1; i >= start; i--) {
+            if (chars[i] == ':') {
+                start = i + 1;
+                break;
+            }
+        }
+        MaskingStrategy strategy = keyTable.strategy(keyTable.find(chars, start, end));
+        if (tally != null) {
+            tally.key(strategy == null ? null : strategy.type);
+        }
+        return strategy;
+    }
+
+    /**
+     * 值结束时调用。非敏感值已经原样输出，敏感值前后的空白原样保留，中间部分按规则脱敏
+     *
+     * @param entities 是否解码实体，CDATA 中不解码
+     */
+    private void processValue(char[] chars, int valueStart, int valueEnd, boolean entities, StringBuilder out) {
+        MaskingStrategy strategy = valueStrategy;
+        valueStrategy = null;
+        if (strategy == null) {
+            return;
+        }
+        if (pendingLength > 0) {
+            appendPending(chars, valueStart, valueEnd);
+            chars = pending;
+            valueStart = 0;
+            valueEnd = pendingLength;
+            pendingLength = 0;
+        }
+        int start = valueStart;
+        int end = valueEnd;
+        while (start < end && Character.isWhitespace(chars[start])) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(chars[end - 1])) {
+            end--;
+        }
+        out.append(chars, valueStart, start - valueStart);
+        if (start < end) {
+            if (tally != null) {
+                tally.valuesMasked++;
+            }
+            if (entities && XmlEscapes.containsAmpersand(chars, start, end)) {
+                StringBuilder decoded = new StringBuilder(end - start);
+                XmlEscapes.unescape(chars, start, end, decoded);
+                String masked = strategy.mask(decoded.toString());
+                XmlEscapes.escape(masked, 0, masked.length(), out);
+            } else {
+                strategy.mask(chars, start, end, out);
+            }
+        }
+        out.append(chars, end, valueEnd - end);
+    }
+
+    private static boolean isNameStart(char c) {
+        return Character.isLetter(c) || c == '_' || c == ':';
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == ':' || c == '-' || c == '.';
+    }
+
+    private void appendPending(char[] chars, int start, int end) {
+        int length = end - start;
+        if (length <= 0) {
+            return;
+        }
+        if (pending == null) {
+            pending = new char[Math.max(64, length)];
+        } else if (pendingLength + length > pending.length) {
+            char[] grown = new char[Math.max(pending.length * 2, pendingLength + length)];
+            System.arraycopy(pending, 0, grown, 0, pendingLength);
+            pending = grown;
+        }
+        System.arraycopy(chars, start, pending, pendingLength, length);
+        pendingLength += length;
+    }
+}
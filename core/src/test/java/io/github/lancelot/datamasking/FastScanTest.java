@@ -0,0 +1,44 @@
+package io.github.lancelot.datamasking;
+
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public class FastScanTest {
+
+    @Test
+    public void testByteIndexOfMatchesNaiveScan() {
+        Random random = new Random(42);
+        for (int round = 0; round < 2000; round++) {
+            byte[] bytes = new byte[random.nextInt(40)];
+            for (int i = 0; i < bytes.length; i++) {
+                // mostly bytes that differ from '"' in one bit, plus the occasional quote
+                int r = random.nextInt(8);
+                bytes[i] = r == 0 ? (byte) '"' : (byte) ('"' ^ (1 << random.nextInt(8)));
+            }
+            ByteBuffer buffer = FastScan.littleEndian(ByteBuffer.wrap(bytes));
+            int from = bytes.length == 0 ? 0 : random.nextInt(bytes.length);
+            assertEquals(FastScan.indexOf(buffer, (byte) '"', from, bytes.length), naiveIndexOf(bytes, from));
+        }
+    }
+
+    @Test
+    public void testCharIndexOf() {
+        char[] chars = "plain text \"key\"".toCharArray();
+        assertEquals(FastScan.indexOf(chars, '"', 0, chars.length), 11);
+        assertEquals(FastScan.indexOf(chars, '"', 12, chars.length), 15);
+        assertEquals(FastScan.indexOf(chars, '"', 0, 5), 5);
+    }
+
+    private static int naiveIndexOf(byte[] bytes, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == '"') {
+                return i;
+            }
+        }
+        return bytes.length;
+    }
+}
@@ -0,0 +1,125 @@
+package io.github.lancelot.datamasking;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import static org.testng.Assert.*;
+
+public class FreeTextDetectorTest {
+
+    private final FreeTextDetector detector = FreeTextDetector.of(EnumSet.of(SensitiveType.MOBILE_PHONE,
+            SensitiveType.ID_CARD, SensitiveType.BANK_CARD, SensitiveType.EMAIL));
+
+    @BeforeClass
+    public void setup() {
+        SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+        SensitiveInfoRegistry.detectInFreeText(SensitiveType.MOBILE_PHONE, SensitiveType.ID_CARD,
+                SensitiveType.BANK_CARD, SensitiveType.EMAIL);
+    }
+
+    @AfterClass
+    public void tearDown() {
+        SensitiveInfoRegistry.detectInFreeText();
+    }
+
+    @Test
+    public void testDetectsEachType() {
+        assertEquals(mask("user 13800138000 failed login"), "user 138******8000 failed login");
+        assertEquals(mask("手机13800138000，"), "手机138******8000，");
+        assertEquals(mask("id=110101199003072340;"), "id=110******340;");
+        assertEquals(mask("id 11010519491231002X ok"), "id 110******02X ok");
+        assertEquals(mask("id 11010519491231002x"), "id 110******02x");
+        assertEquals(mask("card 4111111111111111 and 6222021234567890128."), "card 41******1111 and 62******0128.");
+        assertEquals(mask("mail zhang.san@example.com."), "mail ******.com.");
+        assertEquals(mask("mail 10001@qq.com"), "mail ******.com");
+    }
+
+    @Test
+    public void testRejectsLookalikes() {
+        String[] inputs = {
+                "order 12800138000", // 第二位不是3-9
+                "trace 138001380001", // 12位
+                "id 110101199003072341", // 校验码错误
+                "card 4111111111111112", // Luhn 失败
+                "at @example.com or a@b.c or a@localhost",
+                "amount 1288.00, count 2",
+                "plain text without digits"
+        };
+        for (String input : inputs) {
+            assertEquals(mask(input), input);
+        }
+    }
+
+    @Test
+    public void testOnlyRequestedTypes() {
+        FreeTextDetector mobileOnly = FreeTextDetector.of(EnumSet.of(SensitiveType.MOBILE_PHONE));
+        char[] chars = "13800138000 4111111111111111 a@example.com".toCharArray();
+        StringBuilder out = new StringBuilder();
+        mobileOnly.mask(chars, 0, chars.length, out);
+        assertEquals(out.toString(), "138******8000 4111111111111111 a@example.com");
+        assertNull(FreeTextDetector.of(Collections.<SensitiveType>emptySet()));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnsupportedType() {
+        SensitiveInfoRegistry.detectInFreeText(SensitiveType.ADDRESS);
+    }
+
+    @Test
+    public void testUtf8MatchesChars() {
+        String input = "用户13800138000登录失败，身份证110101199003072340，邮箱zhang@example.com，卡4111111111111111";
+        ByteBuffer bytes = FastScan.littleEndian(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)));
+        Utf8Output out = new Utf8Output(16, false);
+        detector.mask(bytes, 0, bytes.limit(), out);
+        assertEquals(StandardCharsets.UTF_8.decode(out.flip()).toString(), mask(input));
+    }
+
+    @Test
+    public void testOnlyStartStateText() {
+        String input = "user 13800138000 {\"mobile\":\"13700137000\",\"remark\":\"13600136000\"} 13500135000";
+        assertEquals(SensitiveReplacer.deSensitiveString(input),
+                "user 138******8000 {\"mobile\":\"137******7000\",\"remark\":\"13600136000\"} 135******5000");
+    }
+
+    @Test
+    public void testCandidatesSplitAcrossChunks() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            sb.append("line ").append(i).append(" user 13800138000 mail a").append(i).append("@example.com;");
+        }
+        String input = sb.toString();
+        String expected = mask(input);
+        assertFalse(expected.contains("13800138000"));
+        assertEquals(SensitiveReplacer.deSensitiveString(input), expected);
+
+        StringWriter writer = new StringWriter();
+        SensitiveReplacer.deSensitive(new StringReader(input), writer);
+        assertEquals(writer.toString(), expected);
+
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        for (int chunk = 1; chunk < 40; chunk += 3) {
+            Utf8SensitiveScanner scanner = new Utf8SensitiveScanner(SensitiveInfoRegistry.snapshot());
+            Utf8Output out = new Utf8Output(bytes.length, false);
+            for (int off = 0; off < bytes.length; off += chunk) {
+                scanner.scan(ByteBuffer.wrap(bytes), off, Math.min(bytes.length, off + chunk), out);
+            }
+            scanner.finish(out);
+            assertEquals(StandardCharsets.UTF_8.decode(out.flip()).toString(), expected, "chunk size " + chunk);
+        }
+    }
+
+    private String mask(String input) {
+        char[] chars = input.toCharArray();
+        StringBuilder out = new StringBuilder();
+        detector.mask(chars, 0, chars.length, out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.lancelot.datamasking;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public class JsonEscapesTest {
+
+    private Map<String, SensitiveType> saved;
+
+    @BeforeMethod
+    public void save() {
+        saved = new HashMap<>(SensitiveInfoRegistry.snapshot().fields());
+        SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+        SensitiveInfoRegistry.put("address", SensitiveType.ADDRESS);
+        SensitiveInfoRegistry.put("name", SensitiveType.CHINESE_NAME);
+    }
+
+    @AfterMethod
+    public void restore() {
+        SensitiveInfoRegistry.replaceAll(saved);
+        SensitiveInfoRegistry.maskEmbeddedJson(false);
+    }
+
+    @Test
+    public void testIsEscaped() {
+        char[] chars = "a\\\"b\\\\\"c".toCharArray();
+        assertTrue(JsonEscapes.isEscaped(chars, 0, 2, false));
+        assertFalse(JsonEscapes.isEscaped(chars, 0, 6, false));
+        // 反斜杠在上一段结尾
+        assertTrue(JsonEscapes.isEscaped(chars, 2, 2, true));
+        assertFalse(JsonEscapes.isEscaped(chars, 1, 2, true));
+    }
+
+    @Test
+    public void testUnescapeAndEscapeRoundTrip() {
+        String raw = "A \\\"B\\\" \\\\ \\/ \\u0041\\n\\x";
+        StringBuilder decoded = new StringBuilder();
+        JsonEscapes.unescape(raw, 0, raw.length(), decoded);
+        assertEquals(decoded.toString(), "A \"B\" \\ / A\n\\x");
+        StringBuilder escaped = new StringBuilder();
+        JsonEscapes.escape(decoded, 0, decoded.length(), escaped);
+        assertEquals(escaped.toString(), "A \\\"B\\\" \\\\ / A\\n\\\\x");
+    }
+
+    @Test
+    public void testEscapedQuoteDoesNotEndValue() {
+        String input = "{\"remark\":\"say \\\"hi\\\"\",\"address\":\"A \\\"B\\\" road No.1\",\"mobile\":\"13800138000\"}";
+        String address = SensitiveConvertor.convertMsg(SensitiveType.ADDRESS, "A \"B\" road No.1");
+        StringBuilder escapedAddress = new StringBuilder();
+        JsonEscapes.escape(address, 0, address.length(), escapedAddress);
+        String expected = "{\"remark\":\"say \\\"hi\\\"\",\"address\":\"" + escapedAddress
+                + "\",\"mobile\":\"138******8000\"}";
+        assertMasked(input, expected);
+    }
+
+    @Test
+    public void testEscapedBackslashBeforeQuote() {
+        String input = "{\"path\":\"C:\\\\\",\"mobile\":\"13800138000\"}";
+        assertMasked(input, "{\"path\":\"C:\\\\\",\"mobile\":\"138******8000\"}");
+    }
+
+    @Test
+    public void testEscapedQuoteInKey() {
+        String input = "{\"a\\\"mobile\":\"13800138000\",\"mobile\":\"13800138000\"}";
+        assertMasked(input, "{\"a\\\"mobile\":\"13800138000\",\"mobile\":\"138******8000\"}");
+    }
+
+    @Test
+    public void testEmbeddedJsonIsMaskedOnlyWhenEnabled() {
+        String input = "{\"body\":\"{\\\"mobile\\\":\\\"13800138000\\\",\\\"inner\\\":\\\"{\\\\\\\"mobile\\\\\\\":"
+                + "13800138000}\\\"}\",\"mobile\":\"13800138000\"}";
+        assertMasked(input, input.substring(0, input.lastIndexOf("13800138000")) + "138******8000\"}");
+
+        SensitiveInfoRegistry.maskEmbeddedJson(true);
+        String expected = "{\"body\":\"{\\\"mobile\\\":\\\"138******8000\\\",\\\"inner\\\":\\\"{\\\\\\\"mobile\\\\\\\":"
+                + "138******8000}\\\"}\",\"mobile\":\"138******8000\"}";
+        assertMasked(input, expected);
+    }
+
+    private static void assertMasked(String input, String expected) {
+        assertEquals(SensitiveReplacer.deSensitiveString(input), expected);
+
+        ByteBuffer utf8 = SensitiveReplacer.deSensitive(input.getBytes(StandardCharsets.UTF_8));
+        byte[] bytes = new byte[utf8.remaining()];
+        utf8.get(bytes);
+        assertEquals(new String(bytes, StandardCharsets.UTF_8), expected);
+
+        // 在每个位置切分，转义状态需要跨段保持
+        char[] chars = input.toCharArray();
+        for (int split = 1; split < chars.length; split++) {
+            SensitiveScanner scanner = new SensitiveScanner(SensitiveInfoRegistry.snapshot());
+            StringBuilder out = new StringBuilder();
+            scanner.scan(chars, 0, split, out);
+            scanner.scan(chars, split, chars.length, out);
+            scanner.finish(out);
+            assertEquals(out.toString(), expected, "split at " + split);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package io.github.lancelot.datamasking;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.testng.Assert.*;
+
+public class KeyPrefilterTest {
+
+    private final KeyPrefilter prefilter = KeyPrefilter.compile(Arrays.asList("mobile", "name", ""), false);
+
+    @Test
+    public void testMayMatch() {
+        assertTrue(mayMatch(prefilter, "{\"id\":1,\"mobile\":\"13800138000\"}"));
+        assertTrue(mayMatch(prefilter, new StringBuilder("a \"name\"=b")));
+        // 值与值之间的片段同样检查，引号错位也不会漏掉
+        assertTrue(mayMatch(prefilter, "{\"a\":\"x\\\"\",\"name\":1}"));
+        assertTrue(mayMatch(prefilter, "{\"\":1}"));
+    }
+
+    @Test
+    public void testNoMatch() {
+        assertFalse(mayMatch(prefilter, "user 13800138000 failed login"));
+        assertFalse(mayMatch(prefilter, "{\"id\":1,\"mobiles\":[\"13800138000\"],\"nam\":2}"));
+        // 未闭合的字段名不会被查找
+        assertFalse(mayMatch(prefilter, "{\"id\":1,\"mobile"));
+        assertFalse(mayMatch(prefilter, "{\"body\":\"{\\\"mobile\\\":\\\"13800138000\\\"}\"}"));
+    }
+
+    @Test
+    public void testEmbeddedJson() {
+        KeyPrefilter embedded = KeyPrefilter.compile(Collections.singletonList("mobile"), true);
+        assertTrue(mayMatch(embedded, "{\"body\":\"{\\\"mobile\\\":\\\"13800138000\\\"}\"}"));
+        assertTrue(mayMatch(embedded, "{\"body\":\"{\\\"mob\\u0069le\\\":1}\"}"));
+        assertFalse(mayMatch(embedded, "{\"body\":\"{\\\"id\\\":1}\"}"));
+    }
+
+    @Test
+    public void testFolded() {
+        KeyPrefilter folded = KeyPrefilter.compile(Arrays.asList("mobileNo", "ID_CARD"), false, true);
+        assertTrue(mayMatch(folded, "{\"MOBILE_NO\":\"13800138000\"}"));
+        assertTrue(mayMatch(folded, "{\"mobile-no\":\"13800138000\"}"));
+        assertTrue(mayMatch(folded, "{\"idCard\":\"110101199003072345\"}"));
+        assertTrue(mayMatch(folded, new StringBuilder("{\"Id-Card\":1}")));
+        assertFalse(mayMatch(folded, "{\"mobile\":\"13800138000\",\"mobileNos\":[]}"));
+        assertFalse(mayMatch(folded, "{\"_\":1,\"idCar\":2}"));
+    }
+
+    @Test
+    public void testQuoteInKey() {
+        assertNull(KeyPrefilter.compile(Collections.singletonList("a\"b"), false));
+    }
+
+    /**
+     * 复制到暂存区和逐个 charAt 两条路径的结果必须相同
+     */
+    private static boolean mayMatch(KeyPrefilter prefilter, CharSequence input) {
+        boolean copied = prefilter.mayMatch(input, new char[256]);
+        assertEquals(prefilter.mayMatch(input, new char[4]), copied);
+        return copied;
+    }
+}
@@ -0,0 +1,162 @@
+package io.github.lancelot.datamasking;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public class KeyValueScannerTest {
+
+    private static final String MASKED = "138******8000";
+
+    private Map<String, SensitiveType> saved;
+
+    @BeforeMethod
+    public void save() {
+        saved = new HashMap<>(SensitiveInfoRegistry.snapshot().fields());
+        SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+        SensitiveInfoRegistry.put("name", SensitiveType.CHINESE_NAME);
+    }
+
+    @AfterMethod
+    public void restore() {
+        SensitiveInfoRegistry.replaceAll(saved);
+    }
+
+    @Test
+    public void testToStringOutput() {
+        String name = SensitiveConvertor.convertMsg(SensitiveType.CHINESE_NAME, "张三丰");
+        assertKeyValue("User(id=1, mobile=13800138000, name=张三丰)", "User(id=1, mobile=" + MASKED + ", name=" + name + ")");
+        assertKeyValue("{mobile=13800138000}", "{mobile=" + MASKED + "}");
+        assertKeyValue("[mobile=13800138000;mobile=13800138000]", "[mobile=" + MASKED + ";mobile=" + MASKED + "]");
+    }
+
+    @Test
+    public void testLogfmt() {
+        String name = SensitiveConvertor.convertMsg(SensitiveType.CHINESE_NAME, "张 三丰");
+        assertKeyValue("level=info mobile=13800138000 name=\"张 三丰\" msg=\"done\"",
+                "level=info mobile=" + MASKED + " name=\"" + name + "\" msg=\"done\"");
+        // 未闭合的引号：值脱敏到输入结束
+        assertKeyValue("mobile=\"13800138000", "mobile=\"" + MASKED);
+    }
+
+    @Test
+    public void testSingleQuotesAndEscapes() {
+        String name = SensitiveConvertor.convertMsg(SensitiveType.CHINESE_NAME, "张三");
+        assertKeyValue("User{mobile='13800138000', name='张三'}", "User{mobile='" + MASKED + "', name='" + name + "'}");
+        // 转义的引号不结束值，解码后脱敏，结果重新转义
+        String quoted = SensitiveConvertor.convertMsg(SensitiveType.CHINESE_NAME, "a\"b");
+        assertKeyValue("name=\"a\\\"b\" mobile=13800138000",
+                "name=\"" + quoted.replace("\"", "\\\"") + "\" mobile=" + MASKED);
+        assertKeyValue("name='it\\'s' mobile=13800138000",
+                "name='" + SensitiveConvertor.convertMsg(SensitiveType.CHINESE_NAME, "it's").replace("'", "\\'")
+                        + "' mobile=" + MASKED);
+    }
+
+    @Test
+    public void testJsonValues() {
+        assertKeyValue("user=bob payload={\"mobile\":\"13800138000\"} mobile=13800138000",
+                "user=bob payload={\"mobile\":\"" + MASKED + "\"} mobile=" + MASKED);
+        assertKeyValue("items=[ {\"a\":\"}]\",\"mobile\":13800138000}], mobile=13800138000",
+                "items=[ {\"a\":\"}]\",\"mobile\":" + MASKED + "}], mobile=" + MASKED);
+        // 不是 JSON 的括号照常按 key=value 处理
+        assertKeyValue("items=[Item(mobile=13800138000)] map={mobile=13800138000} empty={}",
+                "items=[Item(mobile=" + MASKED + ")] map={mobile=" + MASKED + "} empty={}");
+        // 未闭合的 JSON 到输入结束
+        assertKeyValue("payload={\"mobile\":\"13800138000", "payload={\"mobile\":\"" + MASKED);
+        assertQuery("q={\"mobile\":\"1\"}&mobile=13800138000", "q={\"mobile\":\"1\"}&mobile=" + MASKED);
+    }
+
+    @Test
+    public void testKeyBoundaries() {
+        // 字段名只取 '=' 前紧挨着的部分
+        assertKeyValue("user.mobile=13800138000", "user.mobile=" + MASKED);
+        assertKeyValue("xmobile=13800138000", "xmobile=13800138000");
+        assertKeyValue("mobile = 13800138000, mobile\t=\t13800138000", "mobile = " + MASKED + ", mobile\t=\t" + MASKED);
+        assertKeyValue("mobile= 13800138000", "mobile= " + MASKED);
+        assertKeyValue("mobile=", "mobile=");
+        assertKeyValue("a == b", "a == b");
+        assertKeyValue("mobile", "mobile");
+    }
+
+    @Test
+    public void testQueryString() {
+        assertQuery("/user?mobile=13800138000&page=1#top", "/user?mobile=" + MASKED + "&page=1#top");
+        assertQuery("mobile=13800138000#top", "mobile=" + MASKED + "#top");
+        // 逗号是值的一部分
+        assertQuery("mobile=13800138000,13900139000&a=b",
+                "mobile=" + SensitiveConvertor.convertMsg(SensitiveType.MOBILE_PHONE, "13800138000,13900139000") + "&a=b");
+    }
+
+    @Test
+    public void testQueryStringIsDecodedBeforeMasking() {
+        String name = SensitiveConvertor.convertMsg(SensitiveType.CHINESE_NAME, "张三丰");
+        StringBuilder encoded = new StringBuilder();
+        PercentEncoding.encode(name, 0, name.length(), encoded);
+        assertQuery("name=%E5%BC%A0%E4%B8%89%E4%B8%B0&page=1", "name=" + encoded + "&page=1");
+
+        String spaced = SensitiveConvertor.convertMsg(SensitiveType.CHINESE_NAME, "张 三丰");
+        StringBuilder encodedSpaced = new StringBuilder();
+        PercentEncoding.encode(spaced, 0, spaced.length(), encodedSpaced);
+        assertQuery("name=%E5%BC%A0+%E4%B8%89%E4%B8%B0", "name=" + encodedSpaced);
+    }
+
+    @Test
+    public void testPercentEncodingRoundTrip() {
+        char[] raw = "a%20b+%E5%BC%A0%zz%E5".toCharArray();
+        assertTrue(PercentEncoding.isEncoded(raw, 0, raw.length));
+        assertFalse(PercentEncoding.isEncoded("abc".toCharArray(), 0, 3));
+        StringBuilder decoded = new StringBuilder();
+        PercentEncoding.decode(raw, 0, raw.length, decoded);
+        assertEquals(decoded.toString(), "a b 张%zz�");
+
+        StringBuilder encoded = new StringBuilder();
+        PercentEncoding.encode("a b-_.*~张", 0, 9, encoded);
+        assertEquals(encoded.toString(), "a+b-_.*%7E%E5%BC%A0");
+    }
+
+    @Test
+    public void testMetrics() {
+        MaskingMetrics metrics = MaskingMetrics.enable();
+        try {
+            metrics.reset();
+            MaskingContext context = new MaskingContext();
+            context.deSensitive("mobile=13800138000 id=1 mobile=\"138", MaskingFormat.KEY_VALUE);
+            assertEquals(metrics.getCalls(), 1);
+            assertEquals(metrics.getKeysSeen(), 3);
+            assertEquals(metrics.getKeysMatched(SensitiveType.MOBILE_PHONE), 2);
+            assertEquals(metrics.getValuesMasked(), 2);
+            assertEquals(metrics.getMalformedResets(), 1);
+        } finally {
+            MaskingMetrics.disable();
+        }
+    }
+
+    private static void assertKeyValue(String input, String expected) {
+        assertMasked(input, MaskingFormat.KEY_VALUE, expected);
+    }
+
+    private static void assertQuery(String input, String expected) {
+        assertMasked(input, MaskingFormat.QUERY_STRING, expected);
+    }
+
+    static void assertMasked(String input, MaskingFormat format, String expected) {
+        assertEquals(SensitiveReplacer.deSensitiveString(input, format), expected);
+
+        // 在每个位置切分，字段名和值需要跨段保持
+        char[] chars = input.toCharArray();
+        FormatScanner scanner = FormatScanner.create(format, SensitiveInfoRegistry.snapshot());
+        for (int split = 1; split < chars.length; split++) {
+            scanner.reset(SensitiveInfoRegistry.snapshot());
+            StringBuilder out = new StringBuilder();
+            scanner.scan(chars, 0, split, out);
+            scanner.scan(chars, split, chars.length, out);
+            scanner.finish(out);
+            assertEquals(out.toString(), expected, "split at " + split);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package io.github.lancelot.datamasking;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.*;
+
+public class MappedFileMaskingTest {
+
+    private Map<String, SensitiveType> saved;
+
+    private Path dir;
+
+    @BeforeClass
+    public void setup() throws IOException {
+        saved = new HashMap<>(SensitiveInfoRegistry.snapshot().fields());
+        SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+        SensitiveInfoRegistry.put("name", SensitiveType.CHINESE_NAME);
+        dir = Files.createTempDirectory("masking");
+    }
+
+    @AfterClass
+    public void tearDown() throws IOException {
+        SensitiveInfoRegistry.replaceAll(saved);
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testMatchesLineByLineForAnySegmentSize() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            String line;
+            switch (i % 5) {
+                case 0:
+                    line = "{\"id\":" + i + ",\"mobile\":\"1380013800" + (i % 10) + "\",\"name\":\"张三\"}";
+                    break;
+                case 1:
+                    line = "2024-01-01 INFO user mobile=13800138000";
+                    break;
+                case 2:
+                    // 未闭合的字符串不能影响下一行
+                    line = "{\"name\":\"李四";
+                    break;
+                case 3:
+                    line = "";
+                    break;
+                default:
+                    line = "plain text line " + i + " with 中文";
+                    break;
+            }
+            String eol = i % 7 == 0 ? "\r\n" : "\n";
+            sb.append(line).append(eol);
+            expected.append(SensitiveReplacer.deSensitiveString(line)).append(eol);
+        }
+        sb.append("{\"mobile\":\"13800138000\"}");
+        expected.append("{\"mobile\":\"138******8000\"}");
+
+        Path input = dir.resolve("input.log");
+        Files.write(input, sb.toString().getBytes(StandardCharsets.UTF_8));
+        for (int segmentSize : new int[]{1, 17, 100, 4096, MappedFileMasking.DEFAULT_SEGMENT_SIZE}) {
+            Path output = dir.resolve("output-" + segmentSize + ".log");
+            long written = MappedFileMasking.mask(input, output, 3, segmentSize);
+            byte[] result = Files.readAllBytes(output);
+            assertEquals(written, result.length);
+            assertEquals(new String(result, StandardCharsets.UTF_8), expected.toString(), "segment " + segmentSize);
+        }
+    }
+
+    @Test
+    public void testEmptyFileAndOverwrite() throws IOException {
+        Path input = dir.resolve("empty.log");
+        Path output = dir.resolve("empty-out.log");
+        Files.write(input, new byte[0]);
+        Files.write(output, "stale content".getBytes(StandardCharsets.UTF_8));
+        assertEquals(SensitiveReplacer.deSensitiveFile(input, output), 0);
+        assertEquals(Files.size(output), 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testRejectsSameFile() throws IOException {
+        Path input = dir.resolve("same.log");
+        Files.write(input, "x\n".getBytes(StandardCharsets.UTF_8));
+        SensitiveReplacer.deSensitiveFile(input, input, 1);
+    }
+
+    @Test
+    public void testNextLineStart() throws IOException {
+        Path file = dir.resolve("lines.log");
+        Files.write(file, "ab\ncd\n\nef".getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer probe = ByteBuffer.allocate(2);
+            assertEquals(MappedFileMasking.nextLineStart(channel, 0, 9, probe), 3);
+            assertEquals(MappedFileMasking.nextLineStart(channel, 3, 9, probe), 6);
+            assertEquals(MappedFileMasking.nextLineStart(channel, 6, 9, probe), 7);
+            assertEquals(MappedFileMasking.nextLineStart(channel, 7, 9, probe), 9);
+        }
+    }
+}
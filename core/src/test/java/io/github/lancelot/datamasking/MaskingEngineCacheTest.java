@@ -0,0 +1,175 @@
+package io.github.lancelot.datamasking;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+public class MaskingEngineCacheTest {
+
+    private final AtomicInteger compiles = new AtomicInteger();
+
+    @BeforeMethod
+    public void reset() {
+        compiles.set(0);
+    }
+
+    private MaskingEngine compile(String policyId, long version) {
+        compiles.incrementAndGet();
+        return MaskingEngine.builder().version(version).field(policyId, SensitiveType.ALL).build();
+    }
+
+    @Test
+    public void testHitReturnsSameEngine() {
+        MaskingEngineCache cache = new MaskingEngineCache(8, this::compile);
+        MaskingEngine engine = cache.get("tenantA", 1);
+        assertSame(cache.get("tenantA", 1), engine);
+        assertEquals(compiles.get(), 1);
+        assertEquals(engine.version(), 1);
+        assertEquals(engine.deSensitiveString("{\"tenantA\":\"secret\",\"tenantB\":\"plain\"}"),
+                "{\"tenantA\":\"***\",\"tenantB\":\"plain\"}");
+    }
+
+    @Test
+    public void testNewVersionReplacesOld() {
+        MaskingEngineCache cache = new MaskingEngineCache(8, this::compile);
+        MaskingEngine v1 = cache.get("tenantA", 1);
+        MaskingEngine v2 = cache.get("tenantA", 2);
+        assertNotSame(v2, v1);
+        assertEquals(v2.version(), 2);
+        assertEquals(cache.size(), 1);
+        assertSame(cache.get("tenantA", 2), v2);
+
+        // 更旧的版本只编译不缓存
+        MaskingEngine stale = cache.get("tenantA", 1);
+        assertEquals(stale.version(), 1);
+        assertSame(cache.get("tenantA", 2), v2);
+        assertEquals(compiles.get(), 3);
+
+        cache.invalidate("tenantA");
+        assertEquals(cache.size(), 0);
+        assertNotSame(cache.get("tenantA", 2), v2);
+    }
+
+    @Test
+    public void testBoundedWithSecondChance() {
+        MaskingEngineCache cache = new MaskingEngineCache(4, this::compile);
+        MaskingEngine hot = cache.get("hot", 1);
+        for (int i = 0; i < 100; i++) {
+            cache.get("tenant" + i, 1);
+            assertTrue(cache.size() <= 4, "size " + cache.size());
+            // 每次淘汰之间都访问过的条目不会被淘汰
+            assertSame(cache.get("hot", 1), hot);
+        }
+    }
+
+    @Test
+    public void testConcurrentMissCompilesOnce() throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final MaskingEngineCache cache = new MaskingEngineCache(8, (policyId, version) -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return compile(policyId, version);
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<MaskingEngine>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return cache.get("tenantA", 1);
+                }));
+            }
+            start.countDown();
+            MaskingEngine first = results.get(0).get();
+            for (Future<MaskingEngine> result : results) {
+                assertSame(result.get(), first);
+            }
+            assertEquals(compiles.get(), 1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCompileOutsideLock() throws Exception {
+        // 编译器可以访问同一个缓存
+        final MaskingEngineCache[] holder = new MaskingEngineCache[1];
+        holder[0] = new MaskingEngineCache(8, (policyId, version) -> {
+            if (policyId.startsWith("outer")) {
+                holder[0].get("inner" + policyId.substring(5), version);
+            }
+            return compile(policyId, version);
+        });
+        for (int i = 0; i < 64; i++) {
+            assertEquals(holder[0].get("outer" + i, 1).version(), 1);
+        }
+
+        // 一个策略编译时，其他策略的查找不被阻塞
+        final CountDownLatch compiling = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final MaskingEngineCache cache = new MaskingEngineCache(64, (policyId, version) -> {
+            if (policyId.equals("slow")) {
+                compiling.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return compile(policyId, version);
+        });
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<MaskingEngine> slow = pool.submit(() -> cache.get("slow", 1));
+            compiling.await();
+            for (int i = 0; i < 32; i++) {
+                cache.get("tenant" + i, 1);
+            }
+            release.countDown();
+            assertSame(slow.get(), cache.get("slow", 1));
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedCompileIsNotCached() {
+        MaskingEngineCache cache = new MaskingEngineCache(8, (policyId, version) -> {
+            if (compiles.getAndIncrement() == 0) {
+                throw new IllegalArgumentException("bad rule");
+            }
+            return MaskingEngine.builder().version(version).build();
+        });
+        try {
+            cache.get("tenantA", 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "bad rule");
+        }
+        assertEquals(cache.size(), 0);
+        assertEquals(cache.get("tenantA", 1).version(), 1);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testCompilerReturningNull() {
+        new MaskingEngineCache(8, (policyId, version) -> null).get("tenantA", 1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNonPositiveSize() {
+        new MaskingEngineCache(0, this::compile);
+    }
+}
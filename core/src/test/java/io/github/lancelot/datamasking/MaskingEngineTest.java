@@ -0,0 +1,160 @@
+package io.github.lancelot.datamasking;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.*;
+
+public class MaskingEngineTest {
+
+    private static final String INPUT = "{\"mobile\":\"13800138000\",\"name\":\"张三丰\"}";
+
+    private Map<String, SensitiveType> saved;
+
+    @BeforeMethod
+    public void save() {
+        saved = new HashMap<>(SensitiveInfoRegistry.snapshot().fields());
+        SensitiveInfoRegistry.replaceAll(new HashMap<String, SensitiveType>());
+    }
+
+    @AfterMethod
+    public void restore() {
+        SensitiveInfoRegistry.replaceAll(saved);
+    }
+
+    @Test
+    public void testEnginesAreIsolated() {
+        MaskingEngine mobileOnly = MaskingEngine.builder().field("mobile", SensitiveType.MOBILE_PHONE).build();
+        MaskingEngine nameOnly = MaskingEngine.builder().field("name", SensitiveType.CHINESE_NAME).build();
+
+        assertEquals(mobileOnly.deSensitiveString(INPUT), "{\"mobile\":\"138******8000\",\"name\":\"张三丰\"}");
+        assertEquals(nameOnly.deSensitiveString(INPUT),
+                "{\"mobile\":\"13800138000\",\"name\":\"" + SensitiveConvertor.convertMsg(SensitiveType.CHINESE_NAME, "张三丰") + "\"}");
+        // 全局注册表为空，不受引擎影响
+        assertEquals(SensitiveReplacer.deSensitiveString(INPUT), INPUT);
+        SensitiveInfoRegistry.put("name", SensitiveType.CHINESE_NAME);
+        assertEquals(mobileOnly.deSensitiveString(INPUT), "{\"mobile\":\"138******8000\",\"name\":\"张三丰\"}");
+    }
+
+    @Test
+    public void testBuilderChangesDoNotAffectBuiltEngine() {
+        MaskingEngine.Builder builder = MaskingEngine.builder().version(7).field("mobile", SensitiveType.MOBILE_PHONE);
+        MaskingEngine engine = builder.build();
+        builder.field("name", SensitiveType.CHINESE_NAME).field("mobile", MaskingStrategy.drop());
+
+        assertEquals(engine.version(), 7);
+        assertEquals(engine.snapshot().fields().keySet(), Collections.singleton("mobile"));
+        assertTrue(engine.snapshot().strategies().isEmpty());
+        assertSame(engine.snapshot(), engine.snapshot());
+        MaskingEngine rebuilt = builder.build();
+        assertTrue(rebuilt.snapshot().strategies().containsKey("mobile"));
+        assertFalse(rebuilt.snapshot().fields().containsKey("mobile"));
+    }
+
+    @Test
+    public void testSameResultAsRegistry() throws Exception {
+        SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+        SensitiveInfoRegistry.put("card", MaskingStrategy.keep(4, 4));
+        SensitiveInfoRegistry.putPath("user.name", SensitiveType.CHINESE_NAME);
+        SensitiveInfoRegistry.maskEmbeddedJson(true);
+        try {
+            MaskingEngine engine = MaskingEngine.builder().from(SensitiveInfoRegistry.snapshot()).build();
+            String input = "{\"user\":{\"name\":\"张三丰\",\"mobile\":\"13800138000\"},\"name\":\"李四\","
+                    + "\"card\":\"6225880123456789\",\"body\":\"{\\\"mobile\\\":\\\"13912345678\\\"}\"}";
+            String expected = SensitiveReplacer.deSensitiveString(input);
+            assertNotEquals(expected, input);
+            assertEquals(engine.deSensitiveString(input), expected);
+            assertEquals(engine.deSensitiveBatch(new CharSequence[]{input, "plain"}), new String[]{expected, "plain"});
+
+            StringBuilder out = new StringBuilder("> ");
+            engine.deSensitive(input, out);
+            assertEquals(out.toString(), "> " + expected);
+
+            StringWriter writer = new StringWriter();
+            engine.deSensitive(new StringReader(input), writer, MaskingFormat.JSON);
+            assertEquals(writer.toString(), expected);
+
+            ByteBuffer bytes = engine.deSensitive(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)));
+            assertEquals(StandardCharsets.UTF_8.decode(bytes).toString(), expected);
+
+            assertEquals(engine.newContext().deSensitive(input), expected);
+            ByteBuffer line = engine.newLineMasker().mask(ByteBuffer.wrap((input + "\n").getBytes(StandardCharsets.UTF_8)));
+            assertEquals(StandardCharsets.UTF_8.decode(line).toString(), expected + "\n");
+
+            // 引擎持有的是复制时的规则
+            SensitiveInfoRegistry.clear();
+            assertEquals(engine.deSensitiveString(input), expected);
+            assertEquals(engine.deSensitiveString("mobile=13800138000", MaskingFormat.KEY_VALUE), "mobile=138******8000");
+        } finally {
+            SensitiveInfoRegistry.clear();
+            SensitiveInfoRegistry.maskEmbeddedJson(false);
+        }
+    }
+
+    @Test
+    public void testGlobalFollowsRegistry() {
+        MaskingEngine global = MaskingEngine.global();
+        MaskingContext context = new MaskingContext();
+        assertEquals(global.deSensitiveString(INPUT), INPUT);
+        SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+        assertSame(global.snapshot(), SensitiveInfoRegistry.snapshot());
+        assertEquals(global.deSensitiveString(INPUT), "{\"mobile\":\"138******8000\",\"name\":\"张三丰\"}");
+        assertEquals(context.deSensitive(INPUT), "{\"mobile\":\"138******8000\",\"name\":\"张三丰\"}");
+    }
+
+    @Test
+    public void testInterleavedEnginesOnManyThreads() throws Exception {
+        final List<MaskingEngine> engines = new ArrayList<>();
+        engines.add(MaskingEngine.builder().field("mobile", SensitiveType.MOBILE_PHONE).build());
+        engines.add(MaskingEngine.builder().field("name", SensitiveType.CHINESE_NAME).build());
+        engines.add(MaskingEngine.builder().build());
+        final String[] expected = new String[engines.size()];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = engines.get(i).deSensitiveString(INPUT);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(pool.submit(() -> {
+                    for (int i = 0; i < 3000; i++) {
+                        int k = i % expected.length;
+                        if (!engines.get(k).deSensitiveString(INPUT).equals(expected[k])) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidPath() {
+        MaskingEngine.builder().path("user..name", SensitiveType.CHINESE_NAME).build();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnsupportedFreeTextType() {
+        MaskingEngine.builder().detectInFreeText(SensitiveType.CHINESE_NAME);
+    }
+}
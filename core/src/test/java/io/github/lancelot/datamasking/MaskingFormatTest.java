@@ -0,0 +1,98 @@
+package io.github.lancelot.datamasking;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public class MaskingFormatTest {
+
+    private static final String MASKED = "138******8000";
+
+    private Map<String, SensitiveType> saved;
+
+    @BeforeMethod
+    public void save() {
+        saved = new HashMap<>(SensitiveInfoRegistry.snapshot().fields());
+        SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+    }
+
+    @AfterMethod
+    public void restore() {
+        SensitiveInfoRegistry.replaceAll(saved);
+    }
+
+    @Test
+    public void testDetect() {
+        assertEquals(MaskingFormat.detect("{\"mobile\":\"1\"}"), MaskingFormat.JSON);
+        assertEquals(MaskingFormat.detect("user \"mobile\"=1"), MaskingFormat.JSON);
+        assertEquals(MaskingFormat.detect("<user mobile=\"1\"/>"), MaskingFormat.XML);
+        assertEquals(MaskingFormat.detect("a < b, mobile=1"), MaskingFormat.KEY_VALUE);
+        assertEquals(MaskingFormat.detect("User(mobile=1, name=x)"), MaskingFormat.KEY_VALUE);
+        assertEquals(MaskingFormat.detect("mobile=1&page=2"), MaskingFormat.QUERY_STRING);
+        assertEquals(MaskingFormat.detect("GET /user?mobile=1&page=2 200"), MaskingFormat.QUERY_STRING);
+        assertEquals(MaskingFormat.detect("plain text"), MaskingFormat.JSON);
+        assertEquals(MaskingFormat.detect("User{mobile=1, name=x}"), MaskingFormat.KEY_VALUE);
+        assertEquals(MaskingFormat.detect("[main] User{mobile=1}"), MaskingFormat.KEY_VALUE);
+        assertEquals(MaskingFormat.detect("[main] { \"mobile\" : 1}"), MaskingFormat.JSON);
+        assertEquals(MaskingFormat.detect("[{\"mobile\":1}]"), MaskingFormat.JSON);
+        assertEquals(MaskingFormat.detect("user=bob payload={\"mobile\":1}"), MaskingFormat.KEY_VALUE);
+    }
+
+    @Test
+    public void testAuto() {
+        MaskingContext context = new MaskingContext();
+        assertEquals(context.deSensitive("{\"mobile\":\"13800138000\"}", MaskingFormat.AUTO), "{\"mobile\":\"" + MASKED + "\"}");
+        assertEquals(context.deSensitive("<mobile>13800138000</mobile>", MaskingFormat.AUTO), "<mobile>" + MASKED + "</mobile>");
+        assertEquals(context.deSensitive("mobile=13800138000&a=1", MaskingFormat.AUTO), "mobile=" + MASKED + "&a=1");
+        StringBuilder out = new StringBuilder();
+        context.deSensitive("User(mobile=13800138000)", MaskingFormat.AUTO, out);
+        assertEquals(out.toString(), "User(mobile=" + MASKED + ")");
+        // 混合内容的日志行
+        assertEquals(context.deSensitive("User{mobile=13800138000, name=x}", MaskingFormat.AUTO),
+                "User{mobile=" + MASKED + ", name=x}");
+        assertEquals(context.deSensitive("user=bob payload={\"mobile\":\"13800138000\"}", MaskingFormat.AUTO),
+                "user=bob payload={\"mobile\":\"" + MASKED + "\"}");
+    }
+
+    @Test
+    public void testFormatsDoNotInterfere() {
+        MaskingContext context = new MaskingContext();
+        // 同一个上下文交替使用各格式的状态机
+        String xml = "<a mobile=\"13800138000";
+        assertEquals(context.deSensitive(xml, MaskingFormat.XML), "<a mobile=\"" + MASKED);
+        assertEquals(context.deSensitive("mobile=13800138000", MaskingFormat.JSON), "mobile=13800138000");
+        assertEquals(context.deSensitive("mobile=13800138000", MaskingFormat.KEY_VALUE), "mobile=" + MASKED);
+        assertEquals(context.deSensitive("<x>13800138000</x>", MaskingFormat.XML), "<x>13800138000</x>");
+    }
+
+    @Test
+    public void testLongInputAcrossScratchSegments() {
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            input.append("id=").append(i).append(" mobile=13800138000 ");
+            expected.append("id=").append(i).append(" mobile=").append(MASKED).append(' ');
+        }
+        assertEquals(SensitiveReplacer.deSensitiveString(input.toString(), MaskingFormat.KEY_VALUE), expected.toString());
+    }
+
+    @Test
+    public void testStream() throws IOException {
+        StringWriter out = new StringWriter();
+        SensitiveReplacer.deSensitive(new StringReader("<mobile>13800138000</mobile>"), out, MaskingFormat.XML);
+        assertEquals(out.toString(), "<mobile>" + MASKED + "</mobile>");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testStreamRequiresConcreteFormat() throws IOException {
+        SensitiveReplacer.deSensitive(new StringReader("mobile=1"), new StringWriter(), MaskingFormat.AUTO);
+    }
+}
@@ -0,0 +1,277 @@
+package io.github.lancelot.datamasking;
+
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.testng.Assert.*;
+
+public class MaskingLimitsTest {
+
+    private static final String MARKER = MaskingLimits.DEFAULT_TRUNCATION_MARKER;
+
+    private static MaskingEngine engine(MaskingLimits.Builder limits) {
+        return MaskingEngine.builder().field("mobile", SensitiveType.MOBILE_PHONE).limits(limits.build()).build();
+    }
+
+    /**
+     * 字符串、UTF-8 和逐行三条路径的结果一致
+     */
+    private static void assertMasked(MaskingEngine engine, String input, String expected) {
+        assertEquals(engine.deSensitiveString(input), expected);
+        ByteBuffer utf8 = engine.deSensitive(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(StandardCharsets.UTF_8.decode(utf8).toString(), expected);
+        ByteBuffer line = engine.newLineMasker().mask(ByteBuffer.wrap((input + "\n").getBytes(StandardCharsets.UTF_8)));
+        assertEquals(StandardCharsets.UTF_8.decode(line).toString(), expected + "\n");
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    @Test
+    public void testDefaultIsUnlimited() {
+        MaskingEngine engine = MaskingEngine.builder().field("mobile", SensitiveType.MOBILE_PHONE).build();
+        assertSame(engine.snapshot().limits(), MaskingLimits.NONE);
+        String input = "{\"" + repeat('k', 100) + "\":\"v\",\"mobile\":\"13800138000\"";
+        assertMasked(engine, input, "{\"" + repeat('k', 100) + "\":\"v\",\"mobile\":\"138******8000\"");
+        assertSame(MaskingEngine.builder().from(engine.snapshot()).build().snapshot().limits(), MaskingLimits.NONE);
+    }
+
+    @Test
+    public void testLongKeyFailClosed() {
+        MaskingEngine engine = engine(MaskingLimits.builder().maxKeyLength(8));
+        assertMasked(engine, "{\"averyveryverylongkey\":\"value\",\"mobile\":\"13800138000\"}",
+                "{\"averyver\":\"******\",\"mobile\":\"138******8000\"}");
+        assertMasked(engine, "{\"averyveryverylongkey\":12345,\"mobile\":\"13800138000\"}",
+                "{\"averyver\":******,\"mobile\":\"138******8000\"}");
+        // 缺少结束引号时之后的内容都不输出
+        assertMasked(engine, "{\"msg\":\"x\",\"oops mobile 13800138000 and more", "{\"msg\":\"x\",\"oops mob");
+        // 不跟冒号的超长字符串不影响后续
+        assertMasked(engine, "[\"averyveryverylongstring\",{\"mobile\":\"13800138000\"}]",
+                "[\"averyver\",{\"mobile\":\"138******8000\"}]");
+    }
+
+    @Test
+    public void testLongKeyFailOpen() {
+        MaskingEngine engine = engine(MaskingLimits.builder().maxKeyLength(8).failClosed(false));
+        String input = "{\"averyveryverylongkey\":\"value\"}";
+        assertMasked(engine, input, input);
+        assertMasked(engine, "{\"mobile\":\"13800138000\"}", "{\"mobile\":\"138******8000\"}");
+        // 超长的字段名原样输出到结束引号，之后的字段照常脱敏
+        assertMasked(engine(MaskingLimits.builder().maxKeyLength(5).failClosed(false)),
+                "{\"averyveryverylongkey\":\"x\",\"mobile\":\"13800138000\"}",
+                "{\"averyveryverylongkey\":\"x\",\"mobile\":\"138******8000\"}");
+        assertMasked(engine, "{\"averyvery\\\"mobile\\\"key\":13800138000,\"mobile\":13800138000}",
+                "{\"averyvery\\\"mobile\\\"key\":13800138000,\"mobile\":138******8000}");
+        String key = repeat('k', 20000);
+        assertMasked(engine, "{\"" + key + "\":\"value\",\"mobile\":\"13800138000\"}",
+                "{\"" + key + "\":\"value\",\"mobile\":\"138******8000\"}");
+    }
+
+    @Test
+    public void testLongKeyAcrossSegments() {
+        MaskingEngine engine = engine(MaskingLimits.builder().maxKeyLength(64));
+        String key = repeat('k', 20000);
+        assertMasked(engine, "{\"" + key + "\":\"value\",\"mobile\":\"13800138000\"}",
+                "{\"" + key.substring(0, 64) + "\":\"******\",\"mobile\":\"138******8000\"}");
+    }
+
+    @Test
+    public void testLongValueFailClosed() {
+        MaskingEngine engine = engine(MaskingLimits.builder().maxValueLength(8));
+        assertMasked(engine, "{\"mobile\":\"13800138000\",\"name\":\"x\"}", "{\"mobile\":\"******\",\"name\":\"x\"}");
+        assertMasked(engine, "{\"mobile\":13800138000,\"name\":\"x\"}", "{\"mobile\":******,\"name\":\"x\"}");
+        // 非敏感值不受限制
+        assertMasked(engine, "{\"name\":\"13800138000\"}", "{\"name\":\"13800138000\"}");
+        assertMasked(engine, "{\"mobile\":\"1380013\"}", "{\"mobile\":\"" + SensitiveConvertor.convertMsg(
+                SensitiveType.MOBILE_PHONE, "1380013") + "\"}");
+    }
+
+    @Test
+    public void testLongValueFailOpen() {
+        MaskingEngine engine = engine(MaskingLimits.builder().maxValueLength(8).failClosed(false));
+        String prefix = SensitiveConvertor.convertMsg(SensitiveType.MOBILE_PHONE, "13800138");
+        assertMasked(engine, "{\"mobile\":\"13800138000\",\"name\":\"x\"}", "{\"mobile\":\"" + prefix + "\",\"name\":\"x\"}");
+        assertMasked(engine, "{\"mobile\":13800138000,\"name\":\"x\"}", "{\"mobile\":" + prefix + ",\"name\":\"x\"}");
+    }
+
+    @Test
+    public void testHugeValueIsNotBuffered() {
+        MaskingStrategy keep = MaskingStrategy.keep(2, 2);
+        MaskingEngine closed = MaskingEngine.builder().field("blob", keep)
+                .limits(MaskingLimits.builder().maxValueLength(100).build()).build();
+        MaskingEngine open = MaskingEngine.builder().field("blob", keep)
+                .limits(MaskingLimits.builder().maxValueLength(100).failClosed(false).build()).build();
+        String blob = repeat('A', 50000);
+        String input = "{\"blob\":\"" + blob + "\",\"mobile\":\"13800138000\"}";
+        assertMasked(closed, input, "{\"blob\":\"******\",\"mobile\":\"13800138000\"}");
+        assertMasked(open, input, "{\"blob\":\"" + keep.mask(blob.substring(0, 100)) + "\",\"mobile\":\"13800138000\"}");
+    }
+
+    @Test
+    public void testEmbeddedJsonOverLimit() {
+        String input = "{\"body\":\"{\\\"mobile\\\":\\\"13800138000\\\"}\"}";
+        MaskingEngine closed = MaskingEngine.builder().field("mobile", SensitiveType.MOBILE_PHONE).maskEmbeddedJson(true)
+                .limits(MaskingLimits.builder().maxValueLength(10).build()).build();
+        MaskingEngine open = MaskingEngine.builder().field("mobile", SensitiveType.MOBILE_PHONE).maskEmbeddedJson(true)
+                .limits(MaskingLimits.builder().maxValueLength(10).failClosed(false).build()).build();
+        assertMasked(closed, input, "{\"body\":\"******\"}");
+        assertMasked(open, input, input);
+    }
+
+    @Test
+    public void testInputTruncation() {
+        MaskingEngine closed = engine(MaskingLimits.builder().maxInputLength(25));
+        MaskingEngine open = engine(MaskingLimits.builder().maxInputLength(25).failClosed(false));
+        String input = "{\"name\":\"x\",\"mobile\":\"13800138000\"}";
+        assertMasked(closed, input, "{\"name\":\"x\",\"mobile\":\"******" + MARKER);
+        assertMasked(open, input, "{\"name\":\"x\",\"mobile\":\""
+                + SensitiveConvertor.convertMsg(SensitiveType.MOBILE_PHONE, "138") + MARKER);
+        // 未超过上限的输入不受影响
+        assertMasked(closed, "{\"mobile\":\"13800138000\"}", "{\"mobile\":\"138******8000\"}");
+        // 不含字段名的输入同样截断
+        assertMasked(closed, "plain text without any field", "plain text without any fi" + MARKER);
+    }
+
+    @Test
+    public void testLargeInputTruncation() throws IOException {
+        MaskingEngine engine = MaskingEngine.builder().field("mobile", SensitiveType.MOBILE_PHONE)
+                .limits(MaskingLimits.builder().maxInputLength(10000).truncationMarker("").build()).build();
+        StringBuilder input = new StringBuilder();
+        while (input.length() < 100000) {
+            input.append("{\"mobile\":\"13800138000\"},");
+        }
+        String masked = engine.deSensitiveString(input.toString());
+        // 每条25个字符，恰好在第400条之后截断
+        MaskingEngine unlimited = MaskingEngine.builder().field("mobile", SensitiveType.MOBILE_PHONE).build();
+        assertEquals(masked, unlimited.deSensitiveString(input.substring(0, 10000)));
+        assertEquals(engine.deSensitiveStringParallel(input.toString(), ForkJoinPool.commonPool()), masked);
+        StringWriter writer = new StringWriter();
+        engine.deSensitive(new StringReader(input.toString()), writer, MaskingFormat.JSON);
+        assertEquals(writer.toString(), masked);
+    }
+
+    @Test
+    public void testDepthFailClosed() {
+        MaskingEngine engine = engine(MaskingLimits.builder().maxDepth(2));
+        assertMasked(engine, "{\"a\":{\"b\":{\"mobile\":\"13800138000\"}}}", "{\"a\":{\"b\":" + MARKER);
+        assertMasked(engine, "[[1],[2]],[[3]]", "[[1],[2]],[[3]]");
+        assertMasked(engine, "[[[1]]]", "[[" + MARKER);
+    }
+
+    @Test
+    public void testDepthFailOpen() {
+        MaskingEngine limited = MaskingEngine.builder().field("mobile", SensitiveType.MOBILE_PHONE)
+                .path("a.b.secret", SensitiveType.CHINESE_NAME)
+                .limits(MaskingLimits.builder().maxDepth(2).failClosed(false).build()).build();
+        MaskingEngine unlimited = MaskingEngine.builder().field("mobile", SensitiveType.MOBILE_PHONE)
+                .path("a.b.secret", SensitiveType.CHINESE_NAME).build();
+        String input = "{\"a\":{\"b\":{\"secret\":\"张三丰\",\"mobile\":\"13800138000\"}},\"a\":{\"secret\":\"李四\"}}";
+        String name = SensitiveConvertor.convertMsg(SensitiveType.CHINESE_NAME, "张三丰");
+        assertEquals(unlimited.deSensitiveString(input),
+                "{\"a\":{\"b\":{\"secret\":\"" + name + "\",\"mobile\":\"138******8000\"}},\"a\":{\"secret\":\"李四\"}}");
+        // 超过层数的部分不匹配路径规则，仍按字段名脱敏；回到上限以内后恢复
+        assertMasked(limited, input,
+                "{\"a\":{\"b\":{\"secret\":\"张三丰\",\"mobile\":\"138******8000\"}},\"a\":{\"secret\":\"李四\"}}");
+    }
+
+    @Test
+    public void testLongValueFailOpenChunked() {
+        MaskingEngine engine = MaskingEngine.builder().field("idCard", SensitiveType.ID_CARD)
+                .limits(MaskingLimits.builder().maxValueLength(10).failClosed(false).build()).build();
+        // 不在反斜杠和被转义的引号之间截断
+        assertMasked(engine, "{\"idCard\":\"abcdefghi\\\"jklmnop\"}",
+                "{\"idCard\":\"" + MaskingStrategy.of(SensitiveType.ID_CARD).mask("abcdefghi") + "\"}");
+        String[] inputs = {
+                "{\"idCard\":\"abcdefghi\\\"jklmnop\"}",
+                "{\"idCard\":\"abcdefghij\\\"klmnop\"}",
+                "{\"idCard\":\"abcdefgh\\\\\"}",
+                "{\"idCard\":\"abcdefgh\\\\x\\\"yz\"}",
+                "{\"idCard\":12345678901234567,\"a\":1}",
+                "{\"idCard\":\"张三丰李四王五赵六\",\"a\":1}"
+        };
+        for (String input : inputs) {
+            // 每种分段大小的结果与整体扫描一致
+            char[] chars = input.toCharArray();
+            String expected = scanChars(engine, chars, chars.length);
+            for (int chunk = 1; chunk < chars.length; chunk++) {
+                assertEquals(scanChars(engine, chars, chunk), expected, input + " chunk size " + chunk);
+            }
+            byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+            String expectedUtf8 = scanUtf8(engine, bytes, bytes.length);
+            for (int chunk = 1; chunk < bytes.length; chunk++) {
+                assertEquals(scanUtf8(engine, bytes, chunk), expectedUtf8, input + " chunk size " + chunk);
+            }
+        }
+    }
+
+    private static String scanChars(MaskingEngine engine, char[] chars, int chunk) {
+        SensitiveScanner scanner = new SensitiveScanner(engine.snapshot());
+        StringBuilder out = new StringBuilder();
+        for (int off = 0; off < chars.length; off += chunk) {
+            scanner.scan(chars, off, Math.min(chars.length, off + chunk), out);
+        }
+        scanner.finish(out);
+        return out.toString();
+    }
+
+    private static String scanUtf8(MaskingEngine engine, byte[] bytes, int chunk) {
+        Utf8SensitiveScanner scanner = new Utf8SensitiveScanner(engine.snapshot());
+        Utf8Output out = new Utf8Output(1, true);
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        for (int off = 0; off < bytes.length; off += chunk) {
+            scanner.scan(in, off, Math.min(bytes.length, off + chunk), out);
+        }
+        scanner.finish(out);
+        return StandardCharsets.UTF_8.decode(out.flip()).toString();
+    }
+
+    @Test
+    public void testUtf8CutsAtCodePointBoundary() {
+        MaskingEngine engine = MaskingEngine.builder().field("name", MaskingStrategy.keep(1, 0))
+                .limits(MaskingLimits.builder().maxValueLength(4).failClosed(false).build()).build();
+        ByteBuffer masked = engine.deSensitive(ByteBuffer.wrap("{\"name\":\"张三丰\"}".getBytes(StandardCharsets.UTF_8)));
+        // 前4个字节只有一个完整的字符
+        assertEquals(StandardCharsets.UTF_8.decode(masked).toString(), "{\"name\":\"" + MaskingStrategy.keep(1, 0).mask("张") + "\"}");
+
+        MaskingEngine truncating = engine(MaskingLimits.builder().maxInputLength(5));
+        masked = truncating.deSensitive(ByteBuffer.wrap("ab张三".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(StandardCharsets.UTF_8.decode(masked).toString(), "ab张" + MARKER);
+    }
+
+    @Test
+    public void testRegistryLimits() {
+        try {
+            SensitiveInfoRegistry.limits(MaskingLimits.builder().maxInputLength(4).build());
+            assertEquals(SensitiveReplacer.deSensitiveString("abcdefgh"), "abcd" + MARKER);
+            assertEquals(SensitiveInfoRegistry.snapshot().limits().maxInputLength(), 4);
+        } finally {
+            SensitiveInfoRegistry.limits(MaskingLimits.NONE);
+        }
+        assertEquals(SensitiveReplacer.deSensitiveString("abcdefgh"), "abcdefgh");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNonPositiveLimit() {
+        MaskingLimits.builder().maxKeyLength(0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNullMarker() {
+        MaskingLimits.builder().truncationMarker(null);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNullLimits() {
+        SensitiveInfoRegistry.limits(null);
+    }
+}
@@ -0,0 +1,116 @@
+package io.github.lancelot.datamasking;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.testng.Assert.*;
+
+public class MaskingMetricsTest {
+
+    private Map<String, SensitiveType> saved;
+
+    private MaskingMetrics metrics;
+
+    @BeforeMethod
+    public void setup() {
+        saved = new HashMap<>(SensitiveInfoRegistry.snapshot().fields());
+        SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+        SensitiveInfoRegistry.put("name", SensitiveType.CHINESE_NAME);
+        metrics = MaskingMetrics.enable();
+        metrics.reset();
+    }
+
+    @AfterMethod
+    public void restore() {
+        MaskingMetrics.disable();
+        SensitiveInfoRegistry.replaceAll(saved);
+    }
+
+    @Test
+    public void testCountsPerCall() {
+        String input = "{\"id\":1,\"mobile\":\"13800138000\",\"name\":\"张三\",\"tags\":[\"a\"]}";
+        SensitiveReplacer.deSensitiveString(input);
+        SensitiveReplacer.deSensitive(input.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(metrics.getCalls(), 2);
+        assertEquals(metrics.getCharsScanned(), input.length());
+        assertEquals(metrics.getBytesScanned(), input.getBytes(StandardCharsets.UTF_8).length);
+        // id, mobile, name, tags, "a"
+        assertEquals(metrics.getKeysSeen(), 10);
+        assertEquals(metrics.getKeysMatched(SensitiveType.MOBILE_PHONE), 2);
+        assertEquals(metrics.getKeysMatched(SensitiveType.CHINESE_NAME), 2);
+        assertEquals(metrics.getKeysMatched().get("ID_CARD").longValue(), 0);
+        assertEquals(metrics.getValuesMasked(), 4);
+        assertEquals(metrics.getMalformedResets(), 0);
+        assertTrue(metrics.getTotalTimeNanos() > 0);
+    }
+
+    @Test
+    public void testMalformedResets() {
+        SensitiveReplacer.deSensitiveString("{\"a\" x \"mobile\":\"1380013");
+        assertEquals(metrics.getMalformedResets(), 2);
+        assertEquals(metrics.getValuesMasked(), 1);
+    }
+
+    @Test
+    public void testFastPath() {
+        String plain = "{\"id\":1,\"remark\":\"ok\"}";
+        assertSame(SensitiveReplacer.deSensitiveString(plain), plain);
+        SensitiveReplacer.deSensitiveString("{\"mobile\":\"13800138000\"}");
+
+        assertEquals(metrics.getFastPathHits(), 1);
+        assertEquals(metrics.getFastPathMisses(), 1);
+        assertEquals(metrics.getFastPathHitRate(), 0.5);
+        assertEquals(metrics.getCalls(), 2);
+        assertEquals(metrics.getKeysSeen(), 1);
+    }
+
+    @Test
+    public void testParallelCountsOneCall() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 50; i++) {
+            sb.append("{\"mobile\":\"13800138000\",\"remark\":\"a,b\"},");
+        }
+        sb.append("{}]");
+        String input = sb.toString();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            ParallelMasking.mask(input, SensitiveInfoRegistry.snapshot(), pool, 64);
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(metrics.getCalls(), 1);
+        assertEquals(metrics.getCharsScanned(), input.length());
+        assertEquals(metrics.getKeysMatched(SensitiveType.MOBILE_PHONE), 50);
+    }
+
+    @Test
+    public void testDisabledRecordsNothing() {
+        MaskingMetrics.disable();
+        assertNull(MaskingMetrics.current());
+        SensitiveReplacer.deSensitiveString("{\"mobile\":\"13800138000\"}");
+        assertEquals(metrics.getCalls(), 0);
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        ObjectName name = metrics.registerMBean();
+        try {
+            SensitiveReplacer.deSensitiveString("{\"mobile\":\"13800138000\"}");
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(server.getAttribute(name, "Calls"), 1L);
+            assertEquals(server.getAttribute(name, "ValuesMasked"), 1L);
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+}
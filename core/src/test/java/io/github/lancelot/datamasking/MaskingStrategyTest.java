@@ -0,0 +1,186 @@
+package io.github.lancelot.datamasking;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public class MaskingStrategyTest {
+
+    private Map<String, SensitiveType> savedFields;
+
+    private Map<String, MaskingStrategy> savedStrategies;
+
+    @BeforeMethod
+    public void setup() {
+        savedFields = new HashMap<>(SensitiveInfoRegistry.snapshot().fields());
+        savedStrategies = new HashMap<>(SensitiveInfoRegistry.snapshot().strategies());
+    }
+
+    @AfterMethod
+    public void restore() {
+        SensitiveInfoRegistry.replaceAll(savedFields);
+        SensitiveInfoRegistry.replaceAllStrategies(savedStrategies);
+    }
+
+    /**
+     * 字符与 UTF-8 两条路径结果一致
+     */
+    private static String mask(String json) {
+        String masked = SensitiveReplacer.deSensitiveString(json);
+        ByteBuffer bytes = SensitiveReplacer.deSensitive(json.getBytes(StandardCharsets.UTF_8));
+        byte[] copy = new byte[bytes.remaining()];
+        bytes.get(copy);
+        assertEquals(new String(copy, StandardCharsets.UTF_8), masked);
+        return masked;
+    }
+
+    @Test
+    public void testKeep() {
+        assertEquals(MaskingStrategy.keep(2, 2).fill('#').fixedWidth(4).mask("E12345678"), "E1####78");
+        assertEquals(MaskingStrategy.keep(3, 0).mask("192.168.1.1"), "192********");
+        assertEquals(MaskingStrategy.keep(1, 1).proportionalWidth(0.5).mask("abcdefg"), "a***g");
+        assertEquals(MaskingStrategy.keep(0, 0).fixedWidth(6).mask("x"), "******");
+        // 不超过保留长度时全部隐藏
+        assertEquals(MaskingStrategy.keep(3, 4).mask("12345"), "*****");
+        assertEquals(MaskingStrategy.keep(3, 4).mask("  "), "");
+        assertEquals(MaskingStrategy.keep(3, 4).mask("NULL"), "NULL");
+    }
+
+    @Test
+    public void testHashAndDrop() {
+        String hash = MaskingStrategy.hash().mask("13800138000");
+        assertEquals(hash.length(), 16);
+        assertTrue(hash.matches("[0-9a-f]{16}"));
+        assertEquals(MaskingStrategy.hash().mask("13800138000"), hash);
+        assertNotEquals(MaskingStrategy.hash().mask("13800138001"), hash);
+        assertEquals(MaskingStrategy.drop().mask("E12345678"), "");
+    }
+
+    @Test
+    public void testBuiltin() {
+        for (SensitiveType type : SensitiveType.values()) {
+            assertEquals(MaskingStrategy.of(type).mask("13800138000"),
+                    SensitiveConvertor.convertMsg(type, "13800138000"));
+        }
+        assertSame(MaskingStrategy.of(SensitiveType.EMAIL), MaskingStrategy.of(SensitiveType.EMAIL));
+    }
+
+    @Test
+    public void testRegisteredByFieldName() {
+        SensitiveInfoRegistry.put("passport", MaskingStrategy.keep(2, 2).fill('#').fixedWidth(4));
+        SensitiveInfoRegistry.put("plate", MaskingStrategy.keep(1, 0).fill('•'));
+        SensitiveInfoRegistry.put("userId", MaskingStrategy.hash());
+        SensitiveInfoRegistry.put("secret", MaskingStrategy.drop());
+        SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+
+        String masked = mask("{\"passport\":\"E12345678\",\"plate\":\"京A12345\",\"userId\":\"u-1\","
+                + "\"secret\":\"abc\",\"mobile\":\"13800138000\",\"other\":\"E12345678\"}");
+
+        assertEquals(masked, "{\"passport\":\"E1####78\",\"plate\":\"京••••••\",\"userId\":\""
+                + MaskingStrategy.hash().mask("u-1") + "\",\"secret\":\"\",\"mobile\":\"138******8000\","
+                + "\"other\":\"E12345678\"}");
+    }
+
+    @Test
+    public void testEscapedValue() {
+        SensitiveInfoRegistry.put("passport", MaskingStrategy.keep(1, 1));
+        assertEquals(mask("{\"passport\":\"\\\"E123\\\\\"}"), "{\"passport\":\"\\\"****\\\\\"}");
+    }
+
+    @Test
+    public void testLastRegistrationWins() {
+        SensitiveInfoRegistry.put("card", SensitiveType.BANK_CARD);
+        SensitiveInfoRegistry.put("card", MaskingStrategy.drop());
+        assertFalse(SensitiveInfoRegistry.snapshot().fields().containsKey("card"));
+        assertEquals(mask("{\"card\":\"6222020000000000\"}"), "{\"card\":\"\"}");
+
+        SensitiveInfoRegistry.put("card", SensitiveType.BANK_CARD);
+        assertFalse(SensitiveInfoRegistry.snapshot().strategies().containsKey("card"));
+        assertEquals(mask("{\"card\":\"6222020000000000\"}"), "{\"card\":\"62******0000\"}");
+
+        // replaceAll 不影响自定义规则
+        SensitiveInfoRegistry.put("passport", MaskingStrategy.drop());
+        SensitiveInfoRegistry.replaceAll(Collections.<String, SensitiveType>emptyMap());
+        assertEquals(mask("{\"card\":\"6222\",\"passport\":\"E1\"}"), "{\"card\":\"6222\",\"passport\":\"\"}");
+    }
+
+    @Test
+    public void testToken() {
+        byte[] secret = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+        MaskingStrategy token = MaskingStrategy.token(secret);
+        String masked = token.mask("13800138000");
+        assertTrue(masked.matches("tok_[0-9a-f]{16}"), masked);
+        // 相同密钥的不同实例（例如不同节点）结果相同，缓存不影响结果
+        assertEquals(MaskingStrategy.token(secret.clone(), 16, 0).mask("13800138000"), masked);
+        assertEquals(MaskingStrategy.token(secret, 6, 16).mask("13800138000"), masked.substring(0, 10));
+        // 最小的缓存：第二次未命中时放入缓存，之后命中
+        for (int cacheSize : new int[]{1, 4}) {
+            MaskingStrategy small = MaskingStrategy.token(secret, 16, cacheSize);
+            for (int i = 0; i < 3; i++) {
+                assertEquals(small.mask("13800138000"), masked);
+                assertEquals(small.mask("1380013800" + i), token.mask("1380013800" + i));
+            }
+        }
+        assertNotEquals(token.mask("13800138001"), masked);
+        assertNotEquals(MaskingStrategy.token("fedcba9876543210".getBytes(StandardCharsets.US_ASCII))
+                .mask("13800138000"), masked);
+        assertEquals(token.mask("NULL"), "NULL");
+
+        SensitiveInfoRegistry.put("mobile", token);
+        SensitiveInfoRegistry.put("name", token);
+        assertEquals(mask("{\"mobile\":\"13800138000\",\"name\":\"张三\"}"),
+                "{\"mobile\":\"" + masked + "\",\"name\":\"" + token.mask("张三") + "\"}");
+    }
+
+    @Test
+    public void testTokenCacheMetrics() {
+        MaskingStrategy token = MaskingStrategy.token(new byte[16]);
+        SensitiveInfoRegistry.put("mobile", token);
+        MaskingMetrics metrics = MaskingMetrics.enable();
+        try {
+            metrics.reset();
+            mask("{\"mobile\":\"13800138000\"}");
+            mask("{\"mobile\":\"13800138000\"}");
+            mask("{\"mobile\":\"13900139000\"}");
+            // 每次 mask 分别走字符和 UTF-8 两条路径；值第二次未命中时才放入缓存
+            assertEquals(metrics.getTokenCacheMisses(), 4);
+            assertEquals(metrics.getTokenCacheHits(), 2);
+            assertEquals(metrics.getTokenCacheHitRate(), 2 / 6.0, 1e-9);
+        } finally {
+            MaskingMetrics.disable();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testTokenSecretLength() {
+        MaskingStrategy.token(new byte[8]);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativePrefix() {
+        MaskingStrategy.keep(-1, 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNonPositiveRatio() {
+        MaskingStrategy.keep(0, 0).proportionalWidth(0);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testCustomizeNonKeep() {
+        MaskingStrategy.hash().fill('#');
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNullStrategy() {
+        SensitiveInfoRegistry.put("x", (MaskingStrategy) null);
+    }
+}
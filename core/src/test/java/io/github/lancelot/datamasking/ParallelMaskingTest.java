@@ -0,0 +1,64 @@
+package io.github.lancelot.datamasking;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.testng.Assert.*;
+
+public class ParallelMaskingTest {
+
+    private SensitiveInfoRegistry.Snapshot snapshot;
+
+    @BeforeClass
+    public void setup() {
+        SensitiveInfoRegistry.put("name", SensitiveType.CHINESE_NAME);
+        SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+        SensitiveInfoRegistry.put("address", SensitiveType.ADDRESS);
+        snapshot = SensitiveInfoRegistry.snapshot();
+    }
+
+    @Test
+    public void testMatchesSequentialForAnyChunkSize() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 40; i++) {
+            // commas inside values make some speculative boundaries land inside strings
+            sb.append("{\"id\":").append(i).append(",\"remark\":\"a1,b\",c2\",d,").append(i)
+                    .append("\",\"address\":\"杭州市,西湖区,文三路").append(i).append("号\",\"mobile\":1380013800")
+                    .append(i % 10).append(",\"name\":\"张,三\"},");
+        }
+        sb.append("{\"mobile\":\"13800138000");
+        String input = sb.toString();
+        String expected = SensitiveReplacer.deSensitiveString(input);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int chunkSize = 1; chunkSize < 200; chunkSize += 7) {
+                assertEquals(ParallelMasking.mask(input, snapshot, pool, chunkSize), expected, "chunk size " + chunkSize);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testBoundariesSplitAfterValueEnd() {
+        char[] chars = "{\"a\":\"x,y\",\"b\":12,\"c\":true}".toCharArray();
+        List<Integer> boundaries = ParallelMasking.boundaries(chars, 5);
+        assertEquals(boundaries.get(0).intValue(), 0);
+        assertEquals(boundaries.get(boundaries.size() - 1).intValue(), chars.length);
+        for (int i = 1; i < boundaries.size() - 1; i++) {
+            int boundary = boundaries.get(i);
+            assertEquals(chars[boundary - 1], ',');
+        }
+    }
+
+    @Test
+    public void testSmallInputFallsBackToSequential() {
+        String input = "{\"mobile\":\"13800138000\"}";
+        assertEquals(SensitiveReplacer.deSensitiveStringParallel(input), "{\"mobile\":\"138******8000\"}");
+        assertNull(SensitiveReplacer.deSensitiveStringParallel(null));
+    }
+}
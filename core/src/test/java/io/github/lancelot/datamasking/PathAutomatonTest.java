@@ -0,0 +1,152 @@
+package io.github.lancelot.datamasking;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.testng.Assert.*;
+
+public class PathAutomatonTest {
+
+    private static final String MASKED = "138******8000";
+
+    private Map<String, SensitiveType> savedFields;
+
+    private Map<String, SensitiveType> savedPaths;
+
+    @BeforeMethod
+    public void save() {
+        savedFields = new HashMap<>(SensitiveInfoRegistry.snapshot().fields());
+        savedPaths = new HashMap<>(SensitiveInfoRegistry.snapshot().paths());
+        SensitiveInfoRegistry.clear();
+    }
+
+    @AfterMethod
+    public void restore() {
+        SensitiveInfoRegistry.replaceAll(savedFields);
+        SensitiveInfoRegistry.replaceAllPaths(savedPaths);
+    }
+
+    @Test
+    public void testAutomatonTransitions() {
+        Map<String, SensitiveType> rules = new LinkedHashMap<>();
+        rules.put("$.user.name", SensitiveType.CHINESE_NAME);
+        rules.put("orders[*].card", SensitiveType.BANK_CARD);
+        PathAutomaton automaton = PathAutomaton.compile(rules);
+        int user = automaton.symbolNames().indexOf("user") + 1;
+        int name = automaton.symbolNames().indexOf("name") + 1;
+        int orders = automaton.symbolNames().indexOf("orders") + 1;
+        int card = automaton.symbolNames().indexOf("card") + 1;
+
+        int start = automaton.start();
+        assertEquals(automaton.type(automaton.field(automaton.field(start, user), name)), SensitiveType.CHINESE_NAME);
+        assertNull(automaton.type(automaton.field(automaton.field(start, 0), name)));
+        assertNull(automaton.type(automaton.field(start, name)));
+        int element = automaton.element(automaton.field(start, orders));
+        assertEquals(automaton.type(automaton.field(element, card)), SensitiveType.BANK_CARD);
+        assertEquals(automaton.field(automaton.field(start, orders), card), PathAutomaton.DEAD);
+        assertNull(PathAutomaton.compile(new HashMap<String, SensitiveType>()));
+    }
+
+    @Test
+    public void testFinalNames() {
+        Map<String, SensitiveType> rules = new LinkedHashMap<>();
+        rules.put("user.name", SensitiveType.CHINESE_NAME);
+        rules.put("orders[*]", SensitiveType.ALL);
+        rules.put("**.card", SensitiveType.BANK_CARD);
+        assertEquals(new HashSet<>(PathAutomaton.compile(rules).finalNames()),
+                new HashSet<>(Arrays.asList("name", "card")));
+        rules.put("shop.*", SensitiveType.ALL);
+        assertNull(PathAutomaton.compile(rules).finalNames());
+    }
+
+    @Test
+    public void testPrefilterWithPaths() {
+        SensitiveInfoRegistry.putPath("user.phone", SensitiveType.MOBILE_PHONE);
+        String input = "{\"user\":{\"id\":1}}";
+        assertSame(SensitiveReplacer.deSensitiveString(input), input);
+        assertMasked("{\"user\":{\"phone\":\"13800138000\"}}", "{\"user\":{\"phone\":\"" + MASKED + "\"}}");
+
+        SensitiveInfoRegistry.putPath("user.*", SensitiveType.MOBILE_PHONE);
+        assertNull(SensitiveInfoRegistry.snapshot().prefilter);
+    }
+
+    @Test
+    public void testInvalidPaths() {
+        for (String path : new String[]{"a..b", "a[0]", "a.**", ""}) {
+            try {
+                SensitiveInfoRegistry.putPath(path, SensitiveType.ALL);
+                fail(path);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        assertTrue(SensitiveInfoRegistry.snapshot().paths().isEmpty());
+    }
+
+    @Test
+    public void testSameNameDifferentPaths() {
+        SensitiveInfoRegistry.putPath("user.phone", SensitiveType.MOBILE_PHONE);
+        String input = "{\"user\":{\"id\":1,\"phone\":\"13800138000\"},\"product\":{\"phone\":\"13800138000\"},"
+                + "\"phone\":\"13800138000\"}";
+        String expected = "{\"user\":{\"id\":1,\"phone\":\"" + MASKED + "\"},\"product\":{\"phone\":\"13800138000\"},"
+                + "\"phone\":\"13800138000\"}";
+        assertMasked(input, expected);
+    }
+
+    @Test
+    public void testArraysAndDeepWildcard() {
+        SensitiveInfoRegistry.putPath("orders[*].contact.phone", SensitiveType.MOBILE_PHONE);
+        SensitiveInfoRegistry.putPath("**.mobile", SensitiveType.MOBILE_PHONE);
+        String input = "{\"tags\":[\"phone\",\"x\"],\"orders\":[{\"contact\":{\"phone\":\"13800138000\"}},"
+                + "{\"contact\":{\"phone\":13800138000},\"items\":[[1,2],{\"mobile\":\"13800138000\"}]}],"
+                + "\"contact\":{\"phone\":\"13800138000\"}}";
+        String expected = "{\"tags\":[\"phone\",\"x\"],\"orders\":[{\"contact\":{\"phone\":\"" + MASKED + "\"}},"
+                + "{\"contact\":{\"phone\":" + MASKED + "},\"items\":[[1,2],{\"mobile\":\"" + MASKED + "\"}]}],"
+                + "\"contact\":{\"phone\":\"13800138000\"}}";
+        assertMasked(input, expected);
+    }
+
+    @Test
+    public void testPathRulePriority() {
+        SensitiveInfoRegistry.put("phone", SensitiveType.ALL);
+        SensitiveInfoRegistry.putPath("*.phone", SensitiveType.FIXED_PHONE);
+        SensitiveInfoRegistry.putPath("user.phone", SensitiveType.MOBILE_PHONE);
+        String input = "{\"user\":{\"phone\":\"13800138000\"},\"shop\":{\"phone\":\"13800138000\"},"
+                + "\"phone\":\"13800138000\"}";
+        String expected = "{\"user\":{\"phone\":\"" + MASKED + "\"},\"shop\":{\"phone\":\""
+                + SensitiveConvertor.convertMsg(SensitiveType.FIXED_PHONE, "13800138000") + "\"},"
+                + "\"phone\":\"" + SensitiveConvertor.convertMsg(SensitiveType.ALL, "13800138000") + "\"}";
+        assertMasked(input, expected);
+    }
+
+    private static void assertMasked(String input, String expected) {
+        assertEquals(SensitiveReplacer.deSensitiveString(input), expected);
+        assertEquals(ParallelMasking.mask(input, SensitiveInfoRegistry.snapshot(), ForkJoinPool.commonPool(), 8),
+                expected);
+
+        ByteBuffer utf8 = SensitiveReplacer.deSensitive(input.getBytes(StandardCharsets.UTF_8));
+        byte[] bytes = new byte[utf8.remaining()];
+        utf8.get(bytes);
+        assertEquals(new String(bytes, StandardCharsets.UTF_8), expected);
+
+        // 任意切分点分段输入，嵌套栈需要跨段保持
+        for (int split = 1; split < input.length(); split++) {
+            SensitiveScanner scanner = new SensitiveScanner(SensitiveInfoRegistry.snapshot());
+            StringBuilder out = new StringBuilder();
+            char[] chars = input.toCharArray();
+            scanner.scan(chars, 0, split, out);
+            scanner.scan(chars, split, chars.length, out);
+            scanner.finish(out);
+            assertEquals(out.toString(), expected, "split at " + split);
+        }
+    }
+}
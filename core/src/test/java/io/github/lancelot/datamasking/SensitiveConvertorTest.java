@@ -0,0 +1,47 @@
+package io.github.lancelot.datamasking;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class SensitiveConvertorTest {
+
+    @Test
+    public void testStringRules() {
+        assertEquals(SensitiveConvertor.chineseName("张三丰"), "张*");
+        assertEquals(SensitiveConvertor.idCardNum("110101199003072345"), "110******345");
+        assertEquals(SensitiveConvertor.idCardNum("12345678"), "******");
+        assertEquals(SensitiveConvertor.fixedPhone("01012345678"), "*******5678");
+        assertEquals(SensitiveConvertor.fixedPhone("1234"), "******");
+        assertEquals(SensitiveConvertor.mobilePhone("13800138000"), "138******8000");
+        assertEquals(SensitiveConvertor.mobilePhone("null"), "******");
+        assertEquals(SensitiveConvertor.address("北京市海淀区"), "北京******淀区");
+        assertEquals(SensitiveConvertor.email("test@example.com"), "******.com");
+        assertEquals(SensitiveConvertor.email("a.com"), "******");
+        assertEquals(SensitiveConvertor.bankCard("6225880123456789"), "62******6789");
+        assertEquals(SensitiveConvertor.bankName("中国工商银行"), "中国工商**");
+        assertEquals(SensitiveConvertor.bankName("招商"), "招*");
+        assertEquals(SensitiveConvertor.cnapsCode("123456789012"), "1234******9012");
+        assertEquals(SensitiveConvertor.cardValidDate("0126"), "0**6");
+        assertEquals(SensitiveConvertor.cardValidDate("7"), "77");
+        assertEquals(SensitiveConvertor.all("anything", 3), "***");
+        assertNull(SensitiveConvertor.mobilePhone(null));
+        assertEquals(SensitiveConvertor.chineseName("  "), "  ");
+    }
+
+    @Test
+    public void testCharRangeMatchesString() {
+        String[] values = {"张三丰", "110101199003072345", "01012345678", "13800138000", "北京市海淀区中关村",
+                "test@example.com", "6225880123456789", "中国工商银行", "123456789012", "0126", "7",
+                "null", "NULL", " ", "ab"};
+        for (SensitiveType type : SensitiveType.values()) {
+            for (String value : values) {
+                char[] chars = ("[" + value + "]").toCharArray();
+                StringBuilder out = new StringBuilder("prefix:");
+                type.mask(chars, 1, chars.length - 1, out);
+                assertEquals(out.toString(), "prefix:" + SensitiveConvertor.convertMsg(type, value),
+                        type + " " + value);
+            }
+        }
+    }
+}
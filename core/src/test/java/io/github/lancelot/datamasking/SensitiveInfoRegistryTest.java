@@ -0,0 +1,151 @@
+package io.github.lancelot.datamasking;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.testng.Assert.*;
+
+public class SensitiveInfoRegistryTest {
+
+    private Map<String, SensitiveType> saved;
+
+    @BeforeMethod
+    public void save() {
+        saved = new HashMap<>(SensitiveInfoRegistry.snapshot().fields());
+    }
+
+    @AfterMethod
+    public void restore() {
+        SensitiveInfoRegistry.replaceAll(saved);
+    }
+
+    @Test
+    public void testSnapshotIsImmutableAndVersioned() {
+        SensitiveInfoRegistry.Snapshot before = SensitiveInfoRegistry.snapshot();
+        SensitiveInfoRegistry.put("registryTestField", SensitiveType.ALL);
+        SensitiveInfoRegistry.Snapshot after = SensitiveInfoRegistry.snapshot();
+
+        assertEquals(after.version(), before.version() + 1);
+        assertNull(before.getSensitiveType("registryTestField"));
+        assertEquals(after.getSensitiveType("registryTestField"), SensitiveType.ALL);
+        try {
+            after.fields().put("x", SensitiveType.ALL);
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void testReplaceAllNeverExposesEmptyRegistry() throws InterruptedException {
+        Map<String, SensitiveType> first = new HashMap<>();
+        first.put("mobile", SensitiveType.MOBILE_PHONE);
+        first.put("name", SensitiveType.CHINESE_NAME);
+        Map<String, SensitiveType> second = new HashMap<>();
+        second.put("mobile", SensitiveType.MOBILE_PHONE);
+        second.put("idCard", SensitiveType.ID_CARD);
+        SensitiveInfoRegistry.replaceAll(first);
+
+        String input = "{\"mobile\":\"13800138000\"}";
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> leaked = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Thread reader = new Thread(() -> {
+                while (running.get()) {
+                    String result = SensitiveReplacer.deSensitiveString(input);
+                    if (result.contains("13800138000")) {
+                        leaked.set(result);
+                    }
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        for (int i = 0; i < 2000; i++) {
+            SensitiveInfoRegistry.replaceAll(i % 2 == 0 ? second : first);
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(leaked.get());
+    }
+
+    @Test
+    public void testListenerSeesEveryPublishedSnapshot() {
+        List<Long> versions = new ArrayList<>();
+        Consumer<SensitiveInfoRegistry.Snapshot> listener = snapshot -> versions.add(snapshot.version());
+        SensitiveInfoRegistry.addListener(listener);
+        try {
+            long current = SensitiveInfoRegistry.snapshot().version();
+            SensitiveInfoRegistry.put("registryTestField", SensitiveType.ALL);
+            SensitiveInfoRegistry.clear();
+            assertEquals(versions.size(), 3);
+            assertEquals(versions.get(0).longValue(), current);
+            assertEquals(versions.get(2).longValue(), current + 2);
+        } finally {
+            SensitiveInfoRegistry.removeListener(listener);
+        }
+    }
+
+    @Test
+    public void testRelaxedKeyMatching() {
+        SensitiveInfoRegistry.put("mobileNo", SensitiveType.MOBILE_PHONE);
+        SensitiveInfoRegistry.putPath("user.realName", SensitiveType.CHINESE_NAME);
+        try {
+            String json = "{\"MOBILE_NO\":\"13800138000\",\"user\":{\"real_name\":\"张三丰\"}}";
+            assertEquals(SensitiveReplacer.deSensitiveString(json), json);
+            assertNull(SensitiveInfoRegistry.getSensitiveType("mobile-no"));
+
+            SensitiveInfoRegistry.relaxedKeyMatching(true);
+            assertTrue(SensitiveInfoRegistry.snapshot().relaxedKeyMatching());
+            assertEquals(SensitiveInfoRegistry.getSensitiveType("mobile-no"), SensitiveType.MOBILE_PHONE);
+            String name = SensitiveConvertor.convertMsg(SensitiveType.CHINESE_NAME, "张三丰");
+            String expected = "{\"MOBILE_NO\":\"138******8000\",\"user\":{\"real_name\":\"" + name + "\"}}";
+            assertEquals(SensitiveReplacer.deSensitiveString(json), expected);
+            ByteBuffer masked = SensitiveReplacer.deSensitive(json.getBytes(StandardCharsets.UTF_8));
+            assertEquals(StandardCharsets.UTF_8.decode(masked).toString(), expected);
+            assertEquals(SensitiveReplacer.deSensitiveString("Order(Mobile_No=13800138000)", MaskingFormat.KEY_VALUE),
+                    "Order(Mobile_No=138******8000)");
+            assertEquals(SensitiveReplacer.deSensitiveString("<mobile-no>13800138000</mobile-no>", MaskingFormat.XML),
+                    "<mobile-no>138******8000</mobile-no>");
+        } finally {
+            SensitiveInfoRegistry.relaxedKeyMatching(false);
+            SensitiveInfoRegistry.clear();
+        }
+    }
+
+    @Test
+    public void testGetStrategy() {
+        MaskingStrategy keep = MaskingStrategy.keep(2, 2);
+        SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+        SensitiveInfoRegistry.put("passport", keep);
+        SensitiveInfoRegistry.putPath("user.name", SensitiveType.CHINESE_NAME);
+        try {
+            SensitiveInfoRegistry.Snapshot snapshot = SensitiveInfoRegistry.snapshot();
+            assertEquals(snapshot.getStrategy("mobile"), MaskingStrategy.of(SensitiveType.MOBILE_PHONE));
+            assertEquals(snapshot.getStrategy("passport"), keep);
+            // 只出现在路径规则中的字段名不算注册
+            assertNull(snapshot.getStrategy("name"));
+            assertNull(snapshot.getStrategy("Passport"));
+            assertNull(snapshot.getStrategy(null));
+
+            SensitiveInfoRegistry.relaxedKeyMatching(true);
+            assertEquals(SensitiveInfoRegistry.snapshot().getStrategy("PASS_PORT"), keep);
+        } finally {
+            SensitiveInfoRegistry.relaxedKeyMatching(false);
+            SensitiveInfoRegistry.clear();
+        }
+    }
+}
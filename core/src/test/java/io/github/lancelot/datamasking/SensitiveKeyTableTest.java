@@ -0,0 +1,92 @@
+package io.github.lancelot.datamasking;
+
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public class SensitiveKeyTableTest {
+
+    @Test
+    public void testLookupExactKeysOnly() {
+        Map<String, SensitiveType> map = new HashMap<>();
+        map.put("name", SensitiveType.CHINESE_NAME);
+        map.put("nameCn", SensitiveType.ALL);
+        map.put("mobile", SensitiveType.MOBILE_PHONE);
+        SensitiveKeyTable table = SensitiveKeyTable.compile(map);
+
+        char[] chars = "{\"nam\",\"name\",\"nameCn\",\"mobileNo\"}".toCharArray();
+        assertNull(table.lookup(chars, 2, 5));
+        assertEquals(table.lookup(chars, 8, 12), SensitiveType.CHINESE_NAME);
+        assertEquals(table.lookup(chars, 15, 21), SensitiveType.ALL);
+        assertNull(table.lookup(chars, 24, 32));
+        assertEquals(table.lookup("mobile"), SensitiveType.MOBILE_PHONE);
+        assertNull(table.lookup(""));
+    }
+
+    @Test
+    public void testLookupWithWideFanOut() {
+        Map<String, SensitiveType> map = new HashMap<>();
+        for (char c = 'a'; c <= 'z'; c++) {
+            map.put(c + "Key", SensitiveType.ALL);
+        }
+        map.put("姓名", SensitiveType.CHINESE_NAME);
+        SensitiveKeyTable table = SensitiveKeyTable.compile(map);
+
+        for (char c = 'a'; c <= 'z'; c++) {
+            assertEquals(table.lookup(c + "Key"), SensitiveType.ALL);
+        }
+        assertEquals(table.lookup("姓名"), SensitiveType.CHINESE_NAME);
+        assertNull(table.lookup("AKey"));
+        assertNull(SensitiveKeyTable.EMPTY.lookup("name"));
+    }
+
+    @Test
+    public void testFoldedLookup() {
+        Map<String, SensitiveType> map = new HashMap<>();
+        map.put("mobileNo", SensitiveType.MOBILE_PHONE);
+        map.put("姓名", SensitiveType.CHINESE_NAME);
+        Map<String, MaskingStrategy> customs = new HashMap<>();
+        customs.put("ID_CARD", MaskingStrategy.keep(3, 4));
+        SensitiveKeyTable table = SensitiveKeyTable.compile(map, customs, Collections.singletonList("user-name"), true);
+
+        for (String key : new String[]{"mobileNo", "mobileno", "MOBILE_NO", "mobile-no", "MobileNo", "_mobile__no_"}) {
+            assertEquals(table.lookup(key), SensitiveType.MOBILE_PHONE, key);
+            char[] chars = ("\"" + key + "\"").toCharArray();
+            assertEquals(table.lookup(chars, 1, chars.length - 1), SensitiveType.MOBILE_PHONE, key);
+            ByteBuffer bytes = ByteBuffer.wrap(key.getBytes(StandardCharsets.UTF_8));
+            assertEquals(table.lookupUtf8(bytes, 0, bytes.limit()), SensitiveType.MOBILE_PHONE, key);
+        }
+        assertNull(table.lookup("mobile"));
+        assertNull(table.lookup("mobileNumber"));
+        assertNull(table.lookup("mobile.no"));
+        assertEquals(table.lookup("姓名"), SensitiveType.CHINESE_NAME);
+        assertNotNull(table.strategy(table.find("idCard".toCharArray(), 0, 6)));
+        assertEquals(table.symbol(table.find("UserName".toCharArray(), 0, 8)), 1);
+
+        // 默认仍然精确匹配
+        SensitiveKeyTable exact = SensitiveKeyTable.compile(map, customs, Collections.<String>emptyList());
+        assertNull(exact.lookup("MOBILE_NO"));
+        assertEquals(exact.lookup("mobileNo"), SensitiveType.MOBILE_PHONE);
+    }
+
+    @Test
+    public void testFoldedCollisionPrefersCustomThenSmallestName() {
+        Map<String, SensitiveType> map = new HashMap<>();
+        map.put("mobile_no", SensitiveType.ALL);
+        map.put("mobileNo", SensitiveType.MOBILE_PHONE);
+        map.put("Name", SensitiveType.ALL);
+        Map<String, MaskingStrategy> customs = new HashMap<>();
+        customs.put("NAME", MaskingStrategy.drop());
+        SensitiveKeyTable table = SensitiveKeyTable.compile(map, customs, Collections.<String>emptyList(), true);
+
+        // "mobileNo" < "mobile_no"
+        assertEquals(table.lookup("MOBILE-NO"), SensitiveType.MOBILE_PHONE);
+        assertSame(table.strategy(table.find("name".toCharArray(), 0, 4)), customs.get("NAME"));
+    }
+}
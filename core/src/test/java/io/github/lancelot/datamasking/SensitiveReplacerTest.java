@@ -3,6 +3,15 @@ package io.github.lancelot.datamasking;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.testng.Assert.*;
 
 public class SensitiveReplacerTest {
@@ -36,7 +45,9 @@ public class SensitiveReplacerTest {
     @Test
     public void testNonJsonInput() {
         String input = "This is not a JSON string";
-        assertEquals(SensitiveReplacer.deSensitiveString(input), input);
+        assertSame(SensitiveReplacer.deSensitiveString(input), input);
+        String json = "{\"id\":1,\"tags\":[\"a\",\"b\"]}";
+        assertSame(SensitiveReplacer.deSensitiveString(json), json);
     }
 
     @Test
@@ -60,6 +71,13 @@ public class SensitiveReplacerTest {
         assertEquals(SensitiveReplacer.deSensitiveString(input), expected);
     }
 
+    @Test
+    public void testStringArrayFollowedBySensitiveField() {
+        String input = "{\"tags\":[\"a\",\"b\"],\"mobile\":\"13800138000\"}";
+        String expected = "{\"tags\":[\"a\",\"b\"],\"mobile\":\"138******8000\"}";
+        assertEquals(SensitiveReplacer.deSensitiveString(input), expected);
+    }
+
     @Test
     public void testJsonWithFixedPhone() {
         String input = "{\"phone\":\"01012345678\"}";
@@ -182,4 +200,132 @@ public class SensitiveReplacerTest {
         String expected = "{\"name\":\"null\"}"; // Should remain unchanged per your convertor
         assertEquals(SensitiveReplacer.deSensitiveString(input), expected);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testTrailingUnterminatedValue() {
+        assertEquals(SensitiveReplacer.deSensitiveString("resp {\"age\":30"), "resp {\"age\":30");
+        assertEquals(SensitiveReplacer.deSensitiveString("{\"mobile\":\"13800138000"), "{\"mobile\":\"138******8000");
+    }
+
+    @Test
+    public void testStreamingMatchesString() throws IOException {
+        String input = "aaa{\"users\": [ {\"name\":\"赵六\",\"mobile\":\"13700137000\"},{\"name\":\"钱七\",\"age\":25,"
+                + "\"idCard\" : \"110101199003072345\", \"password\":mySecret123}]} tail \"mobile\"=\"13500135000\"";
+        String expected = SensitiveReplacer.deSensitiveString(input);
+        for (int chunk = 1; chunk <= input.length(); chunk++) {
+            StringWriter out = new StringWriter();
+            SensitiveReplacer.deSensitive(new ChunkedReader(input, chunk), out);
+            assertEquals(out.toString(), expected, "chunk size " + chunk);
+        }
+    }
+
+    @Test
+    public void testStreamingLargePayload() throws IOException {
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            input.append("{\"seq\":").append(i).append(",\"mobile\":\"13800138000\"},");
+            expected.append("{\"seq\":").append(i).append(",\"mobile\":\"138******8000\"},");
+        }
+        StringWriter out = new StringWriter();
+        SensitiveReplacer.deSensitive(new StringReader(input.toString()), out);
+        assertEquals(out.toString(), expected.toString());
+    }
+
+    @Test
+    public void testUtf8MatchesString() {
+        String[] inputs = {
+                "This is not a JSON string",
+                "{\"name\":\"张三\",\"idCard\":\"110101199003072345\",\"mobile\":\"13800138000\"}",
+                "{\"phone\":\"01012345678\",\"email\":\"test@example.com\",\"bankCard\":\"6225880123456789\"}",
+                "{\"address\":\"北京市海淀区中关村大街1号\",\"bankName\":\"中国工商银行\",\"cnaps\":\"123456789012\"}",
+                "{\"expiryDate\":\"0126\",\"password\":\"mySecret123\",\"name\":null,\"email\":\"\"}",
+                "{\n  \"name\" : \"周九\", \n  \"mobile\" : \"13400134000\" \n}",
+                "日志 {\"users\": [ {\"name\":\"赵六\",\"mobile\":13700137000},{\"bankName\":\"招商\"}]} \"address\"=\"上海\"",
+                "{\"email\":\"张三@例子.中国\",\"expiryDate\":\"7\"}"
+        };
+        for (String input : inputs) {
+            ByteBuffer masked = SensitiveReplacer.deSensitive(input.getBytes(StandardCharsets.UTF_8));
+            assertEquals(StandardCharsets.UTF_8.decode(masked).toString(), SensitiveReplacer.deSensitiveString(input));
+        }
+    }
+
+    @Test
+    public void testUtf8KeepsWholeCodePoints() {
+        String input = "{\"name\":\"\uD842\uDFB7家\"}";
+        ByteBuffer masked = SensitiveReplacer.deSensitive(input.getBytes(StandardCharsets.UTF_8));
+        assertEquals(StandardCharsets.UTF_8.decode(masked).toString(), "{\"name\":\"\uD842\uDFB7*\"}");
+    }
+
+    @Test
+    public void testUtf8Chunked() {
+        String input = "{\"name\":\"赵六\",\"mobile\":\"13700137000\",\"address\":\"北京市海淀区中关村\"}";
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        String expected = SensitiveReplacer.deSensitiveString(input);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        for (int chunk = 1; chunk <= bytes.length; chunk++) {
+            Utf8SensitiveScanner scanner = new Utf8SensitiveScanner(SensitiveInfoRegistry.snapshot());
+            Utf8Output out = new Utf8Output(1, true);
+            for (int off = 0; off < bytes.length; off += chunk) {
+                scanner.scan(direct, off, Math.min(bytes.length, off + chunk), out);
+            }
+            scanner.finish(out);
+            assertEquals(StandardCharsets.UTF_8.decode(out.flip()).toString(), expected, "chunk size " + chunk);
+        }
+    }
+
+    @Test
+    public void testBatchMatchesSingle() {
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            longValue.append("北京市海淀区");
+        }
+        List<CharSequence> inputs = Arrays.<CharSequence>asList(
+                "{\"mobile\":\"13800138000\"}",
+                new StringBuilder("{\"name\":\"张三\",\"age\":20}"),
+                null,
+                "",
+                "{\"address\":\"" + longValue + "\",\"name\":\"李四\"}");
+        List<String> results = SensitiveReplacer.deSensitiveBatch(inputs);
+        assertEquals(results.get(0), "{\"mobile\":\"138******8000\"}");
+        assertEquals(results.get(1), "{\"name\":\"张*\",\"age\":20}");
+        assertNull(results.get(2));
+        assertEquals(results.get(3), "");
+        assertEquals(results.get(4), "{\"address\":\"北京******淀区\",\"name\":\"李*\"}");
+
+        MaskingContext context = new MaskingContext();
+        StringBuilder out = new StringBuilder("log: ");
+        context.deSensitive(inputs.get(1), out);
+        assertEquals(out.toString(), "log: " + results.get(1));
+    }
+
+    /**
+     * Reader that returns at most {@code chunk} chars per read to exercise chunk boundaries.
+     */
+    private static final class ChunkedReader extends Reader {
+        private final String text;
+        private final int chunk;
+        private int position;
+
+        ChunkedReader(String text, int chunk) {
+            this.text = text;
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (position >= text.length()) {
+                return -1;
+            }
+            int n = Math.min(Math.min(len, chunk), text.length() - position);
+            text.getChars(position, position + n, cbuf, off);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
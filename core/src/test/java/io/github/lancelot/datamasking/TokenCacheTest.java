@@ -0,0 +1,90 @@
+package io.github.lancelot.datamasking;
+
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.testng.Assert.*;
+
+public class TokenCacheTest {
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String get(TokenCache cache, String value) {
+        byte[] key = bytes(value);
+        TokenCache.Entry viaBytes = cache.get(ByteBuffer.wrap(key), 0, key.length, TokenCache.hash(ByteBuffer.wrap(key), 0,
+                key.length));
+        char[] chars = value.toCharArray();
+        TokenCache.Entry viaChars = cache.get(chars, 0, chars.length, TokenCache.hash(chars, 0, chars.length));
+        assertSame(viaChars, viaBytes);
+        return viaBytes == null ? null : viaBytes.token;
+    }
+
+    private static void put(TokenCache cache, String value, String token) {
+        byte[] key = bytes(value);
+        cache.put(key, TokenCache.hash(ByteBuffer.wrap(key), 0, key.length), token);
+    }
+
+    @Test
+    public void testCapacity() {
+        assertEquals(new TokenCache(4096).capacity(), 4096);
+        assertEquals(new TokenCache(9).capacity(), 16);
+        assertEquals(new TokenCache(1).capacity(), TokenCache.WAYS);
+    }
+
+    @Test
+    public void testGetPut() {
+        TokenCache cache = new TokenCache(64);
+        assertNull(get(cache, "13800138000"));
+        put(cache, "13800138000", "tok_1");
+        assertEquals(get(cache, "13800138000"), "tok_1");
+        assertNull(get(cache, "1380013800"));
+        assertNull(get(cache, "13800138001"));
+    }
+
+    /**
+     * 只有一组时就是容量为 WAYS 的 LRU
+     */
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        TokenCache cache = new TokenCache(TokenCache.WAYS);
+        for (int i = 0; i < TokenCache.WAYS; i++) {
+            put(cache, "v" + i, "t" + i);
+        }
+        // v0 最早插入，访问后变为最近使用
+        assertNotNull(get(cache, "v0"));
+        put(cache, "v-new", "t-new");
+        assertNotNull(get(cache, "v0"));
+        assertNull(get(cache, "v1"));
+        assertNotNull(get(cache, "v-new"));
+    }
+
+    @Test
+    public void testAdmitOnSecondMiss() {
+        TokenCache cache = new TokenCache(64);
+        int hash = TokenCache.hash("13800138000".toCharArray(), 0, 11);
+        assertFalse(cache.admit(hash));
+        assertTrue(cache.admit(hash));
+        // 未命中次数达到容量时位图清空
+        for (int i = 2; i < cache.capacity(); i++) {
+            cache.admit(TokenCache.hash(("v" + i).toCharArray(), 0, ("v" + i).length()));
+        }
+        assertFalse(cache.admit(hash));
+    }
+
+    @Test
+    public void testAdmitSmallCapacity() {
+        for (int capacity : new int[]{1, 4}) {
+            TokenCache cache = new TokenCache(capacity);
+            int hash = TokenCache.hash("13800138000".toCharArray(), 0, 11);
+            assertFalse(cache.admit(hash));
+            assertTrue(cache.admit(hash));
+            for (int i = 0; i < 100; i++) {
+                cache.admit(TokenCache.hash(("v" + i).toCharArray(), 0, ("v" + i).length()));
+            }
+        }
+    }
+}
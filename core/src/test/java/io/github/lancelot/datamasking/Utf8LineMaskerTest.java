@@ -0,0 +1,90 @@
+package io.github.lancelot.datamasking;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public class Utf8LineMaskerTest {
+
+    private Map<String, SensitiveType> saved;
+
+    @BeforeMethod
+    public void save() {
+        saved = new HashMap<>(SensitiveInfoRegistry.snapshot().fields());
+        SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+        SensitiveInfoRegistry.put("name", SensitiveType.CHINESE_NAME);
+    }
+
+    @AfterMethod
+    public void restore() {
+        SensitiveInfoRegistry.replaceAll(saved);
+    }
+
+    @Test
+    public void testSameAsLineByLine() {
+        String[] lines = {"{\"mobile\":\"13800138000\",\"name\":\"张三丰\"}", "", "{\"mobile\":\"1380", "plain\rtext"};
+        String input = lines[0] + "\r\n" + lines[1] + "\n" + lines[2] + "\n" + lines[3];
+        StringBuilder expected = new StringBuilder();
+        expected.append(SensitiveReplacer.deSensitiveString(lines[0])).append("\r\n")
+                .append(SensitiveReplacer.deSensitiveString(lines[1])).append('\n')
+                .append(SensitiveReplacer.deSensitiveString(lines[2])).append('\n')
+                .append(SensitiveReplacer.deSensitiveString(lines[3]));
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+
+        // 在每个位置切分成两块
+        Utf8LineMasker masker = new Utf8LineMasker();
+        for (int split = 0; split <= bytes.length; split++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            write(out, masker.mask(ByteBuffer.wrap(bytes, 0, split)));
+            write(out, masker.mask(ByteBuffer.wrap(bytes, split, bytes.length - split)));
+            write(out, masker.finish());
+            assertEquals(new String(out.toByteArray(), StandardCharsets.UTF_8), expected.toString(), "split at " + split);
+        }
+
+        // 逐字节
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < bytes.length; i++) {
+            write(out, masker.mask(ByteBuffer.wrap(bytes, i, 1)));
+        }
+        write(out, masker.finish());
+        assertEquals(new String(out.toByteArray(), StandardCharsets.UTF_8), expected.toString());
+    }
+
+    @Test
+    public void testCompleteLinesAreEmittedImmediately() {
+        Utf8LineMasker masker = new Utf8LineMasker();
+        ByteBuffer chunk = ByteBuffer.wrap("{\"mobile\":\"13800138000\"}\n{\"mobile\":\"13".getBytes(StandardCharsets.UTF_8));
+        int position = chunk.position();
+        assertEquals(string(masker.mask(chunk)), "{\"mobile\":\"138******8000\"}\n{\"mobile\":\"");
+        assertEquals(chunk.position(), position);
+        assertEquals(string(masker.mask(ByteBuffer.wrap("800138000\"}".getBytes(StandardCharsets.UTF_8)))), "138******8000\"}");
+        assertEquals(masker.finish().remaining(), 0);
+    }
+
+    @Test
+    public void testRegistryChangesApplyFromNextLine() {
+        Utf8LineMasker masker = new Utf8LineMasker();
+        assertEquals(string(masker.mask(ByteBuffer.wrap("{\"card\":\"6225880123456789\"}\n{\"card\":\"".getBytes(StandardCharsets.UTF_8)))),
+                "{\"card\":\"6225880123456789\"}\n{\"card\":\"");
+        SensitiveInfoRegistry.put("card", SensitiveType.BANK_CARD);
+        // 当前行仍按旧的快照处理
+        assertEquals(string(masker.mask(ByteBuffer.wrap("6225880123456789\"}\n{\"card\":\"6225880123456789\"}".getBytes(StandardCharsets.UTF_8)))),
+                "6225880123456789\"}\n{\"card\":\"" + SensitiveConvertor.convertMsg(SensitiveType.BANK_CARD, "6225880123456789") + "\"}");
+    }
+
+    private static void write(ByteArrayOutputStream out, ByteBuffer buffer) {
+        out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    }
+
+    private static String string(ByteBuffer buffer) {
+        return new String(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,105 @@
+package io.github.lancelot.datamasking;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public class XmlScannerTest {
+
+    private static final String MASKED = "138******8000";
+
+    private Map<String, SensitiveType> saved;
+
+    @BeforeMethod
+    public void save() {
+        saved = new HashMap<>(SensitiveInfoRegistry.snapshot().fields());
+        SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+        SensitiveInfoRegistry.put("address", SensitiveType.ADDRESS);
+    }
+
+    @AfterMethod
+    public void restore() {
+        SensitiveInfoRegistry.replaceAll(saved);
+    }
+
+    @Test
+    public void testElements() {
+        assertXml("<user><id>1</id><mobile>13800138000</mobile></user>",
+                "<user><id>1</id><mobile>" + MASKED + "</mobile></user>");
+        // 前后空白保留，只有空白的内容不脱敏
+        assertXml("<mobile>\n  13800138000\n</mobile><mobile>\n  <a/></mobile>",
+                "<mobile>\n  " + MASKED + "\n</mobile><mobile>\n  <a/></mobile>");
+        assertXml("<mobile/><x>13800138000</x>", "<mobile/><x>13800138000</x>");
+    }
+
+    @Test
+    public void testAttributes() {
+        assertXml("<user id=\"1\" mobile=\"13800138000\" flag mobile = '13800138000'/>",
+                "<user id=\"1\" mobile=\"" + MASKED + "\" flag mobile = '" + MASKED + "'/>");
+        // 元素名敏感、属性不敏感
+        assertXml("<mobile type=\"cell\">13800138000</mobile>", "<mobile type=\"cell\">" + MASKED + "</mobile>");
+    }
+
+    @Test
+    public void testNamespacesAndMarkup() {
+        assertXml("<?xml version=\"1.0\"?><!-- <mobile>13800138000</mobile --><ns:user ns:mobile=\"13800138000\">"
+                        + "<ns:mobile>13800138000</ns:mobile></ns:user>",
+                "<?xml version=\"1.0\"?><!-- <mobile>" + MASKED + "</mobile --><ns:user ns:mobile=\"" + MASKED + "\">"
+                        + "<ns:mobile>" + MASKED + "</ns:mobile></ns:user>");
+        assertXml("<![CDATA[<mobile>13800138000</mobile>]]>", "<![CDATA[<mobile>" + MASKED + "</mobile>]]>");
+        assertXml("a < b and <1>", "a < b and <1>");
+    }
+
+    @Test
+    public void testCdataValues() {
+        assertXml("<mobile><![CDATA[13800138000]]></mobile>", "<mobile><![CDATA[" + MASKED + "]]></mobile>");
+        assertXml("<user><mobile>\n  <![CDATA[13800138000]]>\n</mobile><id><![CDATA[1]]></id></user>",
+                "<user><mobile>\n  <![CDATA[" + MASKED + "]]>\n</mobile><id><![CDATA[1]]></id></user>");
+        // CDATA 中不解码实体，"]" 不是结束标记
+        assertXml("<address><![CDATA[A&amp;B] No.1]]></address>",
+                "<address><![CDATA[" + SensitiveConvertor.convertMsg(SensitiveType.ADDRESS, "A&amp;B] No.1")
+                        + "]]></address>");
+        assertXml("<mobile><!-- x --></mobile>", "<mobile><!-- x --></mobile>");
+        assertXml("<mobile><![CDATA[13800138000", "<mobile><![CDATA[" + MASKED);
+        // 在 CDATA 开始标记处截断
+        assertXml("<mobile><![CDATA[", "<mobile><![CDATA[");
+        assertXml("<mobile>user<![CDATA[", "<mobile>" + SensitiveConvertor.convertMsg(SensitiveType.MOBILE_PHONE, "user")
+                + "<![CDATA[");
+    }
+
+    @Test
+    public void testEntitiesAreDecodedBeforeMasking() {
+        String address = SensitiveConvertor.convertMsg(SensitiveType.ADDRESS, "A&B <road> No.1");
+        StringBuilder escaped = new StringBuilder();
+        XmlEscapes.escape(address, 0, address.length(), escaped);
+        assertXml("<address>A&amp;B &lt;road&gt; No.1</address>", "<address>" + escaped + "</address>");
+    }
+
+    @Test
+    public void testUnclosedValueIsMasked() {
+        assertXml("<user><mobile>13800138000", "<user><mobile>" + MASKED);
+        assertXml("<user mobile=\"13800138000", "<user mobile=\"" + MASKED);
+    }
+
+    @Test
+    public void testEscapesRoundTrip() {
+        char[] raw = "&lt;a&gt; &amp; &quot;&apos; &#65;&#x42; &unknown; &".toCharArray();
+        assertTrue(XmlEscapes.containsAmpersand(raw, 0, raw.length));
+        StringBuilder decoded = new StringBuilder();
+        XmlEscapes.unescape(raw, 0, raw.length, decoded);
+        assertEquals(decoded.toString(), "<a> & \"' AB &unknown; &");
+
+        StringBuilder escaped = new StringBuilder();
+        XmlEscapes.escape("<a> & \"'", 0, 8, escaped);
+        assertEquals(escaped.toString(), "&lt;a&gt; &amp; &quot;&apos;");
+    }
+
+    private static void assertXml(String input, String expected) {
+        KeyValueScannerTest.assertMasked(input, MaskingFormat.XML, expected);
+    }
+}
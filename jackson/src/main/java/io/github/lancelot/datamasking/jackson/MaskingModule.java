@@ -0,0 +1,48 @@
+package io.github.lancelot.datamasking.jackson;
+
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import io.github.lancelot.datamasking.MaskingEngine;
+
+/**
+ * 序列化时直接脱敏的 Jackson 模块，省去先序列化成 String 再用 {@link io.github.lancelot.datamasking.SensitiveReplacer} 扫描一遍
+ *
+ * <pre>
+ * ObjectMapper mapper = new ObjectMapper().registerModule(new MaskingModule());
+ * log.info(mapper.writeValueAsString(dto));
+ * </pre>
+ *
+ * 标注了 {@link Sensitive} 的属性按注解的类型脱敏，其余属性按 JSON 中的字段名查找引擎的规则
+ * （{@link io.github.lancelot.datamasking.SensitiveInfoRegistry#put} 注册的类型和自定义规则，以及宽松匹配）。
+ * 只处理 Bean 中字符串、数值和字符类型的属性，数值脱敏后按字符串输出；对象、数组、Map 的值不处理。
+ * 路径规则、非结构化文本识别和嵌入 JSON 不适用，需要时仍对序列化结果调用 {@link MaskingEngine#deSensitiveString}。
+ *
+ * 每个类的属性在 Jackson 首次为其创建序列化器时确定，之后随序列化器一起缓存。
+ * 使用全局注册表时注册表的修改对之后的序列化立即生效；使用 {@link MaskingEngine#builder()} 构建的引擎时，
+ * 只有命中规则的属性才会被替换，其余属性的序列化与不注册本模块时完全相同。
+ * 属性已通过 {@code @JsonSerialize(using = ...)} 指定了序列化器时以指定的为准，不脱敏。
+ *
+ * @author lancelot
+ */
+public class MaskingModule extends SimpleModule {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 使用全局注册表的规则
+     */
+    public MaskingModule() {
+        this(MaskingEngine.global());
+    }
+
+    /**
+     * @param engine 按字段名查找规则的引擎
+     */
+    public MaskingModule(MaskingEngine engine) {
+        super("DataMaskingModule", Version.unknownVersion());
+        if (engine == null) {
+            throw new IllegalArgumentException("engine must not be null");
+        }
+        setSerializerModifier(new MaskingSerializerModifier(engine));
+    }
+}
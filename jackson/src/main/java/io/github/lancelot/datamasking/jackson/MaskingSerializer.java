@@ -0,0 +1,105 @@
+package io.github.lancelot.datamasking.jackson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import io.github.lancelot.datamasking.MaskingEngine;
+import io.github.lancelot.datamasking.MaskingStrategy;
+import io.github.lancelot.datamasking.SensitiveInfoRegistry;
+
+import java.io.IOException;
+
+/**
+ * 单个属性的序列化器：非 null 的值按规则脱敏后作为字符串写出，不需要脱敏时交给该属性原本的序列化器
+ *
+ * 按字段名查找时缓存最近一次查找的快照和结果，规则不变时每次序列化只比较一次引用。
+ */
+final class MaskingSerializer extends StdSerializer<Object> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 固定的规则，按字段名查找时为 null
+     */
+    private final MaskingStrategy strategy;
+
+    private final MaskingEngine engine;
+
+    private final BeanProperty property;
+
+    private volatile Resolved resolved;
+
+    /**
+     * 属性原本的序列化器，首次用到时解析
+     */
+    private volatile JsonSerializer<Object> delegate;
+
+    private MaskingSerializer(MaskingStrategy strategy, MaskingEngine engine, BeanProperty property) {
+        super(Object.class);
+        this.strategy = strategy;
+        this.engine = engine;
+        this.property = property;
+    }
+
+    static MaskingSerializer fixed(MaskingStrategy strategy, BeanProperty property) {
+        return new MaskingSerializer(strategy, null, property);
+    }
+
+    static MaskingSerializer byName(MaskingEngine engine, BeanProperty property) {
+        return new MaskingSerializer(null, engine, property);
+    }
+
+    @Override
+    public void serialize(Object value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        MaskingStrategy rule = strategy != null ? strategy : lookup();
+        if (rule != null) {
+            gen.writeString(rule.mask(value.toString()));
+        } else if (value instanceof String) {
+            gen.writeString((String) value);
+        } else {
+            delegate(provider).serialize(value, gen, provider);
+        }
+    }
+
+    /**
+     * 与 Jackson 对字符串的判断相同，供 {@code @JsonInclude(NON_EMPTY)} 使用
+     */
+    @Override
+    public boolean isEmpty(SerializerProvider provider, Object value) {
+        return value == null || (value instanceof CharSequence && ((CharSequence) value).length() == 0);
+    }
+
+    private MaskingStrategy lookup() {
+        SensitiveInfoRegistry.Snapshot snapshot = engine.snapshot();
+        Resolved current = resolved;
+        if (current == null || current.snapshot != snapshot) {
+            current = new Resolved(snapshot, snapshot.getStrategy(property.getName()));
+            resolved = current;
+        }
+        return current.strategy;
+    }
+
+    private JsonSerializer<Object> delegate(SerializerProvider provider) throws JsonMappingException {
+        JsonSerializer<Object> serializer = delegate;
+        if (serializer == null) {
+            serializer = provider.findPrimaryPropertySerializer(property.getType(), property);
+            delegate = serializer;
+        }
+        return serializer;
+    }
+
+    private static final class Resolved {
+
+        final SensitiveInfoRegistry.Snapshot snapshot;
+
+        final MaskingStrategy strategy;
+
+        Resolved(SensitiveInfoRegistry.Snapshot snapshot, MaskingStrategy strategy) {
+            this.snapshot = snapshot;
+            this.strategy = strategy;
+        }
+    }
+}
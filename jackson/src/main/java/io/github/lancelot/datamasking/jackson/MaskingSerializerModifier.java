@@ -0,0 +1,60 @@
+package io.github.lancelot.datamasking.jackson;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import io.github.lancelot.datamasking.MaskingEngine;
+import io.github.lancelot.datamasking.MaskingStrategy;
+
+import java.util.List;
+
+/**
+ * 为需要脱敏的属性指定 {@link MaskingSerializer}，Jackson 为每个类创建序列化器时调用一次
+ */
+final class MaskingSerializerModifier extends BeanSerializerModifier {
+
+    private static final long serialVersionUID = 1L;
+
+    private final MaskingEngine engine;
+
+    MaskingSerializerModifier(MaskingEngine engine) {
+        this.engine = engine;
+    }
+
+    @Override
+    public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc,
+                                                     List<BeanPropertyWriter> beanProperties) {
+        for (BeanPropertyWriter writer : beanProperties) {
+            if (writer.hasSerializer() || !isScalar(writer.getType())) {
+                continue;
+            }
+            Sensitive sensitive = writer.getAnnotation(Sensitive.class);
+            if (sensitive != null) {
+                writer.assignSerializer(MaskingSerializer.fixed(MaskingStrategy.of(sensitive.value()), writer));
+            } else if (engine == MaskingEngine.global()) {
+                // 注册表随时可能修改，每个属性都在序列化时按最新快照查找
+                writer.assignSerializer(MaskingSerializer.byName(engine, writer));
+            } else {
+                MaskingStrategy strategy = engine.snapshot().getStrategy(writer.getName());
+                if (strategy != null) {
+                    writer.assignSerializer(MaskingSerializer.fixed(strategy, writer));
+                }
+            }
+        }
+        return beanProperties;
+    }
+
+    /**
+     * 字符串、数值和字符，与 JSON 扫描器能脱敏的值一致；布尔值不处理
+     */
+    private static boolean isScalar(JavaType type) {
+        Class<?> raw = type.getRawClass();
+        if (raw.isPrimitive()) {
+            return raw != boolean.class;
+        }
+        return CharSequence.class.isAssignableFrom(raw) || Number.class.isAssignableFrom(raw)
+                || raw == Character.class;
+    }
+}
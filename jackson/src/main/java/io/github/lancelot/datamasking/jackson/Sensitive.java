@@ -0,0 +1,31 @@
+package io.github.lancelot.datamasking.jackson;
+
+import io.github.lancelot.datamasking.SensitiveType;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记需要脱敏的属性，注册了 {@link MaskingModule} 的 ObjectMapper 序列化时按该类型脱敏
+ *
+ * <pre>
+ * public class User {
+ *     &#64;Sensitive(SensitiveType.MOBILE_PHONE)
+ *     private String phone;
+ * }
+ * </pre>
+ *
+ * 可以标在字段或 getter 上，优先于按字段名注册的规则。
+ *
+ * @author lancelot
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface Sensitive {
+
+    SensitiveType value();
+}
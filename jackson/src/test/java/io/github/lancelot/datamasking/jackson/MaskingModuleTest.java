@@ -0,0 +1,183 @@
+package io.github.lancelot.datamasking.jackson;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import io.github.lancelot.datamasking.MaskingEngine;
+import io.github.lancelot.datamasking.MaskingStrategy;
+import io.github.lancelot.datamasking.SensitiveConvertor;
+import io.github.lancelot.datamasking.SensitiveInfoRegistry;
+import io.github.lancelot.datamasking.SensitiveReplacer;
+import io.github.lancelot.datamasking.SensitiveType;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public class MaskingModuleTest {
+
+    public static class User {
+
+        @Sensitive(SensitiveType.MOBILE_PHONE)
+        public String phone = "13800138000";
+
+        public String mobile = "13912345678";
+
+        public String name = "张三丰";
+
+        public User() {
+        }
+
+        public User(String phone, String mobile, String name) {
+            this.phone = phone;
+            this.mobile = mobile;
+            this.name = name;
+        }
+    }
+
+    @JsonPropertyOrder({"mobile", "active", "idCard", "card", "passport"})
+    public static class Account {
+
+        private String card = "6225880123456789";
+
+        public long mobile = 13800138000L;
+
+        public boolean active = true;
+
+        @JsonSerialize(using = ToStringSerializer.class)
+        public String idCard = "110101199003077777";
+
+        @JsonProperty("passport")
+        private String passportNo = "E12345678";
+
+        @Sensitive(SensitiveType.BANK_CARD)
+        public String getCard() {
+            return card;
+        }
+
+        public String getPassportNo() {
+            return passportNo;
+        }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public static class Sparse {
+
+        public String mobile = "";
+
+        @Sensitive(SensitiveType.MOBILE_PHONE)
+        public String phone;
+
+        public String name = "x";
+    }
+
+    public static class Order {
+
+        public String orderNo;
+
+        public User buyer;
+
+        public List<User> contacts = new ArrayList<>();
+    }
+
+    private Map<String, SensitiveType> saved;
+
+    @BeforeMethod
+    public void save() {
+        saved = new HashMap<>(SensitiveInfoRegistry.snapshot().fields());
+        SensitiveInfoRegistry.replaceAll(new HashMap<String, SensitiveType>());
+    }
+
+    @AfterMethod
+    public void restore() {
+        SensitiveInfoRegistry.replaceAll(saved);
+    }
+
+    @Test
+    public void testAnnotation() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new MaskingModule());
+        assertEquals(mapper.writeValueAsString(new User()),
+                "{\"phone\":\"138******8000\",\"mobile\":\"13912345678\",\"name\":\"张三丰\"}");
+        String card = SensitiveConvertor.convertMsg(SensitiveType.BANK_CARD, "6225880123456789");
+        assertEquals(mapper.writeValueAsString(new Account()), "{\"mobile\":13800138000,\"active\":true,"
+                + "\"idCard\":\"110101199003077777\",\"card\":\"" + card + "\",\"passport\":\"E12345678\"}");
+    }
+
+    @Test
+    public void testRegistryChangesApplyToCachedSerializers() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new MaskingModule());
+        assertEquals(mapper.writeValueAsString(new User()),
+                "{\"phone\":\"138******8000\",\"mobile\":\"13912345678\",\"name\":\"张三丰\"}");
+
+        SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+        SensitiveInfoRegistry.put("passport", MaskingStrategy.keep(1, 1));
+        // @JsonSerialize 指定了序列化器的属性不处理
+        SensitiveInfoRegistry.put("idCard", SensitiveType.ID_CARD);
+        assertEquals(mapper.writeValueAsString(new User()),
+                "{\"phone\":\"138******8000\",\"mobile\":\"139******5678\",\"name\":\"张三丰\"}");
+        String card = SensitiveConvertor.convertMsg(SensitiveType.BANK_CARD, "6225880123456789");
+        // 数值脱敏后按字符串输出
+        assertEquals(mapper.writeValueAsString(new Account()), "{\"mobile\":\"138******8000\",\"active\":true,"
+                + "\"idCard\":\"110101199003077777\",\"card\":\"" + card + "\",\"passport\":\""
+                + MaskingStrategy.keep(1, 1).mask("E12345678") + "\"}");
+    }
+
+    @Test
+    public void testSameResultAsMaskingSerializedOutput() throws Exception {
+        SensitiveInfoRegistry.put("phone", SensitiveType.MOBILE_PHONE);
+        SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+        SensitiveInfoRegistry.put("name", SensitiveType.CHINESE_NAME);
+        Order order = new Order();
+        order.orderNo = "A001";
+        order.buyer = new User("13800138000", null, "李四");
+        order.contacts.addAll(Arrays.asList(new User(), new User("13700001111", "13600002222", "王\"五\"")));
+
+        String plain = new ObjectMapper().writeValueAsString(order);
+        String masked = new ObjectMapper().registerModule(new MaskingModule()).writeValueAsString(order);
+        assertNotEquals(masked, plain);
+        assertEquals(masked, SensitiveReplacer.deSensitiveString(plain));
+    }
+
+    @Test
+    public void testEngine() throws Exception {
+        SensitiveInfoRegistry.put("name", SensitiveType.CHINESE_NAME);
+        MaskingEngine engine = MaskingEngine.builder().field("mobileNo", SensitiveType.MOBILE_PHONE)
+                .relaxedKeyMatching(true).build();
+        ObjectMapper mapper = new ObjectMapper().registerModule(new MaskingModule(engine));
+        // 引擎的规则与全局注册表无关，注解仍然生效
+        assertEquals(mapper.writeValueAsString(new User()),
+                "{\"phone\":\"138******8000\",\"mobile\":\"13912345678\",\"name\":\"张三丰\"}");
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("mobile_no", "13800138000");
+        assertEquals(mapper.writeValueAsString(map), "{\"mobile_no\":\"13800138000\"}");
+        assertEquals(mapper.writeValueAsString(new Object() {
+            @JsonProperty("MOBILE_NO")
+            public String mobile = "13800138000";
+        }), "{\"MOBILE_NO\":\"138******8000\"}");
+    }
+
+    @Test
+    public void testNullAndEmpty() throws Exception {
+        SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+        ObjectMapper mapper = new ObjectMapper().registerModule(new MaskingModule());
+        assertEquals(mapper.writeValueAsString(new Sparse()), "{\"name\":\"x\"}");
+        assertEquals(mapper.writeValueAsString(new User(null, null, null)),
+                "{\"phone\":null,\"mobile\":null,\"name\":null}");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNullEngine() {
+        new MaskingModule(null);
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.lancelot.datamasking.log4j2;
+
+import io.github.lancelot.datamasking.MaskingFormat;
+import io.github.lancelot.datamasking.SensitiveReplacer;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+
+/**
+ * 脱敏后的消息，包装原始消息，在格式化时才脱敏
+ *
+ * 通过 {@link #formatTo(StringBuilder)} 输出时直接写入调用方的缓冲区；
+ * 格式模板和参数可能包含敏感信息，因此不对外暴露。
+ *
+ * @author lancelot
+ */
+public final class MaskedMessage implements Message, StringBuilderFormattable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Message message;
+
+    private final MaskingFormat format;
+
+    private transient String formattedMessage;
+
+    /**
+     * @param message 原始消息，必须是不可变的（可复用消息请先调用 memento()）
+     */
+    public MaskedMessage(Message message) {
+        this(message, MaskingFormat.JSON);
+    }
+
+    /**
+     * @param message 原始消息，必须是不可变的（可复用消息请先调用 memento()）
+     * @param format 消息的格式
+     */
+    public MaskedMessage(Message message, MaskingFormat format) {
+        this.message = message;
+        this.format = format;
+    }
+
+    @Override
+    public String getFormattedMessage() {
+        String result = formattedMessage;
+        if (result == null) {
+            StringBuilder sb = new StringBuilder();
+            formatTo(sb);
+            result = sb.toString();
+            formattedMessage = result;
+        }
+        return result;
+    }
+
+    @Override
+    public void formatTo(StringBuilder buffer) {
+        if (formattedMessage != null) {
+            buffer.append(formattedMessage);
+        } else if (message instanceof StringBuilderFormattable) {
+            StringBuilder original = MessageBuffers.get();
+            ((StringBuilderFormattable) message).formatTo(original);
+            SensitiveReplacer.deSensitive(original, format, buffer);
+            MessageBuffers.release(original);
+        } else {
+            SensitiveReplacer.deSensitive(message.getFormattedMessage(), format, buffer);
+        }
+    }
+
+    @Override
+    public String getFormat() {
+        return getFormattedMessage();
+    }
+
+    @Override
+    public Object[] getParameters() {
+        return null;
+    }
+
+    @Override
+    public Throwable getThrowable() {
+        return message.getThrowable();
+    }
+
+    @Override
+    public String toString() {
+        return getFormattedMessage();
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.lancelot.datamasking.log4j2;
+
+import io.github.lancelot.datamasking.MaskingFormat;
+import io.github.lancelot.datamasking.SensitiveReplacer;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.pattern.ConverterKeys;
+import org.apache.logging.log4j.core.pattern.LogEventPatternConverter;
+import org.apache.logging.log4j.core.pattern.PatternConverter;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.util.PerformanceSensitive;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+
+import java.util.Locale;
+
+/**
+ * 输出脱敏后的日志消息，替代 %m/%msg
+ *
+ * <pre>
+ * &lt;PatternLayout pattern="%d %-5level [%t] %c - %maskedMsg%n"/&gt;
+ * </pre>
+ *
+ * 实现了 {@link StringBuilderFormattable} 的消息先格式化到线程复用的缓冲区，
+ * 再直接脱敏写入 Log4j2 提供的 StringBuilder，整个过程不产生中间字符串，
+ * 与 garbage-free 模式和 AsyncLogger 兼容。
+ *
+ * 经过 {@link MaskingRewritePolicy} 的消息已经脱敏，原样输出。
+ *
+ * 消息不是 JSON 时用选项指定格式，例如 %maskedMsg{KEY_VALUE}，参见 {@link MaskingFormat}。
+ *
+ * @author lancelot
+ */
+@Plugin(name = "MaskingMessagePatternConverter", category = PatternConverter.CATEGORY)
+@ConverterKeys({"maskedMsg", "maskedMessage"})
+@PerformanceSensitive("allocation")
+public final class MaskingMessagePatternConverter extends LogEventPatternConverter {
+
+    private static final MaskingMessagePatternConverter INSTANCE = new MaskingMessagePatternConverter(MaskingFormat.JSON);
+
+    private final MaskingFormat format;
+
+    private MaskingMessagePatternConverter(MaskingFormat format) {
+        super("MaskedMessage", "message");
+        this.format = format;
+    }
+
+    /**
+     * 供 Log4j2 插件系统调用
+     *
+     * @param options 第一个选项是消息的格式，缺省为 JSON
+     */
+    public static MaskingMessagePatternConverter newInstance(Configuration config, String[] options) {
+        if (options == null || options.length == 0 || options[0] == null) {
+            return INSTANCE;
+        }
+        MaskingFormat format = MaskingFormat.valueOf(options[0].trim().toUpperCase(Locale.ROOT));
+        return format == MaskingFormat.JSON ? INSTANCE : new MaskingMessagePatternConverter(format);
+    }
+
+    @Override
+    public void format(LogEvent event, StringBuilder toAppendTo) {
+        Message message = event.getMessage();
+        if (message == null) {
+            return;
+        }
+        if (message instanceof MaskedMessage) {
+            // MaskingRewritePolicy 已经脱敏过
+            ((MaskedMessage) message).formatTo(toAppendTo);
+        } else if (message instanceof StringBuilderFormattable) {
+            StringBuilder buffer = MessageBuffers.get();
+            ((StringBuilderFormattable) message).formatTo(buffer);
+            SensitiveReplacer.deSensitive(buffer, format, toAppendTo);
+            MessageBuffers.release(buffer);
+        } else {
+            SensitiveReplacer.deSensitive(message.getFormattedMessage(), format, toAppendTo);
+        }
+    }
+}
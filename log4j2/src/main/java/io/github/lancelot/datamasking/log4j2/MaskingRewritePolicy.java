@@ -0,0 +1,78 @@
+package io.github.lancelot.datamasking.log4j2;
+
+import io.github.lancelot.datamasking.MaskingFormat;
+import org.apache.logging.log4j.core.Core;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.rewrite.RewritePolicy;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ReusableMessage;
+
+import java.util.Locale;
+
+/**
+ * 把日志事件的消息替换为 {@link MaskedMessage}，适用于 JsonLayout 等无法使用 %maskedMsg 的布局
+ *
+ * <pre>
+ * &lt;Rewrite name="masked"&gt;
+ *     &lt;AppenderRef ref="file"/&gt;
+ *     &lt;MaskingRewritePolicy/&gt;
+ * &lt;/Rewrite&gt;
+ * </pre>
+ *
+ * 消息不是 JSON 时用 format 属性指定格式，例如 &lt;MaskingRewritePolicy format="KEY_VALUE"/&gt;，
+ * 参见 {@link MaskingFormat}。
+ *
+ * Rewrite 需要复制日志事件，不是 garbage-free 的；对分配敏感的场景优先使用
+ * {@link MaskingMessagePatternConverter}。
+ *
+ * @author lancelot
+ */
+@Plugin(name = "MaskingRewritePolicy", category = Core.CATEGORY_NAME, elementType = "rewritePolicy", printObject = true)
+public final class MaskingRewritePolicy implements RewritePolicy {
+
+    private static final MaskingRewritePolicy INSTANCE = new MaskingRewritePolicy(MaskingFormat.JSON);
+
+    private final MaskingFormat format;
+
+    private MaskingRewritePolicy(MaskingFormat format) {
+        this.format = format;
+    }
+
+    public static MaskingRewritePolicy createPolicy() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param format 消息的格式，缺省为 JSON
+     */
+    @PluginFactory
+    public static MaskingRewritePolicy createPolicy(@PluginAttribute("format") String format) {
+        if (format == null) {
+            return INSTANCE;
+        }
+        MaskingFormat value = MaskingFormat.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        return value == MaskingFormat.JSON ? INSTANCE : new MaskingRewritePolicy(value);
+    }
+
+    @Override
+    public LogEvent rewrite(LogEvent source) {
+        Message message = source.getMessage();
+        if (message == null || message instanceof MaskedMessage) {
+            return source;
+        }
+        // 可复用消息会在事件处理完后被覆盖，先做快照
+        if (message instanceof ReusableMessage) {
+            message = ((ReusableMessage) message).memento();
+        }
+        return new Log4jLogEvent.Builder(source).setMessage(new MaskedMessage(message, format)).build();
+    }
+
+    @Override
+    public String toString() {
+        return format == MaskingFormat.JSON ? "MaskingRewritePolicy" : "MaskingRewritePolicy[format=" + format + "]";
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.lancelot.datamasking.log4j2;
+
+import org.apache.logging.log4j.core.util.Constants;
+
+/**
+ * 格式化原始消息用的线程复用缓冲区
+ *
+ * 与 Log4j2 自身一样受 log4j2.enableThreadlocals 控制：关闭时（如 Web 应用）每次新建。
+ * 带 JSON 报文的日志普遍超过 log4j2.maxReusableMsgSize（默认 518），按这个阈值丢弃会导致每条日志都重新分配，
+ * 因此沿用核心模块的 64K 上限。
+ *
+ * 可以重入：例如 %maskedMsg 输出 {@link MaskedMessage} 时，缓冲区已被借出，再次借用时新建。
+ */
+final class MessageBuffers {
+
+    private static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<Holder> BUFFER = new ThreadLocal<>();
+
+    private MessageBuffers() {
+    }
+
+    static StringBuilder get() {
+        if (!Constants.ENABLE_THREADLOCALS) {
+            return new StringBuilder(Constants.INITIAL_REUSABLE_MESSAGE_SIZE);
+        }
+        Holder holder = BUFFER.get();
+        if (holder == null) {
+            holder = new Holder();
+            BUFFER.set(holder);
+        }
+        if (holder.inUse) {
+            return new StringBuilder(Constants.INITIAL_REUSABLE_MESSAGE_SIZE);
+        }
+        holder.inUse = true;
+        StringBuilder buffer = holder.buffer;
+        buffer.setLength(0);
+        return buffer;
+    }
+
+    static void release(StringBuilder buffer) {
+        if (!Constants.ENABLE_THREADLOCALS) {
+            return;
+        }
+        Holder holder = BUFFER.get();
+        if (holder == null || holder.buffer != buffer) {
+            return;
+        }
+        holder.inUse = false;
+        if (buffer.capacity() > MAX_RETAINED_SIZE) {
+            BUFFER.remove();
+        }
+    }
+
+    private static final class Holder {
+
+        final StringBuilder buffer = new StringBuilder(Constants.INITIAL_REUSABLE_MESSAGE_SIZE);
+
+        boolean inUse;
+    }
+}
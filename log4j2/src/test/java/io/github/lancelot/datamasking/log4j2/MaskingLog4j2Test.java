@@ -0,0 +1,98 @@
+package io.github.lancelot.datamasking.log4j2;
+
+import io.github.lancelot.datamasking.SensitiveInfoRegistry;
+import io.github.lancelot.datamasking.SensitiveType;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.DefaultConfiguration;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.core.layout.PatternLayout;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ReusableMessageFactory;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class MaskingLog4j2Test {
+
+    @BeforeClass
+    public void setup() {
+        SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+    }
+
+    @Test
+    public void testPatternConverter() {
+        PatternLayout layout = PatternLayout.newBuilder()
+                .withConfiguration(new DefaultConfiguration())
+                .withPattern("%maskedMsg|%msg")
+                .build();
+        LogEvent event = event(new ParameterizedMessage("user {}", "{\"mobile\":\"13800138000\"}"));
+        assertEquals(layout.toSerializable(event),
+                "user {\"mobile\":\"138******8000\"}|user {\"mobile\":\"13800138000\"}");
+    }
+
+    @Test
+    public void testPatternConverterWithReusableMessage() {
+        Message message = ReusableMessageFactory.INSTANCE.newMessage("user {}", "{\"mobile\":\"13800138000\"}");
+        StringBuilder out = new StringBuilder();
+        MaskingMessagePatternConverter.newInstance(null, null).format(event(message), out);
+        assertEquals(out.toString(), "user {\"mobile\":\"138******8000\"}");
+        ReusableMessageFactory.release(message);
+    }
+
+    @Test
+    public void testRewritePolicy() {
+        Message message = ReusableMessageFactory.INSTANCE.newMessage("user {}", "{\"mobile\":\"13800138000\"}");
+        LogEvent rewritten = MaskingRewritePolicy.createPolicy().rewrite(event(message));
+        // the reusable message may be recycled once the original event is done
+        ReusableMessageFactory.release(message);
+        assertSame(ReusableMessageFactory.INSTANCE.newMessage("other {}", "value"), message);
+        assertEquals(rewritten.getMessage().getFormattedMessage(), "user {\"mobile\":\"138******8000\"}");
+        assertNull(rewritten.getMessage().getParameters());
+        assertSame(MaskingRewritePolicy.createPolicy().rewrite(rewritten), rewritten);
+    }
+
+    @Test
+    public void testRewritePolicyWithPatternConverter() {
+        PatternLayout layout = PatternLayout.newBuilder()
+                .withConfiguration(new DefaultConfiguration())
+                .withPattern("%maskedMsg")
+                .build();
+        Message message = ReusableMessageFactory.INSTANCE.newMessage("{\"mobile\":\"{}\"}", "13800138000");
+        LogEvent rewritten = MaskingRewritePolicy.createPolicy().rewrite(event(message));
+        assertEquals(layout.toSerializable(rewritten), "{\"mobile\":\"138******8000\"}");
+        ReusableMessageFactory.release(message);
+
+        // 缓冲区已被借出时 MaskedMessage 仍然正确输出
+        StringBuilder borrowed = MessageBuffers.get();
+        borrowed.append("outer");
+        StringBuilder out = new StringBuilder();
+        new MaskedMessage(new ParameterizedMessage("{\"mobile\":\"{}\"}", "13800138000")).formatTo(out);
+        assertEquals(out.toString(), "{\"mobile\":\"138******8000\"}");
+        assertEquals(borrowed.toString(), "outer");
+        MessageBuffers.release(borrowed);
+    }
+
+    @Test
+    public void testFormatOption() {
+        PatternLayout layout = PatternLayout.newBuilder()
+                .withConfiguration(new DefaultConfiguration())
+                .withPattern("%maskedMsg{QUERY_STRING}")
+                .build();
+        LogEvent event = event(new ParameterizedMessage("GET /user?mobile={}&page=1", "13800138000"));
+        assertEquals(layout.toSerializable(event), "GET /user?mobile=138******8000&page=1");
+
+        LogEvent rewritten = MaskingRewritePolicy.createPolicy("query_string").rewrite(event);
+        assertEquals(rewritten.getMessage().getFormattedMessage(), "GET /user?mobile=138******8000&page=1");
+    }
+
+    private static LogEvent event(Message message) {
+        return Log4jLogEvent.newBuilder()
+                .setLoggerName("test")
+                .setLevel(Level.INFO)
+                .setMessage(message)
+                .build();
+    }
+}
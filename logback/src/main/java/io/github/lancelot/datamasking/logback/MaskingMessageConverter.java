@@ -0,0 +1,45 @@
+package io.github.lancelot.datamasking.logback;
+
+import ch.qos.logback.classic.pattern.MessageConverter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import io.github.lancelot.datamasking.MaskingFormat;
+import io.github.lancelot.datamasking.SensitiveReplacer;
+
+import java.util.Locale;
+
+/**
+ * 输出脱敏后的日志消息，替代 %msg
+ *
+ * <pre>
+ * &lt;conversionRule conversionWord="maskedMsg"
+ *                 converterClass="io.github.lancelot.datamasking.logback.MaskingMessageConverter"/&gt;
+ * &lt;pattern&gt;%d %-5level [%thread] %logger - %maskedMsg%n&lt;/pattern&gt;
+ * </pre>
+ *
+ * 脱敏使用当前线程复用的上下文，在 AsyncAppender 的工作线程中同样适用。
+ * 消息不是 JSON 时用选项指定格式，例如 %maskedMsg{KEY_VALUE}，参见 {@link MaskingFormat}。
+ *
+ * @author lancelot
+ */
+public class MaskingMessageConverter extends MessageConverter {
+
+    private MaskingFormat format = MaskingFormat.JSON;
+
+    @Override
+    public void start() {
+        String option = getFirstOption();
+        if (option != null) {
+            try {
+                format = MaskingFormat.valueOf(option.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                addError("Unknown masking format [" + option + "], using JSON");
+            }
+        }
+        super.start();
+    }
+
+    @Override
+    public String convert(ILoggingEvent event) {
+        return SensitiveReplacer.deSensitiveString(event.getFormattedMessage(), format);
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.lancelot.datamasking.logback;
+
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.CoreConstants;
+import io.github.lancelot.datamasking.MaskingFormat;
+import io.github.lancelot.datamasking.SensitiveReplacer;
+
+import java.util.Locale;
+
+/**
+ * 对整行日志脱敏的 PatternLayout，适用于敏感信息可能出现在 MDC、异常信息等 %msg 以外位置的场景
+ *
+ * <pre>
+ * &lt;encoder class="ch.qos.logback.core.encoder.LayoutWrappingEncoder"&gt;
+ *     &lt;layout class="io.github.lancelot.datamasking.logback.MaskingPatternLayout"&gt;
+ *         &lt;pattern&gt;%d %-5level [%thread] %logger - %msg%n&lt;/pattern&gt;
+ *     &lt;/layout&gt;
+ * &lt;/encoder&gt;
+ * </pre>
+ *
+ * 同时内置了 %maskedMsg 转换符，只需要对消息脱敏时使用它即可。
+ * 整行不是 JSON 时用 &lt;format&gt;KEY_VALUE&lt;/format&gt; 指定格式，参见 {@link MaskingFormat}。
+ *
+ * @author lancelot
+ */
+public class MaskingPatternLayout extends PatternLayout {
+
+    public MaskingPatternLayout() {
+        getInstanceConverterMap().put("maskedMsg", MaskingMessageConverter.class.getName());
+    }
+
+    private MaskingFormat format = MaskingFormat.JSON;
+
+    public String getFormat() {
+        return format.name();
+    }
+
+    public void setFormat(String format) {
+        try {
+            this.format = MaskingFormat.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            addError("Unknown masking format [" + format + "], using JSON");
+        }
+    }
+
+    @Override
+    public String doLayout(ILoggingEvent event) {
+        if (!isStarted()) {
+            return CoreConstants.EMPTY_STRING;
+        }
+        return SensitiveReplacer.deSensitiveString(super.doLayout(event), format);
+    }
+}
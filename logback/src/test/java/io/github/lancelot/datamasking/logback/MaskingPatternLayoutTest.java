@@ -0,0 +1,63 @@
+package io.github.lancelot.datamasking.logback;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import io.github.lancelot.datamasking.SensitiveInfoRegistry;
+import io.github.lancelot.datamasking.SensitiveType;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class MaskingPatternLayoutTest {
+
+    private LoggerContext context;
+    private Logger logger;
+
+    @BeforeClass
+    public void setup() {
+        SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+        context = new LoggerContext();
+        logger = context.getLogger("test");
+    }
+
+    @Test
+    public void testMaskedMessageConverter() {
+        MaskingPatternLayout layout = layout("[%maskedMsg] [%msg]");
+        LoggingEvent event = new LoggingEvent("fqcn", logger, Level.INFO, "user {}", null,
+                new Object[]{"{\"mobile\":\"13800138000\"}"});
+        // the whole line is masked by the layout, so both conversion words come out masked
+        assertEquals(layout.doLayout(event), "[user {\"mobile\":\"138******8000\"}] [user {\"mobile\":\"138******8000\"}]");
+    }
+
+    @Test
+    public void testConverterAlone() {
+        MaskingMessageConverter converter = new MaskingMessageConverter();
+        LoggingEvent event = new LoggingEvent("fqcn", logger, Level.INFO, "{\"mobile\":\"13800138000\"} ok", null, null);
+        assertEquals(converter.convert(event), "{\"mobile\":\"138******8000\"} ok");
+    }
+
+    @Test
+    public void testFormatOption() {
+        LoggingEvent event = new LoggingEvent("fqcn", logger, Level.INFO, "User(mobile={}, name=x)", null,
+                new Object[]{"13800138000"});
+        assertEquals(layout("%maskedMsg{key_value}").doLayout(event), "User(mobile=138******8000, name=x)");
+
+        MaskingPatternLayout layout = new MaskingPatternLayout();
+        layout.setContext(context);
+        layout.setPattern("%msg");
+        layout.setFormat("KEY_VALUE");
+        layout.start();
+        assertEquals(layout.doLayout(event), "User(mobile=138******8000, name=x)");
+    }
+
+    private MaskingPatternLayout layout(String pattern) {
+        MaskingPatternLayout layout = new MaskingPatternLayout();
+        layout.setContext(context);
+        layout.setPattern(pattern);
+        layout.start();
+        return layout;
+    }
+}
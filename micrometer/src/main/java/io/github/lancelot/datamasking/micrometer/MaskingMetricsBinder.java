@@ -0,0 +1,106 @@
+package io.github.lancelot.datamasking.micrometer;
+
+import io.github.lancelot.datamasking.MaskingMetrics;
+import io.github.lancelot.datamasking.SensitiveType;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把 {@link MaskingMetrics} 绑定到 Micrometer
+ *
+ * <pre>
+ * new MaskingMetricsBinder().bindTo(registry);
+ * </pre>
+ *
+ * 指标在采集时才从 {@link MaskingMetrics} 读取，脱敏线程上没有额外开销：
+ * <ul>
+ * <li>datamasking.calls：调用次数和耗时（FunctionTimer）</li>
+ * <li>datamasking.scanned：扫描的字符数/字节数，以 unit=chars/bytes 区分</li>
+ * <li>datamasking.keys.seen：遇到的字段名数</li>
+ * <li>datamasking.keys.matched：命中的字段数，以 type 区分脱敏类型</li>
+ * <li>datamasking.values.masked：脱敏的值个数</li>
+ * <li>datamasking.malformed.resets：输入格式异常导致状态机重新同步的次数</li>
+ * <li>datamasking.token.cache：令牌缓存的查找次数，以 result=hit/miss 区分</li>
+ * <li>datamasking.fastpath：字段名预筛选的次数，result=hit 为不含已注册字段名、原样返回，miss 为交给状态机处理</li>
+ * </ul>
+ *
+ * @author lancelot
+ */
+public class MaskingMetricsBinder implements MeterBinder {
+
+    private final MaskingMetrics metrics;
+
+    private final Iterable<Tag> tags;
+
+    /**
+     * 开启 {@link MaskingMetrics} 并绑定当前实例
+     */
+    public MaskingMetricsBinder() {
+        this(MaskingMetrics.enable(), Collections.<Tag>emptyList());
+    }
+
+    public MaskingMetricsBinder(MaskingMetrics metrics, Iterable<Tag> tags) {
+        this.metrics = metrics;
+        this.tags = tags;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionTimer.builder("datamasking.calls", metrics, MaskingMetrics::getCalls,
+                        MaskingMetrics::getTotalTimeNanos, TimeUnit.NANOSECONDS)
+                .description("masking calls and time spent")
+                .tags(tags)
+                .register(registry);
+        FunctionCounter.builder("datamasking.scanned", metrics, MaskingMetrics::getCharsScanned)
+                .description("input scanned")
+                .baseUnit("chars")
+                .tags(Tags.concat(tags, "unit", "chars"))
+                .register(registry);
+        FunctionCounter.builder("datamasking.scanned", metrics, MaskingMetrics::getBytesScanned)
+                .description("input scanned")
+                .baseUnit("bytes")
+                .tags(Tags.concat(tags, "unit", "bytes"))
+                .register(registry);
+        FunctionCounter.builder("datamasking.keys.seen", metrics, MaskingMetrics::getKeysSeen)
+                .description("field names seen")
+                .tags(tags)
+                .register(registry);
+        for (SensitiveType type : SensitiveType.values()) {
+            FunctionCounter.builder("datamasking.keys.matched", metrics, m -> m.getKeysMatched(type))
+                    .description("field names matched by a masking rule")
+                    .tags(Tags.concat(tags, "type", type.name()))
+                    .register(registry);
+        }
+        FunctionCounter.builder("datamasking.values.masked", metrics, MaskingMetrics::getValuesMasked)
+                .description("values masked")
+                .tags(tags)
+                .register(registry);
+        FunctionCounter.builder("datamasking.malformed.resets", metrics, MaskingMetrics::getMalformedResets)
+                .description("state machine resyncs caused by malformed input")
+                .tags(tags)
+                .register(registry);
+        FunctionCounter.builder("datamasking.token.cache", metrics, MaskingMetrics::getTokenCacheHits)
+                .description("token cache lookups")
+                .tags(Tags.concat(tags, "result", "hit"))
+                .register(registry);
+        FunctionCounter.builder("datamasking.token.cache", metrics, MaskingMetrics::getTokenCacheMisses)
+                .description("token cache lookups")
+                .tags(Tags.concat(tags, "result", "miss"))
+                .register(registry);
+        FunctionCounter.builder("datamasking.fastpath", metrics, MaskingMetrics::getFastPathHits)
+                .description("inputs returned unchanged by the field name prefilter")
+                .tags(Tags.concat(tags, "result", "hit"))
+                .register(registry);
+        FunctionCounter.builder("datamasking.fastpath", metrics, MaskingMetrics::getFastPathMisses)
+                .description("inputs returned unchanged by the field name prefilter")
+                .tags(Tags.concat(tags, "result", "miss"))
+                .register(registry);
+    }
+}
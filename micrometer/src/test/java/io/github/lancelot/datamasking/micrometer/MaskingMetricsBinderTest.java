@@ -0,0 +1,47 @@
+package io.github.lancelot.datamasking.micrometer;
+
+import io.github.lancelot.datamasking.MaskingMetrics;
+import io.github.lancelot.datamasking.SensitiveInfoRegistry;
+import io.github.lancelot.datamasking.SensitiveReplacer;
+import io.github.lancelot.datamasking.SensitiveType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+public class MaskingMetricsBinderTest {
+
+    @AfterClass
+    public void tearDown() {
+        MaskingMetrics.disable();
+    }
+
+    @Test
+    public void testBindTo() {
+        SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new MaskingMetricsBinder().bindTo(registry);
+        MaskingMetrics.current().reset();
+
+        String input = "{\"id\":1,\"mobile\":\"13800138000\"}";
+        SensitiveReplacer.deSensitiveString(input);
+        SensitiveReplacer.deSensitiveString(input);
+        SensitiveReplacer.deSensitiveString("user login");
+
+        assertEquals(registry.get("datamasking.calls").functionTimer().count(), 3.0);
+        assertTrue(registry.get("datamasking.calls").functionTimer().totalTime(TimeUnit.NANOSECONDS) > 0);
+        assertEquals(registry.get("datamasking.scanned").tag("unit", "chars").functionCounter().count(),
+                2.0 * input.length() + "user login".length());
+        assertEquals(registry.get("datamasking.keys.seen").functionCounter().count(), 4.0);
+        assertEquals(registry.get("datamasking.keys.matched").tag("type", "MOBILE_PHONE").functionCounter().count(),
+                2.0);
+        assertEquals(registry.get("datamasking.values.masked").functionCounter().count(), 2.0);
+        assertEquals(registry.get("datamasking.malformed.resets").functionCounter().count(), 0.0);
+        assertEquals(registry.get("datamasking.token.cache").tag("result", "hit").functionCounter().count(), 0.0);
+        assertEquals(registry.get("datamasking.fastpath").tag("result", "hit").functionCounter().count(), 1.0);
+        assertEquals(registry.get("datamasking.fastpath").tag("result", "miss").functionCounter().count(), 2.0);
+    }
+}
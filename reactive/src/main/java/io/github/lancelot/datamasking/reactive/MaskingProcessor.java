@@ -0,0 +1,340 @@
+package io.github.lancelot.datamasking.reactive;
+
+import io.github.lancelot.datamasking.Utf8LineMasker;
+import org.reactivestreams.Processor;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 对 NDJSON 日志字节流脱敏的 Reactive Streams {@link Processor}，用作日志投递链路中的一个环节
+ *
+ * 上游推送任意大小的 UTF-8 块，每块经 {@link Utf8LineMasker} 脱敏后向下游输出一个新的 ByteBuffer，
+ * 行可以跨越多个块，结果与逐行调用 {@code SensitiveReplacer.deSensitiveString} 一致。
+ * 上游的块在 onNext 返回后即可复用。
+ *
+ * 背压：向上游预取 prefetch 个块，脱敏结果放入同样大小的有界队列，下游每消费 3/4 个 prefetch 再向上游补充，
+ * 队列满时不再向上游请求，内存占用只与 prefetch 和块大小有关。上游发送超过请求数量时以
+ * IllegalStateException 结束。只支持一个下游订阅者。
+ *
+ * JDK 9+ 可以用 {@code org.reactivestreams.FlowAdapters.toFlowProcessor} 转换为 {@code java.util.concurrent.Flow.Processor}。
+ */
+public final class MaskingProcessor implements Processor<ByteBuffer, ByteBuffer> {
+
+    static final int DEFAULT_PREFETCH = 32;
+
+    private final int prefetch;
+
+    /**
+     * 下游每消费这么多个块，向上游补充同样数量
+     */
+    private final int limit;
+
+    /**
+     * 多留一个位置给上游结束时最后一行的脱敏结果
+     */
+    private final ArrayBlockingQueue<ByteBuffer> queue;
+
+    /**
+     * 只在 onNext/onError/onComplete 中访问，规范保证这些调用不会并发
+     */
+    private final Utf8LineMasker masker = new Utf8LineMasker();
+
+    private final AtomicReference<Subscription> upstream = new AtomicReference<>();
+
+    private final AtomicReference<Subscriber<? super ByteBuffer>> downstream = new AtomicReference<>();
+
+    /**
+     * 尚未转发给上游的请求数。规范要求对上游 Subscription 的调用串行进行，
+     * 而补充请求可能来自上游线程（空输出的块）和下游线程（消费），统一经 {@link #signalUpstream} 转发
+     */
+    private final AtomicLong upstreamRequests = new AtomicLong();
+
+    private final AtomicInteger upstreamWip = new AtomicInteger();
+
+    private volatile boolean upstreamCancelled;
+
+    private final AtomicLong requested = new AtomicLong();
+
+    /**
+     * 保证同一时刻只有一个线程向下游发送
+     */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile boolean done;
+
+    private volatile boolean cancelled;
+
+    private volatile Throwable error;
+
+    /**
+     * 自上次补充以来下游消费的块数，只在 drain 中访问
+     */
+    private int consumed;
+
+    public MaskingProcessor() {
+        this(DEFAULT_PREFETCH);
+    }
+
+    /**
+     * @param prefetch 向上游预取的块数，也是输出队列的容量
+     */
+    public MaskingProcessor(int prefetch) {
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("prefetch must be positive: " + prefetch);
+        }
+        this.prefetch = prefetch;
+        this.limit = prefetch - (prefetch >> 2);
+        this.queue = new ArrayBlockingQueue<>(prefetch + 1);
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        if (subscription == null) {
+            throw new NullPointerException("subscription");
+        }
+        if (!upstream.compareAndSet(null, subscription)) {
+            subscription.cancel();
+            return;
+        }
+        requestUpstream(prefetch);
+    }
+
+    @Override
+    public void onNext(ByteBuffer chunk) {
+        if (chunk == null) {
+            throw new NullPointerException("chunk");
+        }
+        if (done || cancelled) {
+            return;
+        }
+        if (queue.size() >= prefetch) {
+            cancelUpstream();
+            terminate(new IllegalStateException("upstream sent more than " + prefetch + " chunks without request"));
+            return;
+        }
+        ByteBuffer masked;
+        try {
+            masked = masker.mask(chunk);
+        } catch (RuntimeException e) {
+            cancelUpstream();
+            terminate(e);
+            return;
+        }
+        if (masked.hasRemaining()) {
+            queue.offer(masked);
+            drain();
+        } else {
+            // 没有输出的块不占队列，直接补充
+            requestUpstream(1);
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        if (t == null) {
+            throw new NullPointerException("throwable");
+        }
+        if (done) {
+            return;
+        }
+        finishLine();
+        terminate(t);
+    }
+
+    @Override
+    public void onComplete() {
+        if (done) {
+            return;
+        }
+        finishLine();
+        terminate(null);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        if (!downstream.compareAndSet(null, subscriber)) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("MaskingProcessor allows only one subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new Downstream());
+        drain();
+    }
+
+    /**
+     * 上游结束，最后一行（没有换行符）的脱敏结果放入预留的位置
+     */
+    private void finishLine() {
+        ByteBuffer last = masker.finish();
+        if (last.hasRemaining()) {
+            queue.offer(last);
+        }
+    }
+
+    private void terminate(Throwable t) {
+        error = t;
+        done = true;
+        drain();
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        for (;;) {
+            Subscriber<? super ByteBuffer> subscriber = downstream.get();
+            if (subscriber != null) {
+                long r = requested.get();
+                long emitted = 0;
+                while (emitted != r) {
+                    if (cancelled) {
+                        queue.clear();
+                        return;
+                    }
+                    boolean d = done;
+                    ByteBuffer next = queue.poll();
+                    if (next == null) {
+                        if (d) {
+                            complete(subscriber);
+                            return;
+                        }
+                        break;
+                    }
+                    subscriber.onNext(next);
+                    emitted++;
+                    if (++consumed == limit) {
+                        consumed = 0;
+                        if (!done) {
+                            requestUpstream(limit);
+                        }
+                    }
+                }
+                if (cancelled) {
+                    queue.clear();
+                    return;
+                }
+                if (done && queue.isEmpty()) {
+                    complete(subscriber);
+                    return;
+                }
+                if (emitted != 0 && r != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+            }
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                break;
+            }
+        }
+    }
+
+    private void requestUpstream(long n) {
+        for (;;) {
+            long current = upstreamRequests.get();
+            long next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            if (upstreamRequests.compareAndSet(current, next)) {
+                break;
+            }
+        }
+        signalUpstream();
+    }
+
+    private void cancelUpstream() {
+        upstreamCancelled = true;
+        signalUpstream();
+    }
+
+    /**
+     * 串行地把累计的请求和取消转发给上游，上游尚未订阅时保留到 onSubscribe
+     */
+    private void signalUpstream() {
+        if (upstreamWip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        for (;;) {
+            Subscription s = upstream.get();
+            if (s != null) {
+                if (upstreamCancelled) {
+                    s.cancel();
+                    return;
+                }
+                long n = upstreamRequests.getAndSet(0);
+                if (n > 0) {
+                    s.request(n);
+                }
+            }
+            missed = upstreamWip.addAndGet(-missed);
+            if (missed == 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 只在 drain 中调用，之后不再进入 drain 的循环
+     */
+    private void complete(Subscriber<? super ByteBuffer> subscriber) {
+        cancelled = true;
+        Throwable t = error;
+        if (t != null) {
+            subscriber.onError(t);
+        } else {
+            subscriber.onComplete();
+        }
+    }
+
+    private final class Downstream implements Subscription {
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // 规范 3.9：立即以 IllegalArgumentException 结束，丢弃尚未发送的结果
+                cancelUpstream();
+                error = new IllegalArgumentException("non-positive request: " + n);
+                done = true;
+                queue.clear();
+                drain();
+                return;
+            }
+            for (;;) {
+                long current = requested.get();
+                long next = current + n < 0 ? Long.MAX_VALUE : current + n;
+                if (requested.compareAndSet(current, next)) {
+                    break;
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            cancelUpstream();
+            if (wip.getAndIncrement() == 0) {
+                queue.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package io.github.lancelot.datamasking.reactive;
+
+import io.github.lancelot.datamasking.Utf8LineMasker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地 socket 上的脱敏服务，作为日志投递前的 sidecar：应用按行写入 NDJSON 日志，
+ * 脱敏后的完整行写入同一个 sink（例如日志投递程序读取的管道或文件）
+ *
+ * 每条连接一个线程，阻塞读写：JDK 21+ 使用虚拟线程（通过反射创建，构建和运行仍兼容 Java 8），
+ * 否则使用最多 maxConnections 个平台线程。连接数达到上限时不再 accept，sink 写得慢时读线程阻塞，
+ * 由 TCP 窗口把背压传递给写日志的应用，内存占用只与连接数和最长的行有关。
+ *
+ * 不同连接的行以整行为单位写入 sink，不会交错；超过 {@link #MAX_LINE_SIZE} 的单行分段写出，不保证整行。
+ * 连接关闭时最后一行没有换行符的补上 '\n'。
+ */
+public final class MaskingSocketServer implements Closeable {
+
+    static final int DEFAULT_MAX_CONNECTIONS = 256;
+
+    /**
+     * 单行在内存中等待换行符的上限
+     */
+    static final int MAX_LINE_SIZE = 1024 * 1024;
+
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private static final AtomicInteger SERVER_IDS = new AtomicInteger();
+
+    private final ServerSocket server;
+
+    private final OutputStream sink;
+
+    private final Semaphore permits;
+
+    private final ExecutorService connections;
+
+    private final boolean virtualThreads;
+
+    private final Set<Socket> open = ConcurrentHashMap.newKeySet();
+
+    private final Thread acceptor;
+
+    private volatile boolean closed;
+
+    private MaskingSocketServer(ServerSocket server, OutputStream sink, int maxConnections) {
+        this.server = server;
+        this.sink = sink;
+        this.permits = new Semaphore(maxConnections);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.connections = virtual != null ? virtual : newPlatformExecutor(maxConnections);
+        this.acceptor = new Thread(this::acceptLoop, "data-masking-acceptor-" + SERVER_IDS.incrementAndGet());
+        this.acceptor.setDaemon(true);
+    }
+
+    /**
+     * 在本机回环地址上启动
+     *
+     * @param port 端口，0 表示任意空闲端口
+     * @param sink 脱敏结果的输出，所有连接共用，不会被关闭
+     */
+    public static MaskingSocketServer start(int port, OutputStream sink) throws IOException {
+        return start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), sink, DEFAULT_MAX_CONNECTIONS);
+    }
+
+    /**
+     * @param bind 监听地址
+     * @param sink 脱敏结果的输出，所有连接共用，不会被关闭
+     * @param maxConnections 同时处理的连接数上限
+     */
+    public static MaskingSocketServer start(SocketAddress bind, OutputStream sink, int maxConnections)
+            throws IOException {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("maxConnections must be positive: " + maxConnections);
+        }
+        ServerSocket server = new ServerSocket();
+        try {
+            server.bind(bind);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        MaskingSocketServer result = new MaskingSocketServer(server, sink, maxConnections);
+        result.acceptor.start();
+        return result;
+    }
+
+    public SocketAddress localAddress() {
+        return server.getLocalSocketAddress();
+    }
+
+    /**
+     * @return 是否使用虚拟线程处理连接
+     */
+    public boolean virtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * 停止监听并断开所有连接，已经读到但还没有换行符的内容会丢弃
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        server.close();
+        for (Socket socket : open) {
+            socket.close();
+        }
+        connections.shutdownNow();
+        try {
+            connections.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            Socket socket;
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                permits.release();
+                if (closed) {
+                    return;
+                }
+                continue;
+            }
+            open.add(socket);
+            try {
+                connections.execute(() -> handle(socket));
+            } catch (RuntimeException e) {
+                release(socket);
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        Utf8LineMasker masker = new Utf8LineMasker();
+        LineBuffer lines = new LineBuffer();
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        try (InputStream in = socket.getInputStream()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                lines.append(masker.mask(ByteBuffer.wrap(buffer, 0, read)));
+                lines.writeCompleteLines(false);
+            }
+            lines.append(masker.finish());
+            lines.writeCompleteLines(true);
+        } catch (IOException e) {
+            // 连接异常断开或服务关闭，未结束的行丢弃
+        } finally {
+            release(socket);
+        }
+    }
+
+    private void release(Socket socket) {
+        open.remove(socket);
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // 已经断开
+        }
+        permits.release();
+    }
+
+    /**
+     * 连接内缓存脱敏结果，按整行写入共用的 sink
+     */
+    private final class LineBuffer {
+
+        private byte[] bytes = new byte[READ_BUFFER_SIZE + 64];
+
+        private int length;
+
+        /**
+         * bytes[0, checked) 中没有换行符
+         */
+        private int checked;
+
+        void append(ByteBuffer masked) {
+            int n = masked.remaining();
+            if (length + n > bytes.length) {
+                byte[] grown = new byte[Math.max(bytes.length * 2, length + n)];
+                System.arraycopy(bytes, 0, grown, 0, length);
+                bytes = grown;
+            }
+            masked.get(bytes, length, n);
+            length += n;
+        }
+
+        /**
+         * @param last 连接结束，剩余内容补上换行符全部写出
+         */
+        void writeCompleteLines(boolean last) throws IOException {
+            int end = length;
+            if (last) {
+                if (length == 0) {
+                    return;
+                }
+                if (bytes[length - 1] != '\n') {
+                    append(ByteBuffer.wrap(new byte[]{'\n'}));
+                    end = length;
+                }
+            } else if (length < MAX_LINE_SIZE) {
+                end = lastNewline() + 1;
+                if (end == 0) {
+                    return;
+                }
+            }
+            synchronized (sink) {
+                sink.write(bytes, 0, end);
+                sink.flush();
+            }
+            System.arraycopy(bytes, end, bytes, 0, length - end);
+            length -= end;
+            checked = length;
+            if (length == 0 && bytes.length > MAX_LINE_SIZE) {
+                bytes = new byte[READ_BUFFER_SIZE + 64];
+            }
+        }
+
+        private int lastNewline() {
+            for (int i = length - 1; i >= checked; i--) {
+                if (bytes[i] == '\n') {
+                    return i;
+                }
+            }
+            checked = length;
+            return -1;
+        }
+    }
+
+    /**
+     * JDK 21+ 的 Executors.newVirtualThreadPerTaskExecutor()，更早的版本返回 null
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformExecutor(int maxConnections) {
+        AtomicInteger threadIds = new AtomicInteger();
+        // 连接数由 permits 限制，队列中最多只有刚释放 permit、线程还没回到池中时提交的任务
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConnections, maxConnections, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "data-masking-connection-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
@@ -0,0 +1,301 @@
+package io.github.lancelot.datamasking.reactive;
+
+import io.github.lancelot.datamasking.SensitiveInfoRegistry;
+import io.github.lancelot.datamasking.SensitiveType;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+public class MaskingProcessorTest {
+
+    private static final String LINE = "{\"mobile\":\"13800138000\",\"id\":1}\n";
+
+    private static final String MASKED = "{\"mobile\":\"138******8000\",\"id\":1}\n";
+
+    private Map<String, SensitiveType> saved;
+
+    @BeforeMethod
+    public void save() {
+        saved = new HashMap<>(SensitiveInfoRegistry.snapshot().fields());
+        SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+    }
+
+    @AfterMethod
+    public void restore() {
+        SensitiveInfoRegistry.replaceAll(saved);
+    }
+
+    @Test
+    public void testMasksLinesAcrossChunks() {
+        byte[] bytes = (LINE + LINE + "{\"mobile\":\"13800138000\"}").getBytes(StandardCharsets.UTF_8);
+        List<ByteBuffer> chunks = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += 7) {
+            chunks.add(ByteBuffer.wrap(bytes, i, Math.min(7, bytes.length - i)));
+        }
+        ChunkPublisher publisher = new ChunkPublisher(chunks);
+        MaskingProcessor processor = new MaskingProcessor(4);
+        publisher.subscribe(processor);
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+        processor.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertTrue(subscriber.completed);
+        assertEquals(subscriber.text(), MASKED + MASKED + "{\"mobile\":\"138******8000\"}");
+    }
+
+    @Test
+    public void testBackpressure() {
+        List<ByteBuffer> chunks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            chunks.add(ByteBuffer.wrap(LINE.getBytes(StandardCharsets.UTF_8)));
+        }
+        ChunkPublisher publisher = new ChunkPublisher(chunks);
+        MaskingProcessor processor = new MaskingProcessor(8);
+        publisher.subscribe(processor);
+        // 下游还没有订阅时只预取 prefetch 个
+        assertEquals(publisher.emitted, 8);
+
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+        processor.subscribe(subscriber);
+        subscriber.subscription.request(3);
+        assertEquals(subscriber.chunks.size(), 3);
+        assertEquals(publisher.emitted, 8);
+        subscriber.subscription.request(3);
+        // 消费满 3/4 个 prefetch 后补充
+        assertEquals(subscriber.chunks.size(), 6);
+        assertEquals(publisher.emitted, 14);
+        assertTrue(publisher.emitted - subscriber.chunks.size() <= 8);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(subscriber.chunks.size(), 100);
+        assertTrue(subscriber.completed);
+        assertEquals(subscriber.text(), new String(new char[100]).replace("\0", MASKED));
+    }
+
+    @Test
+    public void testConcurrentProducerAndConsumer() throws Exception {
+        MaskingProcessor processor = new MaskingProcessor(16);
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+        processor.subscribe(subscriber);
+        List<ByteBuffer> chunks = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            chunks.add(ByteBuffer.wrap(LINE.getBytes(StandardCharsets.UTF_8)));
+        }
+        ChunkPublisher publisher = new ChunkPublisher(chunks);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            pool.execute(() -> publisher.subscribe(processor));
+            CountDownLatch requesting = new CountDownLatch(1);
+            pool.execute(() -> {
+                while (!subscriber.completed) {
+                    subscriber.subscription.request(5);
+                    Thread.yield();
+                }
+                requesting.countDown();
+            });
+            assertTrue(requesting.await(30, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertNull(subscriber.error);
+        assertEquals(subscriber.chunks.size(), 10000);
+        assertFalse(publisher.overlapping);
+    }
+
+    @Test
+    public void testSecondSubscriberIsRejected() {
+        MaskingProcessor processor = new MaskingProcessor();
+        processor.subscribe(new CollectingSubscriber());
+        CollectingSubscriber second = new CollectingSubscriber();
+        processor.subscribe(second);
+        assertTrue(second.error instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testNonPositiveRequest() {
+        List<ByteBuffer> chunks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            chunks.add(ByteBuffer.wrap(LINE.getBytes(StandardCharsets.UTF_8)));
+        }
+        ChunkPublisher publisher = new ChunkPublisher(chunks);
+        MaskingProcessor processor = new MaskingProcessor(4);
+        publisher.subscribe(processor);
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+        processor.subscribe(subscriber);
+        subscriber.subscription.request(0);
+        // 队列中已经有结果也立即结束
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertTrue(subscriber.chunks.isEmpty());
+        assertTrue(publisher.cancelled);
+    }
+
+    @Test
+    public void testCancel() {
+        List<ByteBuffer> chunks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            chunks.add(ByteBuffer.wrap(LINE.getBytes(StandardCharsets.UTF_8)));
+        }
+        ChunkPublisher publisher = new ChunkPublisher(chunks);
+        MaskingProcessor processor = new MaskingProcessor(4);
+        publisher.subscribe(processor);
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+        processor.subscribe(subscriber);
+        subscriber.subscription.request(1);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(10);
+        assertTrue(publisher.cancelled);
+        assertEquals(subscriber.chunks.size(), 1);
+        assertFalse(subscriber.completed);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidPrefetch() {
+        new MaskingProcessor(0);
+    }
+
+    /**
+     * 按请求数量同步推送的上游，记录对 Subscription 的调用是否重叠
+     */
+    private static final class ChunkPublisher {
+
+        private final List<ByteBuffer> chunks;
+
+        volatile int emitted;
+
+        volatile boolean cancelled;
+
+        volatile boolean overlapping;
+
+        private long demand;
+
+        private boolean emitting;
+
+        private final Object lock = new Object();
+
+        /**
+         * 正在调用 request 的线程，同一线程的重入是允许的
+         */
+        private Thread caller;
+
+        private int depth;
+
+        ChunkPublisher(List<ByteBuffer> chunks) {
+            this.chunks = chunks;
+        }
+
+        void subscribe(Subscriber<ByteBuffer> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                    boolean owner = enter();
+                    try {
+                        synchronized (lock) {
+                            demand += n;
+                            if (emitting) {
+                                return;
+                            }
+                            emitting = true;
+                        }
+                        for (;;) {
+                            synchronized (lock) {
+                                if (demand == 0 || cancelled || emitted == chunks.size()) {
+                                    emitting = false;
+                                    break;
+                                }
+                                demand--;
+                            }
+                            subscriber.onNext(chunks.get(emitted++));
+                        }
+                        if (emitted == chunks.size() && !cancelled) {
+                            cancelled = true;
+                            subscriber.onComplete();
+                        }
+                    } finally {
+                        exit(owner);
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+
+        private boolean enter() {
+            synchronized (lock) {
+                Thread current = Thread.currentThread();
+                if (caller != null && caller != current) {
+                    overlapping = true;
+                    return false;
+                }
+                caller = current;
+                depth++;
+                return true;
+            }
+        }
+
+        private void exit(boolean owner) {
+            synchronized (lock) {
+                if (owner && --depth == 0) {
+                    caller = null;
+                }
+            }
+        }
+    }
+
+    private static final class CollectingSubscriber implements Subscriber<ByteBuffer> {
+
+        final List<ByteBuffer> chunks = new ArrayList<>();
+
+        volatile Subscription subscription;
+
+        volatile boolean completed;
+
+        volatile Throwable error;
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+        }
+
+        @Override
+        public void onNext(ByteBuffer chunk) {
+            chunks.add(chunk);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+
+        String text() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (ByteBuffer chunk : chunks) {
+                out.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package io.github.lancelot.datamasking.reactive;
+
+import io.github.lancelot.datamasking.SensitiveInfoRegistry;
+import io.github.lancelot.datamasking.SensitiveType;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public class MaskingSocketServerTest {
+
+    private Map<String, SensitiveType> saved;
+
+    @BeforeMethod
+    public void save() {
+        saved = new HashMap<>(SensitiveInfoRegistry.snapshot().fields());
+        SensitiveInfoRegistry.put("mobile", SensitiveType.MOBILE_PHONE);
+    }
+
+    @AfterMethod
+    public void restore() {
+        SensitiveInfoRegistry.replaceAll(saved);
+    }
+
+    @Test
+    public void testLinesFromConnectionsAreNotInterleaved() throws Exception {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        List<Thread> clients = new ArrayList<>();
+        try (MaskingSocketServer server = MaskingSocketServer.start(0, sink)) {
+            assertEquals(server.virtualThreads(), MaskingSocketServer.newVirtualThreadExecutor() != null);
+            for (int c = 0; c < 4; c++) {
+                int client = c;
+                Thread thread = new Thread(() -> {
+                    try (Socket socket = new Socket()) {
+                        socket.connect(server.localAddress());
+                        OutputStream out = socket.getOutputStream();
+                        for (int i = 0; i < 200; i++) {
+                            byte[] line = ("{\"client\":" + client + ",\"mobile\":\"13800138000\"}\n").getBytes(StandardCharsets.UTF_8);
+                            // 每行分两次写，制造跨块的行
+                            out.write(line, 0, 15);
+                            out.flush();
+                            out.write(line, 15, line.length - 15);
+                        }
+                        out.write("{\"client\":9,\"mobile\":\"1380".getBytes(StandardCharsets.UTF_8));
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                thread.start();
+                clients.add(thread);
+            }
+            for (Thread thread : clients) {
+                thread.join();
+            }
+            long deadline = System.currentTimeMillis() + 10000;
+            while (lines(sink).size() < 4 * 201 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+        List<String> lines = lines(sink);
+        assertEquals(lines.size(), 4 * 201);
+        int unclosed = 0;
+        for (String line : lines) {
+            if (line.startsWith("{\"client\":9,")) {
+                // 连接关闭时未闭合的值同样脱敏
+                assertFalse(line.contains("1380"), line);
+                unclosed++;
+            } else {
+                assertTrue(line.matches("\\{\"client\":[0-3],\"mobile\":\"138\\*{6}8000\"}"), line);
+            }
+        }
+        assertEquals(unclosed, 4);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidMaxConnections() throws IOException {
+        MaskingSocketServer.start(null, new ByteArrayOutputStream(), 0);
+    }
+
+    private static List<String> lines(ByteArrayOutputStream sink) {
+        String text;
+        synchronized (sink) {
+            text = new String(sink.toByteArray(), StandardCharsets.UTF_8);
+        }
+        return text.isEmpty() ? new ArrayList<String>() : Arrays.asList(text.split("\n"));
+    }
+}